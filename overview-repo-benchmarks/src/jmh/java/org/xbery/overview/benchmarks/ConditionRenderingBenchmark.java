@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xbery.overview.filter.Condition;
+import org.xbery.overview.repo.Conditions;
+import org.xbery.overview.sql.filter.SqlCondition;
+import org.xbery.overview.sql.filter.SqlConditionBuilder;
+import org.xbery.overview.sql.filter.SqlConditionRenderer;
+import org.xbery.overview.sql.filter.SqlRenderContext;
+import org.xbery.overview.sql.mapper.DbTypeConvertor;
+import org.xbery.overview.sql.repo.VoucherMapper;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Rendering of filter conditions to SQL.
+ * @author Radek Beran
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ConditionRenderingBenchmark {
+
+    /** Count of values in IN condition. */
+    @Param({"10", "1000"})
+    public int inSize;
+
+    private final SqlConditionBuilder conditionBuilder = new SqlConditionBuilder();
+    private final SqlConditionRenderer conditionRenderer = conditionBuilder.getRenderer();
+    private final Function<Object, Object> toDbValue = new DbTypeConvertor()::toDbValue;
+
+    private Condition eqCondition;
+    private Condition compositeCondition;
+    private Condition inCondition;
+    private List<Condition> filterConditions;
+
+    @Setup
+    public void setUp() {
+        VoucherMapper mapper = VoucherMapper.getInstance();
+        Instant now = Instant.now();
+        eqCondition = Conditions.eq(mapper.code, "ABCD");
+        compositeCondition = Conditions.and(
+            Conditions.or(Conditions.eq(mapper.reserved_by, "customer1"), Conditions.contains(mapper.invoice_note, "January")),
+            Conditions.and(Conditions.gte(mapper.valid_from, now), Conditions.lt(mapper.discount_price, BigDecimal.valueOf(1000))));
+        List<String> codes = new ArrayList<>();
+        for (int i = 0; i < inSize; i++) {
+            codes.add("CODE" + i);
+        }
+        inCondition = Conditions.in(mapper.code, codes);
+        filterConditions = Arrays.asList(eqCondition, compositeCondition, inCondition);
+    }
+
+    @Benchmark
+    public SqlCondition eq() {
+        return conditionBuilder.build(eqCondition, toDbValue);
+    }
+
+    @Benchmark
+    public SqlCondition composite() {
+        return conditionBuilder.build(compositeCondition, toDbValue);
+    }
+
+    @Benchmark
+    public SqlCondition in() {
+        return conditionBuilder.build(inCondition, toDbValue);
+    }
+
+    /**
+     * WHERE clause rendered directly to the statement, as done by repository.
+     */
+    @Benchmark
+    public List<Object> whereClause(Blackhole blackhole) {
+        StringBuilder sql = new StringBuilder("SELECT code FROM voucher WHERE ");
+        List<Object> parameters = new ArrayList<>(Math.max(10, 2 * filterConditions.size()));
+        conditionRenderer.renderConjunction(filterConditions, new SqlRenderContext(conditionRenderer, sql, parameters, toDbValue));
+        blackhole.consume(sql);
+        return parameters;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.benchmarks;
+
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xbery.overview.domain.Voucher;
+import org.xbery.overview.mapper.Attribute;
+import org.xbery.overview.mapper.MapAttributeSource;
+import org.xbery.overview.sql.mapper.ResultSetAttributeSource;
+import org.xbery.overview.sql.repo.VoucherMapper;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building of entities from attribute sources: JDBC result set and map of attribute values.
+ * The result set is held in memory, so only the mapping is measured, not the database.
+ * @author Radek Beran
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EntityBuildingBenchmark {
+
+    /** Count of built entities. */
+    @Param({"100", "10000"})
+    public int rows;
+
+    private final VoucherMapper mapper = VoucherMapper.getInstance();
+    private SimpleResultSet resultSet;
+    private List<Map<String, Object>> attributeMaps;
+
+    @Setup
+    public void setUp() {
+        resultSet = new SimpleResultSet();
+        resultSet.setAutoClose(false);
+        for (Attribute<Voucher, ?> attr : mapper.getAttributes()) {
+            resultSet.addColumn(attr.getName(), sqlTypeOf(attr.getAttributeClass()), 0, 0);
+        }
+        attributeMaps = new ArrayList<>();
+        Instant now = Instant.now();
+        for (int i = 0; i < rows; i++) {
+            Map<String, Object> values = new HashMap<>();
+            values.put(mapper.code.getName(), "CODE" + i);
+            values.put(mapper.creation_time.getName(), now);
+            values.put(mapper.discount_price.getName(), BigDecimal.valueOf(100000 + i, 2));
+            values.put(mapper.valid_from.getName(), now);
+            values.put(mapper.valid_to.getName(), now.plusSeconds(3600));
+            values.put(mapper.reserved_by.getName(), "customer" + i);
+            values.put(mapper.invoice_note.getName(), "January invoice");
+            attributeMaps.add(values);
+
+            Object[] row = new Object[mapper.getAttributes().size()];
+            int c = 0;
+            for (Attribute<Voucher, ?> attr : mapper.getAttributes()) {
+                Object value = values.get(attr.getName());
+                row[c++] = value instanceof Instant ? Timestamp.from((Instant)value) : value;
+            }
+            resultSet.addRow(row);
+        }
+    }
+
+    @Benchmark
+    public void fromResultSet(Blackhole blackhole) throws SQLException {
+        resultSet.beforeFirst();
+        ResultSetAttributeSource attributeSource = new ResultSetAttributeSource(resultSet);
+        while (resultSet.next()) {
+            blackhole.consume(mapper.buildEntity(attributeSource));
+        }
+    }
+
+    @Benchmark
+    public void fromMapAttributeSource(Blackhole blackhole) {
+        for (Map<String, Object> values : attributeMaps) {
+            blackhole.consume(mapper.buildEntity(new MapAttributeSource(values)));
+        }
+    }
+
+    private static int sqlTypeOf(Class<?> attributeClass) {
+        int sqlType = Types.VARCHAR;
+        if (Instant.class.equals(attributeClass)) {
+            sqlType = Types.TIMESTAMP;
+        } else if (BigDecimal.class.equals(attributeClass)) {
+            sqlType = Types.DECIMAL;
+        }
+        return sqlType;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.benchmarks;
+
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.xbery.overview.data.VoucherTestData;
+import org.xbery.overview.domain.Voucher;
+import org.xbery.overview.mongo.mapper.DocumentAttributeSource;
+import org.xbery.overview.mongo.repo.AbstractMongoRepository;
+import org.xbery.overview.sql.repo.VoucherMapper;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion of entities to Mongo documents and back (no database is involved).
+ * @author Radek Beran
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MongoMappingBenchmark {
+
+    private final DocumentMapping mapping = new DocumentMapping();
+    private Voucher voucher;
+    private Document document;
+
+    @Setup
+    public void setUp() {
+        voucher = new VoucherTestData().createVoucher("ABCD", "customer1");
+        document = mapping.toDocument(voucher);
+    }
+
+    @Benchmark
+    public Document entityToDocument() {
+        return mapping.toDocument(voucher);
+    }
+
+    @Benchmark
+    public Voucher documentToEntity() {
+        return mapping.getEntityMapper().buildEntity(new DocumentAttributeSource(document));
+    }
+
+    /**
+     * Mongo repository used only for its conversions of entities to documents.
+     */
+    private static class DocumentMapping extends AbstractMongoRepository<Voucher, String, Object> {
+
+        Document toDocument(Voucher entity) {
+            return updateDocWithEntity(new Document(), entity);
+        }
+
+        @Override
+        public VoucherMapper getEntityMapper() {
+            return VoucherMapper.getInstance();
+        }
+
+        @Override
+        protected MongoDatabase getDatabase() {
+            throw new UnsupportedOperationException("Database is not used for mapping");
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.xbery.overview.Order;
+import org.xbery.overview.Overview;
+import org.xbery.overview.Pagination;
+import org.xbery.overview.VoucherTestDb;
+import org.xbery.overview.data.CustomerTestData;
+import org.xbery.overview.data.SupplyPointTestData;
+import org.xbery.overview.data.VoucherTestData;
+import org.xbery.overview.domain.Customer;
+import org.xbery.overview.domain.CustomerFilter;
+import org.xbery.overview.domain.SupplyPoint;
+import org.xbery.overview.domain.Voucher;
+import org.xbery.overview.sql.repo.CustomerMapper;
+import org.xbery.overview.sql.repo.CustomerRepository;
+import org.xbery.overview.sql.repo.CustomerRepositoryImpl;
+import org.xbery.overview.sql.repo.SupplyPointRepository;
+import org.xbery.overview.sql.repo.SupplyPointRepositoryImpl;
+import org.xbery.overview.sql.repo.VoucherMapper;
+import org.xbery.overview.sql.repo.VoucherRepository;
+import org.xbery.overview.sql.repo.VoucherRepositoryImpl;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trips of SQL repository to in-memory H2 database. Tables are filled with given count of vouchers and customers
+ * (each customer having two supply points).
+ * @author Radek Beran
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SqlRepositoryBenchmark {
+
+    private static final String CREATED_CODE_PREFIX = "NEW";
+    private static final int PAGE_SIZE = 50;
+
+    /** Count of records in the tables, also count of vouchers created by createAll. */
+    @Param({"100", "10000"})
+    public int size;
+
+    private final VoucherTestData voucherTestData = new VoucherTestData();
+    private final CustomerTestData customerTestData = new CustomerTestData();
+    private final SupplyPointTestData supplyPointTestData = new SupplyPointTestData();
+
+    private DataSource dataSource;
+    private VoucherRepository voucherRepository;
+    private CustomerRepository customerRepository;
+    private Overview<Object> voucherOverview;
+    private Overview<CustomerFilter> customerOverview;
+    private int createdSequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = new VoucherTestDb().createDataSource("benchmark_" + size);
+        voucherRepository = new VoucherRepositoryImpl(dataSource);
+        customerRepository = new CustomerRepositoryImpl(dataSource);
+        SupplyPointRepository supplyPointRepository = new SupplyPointRepositoryImpl(dataSource);
+
+        List<Voucher> vouchers = new ArrayList<>();
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            vouchers.add(voucherTestData.createVoucher("V" + i, "customer" + i));
+            customers.add(customerTestData.createCustomer("customer" + i + "@example.com", "First" + i, "Last" + i));
+        }
+        voucherRepository.createAll(vouchers, false);
+        List<SupplyPoint> supplyPoints = new ArrayList<>();
+        for (Customer customer : customerRepository.createAll(customers, true)) {
+            for (int s = 0; s < 2; s++) {
+                SupplyPoint supplyPoint = supplyPointTestData.createSupplyPoint(customer.getId() + "-" + s);
+                supplyPoint.setCustomerId(customer.getId());
+                supplyPoints.add(supplyPoint);
+            }
+        }
+        supplyPointRepository.createAll(supplyPoints, true);
+
+        // Page from the middle of the tables
+        Pagination pagination = new Pagination(size / 2, PAGE_SIZE);
+        voucherOverview = new Overview<>(null, Arrays.asList(new Order(VoucherMapper.getInstance().creation_time, true)), pagination);
+        customerOverview = new Overview<>(null, Arrays.asList(new Order(CustomerMapper.getInstance().id)), pagination);
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteCreated() throws SQLException {
+        try (Connection conn = dataSource.getConnection(); Statement statement = conn.createStatement()) {
+            statement.executeUpdate("DELETE FROM voucher WHERE code LIKE '" + CREATED_CODE_PREFIX + "%'");
+        }
+    }
+
+    @Benchmark
+    public Voucher create() {
+        return voucherRepository.create(voucherTestData.createVoucher(nextCreatedCode()), false);
+    }
+
+    @Benchmark
+    public List<Voucher> createAll() {
+        List<Voucher> vouchers = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            vouchers.add(voucherTestData.createVoucher(nextCreatedCode()));
+        }
+        return voucherRepository.createAll(vouchers, false);
+    }
+
+    @Benchmark
+    public List<Voucher> findByOverview() {
+        return voucherRepository.findByOverview(voucherOverview);
+    }
+
+    @Benchmark
+    public List<Customer> findJoinedWithMany() {
+        return customerRepository.findWithSupplyPoints(customerOverview);
+    }
+
+    private String nextCreatedCode() {
+        return CREATED_CODE_PREFIX + (createdSequence++);
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.mongo.filter;
+
+/**
+ * Way of translating contains condition to Mongo filter, chosen by {@link MongoConditionBuilder}.
+ * @author Radek Beran
+ */
+public enum ContainsStrategy {
+    /**
+     * Unanchored regular expression matching the value anywhere in the field. Exact semantics of contains,
+     * but index on the field can be only scanned as a whole.
+     */
+    REGEX,
+
+    /**
+     * Regular expression anchored to the start of the field, which is evaluated using bounds of index on the field.
+     * Only values that start with the searched value are matched.
+     */
+    PREFIX,
+
+    /**
+     * $text search using text index of the collection, which must exist. Whole words (stems) of the searched value
+     * are matched in the text-indexed field. It can be used only for the text attribute declared
+     * in {@link MongoConditionBuilder} and only once in a query.
+     */
+    TEXT
+}
@@ -18,17 +18,77 @@ package org.xbery.overview.mongo.filter;
 
 import com.mongodb.Function;
 import com.mongodb.client.model.Filters;
+import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.xbery.overview.filter.*;
 
-import java.util.regex.Pattern;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.stream.Collectors;
 
 /**
- * Builds Mongo conditions from various condition types.
+ * Builds Mongo conditions from various condition types. Conditions are translated without server-side JavaScript
+ * ($where), so they can be evaluated using indexes. Comparison of attributes uses $expr that requires MongoDB 3.6,
+ * for older servers it can be translated to $where, see {@link #MongoConditionBuilder(ContainsStrategy, boolean)}.
  * @author Radek Beran
  */
 public class MongoConditionBuilder {
 
+    /**
+     * Regular expression metacharacters that are escaped in searched values.
+     */
+    private static final String REGEX_METACHARACTERS = "\\^$.|?*+()[]{}";
+
+    private final ContainsStrategy containsStrategy;
+    private final boolean whereAttributesComparison;
+    private final String textAttributeName;
+
+    public MongoConditionBuilder() {
+        this(ContainsStrategy.REGEX);
+    }
+
+    /**
+     * @param containsStrategy default translation of contains conditions
+     */
+    public MongoConditionBuilder(ContainsStrategy containsStrategy) {
+        this(containsStrategy, false);
+    }
+
+    /**
+     * @param containsStrategy default translation of contains conditions
+     * @param whereAttributesComparison true if attributes should be compared by $where JavaScript instead of $expr,
+     * for MongoDB servers older than 3.6
+     */
+    public MongoConditionBuilder(ContainsStrategy containsStrategy, boolean whereAttributesComparison) {
+        this(containsStrategy, whereAttributesComparison, null);
+    }
+
+    /**
+     * @param containsStrategy default translation of contains conditions
+     * @param whereAttributesComparison true if attributes should be compared by $where JavaScript instead of $expr,
+     * for MongoDB servers older than 3.6
+     * @param textAttributeName name of the attribute covered by text index of the collection, the only attribute
+     * that can be searched by {@link ContainsStrategy#TEXT}
+     */
+    public MongoConditionBuilder(ContainsStrategy containsStrategy, boolean whereAttributesComparison, String textAttributeName) {
+        this.containsStrategy = containsStrategy;
+        this.whereAttributesComparison = whereAttributesComparison;
+        this.textAttributeName = textAttributeName;
+    }
+
+    /**
+     * Builds Mongo conditions from conditions of one query.
+     * @throws IllegalStateException if the conditions contain more than one text search, only one $text is allowed in a query
+     */
+    public List<MongoCondition> build(List<Condition> conditions, Function<Object, Object> valueToDbSupportedValue) {
+        int textSearchCount = conditions.stream().mapToInt(this::countTextSearches).sum();
+        if (textSearchCount > 1) {
+            throw new IllegalStateException("Only one text search can be used in a query, conditions contain " + textSearchCount + " text searches");
+        }
+        return conditions.stream().map(c -> build(c, valueToDbSupportedValue)).collect(Collectors.toList());
+    }
+
     public MongoCondition build(Condition condition, Function<Object, Object> valueToDbSupportedValue) {
         MongoCondition mongoCondition = null;
         if (condition instanceof MongoCondition) {
@@ -49,22 +109,22 @@ public class MongoConditionBuilder {
             GteCondition c = (GteCondition)condition;
             mongoCondition = new MongoCondition(Filters.gte(c.getAttribute().getName(), valueToDbSupportedValue.apply(c.getValue())));
         } else if (condition instanceof EqAttributesCondition) {
-            EqAttributesCondition c = (EqAttributesCondition)condition;
-            // This isn't very efficient since $where doesn't take advantage of indexing. An alternative would be to
-            // have a boolean that you set when inserting/updating that checks for seller/author equality.
-            // See https://www.codeschool.com/discuss/t/how-to-query-based-on-the-variable-value-stored-in-another-field/20979/3
-            mongoCondition = new MongoCondition(Filters.where("this." + c.getFirstAttribute().getName() + " == this." + c.getSecondAttribute().getName()));
+            mongoCondition = new MongoCondition(buildEqAttributes((EqAttributesCondition)condition));
         } else if (condition instanceof ContainsCondition) {
             ContainsCondition c = (ContainsCondition)condition;
-            mongoCondition = new MongoCondition(Filters.regex(c.getAttribute().getName(), ".*" + Pattern.quote("" + valueToDbSupportedValue.apply(c.getValue())) + ".*"));
+            mongoCondition = new MongoCondition(buildContains(c, "" + valueToDbSupportedValue.apply(c.getValue())));
         } else if (condition instanceof InCondition) {
             InCondition c = (InCondition)condition;
             if (c.getValues() != null && !c.getValues().isEmpty()) {
-                mongoCondition = new MongoCondition(Filters.in(c.getAttribute().getName(), c.getValues().stream().map(v -> valueToDbSupportedValue.apply(v)).collect(Collectors.toList())));
+                // Typed list, otherwise the values would be passed as one item of varargs
+                List<Object> values = ((List<?>)c.getValues()).stream().map(v -> valueToDbSupportedValue.apply(v)).collect(Collectors.toList());
+                mongoCondition = new MongoCondition(Filters.in(c.getAttribute().getName(), values));
             } else {
                 // empty values for IN, value of attribute is certainly not among empty values
-                mongoCondition = new MongoCondition(Filters.where("1 == 0"));
+                mongoCondition = new MongoCondition(createAlwaysFalseFilter());
             }
+        } else if (condition instanceof FalseCondition) {
+            mongoCondition = new MongoCondition(createAlwaysFalseFilter());
         } else if (condition instanceof OrCondition) {
             OrCondition c = (OrCondition)condition;
             mongoCondition = new MongoCondition(Filters.or(build(c.getFirstCondition(), valueToDbSupportedValue).getCondition(), build(c.getSecondCondition(), valueToDbSupportedValue).getCondition()));
@@ -76,4 +136,81 @@ public class MongoConditionBuilder {
         }
         return mongoCondition;
     }
+
+    public ContainsStrategy getContainsStrategy() {
+        return containsStrategy;
+    }
+
+    public boolean isWhereAttributesComparison() {
+        return whereAttributesComparison;
+    }
+
+    public String getTextAttributeName() {
+        return textAttributeName;
+    }
+
+    protected Bson buildEqAttributes(EqAttributesCondition condition) {
+        String firstName = condition.getFirstAttribute().getName();
+        String secondName = condition.getSecondAttribute().getName();
+        if (whereAttributesComparison) {
+            // $where JavaScript is not able to use indexes, but is supported also by Mongo older than 3.6
+            return Filters.where("this." + firstName + " == this." + secondName);
+        }
+        // Fields are compared by aggregation expression instead of $where JavaScript (requires Mongo 3.6)
+        return new Document("$expr", new Document("$eq", Arrays.asList("$" + firstName, "$" + secondName)));
+    }
+
+    /**
+     * Returns filter that matches no document. Empty $in on _id is answered from the index without JavaScript evaluation.
+     */
+    protected Bson createAlwaysFalseFilter() {
+        return Filters.in("_id", Collections.emptyList());
+    }
+
+    protected Bson buildContains(ContainsCondition condition, String value) {
+        String fieldName = condition.getAttribute().getName();
+        switch (selectContainsStrategy(condition)) {
+            case PREFIX:
+                return Filters.regex(fieldName, "^" + escapeRegex(value));
+            case TEXT:
+                if (!fieldName.equals(textAttributeName)) {
+                    throw new IllegalStateException("Text search can be used only for text-indexed attribute " + textAttributeName + ", not for " + fieldName);
+                }
+                return Filters.text(value);
+            default:
+                return Filters.regex(fieldName, escapeRegex(value));
+        }
+    }
+
+    /**
+     * Selects translation of given contains condition, subclasses can select strategy according to the attribute
+     * (for e.g. text search for attributes covered by text index).
+     * @param condition
+     * @return
+     */
+    protected ContainsStrategy selectContainsStrategy(ContainsCondition condition) {
+        return containsStrategy;
+    }
+
+    private int countTextSearches(Condition condition) {
+        int count = 0;
+        if (condition instanceof ContainsCondition) {
+            count = selectContainsStrategy((ContainsCondition)condition) == ContainsStrategy.TEXT ? 1 : 0;
+        } else if (condition instanceof Condition2) {
+            count = countTextSearches(((Condition2)condition).getFirstCondition()) + countTextSearches(((Condition2)condition).getSecondCondition());
+        }
+        return count;
+    }
+
+    protected String escapeRegex(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 8);
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (REGEX_METACHARACTERS.indexOf(ch) >= 0) {
+                sb.append('\\');
+            }
+            sb.append(ch);
+        }
+        return sb.toString();
+    }
 }
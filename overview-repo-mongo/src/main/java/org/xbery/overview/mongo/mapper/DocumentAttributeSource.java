@@ -17,12 +17,15 @@
 package org.xbery.overview.mongo.mapper;
 
 import org.xbery.overview.mapper.AttributeSource;
+import org.xbery.overview.mapper.Cardinality;
 import org.xbery.overview.mongo.repo.MongoConversions;
 import org.bson.Document;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 /**
  * {@link Document} attribute source.
@@ -67,6 +70,27 @@ public class DocumentAttributeSource implements AttributeSource {
         return value != null ? cls.cast(value) : null;
     }
 
+    /**
+     * Returns sub-entity built from embedded document, or list of sub-entities built from array of embedded documents.
+     * @param attribute embedded attribute
+     * @param attributeName name of the field with embedded document(s)
+     * @return sub-entity or list of sub-entities according to cardinality of the attribute, null if the field is missing
+     */
+    public <S> Object getEmbedded(EmbeddedAttr<?, ?, S> attribute, String attributeName) {
+        Object value = doc.get(attributeName);
+        if (attribute.getCardinality() == Cardinality.ONE) {
+            return value instanceof Document ? attribute.createEmbeddedEntity(new DocumentAttributeSource((Document)value)) : null;
+        }
+        if (!(value instanceof List)) {
+            return null;
+        }
+        List<S> subEntities = new ArrayList<>();
+        for (Object item : (List<?>)value) {
+            subEntities.add(item instanceof Document ? attribute.createEmbeddedEntity(new DocumentAttributeSource((Document)item)) : null);
+        }
+        return subEntities;
+    }
+
     protected Long getLong(String attributeName) {
         return doc.getLong(attributeName);
     }
@@ -85,7 +109,7 @@ public class DocumentAttributeSource implements AttributeSource {
     }
 
     protected BigDecimal getBigDecimal(String attributeName) {
-        return MongoConversions.asBigDecimal(doc.getString(attributeName));
+        return MongoConversions.asBigDecimal(doc.get(attributeName));
     }
 
     protected Boolean getBoolean(String attributeName) {
@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.mongo.mapper;
+
+import org.xbery.overview.mapper.Attr;
+import org.xbery.overview.mapper.Attribute;
+import org.xbery.overview.mapper.AttributeSource;
+import org.xbery.overview.mapper.Cardinality;
+import org.xbery.overview.mapper.EntityMapper;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Attribute with embedded document ({@link Cardinality#ONE}) or array of embedded documents ({@link Cardinality#MANY})
+ * mapped to sub-entities by entity mapper of the sub-entities. Sub-entities are created by
+ * {@link EntityMapper#createEntity(AttributeSource, List, String)}, so they need not have primary attributes.
+ * Attributes of sub-entities can be used in conditions, ordering and projections as dotted paths created by {@link #path(Attribute)}.
+ * <p>
+ * Thread-safe: Yes, instance is immutable.
+ *
+ * @param <E> type of entity
+ * @param <A> type of attribute, type of sub-entity or list of sub-entities
+ * @param <S> type of sub-entity
+ * @author Radek Beran
+ */
+public class EmbeddedAttr<E, A, S> implements Attribute<E, A> {
+    private final Class<E> entityClass;
+    private final Class<A> attributeClass;
+    private final String name;
+    private final EntityMapper<S, ?> entityMapper;
+    private final Cardinality cardinality;
+    private final Function<E, A> fromEntity;
+    private final String namePrefix;
+
+    /**
+     * Creates attribute with one embedded document.
+     * @param entityClass class of entity
+     * @param name name of the field with embedded document
+     * @param entityMapper mapper of embedded sub-entity
+     * @param fromEntity sub-entity of entity
+     */
+    public static <E, S> EmbeddedAttr<E, S, S> ofOne(Class<E> entityClass, String name, EntityMapper<S, ?> entityMapper, Function<E, S> fromEntity) {
+        Class<S> subEntityClass = entityMapper.getAttributes().get(0).getEntityClass();
+        return new EmbeddedAttr<>(entityClass, subEntityClass, name, entityMapper, Cardinality.ONE, fromEntity, null);
+    }
+
+    /**
+     * Creates attribute with array of embedded documents.
+     * @param entityClass class of entity
+     * @param name name of the field with array of embedded documents
+     * @param entityMapper mapper of embedded sub-entities
+     * @param fromEntity list of sub-entities of entity
+     */
+    @SuppressWarnings("unchecked")
+    public static <E, S> EmbeddedAttr<E, List<S>, S> ofMany(Class<E> entityClass, String name, EntityMapper<S, ?> entityMapper, Function<E, List<S>> fromEntity) {
+        return new EmbeddedAttr<>(entityClass, (Class<List<S>>)(Class<?>)List.class, name, entityMapper, Cardinality.MANY, fromEntity, null);
+    }
+
+    private EmbeddedAttr(Class<E> entityClass, Class<A> attributeClass, String name, EntityMapper<S, ?> entityMapper, Cardinality cardinality,
+        Function<E, A> fromEntity, String namePrefix) {
+        if (entityMapper.getAttributes().isEmpty()) {
+            throw new IllegalStateException("Please define some attributes of embedded entity (attribute " + name + ")");
+        }
+        this.entityClass = entityClass;
+        this.attributeClass = attributeClass;
+        this.name = name;
+        this.entityMapper = entityMapper;
+        this.cardinality = cardinality;
+        this.fromEntity = fromEntity;
+        this.namePrefix = namePrefix;
+    }
+
+    /**
+     * Returns attribute with dotted path to given attribute of embedded sub-entity, for use in conditions, ordering and projections.
+     * For array of embedded documents, conditions match entities with some matching sub-entity, the path attribute
+     * is {@link Attribute#isMultiValued() multi-valued} and has no value in the entity.
+     * @param subAttribute attribute of sub-entity
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public <B> Attribute<E, B> path(Attribute<S, B> subAttribute) {
+        Function<E, B> fromParent = e -> {
+            if (cardinality == Cardinality.MANY) {
+                throw new UnsupportedOperationException("Path " + getPathName(subAttribute) + " into array of embedded documents has no single value");
+            }
+            S subEntity = (S)fromEntity.apply(e);
+            return subEntity != null ? subAttribute.getValue(subEntity) : null;
+        };
+        return Attr.of(entityClass, subAttribute.getAttributeClass(), getPathName(subAttribute)).get(fromParent)
+            .multiValued(cardinality == Cardinality.MANY || subAttribute.isMultiValued()).namePrefix(namePrefix).build();
+    }
+
+    /**
+     * Returns attribute with given dotted path (relative to this attribute) to attribute of embedded sub-entity,
+     * or null if there is no such attribute. Nested embedded attributes are resolved, too.
+     * @param subPath path of attribute in sub-entity, for e.g. "city" or "address.city"
+     */
+    public Attribute<E, ?> path(String subPath) {
+        for (Attribute<S, ?> subAttribute : entityMapper.getAttributes()) {
+            if (subAttribute.getName().equals(subPath)) {
+                return path(subAttribute);
+            }
+            if (subAttribute instanceof EmbeddedAttr && subPath.startsWith(subAttribute.getName() + ".")) {
+                Attribute<S, ?> nestedPath = ((EmbeddedAttr<S, ?, ?>)subAttribute).path(subPath.substring(subAttribute.getName().length() + 1));
+                return nestedPath != null ? path(nestedPath) : null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Creates sub-entity from given source of values of its attributes.
+     */
+    public S createEmbeddedEntity(AttributeSource attributeSource) {
+        return entityMapper.createEntity(attributeSource, entityMapper.getAttributes(), null);
+    }
+
+    @Override
+    public A getValueFromSource(AttributeSource attributeSource, String aliasPrefix) {
+        if (attributeSource instanceof DocumentAttributeSource) {
+            return (A)((DocumentAttributeSource)attributeSource).getEmbedded(this, getName(aliasPrefix != null ? aliasPrefix + getName() : null));
+        }
+        return Attribute.super.getValueFromSource(attributeSource, aliasPrefix);
+    }
+
+    @Override
+    public A getValue(E entity) {
+        return fromEntity.apply(entity);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Class<E> getEntityClass() {
+        return entityClass;
+    }
+
+    @Override
+    public Class<A> getAttributeClass() {
+        return attributeClass;
+    }
+
+    @Override
+    public String getNamePrefix() {
+        return namePrefix;
+    }
+
+    @Override
+    public Attribute<E, A> withNamePrefix(String namePrefix) {
+        return new EmbeddedAttr<>(entityClass, attributeClass, name, entityMapper, cardinality, fromEntity, namePrefix);
+    }
+
+    @Override
+    public <T> Attribute<E, T> as(Class<T> attrClass, Function<A, T> toNewType, Function<T, A> toOldType) {
+        throw new UnsupportedOperationException("Embedded attribute " + name + " cannot be converted to another type");
+    }
+
+    /**
+     * Returns mapper of embedded sub-entities.
+     */
+    public EntityMapper<S, ?> getEntityMapper() {
+        return entityMapper;
+    }
+
+    /**
+     * Returns {@link Cardinality#ONE} for embedded document, {@link Cardinality#MANY} for array of embedded documents.
+     */
+    public Cardinality getCardinality() {
+        return cardinality;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof EmbeddedAttr)) return false;
+        EmbeddedAttr<?, ?, ?> attr = (EmbeddedAttr<?, ?, ?>) o;
+        if (!entityClass.equals(attr.entityClass)) return false;
+        return name.equals(attr.name);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = entityClass.hashCode();
+        result = 31 * result + name.hashCode();
+        return result;
+    }
+
+    private String getPathName(Attribute<S, ?> subAttribute) {
+        return name + "." + subAttribute.getName();
+    }
+}
@@ -0,0 +1,377 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.mongo.mapper;
+
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecConfigurationException;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+import org.xbery.overview.mapper.Attribute;
+import org.xbery.overview.mapper.AttributeSource;
+import org.xbery.overview.mapper.Cardinality;
+import org.xbery.overview.mapper.EntityMapper;
+import org.xbery.overview.mongo.repo.DecimalStorage;
+import org.xbery.overview.mongo.repo.MongoConversions;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/**
+ * BSON codec of entities generated from {@link EntityMapper}. Attributes of entity are written directly to BSON fields
+ * named by the attributes and BSON fields are read directly to values of the attributes, without intermediate {@link org.bson.Document}.
+ * Values are converted to stored values by given value converter, usually by the repository, so they are stored
+ * in the same form as in updates and filters (by default instants as dates, enums as their names and decimal numbers
+ * according to {@link DecimalStorage}). Values of {@link EmbeddedAttr} attributes are written
+ * and read as embedded documents (or arrays of them) by codecs of the embedded entity mappers.
+ * @param <T> type of entity
+ * @author Radek Beran
+ */
+public class EntityCodec<T> implements Codec<T> {
+
+    private final EntityMapper<T, ?> entityMapper;
+    private final Class<T> entityClass;
+    private final List<Attribute<T, ?>> attributes;
+    /** Positions of attributes in the list of attributes, by attribute names. */
+    private final Map<String, Integer> attributeIndexes;
+    /** Converts value of attribute to value stored in the database. */
+    private final BiFunction<Attribute<?, ?>, Object, Object> valueConverter;
+    private final CodecRegistry codecRegistry;
+    /** Codecs of embedded entities by positions of embedded attributes, created when they are used first. */
+    private final EntityCodec<?>[] embeddedCodecs;
+
+    /**
+     * Creates codec storing instants as dates, enums as their names and decimal numbers according to given storage.
+     * @param entityMapper mapper of entity attributes
+     * @param decimalStorage storage of decimal numbers
+     * @param codecRegistry registry of codecs for values of attributes that are not supported by this codec directly
+     */
+    public EntityCodec(EntityMapper<T, ?> entityMapper, DecimalStorage decimalStorage, CodecRegistry codecRegistry) {
+        this(entityMapper, (attribute, value) -> toStoredValue(value, decimalStorage), codecRegistry);
+    }
+
+    /**
+     * @param entityMapper mapper of entity attributes
+     * @param valueConverter converts value of attribute (other than embedded attribute) to value stored in the database
+     * @param codecRegistry registry of codecs for values of attributes that are not supported by this codec directly
+     */
+    public EntityCodec(EntityMapper<T, ?> entityMapper, BiFunction<Attribute<?, ?>, Object, Object> valueConverter, CodecRegistry codecRegistry) {
+        this.entityMapper = entityMapper;
+        this.attributes = entityMapper.getAttributes();
+        if (this.attributes.isEmpty()) {
+            throw new IllegalStateException("Please define some attributes of entity (data set " + entityMapper.getTableName() + ")");
+        }
+        this.entityClass = this.attributes.get(0).getEntityClass();
+        this.attributeIndexes = new HashMap<>();
+        for (int i = 0; i < this.attributes.size(); i++) {
+            this.attributeIndexes.put(this.attributes.get(i).getName(), i);
+        }
+        this.valueConverter = valueConverter;
+        this.codecRegistry = codecRegistry;
+        this.embeddedCodecs = new EntityCodec<?>[this.attributes.size()];
+    }
+
+    @Override
+    public void encode(BsonWriter writer, T entity, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        for (int i = 0; i < attributes.size(); i++) {
+            Attribute<T, ?> attribute = attributes.get(i);
+            writer.writeName(attribute.getName());
+            if (attribute instanceof EmbeddedAttr) {
+                writeEmbedded(writer, (EmbeddedAttr<T, ?, ?>)attribute, attribute.getValue(entity), getEmbeddedCodec(i), encoderContext);
+            } else {
+                writeValue(writer, valueConverter.apply(attribute, attribute.getValue(entity)), encoderContext);
+            }
+        }
+        writer.writeEndDocument();
+    }
+
+    /**
+     * Decodes entity built by entity mapper from read BSON fields.
+     */
+    @Override
+    public T decode(BsonReader reader, DecoderContext decoderContext) {
+        return entityMapper.buildEntity(decodeAttributes(reader, decoderContext));
+    }
+
+    @Override
+    public Class<T> getEncoderClass() {
+        return entityClass;
+    }
+
+    /**
+     * Reads values of attributes of entity from BSON document. Fields that are not mapped to attributes are skipped.
+     * @param reader
+     * @param decoderContext
+     * @return source of read values of attributes, attributes that are missing in the document have null values
+     */
+    public DecodedAttributeSource decodeAttributes(BsonReader reader, DecoderContext decoderContext) {
+        Object[] values = new Object[attributes.size()];
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            Integer index = attributeIndexes.get(reader.readName());
+            if (index == null) {
+                reader.skipValue();
+            } else if (attributes.get(index) instanceof EmbeddedAttr) {
+                values[index] = readEmbedded(reader, (EmbeddedAttr<T, ?, ?>)attributes.get(index), getEmbeddedCodec(index), decoderContext);
+            } else {
+                values[index] = readValue(reader, attributes.get(index).getAttributeClass(), decoderContext);
+            }
+        }
+        reader.readEndDocument();
+        return new DecodedAttributeSource(attributeIndexes, values);
+    }
+
+    /**
+     * Returns codec decoding BSON documents to attribute sources that can be passed to custom entity builders.
+     */
+    public Codec<DecodedAttributeSource> getAttributeSourceCodec() {
+        return new Codec<DecodedAttributeSource>() {
+            @Override
+            public DecodedAttributeSource decode(BsonReader reader, DecoderContext decoderContext) {
+                return decodeAttributes(reader, decoderContext);
+            }
+
+            @Override
+            public void encode(BsonWriter writer, DecodedAttributeSource value, EncoderContext encoderContext) {
+                throw new UnsupportedOperationException("Attribute source cannot be encoded, encode entity instead");
+            }
+
+            @Override
+            public Class<DecodedAttributeSource> getEncoderClass() {
+                return DecodedAttributeSource.class;
+            }
+        };
+    }
+
+    public EntityMapper<T, ?> getEntityMapper() {
+        return entityMapper;
+    }
+
+    /**
+     * Writes value already converted by the value converter.
+     */
+    protected void writeValue(BsonWriter writer, Object value, EncoderContext encoderContext) {
+        if (value == null) {
+            writer.writeNull();
+        } else if (value instanceof String) {
+            writer.writeString((String)value);
+        } else if (value instanceof Integer || value instanceof Byte || value instanceof Short) {
+            writer.writeInt32(((Number)value).intValue());
+        } else if (value instanceof Long) {
+            writer.writeInt64((Long)value);
+        } else if (value instanceof Double || value instanceof Float) {
+            writer.writeDouble(((Number)value).doubleValue());
+        } else if (value instanceof Boolean) {
+            writer.writeBoolean((Boolean)value);
+        } else if (value instanceof Date) {
+            writer.writeDateTime(((Date)value).getTime());
+        } else if (value instanceof Decimal128) {
+            writer.writeDecimal128((Decimal128)value);
+        } else if (value instanceof ObjectId) {
+            writer.writeObjectId((ObjectId)value);
+        } else {
+            writeWithRegistry(writer, value, encoderContext);
+        }
+    }
+
+    /**
+     * Reads value of current BSON field converted to given class of attribute.
+     */
+    protected Object readValue(BsonReader reader, Class<?> cls, DecoderContext decoderContext) {
+        BsonType type = reader.getCurrentBsonType();
+        switch (type) {
+            case NULL:
+                reader.readNull();
+                return null;
+            case STRING:
+                return convertString(reader.readString(), cls);
+            case INT32:
+                return convertNumber(reader.readInt32(), cls);
+            case INT64:
+                return convertNumber(reader.readInt64(), cls);
+            case DOUBLE:
+                return convertNumber(reader.readDouble(), cls);
+            case DECIMAL128:
+                return reader.readDecimal128().bigDecimalValue();
+            case BOOLEAN:
+                return reader.readBoolean();
+            case DATE_TIME:
+                long millis = reader.readDateTime();
+                return cls == Date.class ? new Date(millis) : Instant.ofEpochMilli(millis);
+            case OBJECT_ID:
+                ObjectId objectId = reader.readObjectId();
+                return cls == String.class ? objectId.toHexString() : objectId;
+            default:
+                return readWithRegistry(reader, cls, decoderContext);
+        }
+    }
+
+    protected Object convertString(String value, Class<?> cls) {
+        if (cls == BigDecimal.class) {
+            return new BigDecimal(value);
+        } else if (cls.isEnum()) {
+            return toEnum(cls, value);
+        }
+        return value;
+    }
+
+    protected Object convertNumber(Number value, Class<?> cls) {
+        if (cls == Integer.class) {
+            return value.intValue();
+        } else if (cls == Long.class) {
+            return value.longValue();
+        } else if (cls == Double.class) {
+            return value.doubleValue();
+        } else if (cls == Float.class) {
+            return value.floatValue();
+        } else if (cls == Byte.class) {
+            return value.byteValue();
+        } else if (cls == Short.class) {
+            return value.shortValue();
+        } else if (cls == BigDecimal.class) {
+            return value instanceof Double ? BigDecimal.valueOf(value.doubleValue()) : BigDecimal.valueOf(value.longValue());
+        }
+        return value;
+    }
+
+    /**
+     * Writes embedded document with given sub-entity, or array of embedded documents with given list of sub-entities.
+     */
+    @SuppressWarnings("unchecked")
+    protected <S> void writeEmbedded(BsonWriter writer, EmbeddedAttr<T, ?, S> attribute, Object value, EntityCodec<S> codec, EncoderContext encoderContext) {
+        if (value == null) {
+            writer.writeNull();
+        } else if (attribute.getCardinality() == Cardinality.ONE) {
+            encoderContext.encodeWithChildContext(codec, writer, (S)value);
+        } else {
+            writer.writeStartArray();
+            for (S subEntity : (List<S>)value) {
+                if (subEntity == null) {
+                    writer.writeNull();
+                } else {
+                    encoderContext.encodeWithChildContext(codec, writer, subEntity);
+                }
+            }
+            writer.writeEndArray();
+        }
+    }
+
+    /**
+     * Reads sub-entity from embedded document, or list of sub-entities from array of embedded documents.
+     * Values of other BSON types are skipped.
+     */
+    protected <S> Object readEmbedded(BsonReader reader, EmbeddedAttr<T, ?, S> attribute, EntityCodec<S> codec, DecoderContext decoderContext) {
+        BsonType type = reader.getCurrentBsonType();
+        if (type == BsonType.DOCUMENT && attribute.getCardinality() == Cardinality.ONE) {
+            return attribute.createEmbeddedEntity(codec.decodeAttributes(reader, decoderContext));
+        } else if (type == BsonType.ARRAY && attribute.getCardinality() == Cardinality.MANY) {
+            List<S> subEntities = new ArrayList<>();
+            reader.readStartArray();
+            while ((type = reader.readBsonType()) != BsonType.END_OF_DOCUMENT) {
+                if (type == BsonType.DOCUMENT) {
+                    subEntities.add(attribute.createEmbeddedEntity(codec.decodeAttributes(reader, decoderContext)));
+                } else {
+                    reader.skipValue();
+                    subEntities.add(null);
+                }
+            }
+            reader.readEndArray();
+            return subEntities;
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <S> EntityCodec<S> getEmbeddedCodec(int index) {
+        if (embeddedCodecs[index] == null) {
+            // Created lazily, so an embedded entity can contain entities of the same type
+            embeddedCodecs[index] = new EntityCodec<>(((EmbeddedAttr<T, ?, S>)attributes.get(index)).getEntityMapper(), valueConverter, codecRegistry);
+        }
+        return (EntityCodec<S>)embeddedCodecs[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writeWithRegistry(BsonWriter writer, Object value, EncoderContext encoderContext) {
+        Codec<Object> codec = (Codec<Object>)codecRegistry.get(value.getClass());
+        encoderContext.encodeWithChildContext(codec, writer, value);
+    }
+
+    private Object readWithRegistry(BsonReader reader, Class<?> cls, DecoderContext decoderContext) {
+        try {
+            return codecRegistry.get(cls).decode(reader, decoderContext);
+        } catch (CodecConfigurationException ex) {
+            // Value of attribute with unsupported class is not filled, like in DocumentAttributeSource
+            reader.skipValue();
+            return null;
+        }
+    }
+
+    private static Object toStoredValue(Object value, DecimalStorage decimalStorage) {
+        // The same conversion as the default one of the repository
+        if (value instanceof Instant) {
+            return MongoConversions.storeDate((Instant)value);
+        } else if (value instanceof BigDecimal) {
+            return decimalStorage == DecimalStorage.DECIMAL128 ?
+                MongoConversions.storeDecimal128((BigDecimal)value) :
+                MongoConversions.storeDecimal((BigDecimal)value);
+        } else if (value instanceof Enum) {
+            return MongoConversions.storeEnum((Enum<?>)value);
+        }
+        return value;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Object toEnum(Class<?> cls, String value) {
+        return Enum.valueOf((Class<Enum>)cls, value);
+    }
+
+    /**
+     * Source of values of attributes decoded from one BSON document.
+     */
+    public static class DecodedAttributeSource implements AttributeSource {
+
+        private final Map<String, Integer> attributeIndexes;
+        private final Object[] values;
+
+        DecodedAttributeSource(Map<String, Integer> attributeIndexes, Object[] values) {
+            this.attributeIndexes = attributeIndexes;
+            this.values = values;
+        }
+
+        @Override
+        public <A> A get(Class<A> cls, String attributeName) {
+            Integer index = attributeIndexes.get(attributeName);
+            if (index == null || values[index] == null || !cls.isInstance(values[index])) {
+                return null;
+            }
+            return cls.cast(values[index]);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.mongo.mapper;
+
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import org.xbery.overview.mapper.EntityMapper;
+import org.xbery.overview.mapper.Index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Constructs Mongo index models based on indexes of entity mapper (equivalent of MySqlSchemaBuilder for Mongo).
+ * @author Radek Beran
+ */
+public class MongoIndexBuilder {
+
+    private static final String FLD_ID = "_id";
+
+    /**
+     * Composes index models for indexes of given entity mapper, with ascending order of all indexed fields.
+     * Index consisting only of _id field is skipped, it is always created by Mongo.
+     */
+    public <T, F> List<IndexModel> composeIndexModels(EntityMapper<T, F> entityMapper) {
+        List<IndexModel> models = new ArrayList<>();
+        for (Index index : entityMapper.getIndexes()) {
+            if (!index.getAttributeNames().equals(Collections.singletonList(FLD_ID))) {
+                models.add(composeIndexModel(index));
+            }
+        }
+        return models;
+    }
+
+    public IndexModel composeIndexModel(Index index) {
+        IndexOptions options = new IndexOptions()
+            .name(index.getName() != null ? index.getName() : composeIndexName(index))
+            .unique(index.isUnique());
+        return new IndexModel(Indexes.ascending(index.getAttributeNames()), options);
+    }
+
+    /**
+     * Composes default name of index the same way as Mongo does (e.g. "valid_from_1_valid_to_1" for ascending index).
+     */
+    protected String composeIndexName(Index index) {
+        return index.getAttributeNames().stream().map(name -> name + "_1").collect(Collectors.joining("_"));
+    }
+}
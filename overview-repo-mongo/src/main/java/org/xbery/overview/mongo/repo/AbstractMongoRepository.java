@@ -16,41 +16,83 @@
  */
 package org.xbery.overview.mongo.repo;
 
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.BsonField;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexModel;
 import com.mongodb.client.model.FindOneAndUpdateOptions;
 import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOneModel;
 import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.UnwindOptions;
+import com.mongodb.client.model.WriteModel;
 import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
 import org.xbery.overview.Group;
 import org.xbery.overview.Order;
 import org.xbery.overview.Overview;
 import org.xbery.overview.Pagination;
+import org.xbery.overview.Projection;
 import org.xbery.overview.common.Pair;
 import org.xbery.overview.filter.Condition;
+import org.xbery.overview.filter.ConditionOptimizer;
 import org.xbery.overview.common.funs.CollectionFuns;
 import org.xbery.overview.mapper.Attribute;
 import org.xbery.overview.mapper.AttributeSource;
+import org.xbery.overview.mapper.Cardinality;
 import org.xbery.overview.mapper.EntityMapper;
+import org.xbery.overview.mapper.JoinType;
 import org.xbery.overview.mapper.MapAttributeSource;
 import org.xbery.overview.mongo.filter.MongoCondition;
 import org.xbery.overview.mongo.filter.MongoConditionBuilder;
 import org.xbery.overview.mongo.mapper.DocumentAttributeSource;
+import org.xbery.overview.mongo.mapper.EmbeddedAttr;
+import org.xbery.overview.mongo.mapper.EntityCodec;
+import org.xbery.overview.mongo.mapper.EntityCodec.DecodedAttributeSource;
+import org.xbery.overview.mongo.mapper.MongoIndexBuilder;
 import org.xbery.overview.repo.AggType;
 import org.xbery.overview.repo.Conditions;
 import org.xbery.overview.repo.Repository;
+import org.xbery.overview.repo.metrics.OperationType;
+import org.xbery.overview.repo.metrics.RepositoryEvents;
+import org.xbery.overview.repo.metrics.RepositoryMetrics;
+import org.xbery.overview.repo.metrics.RepositoryOperation;
+import org.xbery.overview.repo.metrics.StatementFingerprints;
+import org.xbery.overview.sql.mapper.JoinEntityMapper;
+import org.bson.BsonDocument;
+import org.bson.BsonType;
 import org.bson.Document;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
 import org.bson.conversions.Bson;
+import org.bson.types.Decimal128;
 import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Basic abstract implementation of {@link Repository} for Mongo DB.
@@ -70,79 +112,200 @@ public abstract class AbstractMongoRepository<T, K, F> implements Repository<T,
     protected static final Logger log = LoggerFactory.getLogger(AbstractMongoRepository.class);
 
     public static final Document EMPTY_DOCUMENT = new Document();
+    /** Default maximum count of values of join attribute in one $in query. */
+    public static final int DEFAULT_JOIN_BATCH_SIZE = 1000;
+    /** Name of the field with joined documents in results of $lookup. */
+    protected static final String JOINED_FIELD = "_joined";
+    /** Name of the variable with value of join attribute in $lookup sub-pipeline. */
+    private static final String JOIN_VALUE_VARIABLE = "joinValue";
+    /** Name of the field with aggregated value in results of aggregation pipeline. */
+    protected static final String AGG_FIELD = "value";
     private static final MongoConditionBuilder mongoConditionBuilder = new MongoConditionBuilder();
+    private static final MongoIndexBuilder mongoIndexBuilder = new MongoIndexBuilder();
+    private static final ConditionOptimizer conditionOptimizer = new ConditionOptimizer();
+    /** Codecs of entities by their entity mappers. */
+    private final Map<EntityMapper<?, ?>, EntityCodec<?>> entityCodecs = new ConcurrentHashMap<>();
 
     @Override
     public T create(T entity, boolean autogenerateKey) {
         Objects.requireNonNull(entity, "Entity should be specified");
 
-        Document doc = updateDocWithEntity(new Document(), entity);
-        T createdEntity = entity;
-        if (autogenerateKey) {
-            String id = generateId();
-            K generatedKey = convertGeneratedKey(id);
-            doc.append(getIdFieldName(), id);
-            createdEntity = findById(generatedKey).get();
+        if (!autogenerateKey) {
+            // Entity is encoded directly by the entity codec
+            executeMeasured(OperationType.CREATE, "insertOne", null, () -> {
+                getEntityCollection().insertOne(entity);
+                return 1;
+            }, r -> r);
+            return entity;
+        }
+        Document doc = createDocument(entity, autogenerateKey);
+        executeMeasured(OperationType.CREATE, "insertOne", null, () -> {
+            getCollection().insertOne(doc);
+            return 1;
+        }, r -> r);
+        return buildCreatedEntity(doc);
+    }
+
+    /**
+     * Creates all given entities using one insertMany command, which is split to batches by the driver.
+     * @param entities entities to create
+     * @param autogenerateKey true if entity key should be generated
+     * @return created entities that include also possible generated keys
+     */
+    @Override
+    public List<T> createAll(List<T> entities, boolean autogenerateKey) {
+        if (entities == null || entities.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (!autogenerateKey) {
+            List<T> created = new ArrayList<>(entities);
+            created.forEach(entity -> Objects.requireNonNull(entity, "Entity should be specified"));
+            executeMeasured(OperationType.CREATE, "insertMany", null, () -> {
+                getEntityCollection().insertMany(created);
+                return created.size();
+            }, r -> r);
+            return created;
+        }
+        List<Document> docs = new ArrayList<>(entities.size());
+        for (T entity : entities) {
+            Objects.requireNonNull(entity, "Entity should be specified");
+            docs.add(createDocument(entity, autogenerateKey));
         }
-        getCollection().insertOne(doc);
-        return createdEntity;
+        executeMeasured(OperationType.CREATE, "insertMany", null, () -> {
+            getCollection().insertMany(docs);
+            return docs.size();
+        }, r -> r);
+        return docs.stream().map(this::buildCreatedEntity).collect(Collectors.toList());
+    }
+
+    /**
+     * Creates or updates given entities using one unordered bulk write of replaceOne operations with upsert.
+     * @param entities entities to create or update
+     * @return count of created or updated entities
+     */
+    @Override
+    public int upsertAll(List<T> entities) {
+        if (entities == null || entities.isEmpty()) {
+            return 0;
+        }
+        UpdateOptions upsert = new UpdateOptions().upsert(true);
+        List<WriteModel<T>> replacements = new ArrayList<>();
+        for (T entity : entities) {
+            Document pkFilter = updateDocWithAttributes(new Document(), getEntityMapper().decomposePrimaryKeyOfEntity(entity));
+            replacements.add(new ReplaceOneModel<>(pkFilter, entity, upsert));
+        }
+        BulkWriteResult result = executeMeasured(OperationType.UPSERT, "bulkWrite replaceOne upsert", null,
+            () -> getEntityCollection().bulkWrite(replacements, new BulkWriteOptions().ordered(false)),
+            r -> r.getMatchedCount() + r.getUpserts().size());
+        return result.getMatchedCount() + result.getUpserts().size();
     }
 
     @Override
     public Optional<T> update(T entity) {
         Objects.requireNonNull(entity, "Entity should be specified");
 
-        List<Pair<Attribute<T, ?>, Object>> attributesWithValues = entityToAttributesWithValues(entity);
-        final Document res = findOneAndUpdate(getEntityMapper().decomposePrimaryKeyOfEntity(entity), attributesWithValues);
-        if (res != null) {
-            // Document was found
-            return Optional.of(getEntityMapper().buildEntity(new DocumentAttributeSource(res)));
-        }
-        return Optional.<T>empty();
+        // All attributes are set, so the updated document need not be returned from the database
+        int updatedCount = updateOne(getEntityMapper().decomposePrimaryKeyOfEntity(entity), entityToAttributesWithValues(entity));
+        return updatedCount > 0 ? Optional.of(entity) : Optional.<T>empty();
     }
 
     @Override
     public int update(K id, List<Pair<Attribute<T, ?>, Object>> attributesWithValues) {
         Objects.requireNonNull(id, "id should be specified");
-        final Document res = findOneAndUpdate(getEntityMapper().decomposePrimaryKey(id), attributesWithValues);
-        if (res != null) {
-            // Document was found
-            return 1;
+        return updateOne(getEntityMapper().decomposePrimaryKey(id), attributesWithValues);
+    }
+
+    /**
+     * Updates all given entities using one unordered bulk write of updateOne operations.
+     * @param entities entities to update
+     * @return count of entities that were found and updated
+     */
+    public int updateAll(List<T> entities) {
+        if (entities == null || entities.isEmpty()) {
+            return 0;
         }
-        return 0;
+        List<WriteModel<Document>> updates = new ArrayList<>();
+        for (T entity : entities) {
+            Document pkFilter = updateDocWithAttributes(new Document(), getEntityMapper().decomposePrimaryKeyOfEntity(entity));
+            updates.add(new UpdateOneModel<>(pkFilter, new Document("$set", createUpdateDocument(entityToAttributesWithValues(entity)))));
+        }
+        BulkWriteResult result = executeMeasured(OperationType.UPDATE, "bulkWrite updateOne", null,
+            () -> getCollection().bulkWrite(updates, new BulkWriteOptions().ordered(false)),
+            r -> r.getMatchedCount());
+        return result.getMatchedCount();
     }
 
     @Override
     public boolean delete(K id) {
         Objects.requireNonNull(id, "id should be specified");
         Document pkFilter = updateDocWithAttributes(new Document(), getEntityMapper().decomposePrimaryKey(id));
-        return getCollection().findOneAndDelete(pkFilter) != null;
+        DeleteResult result = executeMeasured(OperationType.DELETE, "deleteOne", pkFilter,
+            () -> getCollection().deleteOne(pkFilter), r -> r.getDeletedCount());
+        return result.getDeletedCount() > 0;
+    }
+
+    /**
+     * Deletes entities with given ids using one unordered bulk write of deleteOne operations.
+     * @param ids ids of entities to delete
+     * @return count of deleted entities
+     */
+    public int deleteAll(Collection<K> ids) {
+        Objects.requireNonNull(ids, "ids should be specified");
+        List<WriteModel<Document>> deletes = new ArrayList<>();
+        for (K id : new LinkedHashSet<>(ids)) {
+            deletes.add(new DeleteOneModel<>(updateDocWithAttributes(new Document(), getEntityMapper().decomposePrimaryKey(id))));
+        }
+        if (deletes.isEmpty()) {
+            return 0;
+        }
+        BulkWriteResult result = executeMeasured(OperationType.DELETE, "bulkWrite deleteOne", null,
+            () -> getCollection().bulkWrite(deletes, new BulkWriteOptions().ordered(false)),
+            r -> r.getDeletedCount());
+        return result.getDeletedCount();
     }
 
     @Override
     public int deleteByFilter(F filter) {
         Objects.requireNonNull(filter, "filter should be specified");
-        MongoFilter mongoFilter = conditionsToMongoFilter(getEntityMapper().composeFilterConditions(filter));
-        DeleteResult result = getCollection().deleteMany(mongoFilter.getFilter().orElse(EMPTY_DOCUMENT)); // TODO RBe: Test passing of empty filter
+        List<Condition> filterConditions = optimizeConditions(getEntityMapper().composeFilterConditions(filter));
+        if (isAlwaysFalse(filterConditions)) {
+            return 0;
+        }
+        MongoFilter mongoFilter = conditionsToMongoFilter(filterConditions);
+        Bson deleteFilter = mongoFilter.getFilter().orElse(EMPTY_DOCUMENT);
+        DeleteResult result = executeMeasured(OperationType.DELETE, "deleteMany", deleteFilter,
+            () -> getCollection().deleteMany(deleteFilter), r -> r.getDeletedCount()); // TODO RBe: Test passing of empty filter
         return (int)result.getDeletedCount(); // TODO RBe: Checked overflow typecast like in Guava
     }
 
+    /**
+     * Returns aggregated value of given attribute for given filter. Counts without grouping are computed by count command,
+     * other aggregations by $match and $group stages of aggregation pipeline. When grouping is given, aggregated value
+     * of the first group is returned; {@link #aggByGroups(AggType, Class, String, Object, List)} returns values of all groups.
+     * @param aggType aggregation type
+     * @param resultClass
+     * @param attrName name or full name of attribute, "*" for count of documents
+     * @param filter
+     * @param grouping
+     * @param entityMapper
+     * @param <R>
+     * @return
+     */
     @Override
     public <R, T, F> R aggByFilter(AggType aggType, Class<R> resultClass, String attrName, F filter, List<Group> grouping, EntityMapper<T, F> entityMapper) {
         Objects.requireNonNull(aggType, "aggregation type should be specified");
         Objects.requireNonNull(resultClass, "result class should be specified");
         Objects.requireNonNull(attrName, "attribute name should be specified");
 
-        String aggAttributeAlias = attrName + "_agg";
-
-        throw new UnsupportedOperationException("Not implemented yet");
-//        List<R> results = queryWithOverview(
-//            aggFunction(aggType, attrName) + " AS " + aggAttributeAlias,
-//            filter != null ? entityMapper.composeFilterConditions(filter) : new ArrayList<>(),
-//            null,
-//            null,
-//            as -> as.get(resultClass, aggAttributeAlias));
-//        return results != null && !results.isEmpty() ? results.get(0) : null;
+        List<Condition> filterConditions = optimizeConditions(filter != null ? entityMapper.composeFilterConditions(filter) : new ArrayList<>());
+        if (isAlwaysFalse(filterConditions)) {
+            return emptyAggregation(aggType, resultClass);
+        }
+        if (aggType == AggType.COUNT && (grouping == null || grouping.isEmpty())) {
+            return convertAggValue(countDocuments(filterConditions, attrName, entityMapper), resultClass);
+        }
+        Map<List<Object>, R> results = aggregate(aggType, resultClass, attrName, filterConditions, grouping, entityMapper);
+        return results.isEmpty() ? emptyAggregation(aggType, resultClass) : results.values().iterator().next();
     }
 
     @Override
@@ -150,16 +313,117 @@ public abstract class AbstractMongoRepository<T, K, F> implements Repository<T,
         return aggByFilter(aggType, resultClass, attrName, filter, grouping, getEntityMapper());
     }
 
+    /**
+     * Returns aggregated values of given attribute for each group of documents matching given filter.
+     * @param aggType aggregation type
+     * @param resultClass
+     * @param attrName name or full name of attribute, "*" for count of documents
+     * @param filter
+     * @param grouping
+     * @param <R>
+     * @return aggregated values mapped by values of grouping attributes, in ascending order of the groups
+     */
+    public <R> Map<List<Object>, R> aggByGroups(AggType aggType, Class<R> resultClass, String attrName, F filter, List<Group> grouping) {
+        return aggByGroups(aggType, resultClass, attrName, filter, grouping, getEntityMapper());
+    }
+
+    public <R, T, F> Map<List<Object>, R> aggByGroups(AggType aggType, Class<R> resultClass, String attrName, F filter, List<Group> grouping, EntityMapper<T, F> entityMapper) {
+        Objects.requireNonNull(aggType, "aggregation type should be specified");
+        Objects.requireNonNull(resultClass, "result class should be specified");
+        Objects.requireNonNull(attrName, "attribute name should be specified");
+
+        List<Condition> filterConditions = optimizeConditions(filter != null ? entityMapper.composeFilterConditions(filter) : new ArrayList<>());
+        if (isAlwaysFalse(filterConditions)) {
+            return new LinkedHashMap<>();
+        }
+        return aggregate(aggType, resultClass, attrName, filterConditions, grouping, entityMapper);
+    }
+
     @Override
     public <T, K, F> Optional<T> findById(K id, EntityMapper<T, F> entityMapper) {
         Document pkFilter = updateDocWithAttributes(new Document(), entityMapper.decomposePrimaryKey(id));
-        return CollectionFuns.headOpt(getCollection().find(pkFilter)).map(doc -> entityMapper.buildEntity(new DocumentAttributeSource(doc)));
+        return executeMeasured(OperationType.QUERY, "find", pkFilter,
+            () -> Optional.ofNullable(getEntityCollection(entityMapper).find(pkFilter).first()),
+            found -> found.isPresent() ? 1 : 0);
+    }
+
+    /**
+     * Finds entities by given ids using $in query on primary key (usually _id).
+     * @param ids
+     * @return found entities mapped by their ids, in order of given ids; ids that were not found are missing in the key set
+     */
+    @Override
+    public Map<K, T> findMapByIds(Collection<K> ids) {
+        Objects.requireNonNull(ids, "ids should be specified");
+        EntityMapper<T, F> entityMapper = getEntityMapper();
+        List<K> uniqueIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        Map<K, T> entitiesById = new LinkedHashMap<>();
+        if (uniqueIds.isEmpty()) {
+            return entitiesById;
+        }
+        // Values of primary key attributes to the key they were decomposed from
+        Map<List<Object>, K> idsByKeyValues = new HashMap<>();
+        Bson filter = createIdsFilter(uniqueIds, idsByKeyValues);
+
+        Map<K, T> foundEntities = new HashMap<>();
+        RepositoryOperation operation = startOperation(OperationType.QUERY, "find", filter);
+        try (MongoCursor<T> cursor = getEntityCollection().find(filter).iterator()) {
+            operation.executed();
+            while (cursor.hasNext()) {
+                T entity = cursor.next();
+                K id = idsByKeyValues.get(entityMapper.getPrimaryAttributeValues(entity));
+                if (id != null) {
+                    foundEntities.put(id, entity);
+                }
+            }
+            operation.finished(foundEntities.size());
+        } catch (RuntimeException ex) {
+            operation.failed(ex);
+            throw ex;
+        }
+        for (K id : uniqueIds) {
+            T entity = foundEntities.get(id);
+            if (entity != null) {
+                entitiesById.put(id, entity);
+            }
+        }
+        return entitiesById;
+    }
+
+    /**
+     * Returns $in filter on primary key (or $or of filters for composite keys) matching given ids.
+     * @param ids unique ids
+     * @param idsByKeyValues map filled with ids by values of their primary key attributes
+     * @return
+     */
+    protected Bson createIdsFilter(List<K> ids, Map<List<Object>, K> idsByKeyValues) {
+        EntityMapper<T, F> entityMapper = getEntityMapper();
+        List<Bson> compositeKeyFilters = new ArrayList<>();
+        List<Object> keyValues = new ArrayList<>();
+        for (K id : ids) {
+            List<Pair<Attribute<T, ?>, Object>> attributesWithValues = entityMapper.decomposePrimaryKey(id);
+            idsByKeyValues.put(attributesWithValues.stream().map(Pair::getSecond).collect(Collectors.toList()), id);
+            if (attributesWithValues.size() == 1) {
+                keyValues.add(getDbSupportedAttributeValue(attributesWithValues.get(0).getSecond()));
+            } else {
+                compositeKeyFilters.add(updateDocWithAttributes(new Document(), attributesWithValues));
+            }
+        }
+        return compositeKeyFilters.isEmpty() ?
+            Filters.in(entityMapper.getPrimaryAttributes().get(0).getName(), keyValues) :
+            Filters.or(compositeKeyFilters);
     }
 
     @Override
     public <T, F> List<T> findByOverview(final Overview<F> overview, EntityMapper<T, F> entityMapper) {
+        if (entityMapper instanceof JoinEntityMapper) {
+            JoinEntityMapper joinMapper = (JoinEntityMapper)entityMapper;
+            return findJoined(overview, joinMapper, selectJoinStrategy(joinMapper));
+        }
         List<Condition> filterConditions = overview.getFilter() != null ? entityMapper.composeFilterConditions(overview.getFilter()) : new ArrayList<>();
-        return queryWithOverview(entityMapper.getAttributes(), filterConditions, overview.getOrdering(), overview.getPagination(), as -> entityMapper.buildEntity(as));
+        // Only fields of projection (and primary key) are transferred from the database
+        List<Attribute<T, ?>> projectionAttributes = getAttributesOfProjection(overview.getProjection(), entityMapper);
+        return queryWithOverview(entityMapper, projectionAttributes, filterConditions, overview.getOrdering(), overview.getPagination(), as -> entityMapper.buildEntityWithAttributes(as, projectionAttributes, null));
     }
 
     @Override
@@ -167,6 +431,261 @@ public abstract class AbstractMongoRepository<T, K, F> implements Repository<T,
         return findByOverview(overview, getEntityMapper());
     }
 
+    /**
+     * Finds entities of first mapper of given join mapper joined with entities of its second mapper.
+     * For {@link Cardinality#MANY} joins, all first entities are returned with (possibly empty) lists of second entities
+     * and pagination is applied to the first entities. For {@link Cardinality#ONE} joins, one entity is returned
+     * for each pair of joined entities, unmatched first entities are returned only for {@link JoinType#LEFT} join.
+     * Additional ON conditions and conditions of the filter for second entities restrict the joined second entities.
+     * @param overview overview settings for joined entities
+     * @param joinMapper join mapper
+     * @param strategy way of executing the join
+     * @return joined entities
+     */
+    public <T, F, U, G, V, H, O> List<V> findJoined(Overview<H> overview, JoinEntityMapper<T, F, U, G, V, H, O> joinMapper, JoinStrategy strategy) {
+        Objects.requireNonNull(overview, "overview should be specified");
+        Objects.requireNonNull(joinMapper, "joinMapper should be specified");
+        Objects.requireNonNull(strategy, "strategy should be specified");
+        if (joinMapper.getJoinType() == JoinType.RIGHT) {
+            throw new UnsupportedOperationException("Right join is not supported");
+        }
+        Pair<F, G> filters = joinMapper.getDecomposeFilter() != null ? joinMapper.getDecomposeFilter().apply(overview.getFilter()) : new Pair<>(null, null);
+        Pair<List<Order>, List<Order>> orders = joinMapper.getDecomposeOrdering().apply(overview.getOrdering());
+        List<Condition> firstConditions = filters.getFirst() != null ? joinMapper.getFirstMapper().composeFilterConditions(filters.getFirst()) : new ArrayList<>();
+        List<Condition> secondConditions = new ArrayList<>(joinMapper.getOnConditions().subList(1, joinMapper.getOnConditions().size()));
+        if (filters.getSecond() != null) {
+            secondConditions.addAll(joinMapper.getSecondMapper().composeFilterConditions(filters.getSecond()));
+        }
+        if (strategy == JoinStrategy.LOOKUP) {
+            return findJoinedByLookup(joinMapper, firstConditions, orders.getFirst(), secondConditions, orders.getSecond(), overview.getPagination());
+        }
+        return findJoinedByBatchedIn(joinMapper, firstConditions, orders.getFirst(), secondConditions, orders.getSecond(), overview.getPagination());
+    }
+
+    /**
+     * Selects way of executing given join for {@link #findByOverview(Overview, EntityMapper)}.
+     * Batched $in queries are used by default, because they need no aggregation and the second collection can be sharded.
+     */
+    protected JoinStrategy selectJoinStrategy(JoinEntityMapper<?, ?, ?, ?, ?, ?, ?> joinMapper) {
+        return JoinStrategy.BATCHED_IN;
+    }
+
+    /**
+     * Returns maximum count of values of join attribute in one $in query for second joined entities.
+     */
+    protected int getJoinBatchSize() {
+        return DEFAULT_JOIN_BATCH_SIZE;
+    }
+
+    /**
+     * Joins entities by batched $in queries for second entities. When pagination cannot be applied to first entities
+     * before the join, first entities are read in chunks of {@link #getJoinBatchSize()} entities (in ordering completed
+     * by primary key) until the requested page of joined entities is complete.
+     */
+    protected <T, F, U, G, V, H, O> List<V> findJoinedByBatchedIn(
+        JoinEntityMapper<T, F, U, G, V, H, O> joinMapper,
+        List<Condition> firstConditions,
+        List<Order> firstOrdering,
+        List<Condition> secondConditions,
+        List<Order> secondOrdering,
+        Pagination pagination) {
+
+        EntityMapper<T, F> firstMapper = joinMapper.getFirstMapper();
+        List<V> results = new ArrayList<>();
+        if (pagination == null || isPaginationBeforeJoin(joinMapper)) {
+            List<T> firstEntities = queryWithOverview(firstMapper, firstMapper.getAttributes(), firstConditions, firstOrdering,
+                pagination, as -> firstMapper.buildEntity(as));
+            joinByBatchedIn(results, joinMapper, firstEntities, secondConditions, secondOrdering);
+            return results;
+        }
+
+        // Join can change count of results, page is selected from joined entities
+        List<Order> ordering = createRangeOrdering(firstOrdering, firstMapper);
+        long requiredCount = (long)pagination.getOffset() + pagination.getLimit();
+        int chunkSize = getJoinBatchSize();
+        for (int chunkOffset = 0; results.size() < requiredCount; chunkOffset += chunkSize) {
+            List<T> firstEntities = queryWithOverview(firstMapper, firstMapper.getAttributes(), firstConditions, ordering,
+                new Pagination(chunkOffset, chunkSize), as -> firstMapper.buildEntity(as));
+            joinByBatchedIn(results, joinMapper, firstEntities, secondConditions, secondOrdering);
+            if (firstEntities.size() < chunkSize) {
+                break;
+            }
+        }
+        int from = Math.min(pagination.getOffset(), results.size());
+        return new ArrayList<>(results.subList(from, (int)Math.min(requiredCount, results.size())));
+    }
+
+    /**
+     * Adds given first entities joined with second entities found by batched $in queries to the results.
+     */
+    private <T, F, U, G, V, H, O> void joinByBatchedIn(
+        List<V> results,
+        JoinEntityMapper<T, F, U, G, V, H, O> joinMapper,
+        List<T> firstEntities,
+        List<Condition> secondConditions,
+        List<Order> secondOrdering) {
+
+        EntityMapper<U, G> secondMapper = joinMapper.getSecondMapper();
+        Attribute<T, O> firstJoinAttr = joinMapper.getJoinCondition().getFirstAttribute();
+        Attribute<U, O> secondJoinAttr = joinMapper.getJoinCondition().getSecondAttribute();
+        List<O> joinValues = firstEntities.stream().map(firstJoinAttr::getValue).filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        // Second entities by values of join attribute
+        Map<O, List<U>> secondEntitiesByJoinValue = new HashMap<>();
+        int batchSize = getJoinBatchSize();
+        for (int from = 0; from < joinValues.size(); from += batchSize) {
+            List<Condition> conditions = new ArrayList<>();
+            conditions.add(Conditions.in(secondJoinAttr, joinValues.subList(from, Math.min(from + batchSize, joinValues.size()))));
+            conditions.addAll(secondConditions);
+            for (U secondEntity : queryWithOverview(secondMapper, secondMapper.getAttributes(), conditions, secondOrdering, null, as -> secondMapper.buildEntity(as))) {
+                secondEntitiesByJoinValue.computeIfAbsent(secondJoinAttr.getValue(secondEntity), v -> new ArrayList<>()).add(secondEntity);
+            }
+        }
+
+        for (T firstEntity : firstEntities) {
+            O joinValue = firstJoinAttr.getValue(firstEntity);
+            List<U> secondEntities = joinValue != null ? secondEntitiesByJoinValue.getOrDefault(joinValue, Collections.emptyList()) : Collections.emptyList();
+            addJoinedEntities(results, joinMapper, firstEntity, secondEntities);
+        }
+    }
+
+    protected <T, F, U, G, V, H, O> List<V> findJoinedByLookup(
+        JoinEntityMapper<T, F, U, G, V, H, O> joinMapper,
+        List<Condition> firstConditions,
+        List<Order> firstOrdering,
+        List<Condition> secondConditions,
+        List<Order> secondOrdering,
+        Pagination pagination) {
+
+        EntityMapper<T, F> firstMapper = joinMapper.getFirstMapper();
+        EntityMapper<U, G> secondMapper = joinMapper.getSecondMapper();
+        List<Condition> firstFilterConditions = optimizeConditions(firstConditions);
+        List<Condition> secondFilterConditions = optimizeConditions(secondConditions);
+        boolean inner = joinMapper.getCardinality() == Cardinality.ONE && joinMapper.getJoinType() == JoinType.INNER;
+        if (isAlwaysFalse(firstFilterConditions) || (inner && isAlwaysFalse(secondFilterConditions))) {
+            return new ArrayList<>();
+        }
+        List<Bson> pipeline = createLookupPipeline(joinMapper, firstFilterConditions, firstOrdering, secondFilterConditions, secondOrdering, pagination);
+
+        List<V> results = new ArrayList<>();
+        Bson matchFilter = conditionsToMongoFilter(firstFilterConditions).getFilter().orElse(EMPTY_DOCUMENT);
+        RepositoryOperation operation = startOperation(OperationType.QUERY, "aggregate $lookup " + secondMapper.getTableName(), matchFilter);
+        try (MongoCursor<Document> cursor = getCollection(firstMapper).aggregate(pipeline).iterator()) {
+            operation.executed();
+            while (cursor.hasNext()) {
+                Document doc = cursor.next();
+                Object joined = doc.remove(JOINED_FIELD);
+                T firstEntity = firstMapper.buildEntity(new DocumentAttributeSource(doc));
+                List<U> secondEntities = new ArrayList<>();
+                if (joined instanceof Document) {
+                    secondEntities.add(secondMapper.buildEntity(new DocumentAttributeSource((Document)joined)));
+                } else if (joined instanceof List) {
+                    for (Object joinedDoc : (List<?>)joined) {
+                        secondEntities.add(secondMapper.buildEntity(new DocumentAttributeSource((Document)joinedDoc)));
+                    }
+                }
+                addJoinedEntities(results, joinMapper, firstEntity, secondEntities);
+            }
+            operation.finished(results.size());
+        } catch (RuntimeException ex) {
+            operation.failed(ex);
+            throw ex;
+        }
+        return results;
+    }
+
+    /**
+     * Creates aggregation pipeline of the first collection with $lookup of documents from the second collection.
+     * Simple equality $lookup is used when there are no conditions and ordering for the second documents, otherwise
+     * $lookup with sub-pipeline (requires Mongo 3.6) to which the conditions and ordering are pushed down.
+     * Pagination is applied before the $lookup when the join cannot change count of results.
+     */
+    protected <T, F, U, G, V, H, O> List<Bson> createLookupPipeline(
+        JoinEntityMapper<T, F, U, G, V, H, O> joinMapper,
+        List<Condition> firstConditions,
+        List<Order> firstOrdering,
+        List<Condition> secondConditions,
+        List<Order> secondOrdering,
+        Pagination pagination) {
+
+        EntityMapper<T, F> firstMapper = joinMapper.getFirstMapper();
+        EntityMapper<U, G> secondMapper = joinMapper.getSecondMapper();
+        Attribute<T, O> firstJoinAttr = joinMapper.getJoinCondition().getFirstAttribute();
+        Attribute<U, O> secondJoinAttr = joinMapper.getJoinCondition().getSecondAttribute();
+        boolean many = joinMapper.getCardinality() == Cardinality.MANY;
+        boolean left = joinMapper.getJoinType() == JoinType.LEFT;
+        boolean paginationBeforeLookup = isPaginationBeforeJoin(joinMapper);
+
+        List<Bson> pipeline = new ArrayList<>();
+        Optional<Bson> firstFilter = conditionsToMongoFilter(firstConditions).getFilter();
+        if (firstFilter.isPresent()) {
+            pipeline.add(Aggregates.match(firstFilter.get()));
+        }
+        List<Order> ordering = firstOrdering == null || firstOrdering.isEmpty() ? createDefaultOrdering(firstMapper) : firstOrdering;
+        pipeline.add(Aggregates.sort(createSortDocument(ordering, firstMapper)));
+        if (pagination != null && paginationBeforeLookup) {
+            pipeline.add(Aggregates.skip(pagination.getOffset()));
+            pipeline.add(Aggregates.limit(pagination.getLimit()));
+        }
+
+        if (secondConditions.isEmpty() && (secondOrdering == null || secondOrdering.isEmpty())) {
+            pipeline.add(Aggregates.lookup(secondMapper.getTableName(), firstJoinAttr.getName(), secondJoinAttr.getName(), JOINED_FIELD));
+        } else {
+            List<Bson> lookupPipeline = new ArrayList<>();
+            lookupPipeline.add(Aggregates.match(new Document("$expr", new Document("$eq",
+                Arrays.asList("$" + secondJoinAttr.getName(), "$$" + JOIN_VALUE_VARIABLE)))));
+            Optional<Bson> secondFilter = conditionsToMongoFilter(secondConditions).getFilter();
+            if (secondFilter.isPresent()) {
+                lookupPipeline.add(Aggregates.match(secondFilter.get()));
+            }
+            if (secondOrdering != null && !secondOrdering.isEmpty()) {
+                lookupPipeline.add(Aggregates.sort(createSortDocument(secondOrdering, secondMapper)));
+            }
+            // Stages of sub-pipeline are rendered, the document codec cannot encode them
+            CodecRegistry codecRegistry = getCollection(secondMapper).getCodecRegistry();
+            List<BsonDocument> renderedLookupPipeline = lookupPipeline.stream()
+                .map(stage -> stage.toBsonDocument(Document.class, codecRegistry)).collect(Collectors.toList());
+            pipeline.add(new Document("$lookup", new Document("from", secondMapper.getTableName())
+                .append("let", new Document(JOIN_VALUE_VARIABLE, "$" + firstJoinAttr.getName()))
+                .append("pipeline", renderedLookupPipeline)
+                .append("as", JOINED_FIELD)));
+        }
+        if (!many) {
+            pipeline.add(Aggregates.unwind("$" + JOINED_FIELD, new UnwindOptions().preserveNullAndEmptyArrays(left)));
+        }
+        if (pagination != null && !paginationBeforeLookup) {
+            pipeline.add(Aggregates.skip(pagination.getOffset()));
+            pipeline.add(Aggregates.limit(pagination.getLimit()));
+        }
+        return pipeline;
+    }
+
+    /**
+     * Returns true if pagination can be applied to first entities before they are joined, because the join cannot change
+     * count of results: many joined entities are composed to one result, or each first entity is joined with at most one
+     * second entity (by its primary key) and kept also without match.
+     */
+    protected boolean isPaginationBeforeJoin(JoinEntityMapper<?, ?, ?, ?, ?, ?, ?> joinMapper) {
+        if (joinMapper.getCardinality() == Cardinality.MANY) {
+            return true;
+        }
+        Attribute<?, ?> secondJoinAttr = joinMapper.getJoinCondition().getSecondAttribute();
+        return joinMapper.getJoinType() == JoinType.LEFT && secondJoinAttr.isPrimary() && joinMapper.getSecondMapper().getPrimaryAttributes().size() == 1;
+    }
+
+    private <T, F, U, G, V, H, O> void addJoinedEntities(List<V> results, JoinEntityMapper<T, F, U, G, V, H, O> joinMapper, T firstEntity, List<U> secondEntities) {
+        if (joinMapper.getCardinality() == Cardinality.MANY) {
+            results.add(joinMapper.getComposeEntityWithMany().apply(firstEntity, secondEntities));
+        } else if (secondEntities.isEmpty()) {
+            if (joinMapper.getJoinType() == JoinType.LEFT) {
+                results.add(joinMapper.getComposeEntity().apply(firstEntity, null));
+            }
+        } else {
+            for (U secondEntity : secondEntities) {
+                results.add(joinMapper.getComposeEntity().apply(firstEntity, secondEntity));
+            }
+        }
+    }
+
     protected abstract MongoDatabase getDatabase();
 
     protected List<T> findByOverview(Overview<F> overview, List<Attribute<T, ?>> projectionAttributes) {
@@ -185,6 +704,7 @@ public abstract class AbstractMongoRepository<T, K, F> implements Repository<T,
 
     protected <T, F> List<T> findByFilterConditions(List<Condition> filterConditions, List<Order> ordering, EntityMapper<T, F> entityMapper) {
         return queryWithOverview(
+            entityMapper,
             entityMapper.getAttributes(),
             filterConditions,
             ordering,
@@ -221,6 +741,16 @@ public abstract class AbstractMongoRepository<T, K, F> implements Repository<T,
         return composeOrderingForPrimaryKey();
     }
 
+    /**
+     * Returns default ordering for the collection of given entity mapper.
+     */
+    protected <T, F> List<Order> createDefaultOrdering(EntityMapper<T, F> entityMapper) {
+        if (entityMapper == getEntityMapper()) {
+            return createDefaultOrdering();
+        }
+        return entityMapper.getPrimaryAttributes().stream().map(attr -> new Order(attr)).collect(Collectors.toList());
+    }
+
     protected List<Order> composeOrderingForPrimaryKey() {
         return getEntityMapper().getPrimaryAttributes().stream().map(attr -> new Order(attr)).collect(Collectors.toList());
     }
@@ -233,26 +763,246 @@ public abstract class AbstractMongoRepository<T, K, F> implements Repository<T,
         Pagination pagination,
         Function<AttributeSource, T> entityBuilder) {
 
+        return queryWithOverview((EntityMapper)getEntityMapper(), projectionAttributes, filterConditions, ordering, pagination, entityBuilder);
+    }
+
+    /**
+     * Queries collection of given entity mapper.
+     */
+    protected <T, F> List<T> queryWithOverview(
+        EntityMapper<T, F> entityMapper,
+        List<Attribute<T, ?>> projectionAttributes,
+        List<Condition> filterConditions,
+        List<Order> ordering,
+        Pagination pagination,
+        Function<AttributeSource, T> entityBuilder) {
+
         List<T> results = new ArrayList<>();
-        MongoFilter mongoFilter = conditionsToMongoFilter(filterConditions);
+        try (MongoEntityCursor<T> cursor = openCursor(entityMapper, projectionAttributes, filterConditions, ordering, pagination, 0, entityBuilder)) {
+            cursor.forEachRemaining(results::add);
+        }
+        return results;
+    }
+
+    /**
+     * Opens cursor over entities matching given overview settings. Documents are fetched from the database
+     * in batches of given size as the cursor is iterated, so the whole result is not held in memory.
+     * @param overview overview settings
+     * @param batchSize count of documents in one batch, zero for default batch size of the server
+     * @return cursor that must be closed
+     */
+    public MongoEntityCursor<T> openCursor(Overview<F> overview, int batchSize) {
+        EntityMapper<T, F> entityMapper = getEntityMapper();
+        List<Attribute<T, ?>> projectionAttributes = getAttributesOfProjection(overview.getProjection(), entityMapper);
+        return openCursor(
+            projectionAttributes,
+            overview.getFilter() != null ? entityMapper.composeFilterConditions(overview.getFilter()) : null,
+            overview.getOrdering(),
+            overview.getPagination(),
+            batchSize,
+            as -> entityMapper.buildEntityWithAttributes(as, projectionAttributes, null));
+    }
+
+    /**
+     * Returns stream of entities matching given overview settings. Documents are fetched from the database
+     * in batches of given size as the stream is consumed.
+     * @param overview overview settings
+     * @param batchSize count of documents in one batch, zero for default batch size of the server
+     * @return stream that must be closed (for example in try-with-resources), which closes the underlying cursor
+     */
+    public Stream<T> streamByOverview(Overview<F> overview, int batchSize) {
+        MongoEntityCursor<T> cursor = openCursor(overview, batchSize);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED), false).onClose(cursor::close);
+    }
+
+    /**
+     * Finds page of entities that follow given last entity of the previous page (range-based paging). Instead of skipping
+     * documents, the query continues from values of ordering attributes and primary key of the last entity, so the cost
+     * of the query does not grow with the count of preceding pages. Offset of pagination is ignored, only its limit is used.
+     * Primary key is appended to the ordering so the order is unique; ordering attributes must be loaded in the entities,
+     * their null values are ordered as by MongoDB (before all other values).
+     * @param overview overview settings with filter, ordering and pagination
+     * @param lastEntity last entity of the previous page, null for the first page
+     * @return entities of the page
+     */
+    public List<T> findPageAfter(Overview<F> overview, T lastEntity) {
+        EntityMapper<T, F> entityMapper = getEntityMapper();
+        List<Condition> filterConditions = new ArrayList<>();
+        if (overview.getFilter() != null) {
+            filterConditions.addAll(entityMapper.composeFilterConditions(overview.getFilter()));
+        }
+        List<Order> ordering = createRangeOrdering(overview.getOrdering());
+        if (lastEntity != null) {
+            filterConditions.add(createRangeCondition(ordering, lastEntity));
+        }
+        Pagination pagination = overview.getPagination() != null ? new Pagination(0, overview.getPagination().getLimit()) : null;
+        List<Attribute<T, ?>> projectionAttributes = getAttributesOfProjection(overview.getProjection(), entityMapper);
+        return queryWithOverview(entityMapper, projectionAttributes, filterConditions, ordering, pagination,
+            as -> entityMapper.buildEntityWithAttributes(as, projectionAttributes, null));
+    }
+
+    /**
+     * Returns given ordering (or default ordering) completed with attributes of primary key that are not ordered yet.
+     */
+    protected List<Order> createRangeOrdering(List<Order> ordering) {
+        return createRangeOrdering(ordering, getEntityMapper());
+    }
+
+    /**
+     * Returns given ordering (or default ordering) of entities of given mapper completed with attributes of primary key
+     * that are not ordered yet.
+     */
+    protected <E, G> List<Order> createRangeOrdering(List<Order> ordering, EntityMapper<E, G> entityMapper) {
+        List<Order> rangeOrdering = new ArrayList<>(ordering == null || ordering.isEmpty() ? createDefaultOrdering(entityMapper) : ordering);
+        Set<String> orderedFields = rangeOrdering.stream().map(o -> getFieldName(o.getAttribute(), entityMapper)).collect(Collectors.toSet());
+        for (Attribute<E, ?> attribute : entityMapper.getPrimaryAttributes()) {
+            if (!orderedFields.contains(attribute.getName())) {
+                rangeOrdering.add(new Order(attribute));
+            }
+        }
+        return rangeOrdering;
+    }
+
+    /**
+     * Creates condition matching entities that follow given entity in given ordering:
+     * a1 &gt; v1 OR (a1 = v1 AND (a2 &gt; v2 OR (a2 = v2 AND ...))), with &lt; for descending attributes.
+     * MongoDB sorts null values (and missing fields) before all other values, so null values follow
+     * non-null values of descending attributes and all non-null values follow null value of ascending attribute.
+     */
+    protected Condition createRangeCondition(List<Order> ordering, T lastEntity) {
+        Condition condition = null;
+        for (int i = ordering.size() - 1; i >= 0; i--) {
+            Order order = ordering.get(i);
+            Attribute<T, Object> attribute = (Attribute<T, Object>)findAttribute(order.getAttribute(), getEntityMapper());
+            if (attribute == null) {
+                throw new IllegalArgumentException("Range-based paging requires ordering by attributes of entity, unknown attribute " + order.getAttribute());
+            }
+            Object value = attribute.getValue(lastEntity);
+            Condition after;
+            if (value == null) {
+                after = order.isDesc() ? null : new MongoCondition(Filters.ne(attribute.getName(), null));
+            } else if (order.isDesc()) {
+                after = Conditions.or(Conditions.lt(attribute, value), Conditions.eq(attribute, null));
+            } else {
+                after = Conditions.gt(attribute, value);
+            }
+            Condition sameValue = condition != null ? Conditions.and(Conditions.eq(attribute, value), condition) : null;
+            if (after == null) {
+                condition = sameValue != null ? sameValue : Conditions.alwaysFalse();
+            } else {
+                condition = sameValue != null ? Conditions.or(after, sameValue) : after;
+            }
+        }
+        return condition;
+    }
+
+    /**
+     * Returns maximum time of execution of find queries on the server in milliseconds, zero for no limit (default).
+     * Query that exceeds the limit fails with {@link com.mongodb.MongoExecutionTimeoutException}.
+     */
+    protected long getQueryMaxTimeMillis() {
+        return 0;
+    }
+
+    /**
+     * Returns true if cursors should not be closed by the server after their inactivity timeout (10 minutes by default),
+     * which is needed for slow processing of streamed entities. Such cursors must always be closed, false by default.
+     */
+    protected boolean isNoCursorTimeout() {
+        return false;
+    }
+
+    protected <T> MongoEntityCursor<T> openCursor(
+        List<Attribute<T, ?>> projectionAttributes,
+        List<Condition> filterConditions,
+        List<Order> ordering,
+        Pagination pagination,
+        int batchSize,
+        Function<AttributeSource, T> entityBuilder) {
+
+        return openCursor((EntityMapper)getEntityMapper(), projectionAttributes, filterConditions, ordering, pagination, batchSize, entityBuilder);
+    }
+
+    /**
+     * Opens cursor over collection of given entity mapper.
+     */
+    protected <T, F> MongoEntityCursor<T> openCursor(
+        EntityMapper<T, F> entityMapper,
+        List<Attribute<T, ?>> projectionAttributes,
+        List<Condition> filterConditions,
+        List<Order> ordering,
+        Pagination pagination,
+        int batchSize,
+        Function<AttributeSource, T> entityBuilder) {
+
+        List<Condition> conditions = optimizeConditions(filterConditions);
+        if (isAlwaysFalse(conditions)) {
+            // Filter cannot match any document, database is not queried
+            return new MongoEntityCursor<>(null, entityBuilder, RepositoryOperation.NOOP);
+        }
+        MongoFilter mongoFilter = conditionsToMongoFilter(conditions);
         // TODO RBe: Test empty filter passing.
         Bson projection = createProjectionDocument(projectionAttributes);
-        List<Order> someOrdering = (ordering == null || ordering.isEmpty()) ? createDefaultOrdering() : ordering;
-        Bson sort = createSortDocument(someOrdering);
-        MongoCursor<Document> cursor = getCollection()
-            .find(mongoFilter.getFilter().orElse(EMPTY_DOCUMENT))
-            .projection(projection)
-            .sort(sort)
-            .skip(pagination.getOffset()).limit(pagination.getLimit()).iterator();
+        List<Order> someOrdering = (ordering == null || ordering.isEmpty()) ? createDefaultOrdering(entityMapper) : ordering;
+        Bson sort = createSortDocument(someOrdering, entityMapper);
+        Bson findFilter = mongoFilter.getFilter().orElse(EMPTY_DOCUMENT);
+        RepositoryOperation operation = startOperation(OperationType.QUERY, "find", findFilter);
         try {
-            while (cursor.hasNext()) {
-                Document doc = cursor.next();
-                results.add(entityBuilder.apply(new DocumentAttributeSource(doc)));
+            FindIterable<DecodedAttributeSource> find = getAttributeSourceCollection(entityMapper)
+                .find(findFilter)
+                .projection(projection)
+                .sort(sort);
+            if (pagination != null) {
+                if (pagination.getOffset() > 0) {
+                    find = find.skip(pagination.getOffset());
+                }
+                find = find.limit(pagination.getLimit());
+            }
+            if (batchSize > 0) {
+                find = find.batchSize(batchSize);
+            }
+            if (getQueryMaxTimeMillis() > 0) {
+                find = find.maxTime(getQueryMaxTimeMillis(), TimeUnit.MILLISECONDS);
+            }
+            if (isNoCursorTimeout()) {
+                find = find.noCursorTimeout(true);
             }
-        } finally {
-            cursor.close();
+            MongoCursor<DecodedAttributeSource> cursor = find.iterator();
+            operation.executed();
+            return new MongoEntityCursor<>(cursor, entityBuilder, operation);
+        } catch (RuntimeException ex) {
+            operation.failed(ex);
+            throw ex;
         }
-        return results;
+    }
+
+    /**
+     * Returns attributes of given projection. Besides attributes of entity mapper, projection can contain dotted paths
+     * to attributes of embedded entities (see {@link EmbeddedAttr#path(Attribute)}), only the projected attributes
+     * of embedded entities are then loaded.
+     * @param projection projection, or null for all attributes
+     * @param entityMapper
+     * @return
+     */
+    protected <T, F> List<Attribute<T, ?>> getAttributesOfProjection(Projection projection, EntityMapper<T, F> entityMapper) {
+        List<Attribute<T, ?>> attributes = entityMapper.getAttributesOfProjection(projection);
+        if (projection == null) {
+            return attributes;
+        }
+        for (String attrName : projection.getAttributes()) {
+            int dotIndex = attrName.indexOf('.');
+            if (dotIndex > 0) {
+                Attribute<T, ?> embeddedAttribute = findAttribute(attrName.substring(0, dotIndex), entityMapper);
+                // Path is not projected when the whole embedded document is projected
+                if (embeddedAttribute instanceof EmbeddedAttr && !attributes.contains(embeddedAttribute)) {
+                    Attribute<T, ?> pathAttribute = ((EmbeddedAttr<T, ?, ?>)embeddedAttribute).path(attrName.substring(dotIndex + 1));
+                    if (pathAttribute != null) {
+                        attributes.add(pathAttribute);
+                    }
+                }
+            }
+        }
+        return attributes;
     }
 
     protected <T> Bson createProjectionDocument(List<Attribute<T, ?>> projectionAttributes) {
@@ -263,54 +1013,438 @@ public abstract class AbstractMongoRepository<T, K, F> implements Repository<T,
     }
 
     protected Bson createSortDocument(List<Order> ordering) {
+        return createSortDocument(ordering, getEntityMapper());
+    }
+
+    protected <T, F> Bson createSortDocument(List<Order> ordering, EntityMapper<T, F> entityMapper) {
         Document sort = new Document();
         if (ordering != null) {
             for (Order order : ordering) {
-                sort = sort.append(order.getAttribute(), order.isDesc() ? -1 : 1);
+                sort = sort.append(getFieldName(order.getAttribute(), entityMapper), order.isDesc() ? -1 : 1);
             }
         }
         return sort;
     }
 
+    /**
+     * Returns optimizer that normalizes filter conditions before they are converted to Mongo filter,
+     * or null if conditions should be converted as they are.
+     */
+    protected ConditionOptimizer getConditionOptimizer() {
+        return conditionOptimizer;
+    }
+
+    protected List<Condition> optimizeConditions(List<Condition> filterConditions) {
+        ConditionOptimizer optimizer = getConditionOptimizer();
+        return optimizer != null ? optimizer.optimize(filterConditions) : filterConditions;
+    }
+
+    protected boolean isAlwaysFalse(List<Condition> filterConditions) {
+        ConditionOptimizer optimizer = getConditionOptimizer();
+        return optimizer != null && optimizer.isAlwaysFalse(filterConditions);
+    }
+
     protected MongoConditionBuilder getConditionBuilder() {
         return mongoConditionBuilder;
     }
 
-    protected String aggFunction(AggType aggType, String attrName) {
-        String fun;
+    /**
+     * Counts documents matching given conditions. Without filter, count is read from metadata of the collection.
+     * @param filterConditions
+     * @param attrName name of attribute which must not be null, "*" for count of all documents
+     * @param entityMapper
+     * @return
+     */
+    protected <T, F> long countDocuments(List<Condition> filterConditions, String attrName, EntityMapper<T, F> entityMapper) {
+        Optional<Bson> countFilter = createCountFilter(filterConditions, attrName, entityMapper);
+        return executeMeasured(OperationType.QUERY, "count", countFilter.orElse(null),
+            () -> countFilter.isPresent() ? getCollection(entityMapper).count(countFilter.get()) : getCollection(entityMapper).count(),
+            r -> 1);
+    }
+
+    /**
+     * Returns filter of count command for given conditions, documents with null value of given attribute are not counted.
+     * @param filterConditions
+     * @param attrName name of attribute which must not be null, "*" for count of all documents
+     * @param entityMapper
+     * @return filter, empty for count of all documents in the collection
+     */
+    protected <T, F> Optional<Bson> createCountFilter(List<Condition> filterConditions, String attrName, EntityMapper<T, F> entityMapper) {
+        MongoFilter mongoFilter = conditionsToMongoFilter(filterConditions);
+        if (!"*".equals(attrName)) {
+            // Only documents with not null value of the attribute are counted
+            mongoFilter.add(Filters.ne(getFieldName(attrName, entityMapper), null));
+        }
+        return mongoFilter.getFilter();
+    }
+
+    /**
+     * Aggregates values of given attribute using $match, $group and $sort stages of aggregation pipeline.
+     * @return aggregated values mapped by values of grouping attributes, one entry with empty key without grouping
+     */
+    protected <R, T, F> Map<List<Object>, R> aggregate(AggType aggType, Class<R> resultClass, String attrName, List<Condition> filterConditions, List<Group> grouping, EntityMapper<T, F> entityMapper) {
+        List<Group> groups = grouping != null ? grouping : Collections.emptyList();
+        MongoFilter mongoFilter = createAggregationFilter(aggType, attrName, filterConditions, entityMapper);
+        List<Bson> pipeline = createAggregationPipeline(aggType, attrName, mongoFilter, groups, entityMapper);
+
+        Map<List<Object>, R> results = new LinkedHashMap<>();
+        RepositoryOperation operation = startOperation(OperationType.QUERY, "aggregate", mongoFilter.getFilter().orElse(EMPTY_DOCUMENT));
+        try (MongoCursor<Document> cursor = getCollection(entityMapper).aggregate(pipeline).iterator()) {
+            operation.executed();
+            while (cursor.hasNext()) {
+                addAggregationResult(results, cursor.next(), resultClass, groups, entityMapper);
+            }
+            operation.finished(results.size());
+        } catch (RuntimeException ex) {
+            operation.failed(ex);
+            throw ex;
+        }
+        return results;
+    }
+
+    /**
+     * Returns filter of $match stage of aggregation, with documents with null value of the attribute excluded from counts.
+     */
+    protected <T, F> MongoFilter createAggregationFilter(AggType aggType, String attrName, List<Condition> filterConditions, EntityMapper<T, F> entityMapper) {
+        MongoFilter mongoFilter = conditionsToMongoFilter(filterConditions);
+        if (!"*".equals(attrName)) {
+            Attribute<T, ?> attribute = findAttribute(attrName, entityMapper);
+            if (aggType != AggType.COUNT && attribute != null && isStoredAsDecimalString(attribute)) {
+                throw new UnsupportedOperationException("Aggregation " + aggType + " of decimal attribute " + attrName + " stored as a string is not supported");
+            }
+            if (aggType == AggType.COUNT) {
+                // Only documents with not null value of the attribute are counted
+                mongoFilter.add(Filters.ne(getFieldName(attrName, entityMapper), null));
+            }
+        } else if (aggType != AggType.COUNT) {
+            throw new IllegalArgumentException("Attribute must be specified for aggregation " + aggType);
+        }
+        return mongoFilter;
+    }
+
+    /**
+     * Returns $match, $group and $sort stages aggregating given attribute.
+     */
+    protected <T, F> List<Bson> createAggregationPipeline(AggType aggType, String attrName, MongoFilter mongoFilter, List<Group> groups, EntityMapper<T, F> entityMapper) {
+        String fieldName = "*".equals(attrName) ? null : getFieldName(attrName, entityMapper);
+        List<String> groupFieldNames = groups.stream().map(g -> getFieldName(g.getAttribute(), entityMapper)).collect(Collectors.toList());
+        List<Bson> pipeline = new ArrayList<>();
+        if (mongoFilter.getFilter().isPresent()) {
+            pipeline.add(Aggregates.match(mongoFilter.getFilter().get()));
+        }
+        pipeline.add(Aggregates.group(createGroupId(groupFieldNames), createAccumulator(aggType, fieldName)));
+        if (!groupFieldNames.isEmpty()) {
+            pipeline.add(Aggregates.sort(Sorts.ascending(FLD_ID)));
+        }
+        return pipeline;
+    }
+
+    /**
+     * Adds aggregated value from given result document of $group stage to the results mapped by values of grouping attributes.
+     */
+    protected <R, T, F> void addAggregationResult(Map<List<Object>, R> results, Document groupDoc, Class<R> resultClass, List<Group> groups, EntityMapper<T, F> entityMapper) {
+        List<Object> groupValues = new ArrayList<>();
+        for (int i = 0; i < groups.size(); i++) {
+            Object groupValue = groups.size() == 1 ? groupDoc.get(FLD_ID) : groupDoc.get(FLD_ID, Document.class).get(getFieldName(groups.get(i).getAttribute(), entityMapper));
+            groupValues.add(convertGroupValue(groupValue, findAttribute(groups.get(i).getAttribute(), entityMapper)));
+        }
+        results.put(groupValues, convertAggValue(groupDoc.get(AGG_FIELD), resultClass));
+    }
+
+    protected Object createGroupId(List<String> groupFieldNames) {
+        if (groupFieldNames.isEmpty()) {
+            return null;
+        }
+        if (groupFieldNames.size() == 1) {
+            return "$" + groupFieldNames.get(0);
+        }
+        Document id = new Document();
+        for (String fieldName : groupFieldNames) {
+            id.append(fieldName, "$" + fieldName);
+        }
+        return id;
+    }
+
+    protected BsonField createAccumulator(AggType aggType, String fieldName) {
+        BsonField accumulator;
         switch (aggType) {
             case COUNT:
-                fun = "COUNT(" + attrName + ")";
+                accumulator = Accumulators.sum(AGG_FIELD, 1);
                 break;
             case SUM:
-                fun = "SUM(" + attrName + ")";
+                accumulator = Accumulators.sum(AGG_FIELD, "$" + fieldName);
                 break;
             case MIN:
-                fun = "MIN(" + attrName + ")";
+                accumulator = Accumulators.min(AGG_FIELD, "$" + fieldName);
                 break;
             case MAX:
-                fun = "MAX(" + attrName + ")";
+                accumulator = Accumulators.max(AGG_FIELD, "$" + fieldName);
                 break;
             case AVG:
-                fun = "AVG(" + attrName + ")";
+                accumulator = Accumulators.avg(AGG_FIELD, "$" + fieldName);
                 break;
             default:
                 throw new IllegalArgumentException("Unsupported aggregation type: " + aggType);
         }
-        return fun;
+        return accumulator;
+    }
+
+    /**
+     * Returns true if values of given attribute are decimal numbers stored as strings,
+     * which cannot be summed or compared as numbers by the database.
+     */
+    protected boolean isStoredAsDecimalString(Attribute<?, ?> attribute) {
+        return BigDecimal.class.equals(attribute.getAttributeClass()) && getDecimalStorage() == DecimalStorage.STRING;
+    }
+
+    /**
+     * Returns representation of decimal numbers in stored documents and filters. Strings are used by default,
+     * both representations are read. Existing data can be converted by {@link #migrateDecimalsToDecimal128(int)}.
+     */
+    protected DecimalStorage getDecimalStorage() {
+        return DecimalStorage.STRING;
+    }
+
+    /**
+     * Converts values of decimal attributes that are stored as strings to Decimal128, using bulk writes.
+     * Documents that were already converted are skipped, so the migration can be repeated.
+     * @param batchSize count of documents updated by one bulk write
+     * @return count of converted documents
+     */
+    public int migrateDecimalsToDecimal128(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        List<String> fieldNames = getEntityMapper().getAttributes().stream()
+            .filter(a -> BigDecimal.class.equals(a.getAttributeClass()))
+            .map(Attribute::getName)
+            .collect(Collectors.toList());
+        if (fieldNames.isEmpty()) {
+            return 0;
+        }
+        Bson stringDecimals = Filters.or(fieldNames.stream().map(f -> Filters.type(f, BsonType.STRING)).collect(Collectors.toList()));
+        int migratedCount = 0;
+        List<WriteModel<Document>> updates = new ArrayList<>();
+        try (MongoCursor<Document> cursor = getCollection().find(stringDecimals).projection(Projections.include(fieldNames)).batchSize(batchSize).iterator()) {
+            while (cursor.hasNext()) {
+                Document doc = cursor.next();
+                Document converted = new Document();
+                for (String fieldName : fieldNames) {
+                    Object value = doc.get(fieldName);
+                    if (value instanceof String) {
+                        converted.append(fieldName, MongoConversions.storeDecimal128(MongoConversions.asBigDecimal((String)value)));
+                    }
+                }
+                updates.add(new UpdateOneModel<>(Filters.eq(FLD_ID, doc.get(FLD_ID)), new Document("$set", converted)));
+                if (updates.size() >= batchSize) {
+                    migratedCount += writeMigratedDecimals(updates);
+                    updates.clear();
+                }
+            }
+        }
+        if (!updates.isEmpty()) {
+            migratedCount += writeMigratedDecimals(updates);
+        }
+        return migratedCount;
+    }
+
+    private int writeMigratedDecimals(List<WriteModel<Document>> updates) {
+        BulkWriteResult result = executeMeasured(OperationType.UPDATE, "bulkWrite updateOne", null,
+            () -> getCollection().bulkWrite(updates, new BulkWriteOptions().ordered(false)),
+            r -> r.getMatchedCount());
+        return result.getMatchedCount();
+    }
+
+    protected <R> R emptyAggregation(AggType aggType, Class<R> resultClass) {
+        return aggType == AggType.COUNT ? convertAggValue(0, resultClass) : null;
+    }
+
+    /**
+     * Converts aggregated value returned from the database to given result class.
+     */
+    protected <R> R convertAggValue(Object value, Class<R> resultClass) {
+        if (value instanceof Decimal128 && !resultClass.isInstance(value)) {
+            return convertAggValue(((Decimal128)value).bigDecimalValue(), resultClass);
+        }
+        Object result;
+        if (value == null || resultClass.isInstance(value)) {
+            result = value;
+        } else if (value instanceof Number) {
+            Number num = (Number)value;
+            if (Integer.class.equals(resultClass)) {
+                result = Math.toIntExact(num.longValue());
+            } else if (Long.class.equals(resultClass)) {
+                result = num.longValue();
+            } else if (Double.class.equals(resultClass)) {
+                result = num.doubleValue();
+            } else if (Float.class.equals(resultClass)) {
+                result = num.floatValue();
+            } else if (BigDecimal.class.equals(resultClass)) {
+                result = new BigDecimal(num.toString());
+            } else if (BigInteger.class.equals(resultClass)) {
+                result = BigInteger.valueOf(num.longValue());
+            } else {
+                throw new IllegalArgumentException("Aggregated value " + value + " cannot be converted to " + resultClass);
+            }
+        } else if (value instanceof Date && Instant.class.equals(resultClass)) {
+            result = ((Date)value).toInstant();
+        } else {
+            throw new IllegalArgumentException("Aggregated value " + value + " cannot be converted to " + resultClass);
+        }
+        return resultClass.cast(result);
+    }
+
+    /**
+     * Converts value of group returned from the database to class of grouping attribute, if the attribute is known.
+     */
+    protected Object convertGroupValue(Object value, Attribute<?, ?> attribute) {
+        if (attribute == null) {
+            return value;
+        }
+        return new DocumentAttributeSource(new Document(AGG_FIELD, value)).get(attribute.getAttributeClass(), AGG_FIELD);
+    }
+
+    /**
+     * Returns attribute of given entity mapper with given name or full name, or null if there is no such attribute.
+     */
+    protected <T, F> Attribute<T, ?> findAttribute(String attrName, EntityMapper<T, F> entityMapper) {
+        for (Attribute<T, ?> attribute : entityMapper.getAttributes()) {
+            if (attribute.getNameFull().equals(attrName) || attribute.getName().equals(attrName)) {
+                return attribute;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Translates name or full name of attribute (as used for example in {@link Order} and {@link Group})
+     * to name of the field in the document.
+     */
+    protected <T, F> String getFieldName(String attrName, EntityMapper<T, F> entityMapper) {
+        Attribute<T, ?> attribute = findAttribute(attrName, entityMapper);
+        if (attribute != null) {
+            return attribute.getName();
+        }
+        String tablePrefix = entityMapper.getTableName() + ".";
+        return attrName.startsWith(tablePrefix) ? attrName.substring(tablePrefix.length()) : attrName;
+    }
+
+    /**
+     * Creates indexes declared by entity mapper, indexes that already exist are left unchanged.
+     * @return names of created indexes
+     */
+    public List<String> createIndexes() {
+        List<IndexModel> indexModels = getIndexBuilder().composeIndexModels(getEntityMapper());
+        if (indexModels.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return getCollection().createIndexes(indexModels);
+    }
+
+    protected MongoIndexBuilder getIndexBuilder() {
+        return mongoIndexBuilder;
     }
 
     protected MongoCollection<Document> getCollection() {
         return getDatabase().getCollection(getEntityMapper().getTableName());
     }
 
+    /**
+     * Returns collection with entities of given entity mapper.
+     */
+    protected <T, F> MongoCollection<Document> getCollection(EntityMapper<T, F> entityMapper) {
+        if (entityMapper == getEntityMapper()) {
+            return getCollection();
+        }
+        return getDatabase().getCollection(entityMapper.getTableName());
+    }
+
+    /**
+     * Returns collection of entities of repository, entities are encoded and decoded by entity codec.
+     */
+    protected MongoCollection<T> getEntityCollection() {
+        return getEntityCollection(getEntityMapper());
+    }
+
+    /**
+     * Returns collection of entities of given entity mapper, entities are encoded and decoded by entity codec.
+     */
+    protected <T, F> MongoCollection<T> getEntityCollection(EntityMapper<T, F> entityMapper) {
+        EntityCodec<T> codec = getEntityCodec(entityMapper);
+        return getCollection(entityMapper).withDocumentClass(codec.getEncoderClass()).withCodecRegistry(getEntityCodecRegistry(entityMapper));
+    }
+
+    /**
+     * Returns collection of entities of given entity mapper, documents are decoded by entity codec to attribute sources
+     * which can be passed to custom entity builders.
+     */
+    protected <T, F> MongoCollection<DecodedAttributeSource> getAttributeSourceCollection(EntityMapper<T, F> entityMapper) {
+        return getCollection(entityMapper).withDocumentClass(DecodedAttributeSource.class).withCodecRegistry(getEntityCodecRegistry(entityMapper));
+    }
+
+    /**
+     * Returns registry with entity codec of given entity mapper, which is preferred to codecs of the database.
+     */
+    protected <T, F> CodecRegistry getEntityCodecRegistry(EntityMapper<T, F> entityMapper) {
+        EntityCodec<T> codec = getEntityCodec(entityMapper);
+        return CodecRegistries.fromRegistries(
+            CodecRegistries.fromCodecs(codec, codec.getAttributeSourceCodec()),
+            getDatabase().getCodecRegistry());
+    }
+
+    /**
+     * Returns codec of entities of given entity mapper, the codec is created once per entity mapper.
+     */
+    @SuppressWarnings("unchecked")
+    protected <T, F> EntityCodec<T> getEntityCodec(EntityMapper<T, F> entityMapper) {
+        return (EntityCodec<T>)entityCodecs.computeIfAbsent(entityMapper, m -> createEntityCodec(entityMapper));
+    }
+
+    /**
+     * Creates codec of entities of given entity mapper. Values of attributes are converted by
+     * {@link #getDbSupportedAttributeValue(Attribute, Object)}, so they are stored in the same form as in updates and filters.
+     */
+    protected <T, F> EntityCodec<T> createEntityCodec(EntityMapper<T, F> entityMapper) {
+        return new EntityCodec<>(entityMapper, this::getDbSupportedAttributeValue, getDatabase().getCodecRegistry());
+    }
+
     protected Document updateDocWithEntity(Document doc, T entity) {
         return updateDocWithAttributes(doc, entityToAttributesWithValues(entity));
     }
 
     protected <T> Document updateDocWithAttributes(Document doc, List<Pair<Attribute<T, ?>, Object>> attributesWithValues) {
         for (Pair<Attribute<T, ?>, Object> attrWithValue : attributesWithValues) {
-            doc.append(attrWithValue.getFirst().getName(), getDbSupportedAttributeValue(attrWithValue.getSecond()));
+            doc.append(attrWithValue.getFirst().getName(), getDbSupportedAttributeValue(attrWithValue.getFirst(), attrWithValue.getSecond()));
+        }
+        return doc;
+    }
+
+    /**
+     * Converts value of given attribute to value stored in the database. Sub-entities of embedded attributes are converted
+     * to embedded documents (arrays of embedded documents).
+     */
+    protected Object getDbSupportedAttributeValue(Attribute<?, ?> attribute, Object v) {
+        if (attribute instanceof EmbeddedAttr && v != null) {
+            EmbeddedAttr<?, ?, Object> embeddedAttribute = (EmbeddedAttr<?, ?, Object>)attribute;
+            if (embeddedAttribute.getCardinality() == Cardinality.ONE) {
+                return createEmbeddedDocument(embeddedAttribute.getEntityMapper(), v);
+            }
+            List<Document> docs = new ArrayList<>();
+            for (Object subEntity : (List<?>)v) {
+                docs.add(subEntity != null ? createEmbeddedDocument(embeddedAttribute.getEntityMapper(), subEntity) : null);
+            }
+            return docs;
+        }
+        return getDbSupportedAttributeValue(v);
+    }
+
+    /**
+     * Creates embedded document with attributes of given sub-entity.
+     */
+    protected <S> Document createEmbeddedDocument(EntityMapper<S, ?> entityMapper, S subEntity) {
+        Document doc = new Document();
+        for (Attribute<S, ?> attribute : entityMapper.getAttributes()) {
+            doc.append(attribute.getName(), getDbSupportedAttributeValue(attribute, attribute.getValue(subEntity)));
         }
         return doc;
     }
@@ -326,7 +1460,9 @@ public abstract class AbstractMongoRepository<T, K, F> implements Repository<T,
         if (v instanceof Instant) {
             valueForDb = MongoConversions.storeDate((Instant)v);
         } else if (v instanceof BigDecimal) {
-            valueForDb = MongoConversions.storeDecimal((BigDecimal)v);
+            valueForDb = getDecimalStorage() == DecimalStorage.DECIMAL128 ?
+                MongoConversions.storeDecimal128((BigDecimal)v) :
+                MongoConversions.storeDecimal((BigDecimal)v);
         } else if (v instanceof Enum) {
             valueForDb = MongoConversions.storeEnum((Enum)v);
         } else {
@@ -348,19 +1484,115 @@ public abstract class AbstractMongoRepository<T, K, F> implements Repository<T,
         return FLD_ID;
     }
 
-    protected Document findOneAndUpdate(List<Pair<Attribute<T, ?>, Object>> primaryAttributesWithValues, List<Pair<Attribute<T, ?>, Object>> updatedAttributesWithValues) {
+    /**
+     * Creates document with attributes of given entity to insert, with new generated id if requested.
+     * @param entity
+     * @param autogenerateKey
+     * @return
+     */
+    protected Document createDocument(T entity, boolean autogenerateKey) {
+        Document doc = updateDocWithEntity(new Document(), entity);
+        if (autogenerateKey) {
+            doc.append(getIdFieldName(), generateId());
+        }
+        return doc;
+    }
+
+    /**
+     * Builds created entity from inserted document, which contains also generated id.
+     * The entity is built from the document as it would be read from the database, without another query.
+     * @param doc inserted document
+     * @return
+     */
+    protected T buildCreatedEntity(Document doc) {
+        return getEntityMapper().buildEntity(new DocumentAttributeSource(doc));
+    }
+
+    protected Document createUpdateDocument(List<Pair<Attribute<T, ?>, Object>> updatedAttributesWithValues) {
         Document doc = updateDocWithAttributes(new Document(), updatedAttributesWithValues);
         doc.remove(getIdFieldName()); // sanity check that _id won't be updated
-        return getCollection().findOneAndUpdate( // atomic find and modify
-            updateDocWithAttributes(new Document(), primaryAttributesWithValues),
-            new Document().append("$set", doc),
-            new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER));
+        return doc;
+    }
+
+    /**
+     * Updates given attributes of one document with given primary key, without returning the updated document.
+     * @param primaryAttributesWithValues
+     * @param updatedAttributesWithValues
+     * @return count of found documents (0 or 1)
+     */
+    protected int updateOne(List<Pair<Attribute<T, ?>, Object>> primaryAttributesWithValues, List<Pair<Attribute<T, ?>, Object>> updatedAttributesWithValues) {
+        Document doc = createUpdateDocument(updatedAttributesWithValues);
+        Document pkFilter = updateDocWithAttributes(new Document(), primaryAttributesWithValues);
+        UpdateResult result = executeMeasured(OperationType.UPDATE, "updateOne", pkFilter,
+            () -> getCollection().updateOne(pkFilter, new Document().append("$set", doc)),
+            r -> r.getMatchedCount());
+        return (int)result.getMatchedCount();
+    }
+
+    protected Document findOneAndUpdate(List<Pair<Attribute<T, ?>, Object>> primaryAttributesWithValues, List<Pair<Attribute<T, ?>, Object>> updatedAttributesWithValues) {
+        Document doc = createUpdateDocument(updatedAttributesWithValues);
+        Document pkFilter = updateDocWithAttributes(new Document(), primaryAttributesWithValues);
+        return executeMeasured(OperationType.UPDATE, "findOneAndUpdate", pkFilter,
+            () -> getCollection().findOneAndUpdate( // atomic find and modify
+                pkFilter,
+                new Document().append("$set", doc),
+                new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER)),
+            updated -> updated != null ? 1 : 0);
+    }
+
+    /**
+     * Returns metrics notified about executed commands, metrics are disabled by default.
+     */
+    protected RepositoryMetrics getMetrics() {
+        return RepositoryMetrics.NONE;
+    }
+
+    /**
+     * Starts measurement of a command. Filter is rendered to the fingerprint only when the command is measured
+     * by metrics or recorded by flight recorder.
+     * @param type type of operation
+     * @param command name of executed command
+     * @param filter filter of the command, can be null
+     * @return
+     */
+    protected RepositoryOperation startOperation(OperationType type, String command, Bson filter) {
+        RepositoryMetrics metrics = getMetrics();
+        if (!metrics.isEnabled() && !RepositoryEvents.isEnabled()) {
+            return RepositoryOperation.NOOP;
+        }
+        String fingerprint = filter != null ?
+            command + " " + StatementFingerprints.json(filter.toBsonDocument(Document.class, getCollection().getCodecRegistry()).toJson()) :
+            command;
+        return new RepositoryOperation(metrics, type, getEntityMapper().getTableName(), fingerprint, 0);
+    }
+
+    /**
+     * Executes given command measured by {@link #getMetrics() metrics}.
+     * @param type type of operation
+     * @param command name of executed command
+     * @param filter filter of the command, can be null
+     * @param execution execution of the command
+     * @param rowCount count of returned or affected documents from the result
+     * @param <R>
+     * @return
+     */
+    protected <R> R executeMeasured(OperationType type, String command, Bson filter, Supplier<R> execution, ToLongFunction<R> rowCount) {
+        RepositoryOperation operation = startOperation(type, command, filter);
+        try {
+            R result = execution.get();
+            operation.executed();
+            operation.finished(rowCount.applyAsLong(result));
+            return result;
+        } catch (RuntimeException ex) {
+            operation.failed(ex);
+            throw ex;
+        }
     }
 
     protected MongoFilter conditionsToMongoFilter(List<Condition> conditions) {
         final MongoFilter mf = new MongoFilter();
         if (conditions != null) {
-            List<MongoCondition> mongoConditions = conditions.stream().map(c -> getConditionBuilder().build(c, this::getDbSupportedAttributeValue)).collect(Collectors.toList());
+            List<MongoCondition> mongoConditions = getConditionBuilder().build(conditions, this::getDbSupportedAttributeValue);
             mongoConditions.forEach(c -> mf.add(c.getCondition()));
         }
         return mf;
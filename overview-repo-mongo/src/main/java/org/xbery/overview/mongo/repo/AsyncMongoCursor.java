@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.mongo.repo;
+
+import com.mongodb.async.AsyncBatchCursor;
+import org.xbery.overview.mapper.AttributeSource;
+import org.xbery.overview.repo.metrics.RepositoryOperation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Asynchronous cursor over entities that are fetched by the demand of the consumer. Batch size of the database cursor
+ * is set to the demand before each batch is requested, so the database sends documents in batches the consumer asks for
+ * and no thread is blocked while waiting for them. Requests are executed one after another in order they were made.
+ * The cursor is closed when it is exhausted or when {@link #close()} is called. Thread-safe.
+ * @param <T> type of entity
+ * @author Radek Beran
+ */
+public class AsyncMongoCursor<T> {
+
+    private final IntFunction<CompletableFuture<AsyncBatchCursor<? extends AttributeSource>>> cursorOpener;
+    private final Function<AttributeSource, T> entityBuilder;
+    private final RepositoryOperation operation;
+    /** Entities of the last batch that exceeded the demand. */
+    private final Deque<T> buffer = new ArrayDeque<>();
+    private CompletableFuture<?> lastRequest = CompletableFuture.completedFuture(null);
+    private AsyncBatchCursor<? extends AttributeSource> cursor;
+    private long count;
+    private volatile boolean exhausted;
+
+    /**
+     * @param cursorOpener opens database cursor with given batch size, null for empty result
+     * @param entityBuilder builder of entity from decoded document
+     * @param operation measured find operation, finished when the cursor is closed
+     */
+    public AsyncMongoCursor(
+        IntFunction<CompletableFuture<AsyncBatchCursor<? extends AttributeSource>>> cursorOpener,
+        Function<AttributeSource, T> entityBuilder,
+        RepositoryOperation operation) {
+        this.cursorOpener = cursorOpener;
+        this.entityBuilder = entityBuilder;
+        this.operation = operation;
+        if (cursorOpener == null) {
+            exhausted = true;
+            operation.finished(0);
+        }
+    }
+
+    /**
+     * Requests next entities.
+     * @param demand maximum count of returned entities
+     * @return next entities, empty list when the cursor is exhausted
+     */
+    public synchronized CompletableFuture<List<T>> next(int demand) {
+        if (demand <= 0) {
+            throw new IllegalArgumentException("demand should be positive, but was " + demand);
+        }
+        CompletableFuture<List<T>> request = lastRequest.handle((previous, error) -> null).thenCompose(ignored -> fetch(demand));
+        lastRequest = request;
+        return request;
+    }
+
+    /**
+     * Closes the cursor after the pending requests are finished.
+     * @return
+     */
+    public synchronized CompletableFuture<Void> close() {
+        CompletableFuture<Void> request = lastRequest.handle((previous, error) -> {
+            finish();
+            return null;
+        });
+        lastRequest = request;
+        return request;
+    }
+
+    /**
+     * Whether all entities were returned or the cursor was closed.
+     */
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    private CompletableFuture<List<T>> fetch(int demand) {
+        List<T> entities = new ArrayList<>();
+        while (!buffer.isEmpty() && entities.size() < demand) {
+            entities.add(buffer.poll());
+        }
+        if (exhausted || entities.size() == demand) {
+            return CompletableFuture.completedFuture(entities);
+        }
+        CompletableFuture<AsyncBatchCursor<? extends AttributeSource>> opened;
+        if (cursor != null) {
+            cursor.setBatchSize(demand - entities.size());
+            opened = CompletableFuture.completedFuture(cursor);
+        } else {
+            opened = cursorOpener.apply(demand - entities.size()).thenApply(c -> {
+                operation.executed();
+                cursor = c;
+                return c;
+            });
+        }
+        CompletableFuture<List<T>> result = new CompletableFuture<>();
+        opened.whenComplete((c, error) -> {
+            if (error != null) {
+                fail(result, error);
+            } else {
+                fetchBatches(c, entities, demand, result);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Requests batches until the demand is satisfied or the cursor is exhausted, smaller batches can be returned
+     * by the database when their size limit is reached.
+     */
+    private void fetchBatches(AsyncBatchCursor<? extends AttributeSource> c, List<T> entities, int demand, CompletableFuture<List<T>> result) {
+        c.next((batch, error) -> {
+            if (error != null) {
+                fail(result, error);
+                return;
+            }
+            try {
+                if (batch == null) {
+                    // Database cursor is exhausted
+                    finish();
+                    result.complete(entities);
+                    return;
+                }
+                for (AttributeSource source : batch) {
+                    T entity = entityBuilder.apply(source);
+                    count++;
+                    if (entities.size() < demand) {
+                        entities.add(entity);
+                    } else {
+                        buffer.add(entity);
+                    }
+                }
+                if (entities.size() < demand) {
+                    c.setBatchSize(demand - entities.size());
+                    fetchBatches(c, entities, demand, result);
+                } else {
+                    result.complete(entities);
+                }
+            } catch (RuntimeException ex) {
+                fail(result, ex);
+            }
+        });
+    }
+
+    private void finish() {
+        buffer.clear();
+        if (!exhausted) {
+            exhausted = true;
+            if (cursor != null) {
+                cursor.close();
+            }
+            operation.finished(count);
+        }
+    }
+
+    private void fail(CompletableFuture<List<T>> result, Throwable error) {
+        if (!exhausted) {
+            exhausted = true;
+            if (cursor != null) {
+                cursor.close();
+            }
+            operation.failed(error);
+        }
+        result.completeExceptionally(error);
+    }
+}
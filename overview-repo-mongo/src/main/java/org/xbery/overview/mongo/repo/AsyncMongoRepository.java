@@ -0,0 +1,459 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.mongo.repo;
+
+import com.mongodb.async.AsyncBatchCursor;
+import com.mongodb.async.SingleResultCallback;
+import com.mongodb.async.client.FindIterable;
+import com.mongodb.async.client.MongoCollection;
+import com.mongodb.async.client.MongoDatabase;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+import org.xbery.overview.Group;
+import org.xbery.overview.Order;
+import org.xbery.overview.Overview;
+import org.xbery.overview.Pagination;
+import org.xbery.overview.common.Pair;
+import org.xbery.overview.filter.Condition;
+import org.xbery.overview.mapper.Attribute;
+import org.xbery.overview.mapper.AttributeSource;
+import org.xbery.overview.mapper.EntityMapper;
+import org.xbery.overview.mongo.mapper.EntityCodec.DecodedAttributeSource;
+import org.xbery.overview.mongo.mapper.EntityCodec;
+import org.xbery.overview.repo.AggType;
+import org.xbery.overview.repo.metrics.OperationType;
+import org.xbery.overview.repo.metrics.RepositoryOperation;
+import org.xbery.overview.sql.mapper.JoinEntityMapper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Non-blocking variant of a Mongo repository with the same entity mapper and conditions model. Commands are sent
+ * by the asynchronous driver and callers receive {@link CompletableFuture}s completed from callbacks of the driver,
+ * so no thread waits for the database and many concurrent requests are limited only by the connection pool of the client.
+ * The wrapped repository provides entity mapper, conversion of conditions, entity codecs and metrics.
+ * Results can be streamed by {@link AsyncMongoCursor} that fetches documents by the demand of the consumer.
+ * Joins are not supported. Thread-safe.
+ * @param <T> type of entity
+ * @param <K> type of entity key
+ * @param <F> type of filter
+ * @author Radek Beran
+ */
+public class AsyncMongoRepository<T, K, F> {
+
+    private final AbstractMongoRepository<T, K, F> repository;
+    private final MongoDatabase database;
+
+    /**
+     * @param repository repository providing entity mapper, conditions and codecs
+     * @param database database of the asynchronous driver with the collection of the repository
+     */
+    public AsyncMongoRepository(AbstractMongoRepository<T, K, F> repository, MongoDatabase database) {
+        this.repository = Objects.requireNonNull(repository, "repository should be specified");
+        this.database = Objects.requireNonNull(database, "database should be specified");
+    }
+
+    public CompletableFuture<T> create(T entity, boolean autogenerateKey) {
+        Objects.requireNonNull(entity, "Entity should be specified");
+        if (!autogenerateKey) {
+            return this.<Void>execute(OperationType.CREATE, "insertOne", null,
+                callback -> getEntityCollection().insertOne(entity, callback), r -> 1)
+                .thenApply(r -> entity);
+        }
+        Document doc = repository.createDocument(entity, autogenerateKey);
+        return this.<Void>execute(OperationType.CREATE, "insertOne", null,
+            callback -> getCollection().insertOne(doc, callback), r -> 1)
+            .thenApply(r -> repository.buildCreatedEntity(doc));
+    }
+
+    public CompletableFuture<List<T>> createAll(List<T> entities, boolean autogenerateKey) {
+        if (entities == null || entities.isEmpty()) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        if (!autogenerateKey) {
+            List<T> created = new ArrayList<>(entities);
+            created.forEach(entity -> Objects.requireNonNull(entity, "Entity should be specified"));
+            return this.<Void>execute(OperationType.CREATE, "insertMany", null,
+                callback -> getEntityCollection().insertMany(created, callback), r -> created.size())
+                .thenApply(r -> created);
+        }
+        List<Document> docs = new ArrayList<>(entities.size());
+        for (T entity : entities) {
+            Objects.requireNonNull(entity, "Entity should be specified");
+            docs.add(repository.createDocument(entity, autogenerateKey));
+        }
+        return this.<Void>execute(OperationType.CREATE, "insertMany", null,
+            callback -> getCollection().insertMany(docs, callback), r -> docs.size())
+            .thenApply(r -> docs.stream().map(repository::buildCreatedEntity).collect(Collectors.toList()));
+    }
+
+    public CompletableFuture<Integer> upsertAll(List<T> entities) {
+        if (entities == null || entities.isEmpty()) {
+            return CompletableFuture.completedFuture(0);
+        }
+        UpdateOptions upsert = new UpdateOptions().upsert(true);
+        List<WriteModel<T>> replacements = new ArrayList<>();
+        for (T entity : entities) {
+            Document pkFilter = repository.updateDocWithAttributes(new Document(), getEntityMapper().decomposePrimaryKeyOfEntity(entity));
+            replacements.add(new ReplaceOneModel<>(pkFilter, entity, upsert));
+        }
+        return this.<BulkWriteResult>execute(OperationType.UPSERT, "bulkWrite replaceOne upsert", null,
+            callback -> getEntityCollection().bulkWrite(replacements, new BulkWriteOptions().ordered(false), callback),
+            r -> r.getMatchedCount() + r.getUpserts().size())
+            .thenApply(r -> r.getMatchedCount() + r.getUpserts().size());
+    }
+
+    public CompletableFuture<Optional<T>> update(T entity) {
+        Objects.requireNonNull(entity, "Entity should be specified");
+        return updateOne(getEntityMapper().decomposePrimaryKeyOfEntity(entity), repository.entityToAttributesWithValues(entity))
+            .thenApply(updatedCount -> updatedCount > 0 ? Optional.of(entity) : Optional.<T>empty());
+    }
+
+    public CompletableFuture<Integer> update(K id, List<Pair<Attribute<T, ?>, Object>> attributesWithValues) {
+        Objects.requireNonNull(id, "id should be specified");
+        return updateOne(getEntityMapper().decomposePrimaryKey(id), attributesWithValues);
+    }
+
+    public CompletableFuture<Integer> updateAll(List<T> entities) {
+        if (entities == null || entities.isEmpty()) {
+            return CompletableFuture.completedFuture(0);
+        }
+        List<WriteModel<Document>> updates = new ArrayList<>();
+        for (T entity : entities) {
+            Document pkFilter = repository.updateDocWithAttributes(new Document(), getEntityMapper().decomposePrimaryKeyOfEntity(entity));
+            updates.add(new UpdateOneModel<>(pkFilter, new Document("$set", repository.createUpdateDocument(repository.entityToAttributesWithValues(entity)))));
+        }
+        return this.<BulkWriteResult>execute(OperationType.UPDATE, "bulkWrite updateOne", null,
+            callback -> getCollection().bulkWrite(updates, new BulkWriteOptions().ordered(false), callback),
+            r -> r.getMatchedCount())
+            .thenApply(r -> r.getMatchedCount());
+    }
+
+    public CompletableFuture<Boolean> delete(K id) {
+        Objects.requireNonNull(id, "id should be specified");
+        Document pkFilter = repository.updateDocWithAttributes(new Document(), getEntityMapper().decomposePrimaryKey(id));
+        return this.<DeleteResult>execute(OperationType.DELETE, "deleteOne", pkFilter,
+            callback -> getCollection().deleteOne(pkFilter, callback), r -> r.getDeletedCount())
+            .thenApply(r -> r.getDeletedCount() > 0);
+    }
+
+    public CompletableFuture<Integer> deleteAll(Collection<K> ids) {
+        Objects.requireNonNull(ids, "ids should be specified");
+        List<WriteModel<Document>> deletes = new ArrayList<>();
+        for (K id : new LinkedHashSet<>(ids)) {
+            deletes.add(new DeleteOneModel<>(repository.updateDocWithAttributes(new Document(), getEntityMapper().decomposePrimaryKey(id))));
+        }
+        if (deletes.isEmpty()) {
+            return CompletableFuture.completedFuture(0);
+        }
+        return this.<BulkWriteResult>execute(OperationType.DELETE, "bulkWrite deleteOne", null,
+            callback -> getCollection().bulkWrite(deletes, new BulkWriteOptions().ordered(false), callback),
+            r -> r.getDeletedCount())
+            .thenApply(r -> r.getDeletedCount());
+    }
+
+    public CompletableFuture<Integer> deleteByFilter(F filter) {
+        Objects.requireNonNull(filter, "filter should be specified");
+        Optional<Bson> deleteFilter = createFindFilter(filter);
+        if (!deleteFilter.isPresent()) {
+            return CompletableFuture.completedFuture(0);
+        }
+        return this.<DeleteResult>execute(OperationType.DELETE, "deleteMany", deleteFilter.get(),
+            callback -> getCollection().deleteMany(deleteFilter.get(), callback), r -> r.getDeletedCount())
+            .thenApply(r -> (int)r.getDeletedCount());
+    }
+
+    public CompletableFuture<Optional<T>> findById(K id) {
+        Document pkFilter = repository.updateDocWithAttributes(new Document(), getEntityMapper().decomposePrimaryKey(id));
+        return this.<T>execute(OperationType.QUERY, "find", pkFilter,
+            callback -> getEntityCollection().find(pkFilter).first(callback), found -> found != null ? 1 : 0)
+            .thenApply(Optional::ofNullable);
+    }
+
+    /**
+     * Finds entities by given ids using $in query on primary key (usually _id).
+     * @param ids
+     * @return found entities mapped by their ids, in order of given ids; ids that were not found are missing in the key set
+     */
+    public CompletableFuture<Map<K, T>> findMapByIds(Collection<K> ids) {
+        Objects.requireNonNull(ids, "ids should be specified");
+        List<K> uniqueIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        if (uniqueIds.isEmpty()) {
+            return CompletableFuture.completedFuture(new LinkedHashMap<>());
+        }
+        Map<List<Object>, K> idsByKeyValues = new HashMap<>();
+        Bson filter = repository.createIdsFilter(uniqueIds, idsByKeyValues);
+        return this.<List<T>>execute(OperationType.QUERY, "find", filter,
+            callback -> getEntityCollection().find(filter).into(new ArrayList<>(), callback), List::size)
+            .thenApply(found -> {
+                Map<K, T> foundEntities = new HashMap<>();
+                for (T entity : found) {
+                    K id = idsByKeyValues.get(getEntityMapper().getPrimaryAttributeValues(entity));
+                    if (id != null) {
+                        foundEntities.put(id, entity);
+                    }
+                }
+                Map<K, T> entitiesById = new LinkedHashMap<>();
+                for (K id : uniqueIds) {
+                    T entity = foundEntities.get(id);
+                    if (entity != null) {
+                        entitiesById.put(id, entity);
+                    }
+                }
+                return entitiesById;
+            });
+    }
+
+    public CompletableFuture<Integer> countByFilter(F filter, List<Group> grouping) {
+        return aggByFilter(AggType.COUNT, Integer.class, "*", filter, grouping);
+    }
+
+    /**
+     * Returns aggregated value of given attribute for given filter, see
+     * {@link AbstractMongoRepository#aggByFilter(AggType, Class, String, Object, List)}.
+     */
+    public <R> CompletableFuture<R> aggByFilter(AggType aggType, Class<R> resultClass, String attrName, F filter, List<Group> grouping) {
+        Objects.requireNonNull(aggType, "aggregation type should be specified");
+        Objects.requireNonNull(resultClass, "result class should be specified");
+        Objects.requireNonNull(attrName, "attribute name should be specified");
+
+        EntityMapper<T, F> entityMapper = getEntityMapper();
+        List<Condition> filterConditions = repository.optimizeConditions(filter != null ? entityMapper.composeFilterConditions(filter) : new ArrayList<>());
+        if (repository.isAlwaysFalse(filterConditions)) {
+            return CompletableFuture.completedFuture(repository.emptyAggregation(aggType, resultClass));
+        }
+        if (aggType == AggType.COUNT && (grouping == null || grouping.isEmpty())) {
+            Optional<Bson> countFilter = repository.createCountFilter(filterConditions, attrName, entityMapper);
+            return this.<Long>execute(OperationType.QUERY, "count", countFilter.orElse(null),
+                callback -> {
+                    if (countFilter.isPresent()) {
+                        getCollection().count(countFilter.get(), callback);
+                    } else {
+                        getCollection().count(callback);
+                    }
+                }, r -> 1)
+                .thenApply(count -> repository.convertAggValue(count, resultClass));
+        }
+        List<Group> groups = grouping != null ? grouping : Collections.emptyList();
+        MongoFilter mongoFilter = repository.createAggregationFilter(aggType, attrName, filterConditions, entityMapper);
+        List<Bson> pipeline = repository.createAggregationPipeline(aggType, attrName, mongoFilter, groups, entityMapper);
+        return this.<List<Document>>execute(OperationType.QUERY, "aggregate", mongoFilter.getFilter().orElse(AbstractMongoRepository.EMPTY_DOCUMENT),
+            callback -> getCollection().aggregate(pipeline).into(new ArrayList<>(), callback), List::size)
+            .thenApply(groupDocs -> {
+                Map<List<Object>, R> results = new LinkedHashMap<>();
+                groupDocs.forEach(groupDoc -> repository.addAggregationResult(results, groupDoc, resultClass, groups, entityMapper));
+                return results.isEmpty() ? repository.emptyAggregation(aggType, resultClass) : results.values().iterator().next();
+            });
+    }
+
+    public CompletableFuture<List<T>> findByOverview(Overview<F> overview) {
+        List<Attribute<T, ?>> projectionAttributes = repository.getAttributesOfProjection(overview.getProjection(), getEntityMapper());
+        Optional<Bson> findFilter = createFindFilter(overview.getFilter());
+        if (!findFilter.isPresent()) {
+            // Filter cannot match any document, database is not queried
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        FindIterable<DecodedAttributeSource> find = createFind(findFilter.get(), projectionAttributes, overview.getOrdering(), overview.getPagination(), 0);
+        Function<AttributeSource, T> entityBuilder = createEntityBuilder(projectionAttributes);
+        return this.<List<DecodedAttributeSource>>execute(OperationType.QUERY, "find", findFilter.get(),
+            callback -> find.into(new ArrayList<>(), callback), List::size)
+            .thenApply(sources -> sources.stream().map(entityBuilder).collect(Collectors.toList()));
+    }
+
+    /**
+     * Opens cursor over entities matching given overview settings, the database is queried with the first demand.
+     * @param overview
+     * @return
+     */
+    public AsyncMongoCursor<T> openCursor(Overview<F> overview) {
+        List<Attribute<T, ?>> projectionAttributes = repository.getAttributesOfProjection(overview.getProjection(), getEntityMapper());
+        Function<AttributeSource, T> entityBuilder = createEntityBuilder(projectionAttributes);
+        Optional<Bson> findFilter = createFindFilter(overview.getFilter());
+        if (!findFilter.isPresent()) {
+            return new AsyncMongoCursor<>(null, entityBuilder, RepositoryOperation.NOOP);
+        }
+        RepositoryOperation operation = repository.startOperation(OperationType.QUERY, "find", findFilter.get());
+        return new AsyncMongoCursor<>(batchSize -> {
+            CompletableFuture<AsyncBatchCursor<? extends AttributeSource>> opened = new CompletableFuture<>();
+            try {
+                createFind(findFilter.get(), projectionAttributes, overview.getOrdering(), overview.getPagination(), batchSize)
+                    .batchCursor((cursor, error) -> {
+                        if (error != null) {
+                            opened.completeExceptionally(error);
+                        } else {
+                            opened.complete(cursor);
+                        }
+                    });
+            } catch (RuntimeException ex) {
+                opened.completeExceptionally(ex);
+            }
+            return opened;
+        }, entityBuilder, operation);
+    }
+
+    public AbstractMongoRepository<T, K, F> getRepository() {
+        return repository;
+    }
+
+    /**
+     * Executes a command of the asynchronous driver measured by metrics of the repository.
+     * @param type type of operation
+     * @param command name of executed command
+     * @param filter filter of the command, can be null
+     * @param execution execution of the command that passes its result to given callback
+     * @param rowCount count of returned or affected documents from the result
+     * @param <R>
+     * @return future completed by the callback
+     */
+    protected <R> CompletableFuture<R> execute(OperationType type, String command, Bson filter, Consumer<SingleResultCallback<R>> execution, ToLongFunction<R> rowCount) {
+        RepositoryOperation operation = repository.startOperation(type, command, filter);
+        CompletableFuture<R> future = new CompletableFuture<>();
+        try {
+            execution.accept((result, error) -> {
+                if (error != null) {
+                    operation.failed(error);
+                    future.completeExceptionally(error);
+                    return;
+                }
+                try {
+                    operation.executed();
+                    operation.finished(rowCount.applyAsLong(result));
+                    future.complete(result);
+                } catch (RuntimeException ex) {
+                    future.completeExceptionally(ex);
+                }
+            });
+        } catch (RuntimeException ex) {
+            operation.failed(ex);
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    protected EntityMapper<T, F> getEntityMapper() {
+        EntityMapper<T, F> entityMapper = repository.getEntityMapper();
+        if (entityMapper instanceof JoinEntityMapper) {
+            throw new UnsupportedOperationException("Joins are not supported by asynchronous repository");
+        }
+        return entityMapper;
+    }
+
+    protected MongoCollection<Document> getCollection() {
+        return database.getCollection(getEntityMapper().getTableName());
+    }
+
+    /**
+     * Returns collection of entities of repository, entities are encoded and decoded by entity codec.
+     */
+    protected MongoCollection<T> getEntityCollection() {
+        EntityCodec<T> codec = repository.getEntityCodec(getEntityMapper());
+        return getCollection().withDocumentClass(codec.getEncoderClass()).withCodecRegistry(getEntityCodecRegistry());
+    }
+
+    /**
+     * Returns registry with entity codec of the repository, which is preferred to codecs of the database.
+     */
+    protected CodecRegistry getEntityCodecRegistry() {
+        EntityCodec<T> codec = repository.getEntityCodec(getEntityMapper());
+        return CodecRegistries.fromRegistries(
+            CodecRegistries.fromCodecs(codec, codec.getAttributeSourceCodec()),
+            database.getCodecRegistry());
+    }
+
+    protected CompletableFuture<Integer> updateOne(List<Pair<Attribute<T, ?>, Object>> primaryAttributesWithValues, List<Pair<Attribute<T, ?>, Object>> updatedAttributesWithValues) {
+        Document doc = repository.createUpdateDocument(updatedAttributesWithValues);
+        Document pkFilter = repository.updateDocWithAttributes(new Document(), primaryAttributesWithValues);
+        return this.<UpdateResult>execute(OperationType.UPDATE, "updateOne", pkFilter,
+            callback -> getCollection().updateOne(pkFilter, new Document().append("$set", doc), callback),
+            r -> r.getMatchedCount())
+            .thenApply(r -> (int)r.getMatchedCount());
+    }
+
+    /**
+     * Returns filter of documents for given filter of entities.
+     * @param filter
+     * @return filter, empty if the filter cannot match any document
+     */
+    protected Optional<Bson> createFindFilter(F filter) {
+        List<Condition> conditions = repository.optimizeConditions(filter != null ? getEntityMapper().composeFilterConditions(filter) : new ArrayList<>());
+        if (repository.isAlwaysFalse(conditions)) {
+            return Optional.empty();
+        }
+        return Optional.of(repository.conditionsToMongoFilter(conditions).getFilter().orElse(AbstractMongoRepository.EMPTY_DOCUMENT));
+    }
+
+    /**
+     * Creates find of documents decoded to attribute sources, with the same settings as cursors of the repository.
+     */
+    protected FindIterable<DecodedAttributeSource> createFind(Bson findFilter, List<Attribute<T, ?>> projectionAttributes, List<Order> ordering, Pagination pagination, int batchSize) {
+        EntityMapper<T, F> entityMapper = getEntityMapper();
+        List<Order> someOrdering = (ordering == null || ordering.isEmpty()) ? repository.createDefaultOrdering(entityMapper) : ordering;
+        FindIterable<DecodedAttributeSource> find = getCollection()
+            .withDocumentClass(DecodedAttributeSource.class)
+            .withCodecRegistry(getEntityCodecRegistry())
+            .find(findFilter)
+            .projection(repository.createProjectionDocument(projectionAttributes))
+            .sort(repository.createSortDocument(someOrdering, entityMapper));
+        if (pagination != null) {
+            if (pagination.getOffset() > 0) {
+                find = find.skip(pagination.getOffset());
+            }
+            find = find.limit(pagination.getLimit());
+        }
+        if (batchSize > 0) {
+            find = find.batchSize(batchSize);
+        }
+        if (repository.getQueryMaxTimeMillis() > 0) {
+            find = find.maxTime(repository.getQueryMaxTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+        if (repository.isNoCursorTimeout()) {
+            find = find.noCursorTimeout(true);
+        }
+        return find;
+    }
+
+    protected Function<AttributeSource, T> createEntityBuilder(List<Attribute<T, ?>> projectionAttributes) {
+        EntityMapper<T, F> entityMapper = getEntityMapper();
+        return as -> entityMapper.buildEntityWithAttributes(as, projectionAttributes, null);
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.mongo.repo;
+
+/**
+ * Representation of {@link java.math.BigDecimal} values in Mongo documents.
+ * @author Radek Beran
+ */
+public enum DecimalStorage {
+    /**
+     * Decimal numbers are stored as strings. They are compared and sorted lexicographically by the database
+     * and cannot be aggregated on the server.
+     */
+    STRING,
+
+    /**
+     * Decimal numbers are stored as Decimal128 (requires Mongo 3.4), so they can be compared, sorted and aggregated
+     * by the database. Values with more than 34 significant digits cannot be stored.
+     */
+    DECIMAL128
+}
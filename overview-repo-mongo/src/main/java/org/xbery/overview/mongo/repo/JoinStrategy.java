@@ -0,0 +1,36 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.mongo.repo;
+
+/**
+ * Way of executing join of two entity mappers in Mongo repository.
+ * @author Radek Beran
+ */
+public enum JoinStrategy {
+    /**
+     * One aggregation of the first collection with $lookup stage joining documents of the second collection.
+     * Filter and ordering of the first entities are applied before the lookup, pagination too when it is not
+     * affected by the join.
+     */
+    LOOKUP,
+
+    /**
+     * First entities are loaded by one query, the second entities by queries with $in on the values of join attribute
+     * of the loaded first entities (in batches) and they are attached to first entities by hash of the join attribute value.
+     */
+    BATCHED_IN
+}
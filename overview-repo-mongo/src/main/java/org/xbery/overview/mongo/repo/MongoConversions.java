@@ -17,6 +17,7 @@
 package org.xbery.overview.mongo.repo;
 
 import org.bson.Document;
+import org.bson.types.Decimal128;
 
 import java.math.BigDecimal;
 import java.time.Duration;
@@ -103,6 +104,17 @@ public class MongoConversions {
     public static BigDecimal asBigDecimal(String str) {
         return as(str, s -> new BigDecimal(s));
     }
+
+    /**
+     * Converts decimal number stored either as a string or as Decimal128.
+     */
+    public static BigDecimal asBigDecimal(Object value) {
+        if (value instanceof Decimal128) {
+            return ((Decimal128)value).bigDecimalValue();
+        }
+        return asBigDecimal((String)value);
+    }
+
     public static BigDecimal asDecimalFromDouble(Double d) {
         return (d == null) ? null : BigDecimal.valueOf(d.doubleValue()).setScale(2, BigDecimal.ROUND_HALF_UP);
     }
@@ -196,6 +208,10 @@ public class MongoConversions {
         return (num == null) ? null : num.toString();
     }
 
+    public static Decimal128 storeDecimal128(BigDecimal num) {
+        return (num == null) ? null : new Decimal128(num);
+    }
+
     public static Double storeDecimalAsDouble(BigDecimal num) {
         return (num == null) ? null : Double.valueOf(num.doubleValue());
     }
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.mongo.repo;
+
+import com.mongodb.client.MongoCursor;
+import org.xbery.overview.mapper.AttributeSource;
+import org.xbery.overview.repo.metrics.RepositoryOperation;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * Cursor over entities built from documents (decoded to attribute sources) that are fetched from the database in batches as the cursor is iterated.
+ * Cursor must be closed, measured operation is finished when the cursor is closed. Not thread-safe.
+ * @param <T> type of entity
+ * @author Radek Beran
+ */
+public class MongoEntityCursor<T> implements Iterator<T>, Closeable {
+
+    private final MongoCursor<? extends AttributeSource> cursor;
+    private final Function<AttributeSource, T> entityBuilder;
+    private final RepositoryOperation operation;
+    private long count;
+    private boolean closed;
+
+    /**
+     * @param cursor cursor over decoded documents, null for empty result
+     * @param entityBuilder builder of entity from decoded document
+     * @param operation measured find operation
+     */
+    public MongoEntityCursor(MongoCursor<? extends AttributeSource> cursor, Function<AttributeSource, T> entityBuilder, RepositoryOperation operation) {
+        this.cursor = cursor;
+        this.entityBuilder = entityBuilder;
+        this.operation = operation;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed || cursor == null) {
+            return false;
+        }
+        try {
+            return cursor.hasNext();
+        } catch (RuntimeException ex) {
+            fail(ex);
+            throw ex;
+        }
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            T entity = entityBuilder.apply(cursor.next());
+            count++;
+            return entity;
+        } catch (RuntimeException ex) {
+            fail(ex);
+            throw ex;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            if (cursor != null) {
+                cursor.close();
+            }
+            operation.finished(count);
+        }
+    }
+
+    private void fail(RuntimeException ex) {
+        if (!closed) {
+            closed = true;
+            cursor.close();
+            operation.failed(ex);
+        }
+    }
+}
@@ -18,6 +18,7 @@ package org.xbery.overview.mongo.repo;
 
 import com.mongodb.client.MongoDatabase;
 import org.xbery.overview.mapper.EntityMapper;
+import org.xbery.overview.repo.metrics.RepositoryMetrics;
 
 /**
  * Full implementation of Mongo repository using an {@link EntityMapper}.
@@ -32,10 +33,21 @@ public class MongoRepository<T, K, F> extends AbstractMongoRepository<T, K, F> {
 
     private final EntityMapper<T, F> entityMapper;
 
+    private final RepositoryMetrics metrics;
 
-    public MongoRepository(MongoDatabase database, EntityMapper<T, F> entityMapper) {
+    /**
+     * @param database
+     * @param entityMapper
+     * @param metrics metrics notified about executed commands
+     */
+    public MongoRepository(MongoDatabase database, EntityMapper<T, F> entityMapper, RepositoryMetrics metrics) {
         this.database = database;
         this.entityMapper = entityMapper;
+        this.metrics = metrics != null ? metrics : RepositoryMetrics.NONE;
+    }
+
+    public MongoRepository(MongoDatabase database, EntityMapper<T, F> entityMapper) {
+        this(database, entityMapper, RepositoryMetrics.NONE);
     }
 
     @Override
@@ -43,6 +55,11 @@ public class MongoRepository<T, K, F> extends AbstractMongoRepository<T, K, F> {
         return database;
     }
 
+    @Override
+    protected RepositoryMetrics getMetrics() {
+        return metrics;
+    }
+
     @Override
     public EntityMapper<T, F> getEntityMapper() {
         return entityMapper;
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.domain;
+
+import java.util.List;
+
+/**
+ * Customer.
+ * @author Radek Beran
+ */
+public class Customer {
+
+	private String id;
+
+	private String name;
+
+	private Address address;
+
+	/**
+	 * Supply points of the customer, stored in the customer document.
+	 */
+	private List<SupplyPoint> supplyPoints;
+
+	/**
+	 * Vouchers reserved by the customer.
+	 */
+	private List<Voucher> vouchers;
+
+	/**
+	 * One of vouchers reserved by the customer.
+	 */
+	private Voucher voucher;
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public Address getAddress() {
+		return address;
+	}
+
+	public void setAddress(Address address) {
+		this.address = address;
+	}
+
+	public List<SupplyPoint> getSupplyPoints() {
+		return supplyPoints;
+	}
+
+	public void setSupplyPoints(List<SupplyPoint> supplyPoints) {
+		this.supplyPoints = supplyPoints;
+	}
+
+	public List<Voucher> getVouchers() {
+		return vouchers;
+	}
+
+	public void setVouchers(List<Voucher> vouchers) {
+		this.vouchers = vouchers;
+	}
+
+	public Voucher getVoucher() {
+		return voucher;
+	}
+
+	public void setVoucher(Voucher voucher) {
+		this.voucher = voucher;
+	}
+}
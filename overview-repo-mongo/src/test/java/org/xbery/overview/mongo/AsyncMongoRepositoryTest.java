@@ -0,0 +1,117 @@
+package org.xbery.overview.mongo;
+
+import com.github.fakemongo.Fongo;
+import com.mongodb.client.MongoDatabase;
+import org.junit.After;
+import org.junit.Test;
+import org.xbery.overview.Overview;
+import org.xbery.overview.VoucherTestData;
+import org.xbery.overview.domain.Voucher;
+import org.xbery.overview.mongo.repo.AsyncMongoCursor;
+import org.xbery.overview.mongo.repo.AsyncMongoRepository;
+import org.xbery.overview.repo.AggType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link AsyncMongoRepository}, the asynchronous driver is simulated by {@link FongoAsyncAdapter}.
+ * @author Radek Beran
+ */
+public class AsyncMongoRepositoryTest {
+
+    private final VoucherTestData testData = new VoucherTestData();
+    private final MongoDatabase db = new Fongo("async").getDatabase("overrepotest_" + UUID.randomUUID());
+    private final MongoVoucherRepository repo = new MongoVoucherRepository(db);
+    private final FongoAsyncAdapter asyncAdapter = new FongoAsyncAdapter(2);
+    private final AsyncMongoRepository<Voucher, String, Object> asyncRepo = new AsyncMongoRepository<>(repo, asyncAdapter.adapt(db));
+
+    @After
+    public void tearDown() {
+        asyncAdapter.close();
+    }
+
+    @Test
+    public void completesManyConcurrentRequests() {
+        int requestCount = 2000;
+        List<CompletableFuture<Optional<Voucher>>> requests = new ArrayList<>();
+        for (int i = 0; i < requestCount; i++) {
+            String code = "C" + i;
+            requests.add(asyncRepo.create(testData.newVoucher(code), false)
+                .thenCompose(created -> asyncRepo.findById(code)));
+        }
+        CompletableFuture.allOf(requests.toArray(new CompletableFuture<?>[0])).join();
+        assertTrue(requests.stream().allMatch(r -> r.join().isPresent()));
+        assertEquals(requestCount, asyncRepo.findByOverview(new Overview<>(null)).join().size());
+        assertEquals(Integer.valueOf(requestCount), asyncRepo.countByFilter(null, null).join());
+    }
+
+    @Test
+    public void executesCommandsOfRepository() {
+        List<Voucher> created = asyncRepo.createAll(Arrays.asList(testData.newVoucher("A1"), testData.newVoucher("A2"), testData.newVoucher("A3")), false).join();
+        assertEquals(3, created.size());
+        Voucher generated = asyncRepo.create(testData.newVoucher(null), true).join();
+        assertNotNull(generated.getCode());
+
+        Voucher voucher = created.get(0);
+        voucher.setInvoiceNote("Updated");
+        assertTrue(asyncRepo.update(voucher).join().isPresent());
+        assertEquals("Updated", repo.findById("A1").get().getInvoiceNote());
+        assertEquals(Integer.valueOf(2), asyncRepo.upsertAll(Arrays.asList(voucher, testData.newVoucher("A4"))).join());
+        assertEquals(Arrays.asList("A1", "A3"), new ArrayList<>(asyncRepo.findMapByIds(Arrays.asList("A1", "X", "A3")).join().keySet()));
+        assertEquals(Long.valueOf(5), asyncRepo.aggByFilter(AggType.COUNT, Long.class, MongoVoucherMapper.getInstance().code.getName(), null, null).join());
+
+        assertTrue(asyncRepo.delete("A1").join());
+        assertFalse(asyncRepo.delete("A1").join());
+        assertEquals(Integer.valueOf(2), asyncRepo.deleteAll(Arrays.asList("A2", "A3", "X")).join());
+        assertEquals(2, repo.findByOverview(new Overview<>(null)).size());
+    }
+
+    @Test
+    public void cursorFetchesEntitiesByDemand() {
+        for (int i = 0; i < 10; i++) {
+            repo.create(testData.newVoucher("V" + i), false);
+        }
+        AsyncMongoCursor<Voucher> cursor = asyncRepo.openCursor(new Overview<>(null));
+        // Requests are executed in order they were made
+        List<CompletableFuture<List<Voucher>>> batches = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            batches.add(cursor.next(3));
+        }
+        List<Integer> sizes = batches.stream().map(b -> b.join().size()).collect(Collectors.toList());
+        assertEquals(Arrays.asList(3, 3, 3, 1), sizes);
+        assertEquals(10, batches.stream().flatMap(b -> b.join().stream()).map(Voucher::getCode).distinct().count());
+        assertTrue(cursor.isExhausted());
+        assertTrue(cursor.next(3).join().isEmpty());
+
+        AsyncMongoCursor<Voucher> closedCursor = asyncRepo.openCursor(new Overview<>(null));
+        assertEquals(5, closedCursor.next(5).join().size());
+        assertFalse(closedCursor.isExhausted());
+        closedCursor.close().join();
+        assertTrue(closedCursor.next(5).join().isEmpty());
+    }
+
+    @Test
+    public void batchSizesFollowDemand() {
+        for (int i = 0; i < 10; i++) {
+            repo.create(testData.newVoucher("V" + i), false);
+        }
+        AsyncMongoCursor<Voucher> cursor = asyncRepo.openCursor(new Overview<>(null));
+        assertEquals(2, cursor.next(2).join().size());
+        assertEquals(5, cursor.next(5).join().size());
+        assertEquals(1, cursor.next(1).join().size());
+        assertEquals("Database cursor is asked for the demanded count of documents", Arrays.asList(2, 5, 1), asyncAdapter.getBatchSizes());
+        assertEquals(2, cursor.next(5).join().size());
+        assertTrue(cursor.isExhausted());
+    }
+}
@@ -0,0 +1,111 @@
+package org.xbery.overview.mongo;
+
+import com.github.fakemongo.Fongo;
+import com.mongodb.MongoClient;
+import com.mongodb.client.MongoDatabase;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.Decimal128;
+import org.junit.Test;
+import org.xbery.overview.Overview;
+import org.xbery.overview.VoucherTestData;
+import org.xbery.overview.domain.Voucher;
+import org.xbery.overview.mongo.mapper.EntityCodec;
+import org.xbery.overview.mongo.repo.DecimalStorage;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link EntityCodec}.
+ * @author Radek Beran
+ */
+public class EntityCodecTest {
+
+    private static final String DB_NAME = "overrepotest_" + UUID.randomUUID().toString();
+
+    private final MongoVoucherMapper mapper = MongoVoucherMapper.getInstance();
+    private final VoucherTestData testData = new VoucherTestData();
+
+    @Test
+    public void encodesAndDecodesEntity() {
+        Voucher voucher = testData.newVoucher("CODEC1");
+        voucher.setCreationTime(Instant.now().truncatedTo(ChronoUnit.MILLIS));
+        EntityCodec<Voucher> codec = new EntityCodec<>(mapper, DecimalStorage.DECIMAL128, MongoClient.getDefaultCodecRegistry());
+
+        BsonDocument bson = new BsonDocument();
+        codec.encode(new BsonDocumentWriter(bson), voucher, EncoderContext.builder().build());
+        assertEquals(mapper.getAttributes().size(), bson.size());
+        assertEquals(new BsonString("CODEC1"), bson.get(mapper.code.getName()));
+        assertEquals(voucher.getCreationTime().toEpochMilli(), bson.getDateTime(mapper.creation_time.getName()).getValue());
+        assertEquals(new Decimal128(voucher.getDiscountPrice()), bson.getDecimal128(mapper.discount_price.getName()).getValue());
+        assertTrue(bson.isNull(mapper.valid_to.getName()));
+
+        bson.append("unmapped", new BsonInt32(1));
+        Voucher decoded = codec.decode(new BsonDocumentReader(bson), DecoderContext.builder().build());
+        assertEquals(voucher.getCode(), decoded.getCode());
+        assertEquals(voucher.getCreationTime(), decoded.getCreationTime());
+        assertEquals(voucher.getDiscountPrice(), decoded.getDiscountPrice());
+        assertEquals(voucher.getInvoiceNote(), decoded.getInvoiceNote());
+        assertNull(decoded.getValidTo());
+    }
+
+    @Test
+    public void repositoryStoresSameDocumentsAsBefore() {
+        MongoDatabase db = new Fongo("mongo server 1").getDatabase(DB_NAME);
+        MongoVoucherRepository repo = new MongoVoucherRepository(db);
+        Voucher voucher = testData.newVoucher("CODEC2");
+        repo.create(voucher, false);
+
+        Document doc = db.getCollection(mapper.getTableName()).find().first();
+        assertEquals("CODEC2", doc.getString(mapper.code.getName()));
+        assertTrue(doc.get(mapper.creation_time.getName()) instanceof Date);
+        assertEquals("Decimals are stored as strings by default", "1000.00", doc.get(mapper.discount_price.getName()));
+
+        // Documents written without the codec are decoded by it
+        db.getCollection(mapper.getTableName()).insertOne(new Document(mapper.code.getName(), "CODEC3")
+            .append(mapper.discount_price.getName(), "5.00").append("unmapped", Arrays.asList(1, 2)));
+        assertEquals(new BigDecimal("5.00"), repo.findById("CODEC3").get().getDiscountPrice());
+        assertEquals(voucher.getInvoiceNote(), repo.findById("CODEC2").get().getInvoiceNote());
+        assertEquals(2, repo.findByOverview(Overview.empty()).size());
+        assertEquals(2, repo.findMapByIds(Arrays.asList("CODEC2", "CODEC3", "CODEC4")).size());
+    }
+
+    @Test
+    public void valuesAreConvertedByRepositoryHook() {
+        MongoDatabase db = new Fongo("mongo server 1").getDatabase(DB_NAME);
+        MongoVoucherRepository repo = new MongoVoucherRepository(db) {
+            @Override
+            protected Object getDbSupportedAttributeValue(Object v) {
+                // Strings are stored in lower case
+                return v instanceof String ? ((String)v).toLowerCase() : super.getDbSupportedAttributeValue(v);
+            }
+        };
+        Voucher voucher = testData.newVoucher("CODEC5");
+        voucher.setInvoiceNote("Note");
+        repo.create(voucher, false);
+        assertEquals("note", db.getCollection(mapper.getTableName()).find().first().getString(mapper.invoice_note.getName()));
+
+        Voucher found = repo.findById("CODEC5").get();
+        assertEquals("Value in the filter is converted like the stored value", "note", found.getInvoiceNote());
+        found.setInvoiceNote("Updated");
+        repo.update(found);
+        assertEquals("updated", db.getCollection(mapper.getTableName()).find().first().getString(mapper.invoice_note.getName()));
+        repo.upsertAll(Arrays.asList(found));
+        assertEquals("updated", db.getCollection(mapper.getTableName()).find().first().getString(mapper.invoice_note.getName()));
+    }
+}
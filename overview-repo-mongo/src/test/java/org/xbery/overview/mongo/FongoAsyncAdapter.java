@@ -0,0 +1,190 @@
+package org.xbery.overview.mongo;
+
+import com.mongodb.async.AsyncBatchCursor;
+import com.mongodb.async.SingleResultCallback;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoIterable;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test adapter exposing a database of the synchronous driver (Fongo) as a database of the asynchronous driver.
+ * Commands are executed by the synchronous driver on a small pool of threads and their results are passed to the callbacks.
+ * Only for tests, the pool is shut down by {@link #close()}.
+ * @author Radek Beran
+ */
+public class FongoAsyncAdapter implements AutoCloseable {
+
+    private static final String ASYNC_PACKAGE = "com.mongodb.async.client";
+    private static final String SYNC_PACKAGE = "com.mongodb.client";
+
+    private final ExecutorService executor;
+    private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+
+    public FongoAsyncAdapter(int threadCount) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threadCount, r -> {
+            Thread thread = new Thread(r, "fongo-async-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public com.mongodb.async.client.MongoDatabase adapt(com.mongodb.client.MongoDatabase database) {
+        return adapt(com.mongodb.async.client.MongoDatabase.class, database, 0);
+    }
+
+    /**
+     * Returns sizes of batches returned by adapted cursors.
+     */
+    public List<Integer> getBatchSizes() {
+        return new ArrayList<>(batchSizes);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private <A> A adapt(Class<A> asyncInterface, Object target, int batchSize) {
+        try {
+            Class<?> syncInterface = Class.forName(SYNC_PACKAGE + "." + asyncInterface.getSimpleName());
+            return asyncInterface.cast(Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { asyncInterface },
+                new AdaptingHandler(target, syncInterface, batchSize)));
+        } catch (ClassNotFoundException ex) {
+            throw new IllegalArgumentException("No synchronous variant of " + asyncInterface, ex);
+        }
+    }
+
+    /**
+     * Invokes methods of the same name and parameters (without the callback) of the synchronous interface.
+     */
+    private class AdaptingHandler implements InvocationHandler {
+        private final Object target;
+        private final Class<?> syncInterface;
+        private int batchSize;
+
+        AdaptingHandler(Object target, Class<?> syncInterface, int batchSize) {
+            this.target = target;
+            this.syncInterface = syncInterface;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object[] arguments = args != null ? args : new Object[0];
+            if (method.getDeclaringClass() == Object.class) {
+                return method.invoke(target, arguments);
+            }
+            Class<?>[] types = method.getParameterTypes();
+            if (types.length > 0 && types[types.length - 1] == SingleResultCallback.class) {
+                SingleResultCallback<Object> callback = (SingleResultCallback<Object>)arguments[arguments.length - 1];
+                Class<?>[] syncTypes = Arrays.copyOf(types, types.length - 1);
+                Object[] syncArguments = Arrays.copyOf(arguments, arguments.length - 1);
+                executor.execute(() -> {
+                    Object result;
+                    try {
+                        result = "batchCursor".equals(method.getName()) ?
+                            new AdaptedBatchCursor<>(((MongoIterable<Object>)target).iterator(), batchSize) :
+                            invokeSync(method.getName(), syncTypes, syncArguments);
+                    } catch (Throwable error) {
+                        callback.onResult(null, error);
+                        return;
+                    }
+                    callback.onResult(result, null);
+                });
+                return null;
+            }
+            if ("batchSize".equals(method.getName())) {
+                batchSize = (Integer)arguments[0];
+            }
+            Object result = invokeSync(method.getName(), types, arguments);
+            if (result == target) {
+                return proxy;
+            }
+            Class<?> returnType = method.getReturnType();
+            if (result != null && returnType.isInterface() && ASYNC_PACKAGE.equals(returnType.getPackage().getName())) {
+                return adapt(returnType, result, batchSize);
+            }
+            return result;
+        }
+
+        private Object invokeSync(String methodName, Class<?>[] types, Object[] arguments) throws Throwable {
+            try {
+                return syncInterface.getMethod(methodName, types).invoke(target, arguments);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }
+    }
+
+    /**
+     * Cursor reading batches of requested size from a cursor of the synchronous driver.
+     * @param <T>
+     */
+    private class AdaptedBatchCursor<T> implements AsyncBatchCursor<T> {
+        private final MongoCursor<T> cursor;
+        private volatile int batchSize;
+        private volatile boolean closed;
+
+        AdaptedBatchCursor(MongoCursor<T> cursor, int batchSize) {
+            this.cursor = cursor;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public void next(SingleResultCallback<List<T>> callback) {
+            executor.execute(() -> {
+                List<T> batch = new ArrayList<>();
+                try {
+                    if (closed || !cursor.hasNext()) {
+                        callback.onResult(null, null);
+                        return;
+                    }
+                    while (cursor.hasNext() && (batchSize <= 0 || batch.size() < batchSize)) {
+                        batch.add(cursor.next());
+                    }
+                } catch (RuntimeException ex) {
+                    callback.onResult(null, ex);
+                    return;
+                }
+                batchSizes.add(batch.size());
+                callback.onResult(batch, null);
+            });
+        }
+
+        @Override
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                cursor.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.mongo;
+
+import org.xbery.overview.domain.Address;
+import org.xbery.overview.filter.Condition;
+import org.xbery.overview.mapper.Attr;
+import org.xbery.overview.mapper.Attribute;
+import org.xbery.overview.mapper.AttributeSource;
+import org.xbery.overview.mapper.DynamicEntityMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mapping of attributes of address embedded in other documents.
+ * @author Radek Beran
+ */
+public class MongoAddressMapper extends DynamicEntityMapper<Address, Object> {
+
+    /** Mapped entity class. */
+    private static final Class<Address> cls = Address.class;
+    private static final MongoAddressMapper INSTANCE = new MongoAddressMapper();
+
+    public final Attribute<Address, String> street;
+    public final Attribute<Address, String> city;
+
+    private MongoAddressMapper() {
+        street = add(Attr.ofString(cls, "street").get(e -> e.getStreet()).maxLength(100));
+        city = add(Attr.ofString(cls, "city").get(e -> e.getCity()).maxLength(100));
+    }
+
+    public static MongoAddressMapper getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public String getTableName() {
+        return "address";
+    }
+
+    @Override
+    public Address createEntity(AttributeSource attributeSource, List<Attribute<Address, ?>> attributes, String aliasPrefix) {
+        Address address = new Address();
+        address.setStreet(street.getValueFromSource(attributeSource, aliasPrefix));
+        address.setCity(city.getValueFromSource(attributeSource, aliasPrefix));
+        return address;
+    }
+
+    @Override
+    public List<Condition> composeFilterConditions(Object filter) {
+        return new ArrayList<>();
+    }
+}
@@ -0,0 +1,110 @@
+package org.xbery.overview.mongo;
+
+import com.github.fakemongo.Fongo;
+import com.mongodb.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.Test;
+import org.xbery.overview.VoucherTestData;
+import org.xbery.overview.domain.Voucher;
+import org.xbery.overview.filter.Condition;
+import org.xbery.overview.mongo.filter.ContainsStrategy;
+import org.xbery.overview.mongo.filter.MongoConditionBuilder;
+import org.xbery.overview.repo.Conditions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Tests for {@link MongoConditionBuilder}.
+ * @author Radek Beran
+ */
+public class MongoConditionBuilderTest {
+
+    private static final String DB_NAME = "overrepotest_" + UUID.randomUUID().toString();
+
+    private final MongoVoucherMapper mapper = MongoVoucherMapper.getInstance();
+    private final MongoCollection<Document> collection;
+
+    public MongoConditionBuilderTest() {
+        MongoDatabase db = new Fongo("mongo server 1").getDatabase(DB_NAME);
+        MongoVoucherRepository repo = new MongoVoucherRepository(db);
+        VoucherTestData testData = new VoucherTestData();
+        List<Voucher> vouchers = new ArrayList<>();
+        for (String note : Arrays.asList("January invoice", "Invoice (1.5)", "February invoice")) {
+            Voucher voucher = testData.newVoucher("C" + vouchers.size());
+            voucher.setInvoiceNote(note);
+            vouchers.add(voucher);
+        }
+        repo.createAll(vouchers, false);
+        this.collection = db.getCollection("voucher");
+    }
+
+    @Test
+    public void containsStrategies() {
+        MongoConditionBuilder regexBuilder = new MongoConditionBuilder();
+        assertEquals(Arrays.asList("C0", "C2"), findCodes(regexBuilder, Conditions.contains(mapper.invoice_note, "ary inv")));
+        assertEquals("Metacharacters are escaped", Collections.singletonList("C1"), findCodes(regexBuilder, Conditions.contains(mapper.invoice_note, "(1.5)")));
+
+        MongoConditionBuilder prefixBuilder = new MongoConditionBuilder(ContainsStrategy.PREFIX);
+        assertEquals(Collections.singletonList("C0"), findCodes(prefixBuilder, Conditions.contains(mapper.invoice_note, "Jan")));
+        assertEquals(Collections.emptyList(), findCodes(prefixBuilder, Conditions.contains(mapper.invoice_note, "invoice")));
+        assertEquals("{ \"invoice_note\" : { \"$regex\" : \"^Invoice \\\\(1\\\\.5\\\\)\", \"$options\" : \"\" } }",
+            toJson(prefixBuilder.build(Conditions.contains(mapper.invoice_note, "Invoice (1.5)"), v -> v).getCondition()));
+
+        MongoConditionBuilder textBuilder = new MongoConditionBuilder(ContainsStrategy.TEXT, false, mapper.invoice_note.getName());
+        assertEquals("{ \"$text\" : { \"$search\" : \"invoice\" } }",
+            toJson(textBuilder.build(Conditions.contains(mapper.invoice_note, "invoice"), v -> v).getCondition()));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void textSearchOfOtherAttributeFails() {
+        new MongoConditionBuilder(ContainsStrategy.TEXT, false, mapper.invoice_note.getName()).build(Conditions.contains(mapper.sold_by, "shop"), v -> v);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void moreTextSearchesFail() {
+        new MongoConditionBuilder(ContainsStrategy.TEXT, false, mapper.invoice_note.getName()).build(Arrays.asList(
+            Conditions.contains(mapper.invoice_note, "invoice"),
+            Conditions.or(Conditions.eq(mapper.code, "C0"), Conditions.contains(mapper.invoice_note, "January"))), v -> v);
+    }
+
+    @Test
+    public void alwaysFalseWithoutJavaScript() {
+        MongoConditionBuilder builder = new MongoConditionBuilder();
+        Bson emptyIn = builder.build(Conditions.in(mapper.code, Collections.emptyList()), v -> v).getCondition();
+        Bson alwaysFalse = builder.build(Conditions.alwaysFalse(), v -> v).getCondition();
+        assertFalse(toJson(alwaysFalse).contains("$where"));
+        assertEquals(Collections.emptyList(), collection.find(emptyIn).into(new ArrayList<>()));
+        assertEquals(Collections.emptyList(), collection.find(alwaysFalse).into(new ArrayList<>()));
+    }
+
+    @Test
+    public void comparesAttributesByExpression() {
+        Bson filter = new MongoConditionBuilder().build(Conditions.eqAttributes(mapper.reserved_by, mapper.redeemed_by), v -> v).getCondition();
+        assertEquals("{ \"$expr\" : { \"$eq\" : [\"$reserved_by\", \"$redeemed_by\"] } }", toJson(filter));
+
+        Bson whereFilter = new MongoConditionBuilder(ContainsStrategy.REGEX, true)
+            .build(Conditions.eqAttributes(mapper.reserved_by, mapper.redeemed_by), v -> v).getCondition();
+        assertEquals("Servers older than 3.6 compare attributes by $where",
+            "{ \"$where\" : \"this.reserved_by == this.redeemed_by\" }", toJson(whereFilter));
+    }
+
+    private List<String> findCodes(MongoConditionBuilder builder, Condition condition) {
+        Bson filter = builder.build(condition, v -> v).getCondition();
+        return collection.find(filter).into(new ArrayList<>()).stream().map(d -> d.getString("_id")).sorted().collect(Collectors.toList());
+    }
+
+    private String toJson(Bson bson) {
+        return bson.toBsonDocument(Document.class, MongoClient.getDefaultCodecRegistry()).toJson();
+    }
+}
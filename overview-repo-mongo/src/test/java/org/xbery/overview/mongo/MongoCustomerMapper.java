@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.mongo;
+
+import org.xbery.overview.domain.Address;
+import org.xbery.overview.domain.Customer;
+import org.xbery.overview.domain.SupplyPoint;
+import org.xbery.overview.filter.Condition;
+import org.xbery.overview.mapper.Attr;
+import org.xbery.overview.mapper.Attribute;
+import org.xbery.overview.mapper.AttributeSource;
+import org.xbery.overview.mapper.DynamicEntityMapper;
+import org.xbery.overview.mongo.mapper.EmbeddedAttr;
+import org.xbery.overview.mongo.repo.AbstractMongoRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mapping of customer attributes to database attributes.
+ * @author Radek Beran
+ */
+public class MongoCustomerMapper extends DynamicEntityMapper<Customer, Object> {
+
+    /** Mapped entity class. */
+    private static final Class<Customer> cls = Customer.class;
+    private static final String COLLECTION_NAME = "customer";
+    private static final MongoCustomerMapper INSTANCE = new MongoCustomerMapper();
+
+    public final Attribute<Customer, String> id;
+    public final Attribute<Customer, String> name;
+    public final EmbeddedAttr<Customer, Address, Address> address;
+    public final EmbeddedAttr<Customer, List<SupplyPoint>, SupplyPoint> supply_points;
+
+    private MongoCustomerMapper() {
+        id = add(Attr.ofString(cls, AbstractMongoRepository.FLD_ID).primary().get(e -> e.getId()).maxLength(40));
+        name = add(Attr.ofString(cls, "name").get(e -> e.getName()).maxLength(100));
+        address = (EmbeddedAttr<Customer, Address, Address>)add(EmbeddedAttr.ofOne(cls, "address", MongoAddressMapper.getInstance(), e -> e.getAddress()));
+        supply_points = (EmbeddedAttr<Customer, List<SupplyPoint>, SupplyPoint>)add(
+            EmbeddedAttr.ofMany(cls, "supply_points", MongoSupplyPointMapper.getInstance(), e -> e.getSupplyPoints()));
+    }
+
+    public static MongoCustomerMapper getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public String getTableName() {
+        return COLLECTION_NAME;
+    }
+
+    @Override
+    public Customer createEntity(AttributeSource attributeSource, List<Attribute<Customer, ?>> attributes, String aliasPrefix) {
+        Customer customer = new Customer();
+        customer.setId(id.getValueFromSource(attributeSource, aliasPrefix));
+        customer.setName(name.getValueFromSource(attributeSource, aliasPrefix));
+        customer.setAddress(address.getValueFromSource(attributeSource, aliasPrefix));
+        customer.setSupplyPoints(supply_points.getValueFromSource(attributeSource, aliasPrefix));
+        return customer;
+    }
+
+    @Override
+    public List<Condition> composeFilterConditions(Object filter) {
+        return new ArrayList<>();
+    }
+}
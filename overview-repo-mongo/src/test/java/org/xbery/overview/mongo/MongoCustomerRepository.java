@@ -0,0 +1,35 @@
+package org.xbery.overview.mongo;
+
+import com.mongodb.client.MongoDatabase;
+import org.xbery.overview.domain.Customer;
+import org.xbery.overview.filter.Condition;
+import org.xbery.overview.mongo.repo.AbstractMongoRepository;
+
+import java.util.List;
+
+/**
+ * Repository of customers with embedded addresses and supply points.
+ * @author Radek Beran
+ */
+public class MongoCustomerRepository extends AbstractMongoRepository<Customer, String, Object> {
+
+    private final MongoDatabase database;
+
+    public MongoCustomerRepository(MongoDatabase database) {
+        this.database = database;
+    }
+
+    public List<Customer> findByConditions(List<Condition> conditions) {
+        return findByFilterConditions(conditions, null);
+    }
+
+    @Override
+    public MongoCustomerMapper getEntityMapper() {
+        return MongoCustomerMapper.getInstance();
+    }
+
+    @Override
+    public MongoDatabase getDatabase() {
+        return database;
+    }
+}
@@ -0,0 +1,72 @@
+package org.xbery.overview.mongo;
+
+import com.github.fakemongo.Fongo;
+import com.mongodb.client.MongoDatabase;
+import org.bson.types.Decimal128;
+import org.junit.Test;
+import org.xbery.overview.VoucherTestData;
+import org.xbery.overview.domain.Voucher;
+import org.xbery.overview.mongo.repo.DecimalStorage;
+import org.xbery.overview.repo.AggType;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of storage of decimal numbers as Decimal128.
+ * @author Radek Beran
+ */
+public class MongoDecimalStorageTest {
+
+    private static final String DB_NAME = "overrepotest_" + UUID.randomUUID().toString();
+
+    private final MongoVoucherMapper mapper = MongoVoucherMapper.getInstance();
+    private final VoucherTestData testData = new VoucherTestData();
+    private final MongoDatabase db = new Fongo("mongo server 1").getDatabase(DB_NAME);
+    private final MongoVoucherRepository stringRepo = new MongoVoucherRepository(db);
+    private final MongoVoucherRepository decimalRepo = new MongoVoucherRepository(db) {
+        @Override
+        protected DecimalStorage getDecimalStorage() {
+            return DecimalStorage.DECIMAL128;
+        }
+    };
+
+    @Test
+    public void migratesAndAggregatesDecimals() {
+        List<String> prices = Arrays.asList("5.00", "10.00", "100.00");
+        for (int i = 0; i < prices.size(); i++) {
+            Voucher voucher = testData.newVoucher("DEC" + i);
+            voucher.setDiscountPrice(new BigDecimal(prices.get(i)));
+            stringRepo.create(voucher, false);
+        }
+        assertTrue(db.getCollection("voucher").find().first().get(mapper.discount_price.getName()) instanceof String);
+        assertEquals("Decimals stored as strings are read also with Decimal128 storage",
+            new BigDecimal("10.00"), decimalRepo.findById("DEC1").get().getDiscountPrice());
+
+        assertEquals(3, decimalRepo.migrateDecimalsToDecimal128(2));
+        assertEquals("Migrated documents are skipped", 0, decimalRepo.migrateDecimalsToDecimal128(2));
+        assertTrue(db.getCollection("voucher").find().first().get(mapper.discount_price.getName()) instanceof Decimal128);
+
+        // Fongo cannot compare Decimal128 values, so numeric sorting and aggregation of them are not tested here
+        assertEquals(Arrays.asList(new BigDecimal("5.00"), new BigDecimal("10.00"), new BigDecimal("100.00")),
+            decimalRepo.findAll().stream().map(Voucher::getDiscountPrice).collect(Collectors.toList()));
+        try {
+            stringRepo.aggByFilter(AggType.SUM, BigDecimal.class, mapper.discount_price.getName(), null, null);
+            fail("Decimals stored as strings cannot be summed");
+        } catch (UnsupportedOperationException ex) {
+            // expected
+        }
+
+        Voucher voucher = testData.newVoucher("DEC3");
+        voucher.setDiscountPrice(new BigDecimal("0.50"));
+        decimalRepo.create(voucher, false);
+        assertEquals(new BigDecimal("0.50"), decimalRepo.findById("DEC3").get().getDiscountPrice());
+    }
+}
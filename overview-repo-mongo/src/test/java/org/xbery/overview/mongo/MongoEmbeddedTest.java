@@ -0,0 +1,145 @@
+package org.xbery.overview.mongo;
+
+import com.github.fakemongo.Fongo;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+import org.junit.Test;
+import org.xbery.overview.Order;
+import org.xbery.overview.Overview;
+import org.xbery.overview.Projection;
+import org.xbery.overview.domain.Address;
+import org.xbery.overview.domain.Customer;
+import org.xbery.overview.domain.SupplyPoint;
+import org.xbery.overview.filter.Condition;
+import org.xbery.overview.filter.ConditionOptimizer;
+import org.xbery.overview.mongo.mapper.DocumentAttributeSource;
+import org.xbery.overview.repo.Conditions;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests of entities with embedded documents and arrays of embedded documents.
+ * @author Radek Beran
+ */
+public class MongoEmbeddedTest {
+
+    private static final String DB_NAME = "overrepotest_" + UUID.randomUUID().toString();
+
+    private final MongoCustomerMapper customerMapper = MongoCustomerMapper.getInstance();
+    private final MongoSupplyPointMapper supplyPointMapper = MongoSupplyPointMapper.getInstance();
+    private final MongoAddressMapper addressMapper = MongoAddressMapper.getInstance();
+    private final MongoDatabase db = new Fongo("mongo server 1").getDatabase(DB_NAME);
+    private final MongoCustomerRepository repo = new MongoCustomerRepository(db);
+
+    @Test
+    public void writesAndReadsAggregateInOneDocument() {
+        repo.create(newCustomer("c1", "Prague", "SP1:Prague", "SP2:Brno"), false);
+
+        Document doc = db.getCollection(customerMapper.getTableName()).find().first();
+        assertEquals("Prague", doc.get("address", Document.class).getString("city"));
+        List<?> supplyPointDocs = (List<?>)doc.get("supply_points");
+        assertEquals(2, supplyPointDocs.size());
+        assertEquals("Brno", ((Document)supplyPointDocs.get(1)).get("address", Document.class).getString("city"));
+        assertEquals("Decimals of embedded documents are stored like other decimals", "1000.50", ((Document)supplyPointDocs.get(0)).get("consumption"));
+
+        String expected = "c1@Prague:SP1@Prague/1000.50,SP2@Brno/1000.50";
+        assertEquals(expected, describe(repo.findById("c1").get()));
+        assertEquals("Embedded documents are read also from Document", expected,
+            describe(customerMapper.buildEntity(new DocumentAttributeSource(doc))));
+
+        Customer generated = repo.create(newCustomer(null, "Ostrava", "SP3:Ostrava"), true);
+        assertEquals(generated.getId() + "@Ostrava:SP3@Ostrava/1000.50", describe(generated));
+        assertEquals(describe(generated), describe(repo.findById(generated.getId()).get()));
+
+        Customer customer = repo.findById("c1").get();
+        customer.getSupplyPoints().remove(0);
+        customer.getAddress().setCity("Plzen");
+        repo.update(customer);
+        assertEquals("c1@Plzen:SP2@Brno/1000.50", describe(repo.findById("c1").get()));
+    }
+
+    @Test
+    public void queriesByDottedPaths() {
+        repo.createAll(Arrays.asList(
+            newCustomer("c1", "Prague", "SP1:Prague", "SP2:Brno"),
+            newCustomer("c2", "Brno", "SP3:Ostrava"),
+            newCustomer("c3", "Ostrava")), false);
+
+        assertEquals(Arrays.asList("c2"), ids(repo.findByConditions(Collections.singletonList(
+            Conditions.eq(customerMapper.address.path(addressMapper.city), "Brno")))));
+        assertEquals("Condition on path into array matches some of embedded documents", Arrays.asList("c1", "c2"),
+            ids(repo.findByConditions(Arrays.asList(Conditions.in(customerMapper.supply_points.path(supplyPointMapper.code), Arrays.asList("SP2", "SP3"))))));
+        assertEquals("Conditions on path into array are not intersected, they can match different embedded documents", Arrays.asList("c1"),
+            ids(repo.findByConditions(Arrays.asList(
+                Conditions.eq(customerMapper.supply_points.path(supplyPointMapper.code), "SP1"),
+                Conditions.eq(customerMapper.supply_points.path(supplyPointMapper.code), "SP2")))));
+        assertEquals(Arrays.asList("c1"), ids(repo.findByConditions(Arrays.asList(
+            Conditions.eq(customerMapper.supply_points.path(supplyPointMapper.address.path(addressMapper.city)), "Prague"),
+            Conditions.eq(customerMapper.supply_points.path(supplyPointMapper.address.path(addressMapper.city)), "Brno")))));
+        List<Condition> range = Arrays.asList(
+            Conditions.gt(customerMapper.supply_points.path(supplyPointMapper.consumption), new BigDecimal("2000")),
+            Conditions.lt(customerMapper.supply_points.path(supplyPointMapper.consumption), new BigDecimal("500")));
+        ConditionOptimizer optimizer = new ConditionOptimizer();
+        assertEquals("Ranges on path into array are not intersected", range, optimizer.optimize(range));
+        assertFalse(optimizer.isAlwaysFalse(optimizer.optimize(range)));
+        assertEquals("Nested paths are supported", Arrays.asList("c1"), ids(repo.findByConditions(Collections.singletonList(
+            Conditions.eq(customerMapper.supply_points.path(supplyPointMapper.address.path(addressMapper.city)), "Brno")))));
+
+        assertEquals(Arrays.asList("c1", "c3", "c2"), ids(repo.findByOverview(
+            Overview.fromOrdering(new Order(customerMapper.address.path(addressMapper.city), true)))));
+
+        List<Customer> projected = repo.findByOverview(Overview.empty().withProjection(
+            Projection.of(customerMapper.supply_points.path(supplyPointMapper.code))));
+        assertEquals(3, projected.size());
+        assertNull("Attribute outside of projection is not loaded", projected.get(0).getName());
+        assertNull(projected.get(0).getAddress());
+        SupplyPoint supplyPoint = projected.get(0).getSupplyPoints().get(0);
+        assertEquals("SP1", supplyPoint.getCode());
+        assertNull("Attribute of embedded document outside of projection is not loaded", supplyPoint.getConsumption());
+    }
+
+    private Customer newCustomer(String id, String city, String... supplyPoints) {
+        Customer customer = new Customer();
+        customer.setId(id);
+        customer.setName("Customer " + id);
+        customer.setAddress(newAddress(city));
+        List<SupplyPoint> points = new ArrayList<>();
+        for (String supplyPoint : supplyPoints) {
+            String[] codeAndCity = supplyPoint.split(":");
+            SupplyPoint point = new SupplyPoint();
+            point.setCode(codeAndCity[0]);
+            point.setConsumption(new BigDecimal("1000.50"));
+            point.setAddress(newAddress(codeAndCity[1]));
+            points.add(point);
+        }
+        customer.setSupplyPoints(points);
+        return customer;
+    }
+
+    private Address newAddress(String city) {
+        Address address = new Address();
+        address.setStreet("Main street");
+        address.setCity(city);
+        return address;
+    }
+
+    private String describe(Customer customer) {
+        return customer.getId() + "@" + customer.getAddress().getCity() + ":" + customer.getSupplyPoints().stream()
+            .map(sp -> sp.getCode() + "@" + sp.getAddress().getCity() + "/" + sp.getConsumption())
+            .collect(Collectors.joining(","));
+    }
+
+    private List<String> ids(List<Customer> customers) {
+        return customers.stream().map(Customer::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,160 @@
+package org.xbery.overview.mongo;
+
+import com.github.fakemongo.Fongo;
+import com.mongodb.MongoClient;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.Test;
+import org.xbery.overview.Order;
+import org.xbery.overview.Overview;
+import org.xbery.overview.Pagination;
+import org.xbery.overview.VoucherTestData;
+import org.xbery.overview.domain.Customer;
+import org.xbery.overview.domain.Voucher;
+import org.xbery.overview.filter.Condition;
+import org.xbery.overview.mapper.Decompose;
+import org.xbery.overview.mapper.JoinType;
+import org.xbery.overview.mongo.repo.JoinStrategy;
+import org.xbery.overview.repo.Conditions;
+import org.xbery.overview.sql.mapper.JoinEntityMapper;
+import org.xbery.overview.sql.mapper.JoinEntityMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests of joins executed by Mongo repository.
+ * @author Radek Beran
+ */
+public class MongoJoinTest {
+
+    private static final String DB_NAME = "overrepotest_" + UUID.randomUUID().toString();
+
+    private final MongoCustomerMapper customerMapper = MongoCustomerMapper.getInstance();
+    private final MongoVoucherMapper voucherMapper = MongoVoucherMapper.getInstance();
+    private final MongoDatabase db = new Fongo("mongo server 1").getDatabase(DB_NAME);
+    private final MongoVoucherRepository repo = new MongoVoucherRepository(db);
+
+    public MongoJoinTest() {
+        VoucherTestData testData = new VoucherTestData();
+        for (String[] customer : new String[][] { { "c1", "Alice" }, { "c2", "Bob" }, { "c3", "Cecil" } }) {
+            db.getCollection(customerMapper.getTableName()).insertOne(new Document("_id", customer[0]).append("name", customer[1]));
+        }
+        List<Voucher> vouchers = new ArrayList<>();
+        for (String[] voucher : new String[][] { { "V1", "c1", "January" }, { "V2", "c1", "February" }, { "V3", "c2", "January" } }) {
+            Voucher v = testData.newVoucher(voucher[0]);
+            v.setReservedBy(voucher[1]);
+            v.setInvoiceNote(voucher[2]);
+            vouchers.add(v);
+        }
+        repo.createAll(vouchers, false);
+    }
+
+    @Test
+    public void joinsWithMany() {
+        JoinEntityMapper<Customer, Object, Voucher, Object, Customer, Object, String> joinMapper = joinWithMany(Collections.emptyList());
+        for (JoinStrategy strategy : JoinStrategy.values()) {
+            List<Customer> customers = repo.findJoined(Overview.empty(), joinMapper, strategy);
+            assertEquals(strategy.name(), Arrays.asList("c1:V1,V2", "c2:V3", "c3:"), customers.stream().map(this::customerWithVouchers).collect(Collectors.toList()));
+
+            Overview<Object> page = Overview.fromOrdering(new Order(customerMapper.name, true)).withPagination(new Pagination(1, 2));
+            assertEquals(strategy.name(), Arrays.asList("c2:V3", "c1:V1,V2"), repo.findJoined(page, joinMapper, strategy).stream()
+                .map(this::customerWithVouchers).collect(Collectors.toList()));
+        }
+        assertEquals("Join strategy is selected by repository", 3, repo.findByOverview(Overview.empty(), joinMapper).size());
+    }
+
+    @Test
+    public void joinsWithOne() {
+        for (JoinStrategy strategy : JoinStrategy.values()) {
+            assertEquals(strategy.name(), Arrays.asList("c1:V1", "c1:V2", "c2:V3", "c3:"),
+                repo.findJoined(Overview.empty(), joinWithOne(JoinType.LEFT), strategy).stream().map(this::customerWithVoucher).collect(Collectors.toList()));
+            assertEquals(strategy.name(), Arrays.asList("c1:V2", "c2:V3"),
+                repo.findJoined(Overview.empty().withPagination(new Pagination(1, 2)), joinWithOne(JoinType.INNER), strategy).stream()
+                    .map(this::customerWithVoucher).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void readsFirstEntitiesInChunksUntilPageIsComplete() {
+        MongoVoucherRepository chunkedRepo = new MongoVoucherRepository(db) {
+            @Override
+            protected int getJoinBatchSize() {
+                return 1;
+            }
+        };
+        assertEquals(Arrays.asList("c1:V2", "c2:V3"), chunkedRepo.findJoined(Overview.empty().withPagination(new Pagination(1, 2)),
+            joinWithOne(JoinType.INNER), JoinStrategy.BATCHED_IN).stream().map(this::customerWithVoucher).collect(Collectors.toList()));
+        assertEquals(Arrays.asList("c3:", "c2:V3"), chunkedRepo.findJoined(
+            Overview.fromOrdering(new Order(customerMapper.name, true)).withPagination(new Pagination(0, 2)),
+            joinWithOne(JoinType.LEFT), JoinStrategy.BATCHED_IN).stream().map(this::customerWithVoucher).collect(Collectors.toList()));
+        assertEquals(Collections.emptyList(), chunkedRepo.findJoined(Overview.empty().withPagination(new Pagination(5, 2)),
+            joinWithOne(JoinType.INNER), JoinStrategy.BATCHED_IN));
+    }
+
+    @Test
+    public void pushesConditionsOfJoinedEntities() {
+        JoinEntityMapper<Customer, Object, Voucher, Object, Customer, Object, String> joinMapper =
+            joinWithMany(Collections.singletonList(Conditions.eq(voucherMapper.invoice_note, "January")));
+        assertEquals(Arrays.asList("c1:V1", "c2:V3", "c3:"), repo.findJoined(Overview.empty(), joinMapper, JoinStrategy.BATCHED_IN).stream()
+            .map(this::customerWithVouchers).collect(Collectors.toList()));
+
+        // Sub-pipeline of $lookup is not supported by Fongo, only the created pipeline is checked
+        List<Bson> pipeline = new MongoVoucherRepository(db) {
+            List<Bson> lookupPipeline() {
+                return createLookupPipeline(joinMapper, Collections.emptyList(), null,
+                    Collections.singletonList(Conditions.eq(voucherMapper.invoice_note, "January")), null, new Pagination(0, 10));
+            }
+        }.lookupPipeline();
+        assertEquals(Arrays.asList("$sort", "$skip", "$limit", "$lookup"), pipeline.stream().map(this::stageName).collect(Collectors.toList()));
+        Document lookup = toDocument(pipeline.get(3)).get("$lookup", Document.class);
+        assertEquals(new Document("joinValue", "$_id"), lookup.get("let"));
+        assertEquals(2, ((List<?>)lookup.get("pipeline")).size());
+    }
+
+    private JoinEntityMapper<Customer, Object, Voucher, Object, Customer, Object, String> joinWithMany(List<Condition> onConditions) {
+        return new JoinEntityMapperBuilder<>(customerMapper, voucherMapper, JoinType.LEFT)
+            .on(customerMapper.id, voucherMapper.reserved_by, onConditions)
+            .composeEntityWithMany((Customer c, List<Voucher> vouchers) -> {
+                c.setVouchers(vouchers);
+                return c;
+            })
+            .decomposeFilter(Decompose.filterToIdenticalAndObject())
+            .build();
+    }
+
+    private JoinEntityMapper<Customer, Object, Voucher, Object, Customer, Object, String> joinWithOne(JoinType joinType) {
+        return new JoinEntityMapperBuilder<>(customerMapper, voucherMapper, joinType)
+            .on(customerMapper.id, voucherMapper.reserved_by)
+            .composeEntity((Customer c, Voucher v) -> {
+                Customer customer = new Customer();
+                customer.setId(c.getId());
+                customer.setVoucher(v);
+                return customer;
+            })
+            .build();
+    }
+
+    private String customerWithVouchers(Customer customer) {
+        return customer.getId() + ":" + customer.getVouchers().stream().map(Voucher::getCode).collect(Collectors.joining(","));
+    }
+
+    private String customerWithVoucher(Customer customer) {
+        return customer.getId() + ":" + (customer.getVoucher() != null ? customer.getVoucher().getCode() : "");
+    }
+
+    private String stageName(Bson stage) {
+        return toDocument(stage).keySet().iterator().next();
+    }
+
+    private Document toDocument(Bson bson) {
+        return Document.parse(bson.toBsonDocument(Document.class, MongoClient.getDefaultCodecRegistry()).toJson());
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.mongo;
+
+import org.xbery.overview.domain.Address;
+import org.xbery.overview.domain.SupplyPoint;
+import org.xbery.overview.filter.Condition;
+import org.xbery.overview.mapper.Attr;
+import org.xbery.overview.mapper.Attribute;
+import org.xbery.overview.mapper.AttributeSource;
+import org.xbery.overview.mapper.DynamicEntityMapper;
+import org.xbery.overview.mongo.mapper.EmbeddedAttr;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mapping of attributes of supply point embedded in customer document.
+ * @author Radek Beran
+ */
+public class MongoSupplyPointMapper extends DynamicEntityMapper<SupplyPoint, Object> {
+
+    /** Mapped entity class. */
+    private static final Class<SupplyPoint> cls = SupplyPoint.class;
+    private static final MongoSupplyPointMapper INSTANCE = new MongoSupplyPointMapper();
+
+    public final Attribute<SupplyPoint, String> code;
+    public final Attribute<SupplyPoint, BigDecimal> consumption;
+    public final EmbeddedAttr<SupplyPoint, Address, Address> address;
+
+    private MongoSupplyPointMapper() {
+        code = add(Attr.ofString(cls, "code").get(e -> e.getCode()).maxLength(20));
+        consumption = add(Attr.ofBigDecimal(cls, "consumption").get(e -> e.getConsumption()));
+        address = (EmbeddedAttr<SupplyPoint, Address, Address>)add(EmbeddedAttr.ofOne(cls, "address", MongoAddressMapper.getInstance(), e -> e.getAddress()));
+    }
+
+    public static MongoSupplyPointMapper getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public String getTableName() {
+        return "supply_point";
+    }
+
+    @Override
+    public SupplyPoint createEntity(AttributeSource attributeSource, List<Attribute<SupplyPoint, ?>> attributes, String aliasPrefix) {
+        SupplyPoint supplyPoint = new SupplyPoint();
+        supplyPoint.setCode(code.getValueFromSource(attributeSource, aliasPrefix));
+        supplyPoint.setConsumption(consumption.getValueFromSource(attributeSource, aliasPrefix));
+        supplyPoint.setAddress(address.getValueFromSource(attributeSource, aliasPrefix));
+        return supplyPoint;
+    }
+
+    @Override
+    public List<Condition> composeFilterConditions(Object filter) {
+        return new ArrayList<>();
+    }
+}
@@ -22,6 +22,7 @@ import org.xbery.overview.mapper.Attr;
 import org.xbery.overview.mapper.Attribute;
 import org.xbery.overview.mapper.AttributeSource;
 import org.xbery.overview.mapper.DynamicEntityMapper;
+import org.xbery.overview.mapper.Index;
 import org.xbery.overview.mongo.repo.AbstractMongoRepository;
 
 import java.math.BigDecimal;
@@ -65,11 +66,12 @@ public class MongoVoucherMapper extends DynamicEntityMapper<Voucher, Object> {
         invalidation_time = add(Attr.ofInstant(cls, "invalidation_time").get(e -> e.getInvalidationTime()));
         invalidation_note = add(Attr.ofString(cls, "invalidation_note").get(e -> e.getInvalidationNote()).maxLength(200));
         renewal_note = add(Attr.ofString(cls, "renewal_note").get(e -> e.getRenewalNote()).maxLength(200));
-        reserved_by = add(Attr.ofString(cls, "reserved_by").get(e -> e.getReservedBy()).maxLength(40));
+        reserved_by = add(Attr.ofString(cls, "reserved_by").indexed().get(e -> e.getReservedBy()).maxLength(40));
         redeemed_by = add(Attr.ofString(cls, "redeemed_by").get(e -> e.getRedeemedBy()).maxLength(40));
         sold_by = add(Attr.ofString(cls, "sold_by").get(e -> e.getSoldBy()).maxLength(40));
         invoice_time = add(Attr.ofInstant(cls, "invoice_time").get(e -> e.getInvoiceTime()));
         invoice_note = add(Attr.ofString(cls, "invoice_note").get(e -> e.getInvoiceNote()).maxLength(400));
+        addIndex(Index.named("voucher_validity", valid_from, valid_to));
     }
 
     public static MongoVoucherMapper getInstance() {
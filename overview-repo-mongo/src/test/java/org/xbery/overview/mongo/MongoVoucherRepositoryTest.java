@@ -2,21 +2,44 @@ package org.xbery.overview.mongo;
 
 import com.github.fakemongo.Fongo;
 import com.mongodb.client.MongoDatabase;
+import org.xbery.overview.Group;
+import org.xbery.overview.Order;
+import org.xbery.overview.Overview;
+import org.xbery.overview.Pagination;
+import org.xbery.overview.ResultsWithOverview;
 import org.xbery.overview.VoucherTestData;
 import org.xbery.overview.common.Pair;
 import org.xbery.overview.domain.Voucher;
+import org.xbery.overview.repo.AggType;
 import org.xbery.overview.repo.VoucherMapper;
 import org.xbery.overview.repo.VoucherRepository;
+import org.xbery.overview.repo.metrics.HistogramRepositoryMetrics;
+import org.xbery.overview.repo.metrics.OperationStats;
+import org.xbery.overview.repo.metrics.OperationType;
+import org.xbery.overview.repo.metrics.RepositoryMetrics;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.junit.Test;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * @author Radek Beran
@@ -77,4 +100,213 @@ public class MongoVoucherRepositoryTest {
         assertEquals(newDiscountPrice, updatedVoucher.getDiscountPrice());
         assertEquals(newInvoiceNote, updatedVoucher.getInvoiceNote());
     }
+
+    @Test
+    public void findByIds() {
+        repo.createAll(Arrays.asList(testData.newVoucher("ID1"), testData.newVoucher("ID2"), testData.newVoucher("ID3")), false);
+
+        Map<String, Voucher> vouchersById = repo.findMapByIds(Arrays.asList("ID3", "MISSING", "ID1", "ID3"));
+        assertEquals(Arrays.asList("ID3", "ID1"), new ArrayList<>(vouchersById.keySet()));
+        assertEquals("ID1", vouchersById.get("ID1").getCode());
+    }
+
+    @Test
+    public void upsertAll() {
+        repo.create(testData.newVoucher("UPS1"), false);
+        Voucher changedVoucher = testData.newVoucher("UPS1");
+        changedVoucher.setInvoiceNote("Changed invoice note");
+
+        assertEquals(2, repo.upsertAll(Arrays.asList(changedVoucher, testData.newVoucher("UPS2"))));
+        assertEquals("Changed invoice note", repo.findById("UPS1").get().getInvoiceNote());
+        assertTrue(repo.findById("UPS2").isPresent());
+    }
+
+    @Test
+    public void createWithGeneratedKey() {
+        Voucher voucher = testData.newVoucher(null);
+
+        Voucher createdVoucher = repo.create(voucher, true);
+        assertNotNull(createdVoucher.getCode());
+        // Voucher code is upper-cased by the entity
+        assertTrue(createdVoucher.getCode().equalsIgnoreCase(db.getCollection("voucher").find().first().getString("_id")));
+    }
+
+    @Test
+    public void bulkWrites() {
+        HistogramRepositoryMetrics metrics = new HistogramRepositoryMetrics();
+        MongoVoucherRepository measuredRepo = new MongoVoucherRepository(db) {
+            @Override
+            protected RepositoryMetrics getMetrics() {
+                return metrics;
+            }
+        };
+        List<Voucher> generatedVouchers = measuredRepo.createAll(Arrays.asList(testData.newVoucher(null), testData.newVoucher(null)), true);
+        assertEquals(2, generatedVouchers.stream().map(Voucher::getCode).filter(Objects::nonNull).distinct().count());
+        List<Voucher> createdVouchers = measuredRepo.createAll(Arrays.asList(testData.newVoucher("BULK1"), testData.newVoucher("BULK2"), testData.newVoucher("BULK3")), false);
+        assertEquals(2, metrics.getStats(OperationType.CREATE, "voucher", "insertMany").getCount());
+
+        createdVouchers.forEach(v -> v.setInvoiceNote("Bulk updated"));
+        Voucher missingVoucher = testData.newVoucher("MISSING");
+        assertEquals(3, measuredRepo.updateAll(Arrays.asList(createdVouchers.get(0), createdVouchers.get(1), createdVouchers.get(2), missingVoucher)));
+        assertEquals("Bulk updated", measuredRepo.findById(createdVouchers.get(2).getCode()).get().getInvoiceNote());
+        assertEquals(0, measuredRepo.update("MISSING", Arrays.asList(new Pair[] { new Pair<>(VoucherMapper.getInstance().invoice_note, "Note") })));
+
+        assertEquals(2, measuredRepo.deleteAll(Arrays.asList(createdVouchers.get(0).getCode(), createdVouchers.get(1).getCode(), "MISSING")));
+        assertTrue(measuredRepo.delete(createdVouchers.get(2).getCode()));
+        assertFalse(measuredRepo.delete(createdVouchers.get(2).getCode()));
+        assertEquals(1, metrics.getStats(OperationType.UPDATE, "voucher", "bulkWrite updateOne").getCount());
+        assertEquals(1, metrics.getStats(OperationType.DELETE, "voucher", "bulkWrite deleteOne").getCount());
+    }
+
+    @Test
+    public void aggregations() {
+        MongoVoucherMapper mapper = MongoVoucherMapper.getInstance();
+        MongoVoucherRepository mongoRepo = (MongoVoucherRepository)repo;
+        Instant now = Instant.ofEpochMilli(System.currentTimeMillis());
+        List<Voucher> vouchers = Arrays.asList(testData.newVoucher("AGG1"), testData.newVoucher("AGG2"), testData.newVoucher("AGG3"));
+        for (int i = 0; i < vouchers.size(); i++) {
+            vouchers.get(i).setCreationTime(now.plusSeconds(i));
+            vouchers.get(i).setReservedBy(i > 0 ? "cust1" : "cust0");
+            vouchers.get(i).setRedeemedBy(i > 0 ? null : "cust0");
+        }
+        repo.createAll(vouchers, false);
+
+        assertEquals(3, repo.countByFilter(null, null));
+        assertEquals(Long.valueOf(1), repo.aggByFilter(AggType.COUNT, Long.class, mapper.redeemed_by.getName(), null, null));
+        assertEquals(now.plusSeconds(2), repo.aggByFilter(AggType.MAX, Instant.class, mapper.creation_time.getName(), null, null));
+        assertEquals(now, repo.aggByFilter(AggType.MIN, Instant.class, mapper.creation_time.getNameFull(), null, null));
+
+        Map<List<Object>, Integer> countsByReservation = mongoRepo.aggByGroups(AggType.COUNT, Integer.class, "*", null,
+            Collections.singletonList(new Group(mapper.reserved_by)));
+        Map<List<Object>, Integer> expectedCounts = new LinkedHashMap<>();
+        expectedCounts.put(Collections.singletonList("cust0"), 1);
+        expectedCounts.put(Collections.singletonList("cust1"), 2);
+        assertEquals(expectedCounts, countsByReservation);
+        assertEquals(Collections.singletonMap(Arrays.asList("cust1", now.plusSeconds(2)), now.plusSeconds(2)),
+            mongoRepo.aggByGroups(AggType.MAX, Instant.class, mapper.creation_time.getName(), null,
+                Arrays.asList(new Group(mapper.reserved_by), new Group(mapper.creation_time))).entrySet().stream()
+                .filter(e -> now.plusSeconds(2).equals(e.getKey().get(1))).collect(Collectors.toMap(e -> e.getKey(), e -> e.getValue())));
+
+        try {
+            repo.aggByFilter(AggType.SUM, BigDecimal.class, mapper.discount_price.getName(), null, null);
+            fail("Decimal numbers stored as strings cannot be summed");
+        } catch (UnsupportedOperationException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void findByOverviewWithOrdering() {
+        MongoVoucherMapper mapper = MongoVoucherMapper.getInstance();
+        Instant now = Instant.ofEpochMilli(System.currentTimeMillis());
+        List<Voucher> vouchers = Arrays.asList(testData.newVoucher("ORD1"), testData.newVoucher("ORD2"), testData.newVoucher("ORD3"));
+        for (int i = 0; i < vouchers.size(); i++) {
+            vouchers.get(i).setCreationTime(now.plusSeconds(i));
+        }
+        repo.createAll(vouchers, false);
+
+        Overview<Object> overview = Overview.fromOrdering(new Order(mapper.creation_time, true)).withPagination(new Pagination(0, 2));
+        ResultsWithOverview<Voucher, Object> results = repo.findResultsWithOverview(overview);
+        assertEquals(Arrays.asList("ORD3", "ORD2"), results.getResults().stream().map(Voucher::getCode).collect(Collectors.toList()));
+        assertEquals(Integer.valueOf(3), results.getOverview().getPagination().getTotalCount());
+    }
+
+    @Test
+    public void streamsAndPagesByRange() {
+        MongoVoucherMapper mapper = MongoVoucherMapper.getInstance();
+        MongoVoucherRepository mongoRepo = (MongoVoucherRepository)repo;
+        Instant now = Instant.ofEpochMilli(System.currentTimeMillis());
+        List<Voucher> vouchers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Voucher voucher = testData.newVoucher("RNG" + i);
+            voucher.setCreationTime(now.plusSeconds(i / 2)); // pairs of vouchers with the same creation time
+            vouchers.add(voucher);
+        }
+        mongoRepo.createAll(vouchers, false);
+        assertEquals("All entities are found without pagination", 5, mongoRepo.findAll().size());
+
+        try (Stream<Voucher> stream = mongoRepo.streamByOverview(Overview.empty(), 2)) {
+            assertEquals(Arrays.asList("RNG0", "RNG1", "RNG2", "RNG3", "RNG4"), stream.map(Voucher::getCode).collect(Collectors.toList()));
+        }
+
+        Overview<Object> overview = Overview.fromOrdering(new Order(mapper.creation_time, true)).withPagination(new Pagination(0, 2));
+        List<String> codes = new ArrayList<>();
+        List<Voucher> page = mongoRepo.findPageAfter(overview, null);
+        while (!page.isEmpty()) {
+            page.forEach(v -> codes.add(v.getCode()));
+            page = mongoRepo.findPageAfter(overview, page.get(page.size() - 1));
+        }
+        assertEquals("Ties of ordering attribute are ordered by primary key", Arrays.asList("RNG4", "RNG2", "RNG3", "RNG0", "RNG1"), codes);
+    }
+
+    @Test
+    public void pagesByRangeOverNullValues() {
+        MongoVoucherMapper mapper = MongoVoucherMapper.getInstance();
+        MongoVoucherRepository mongoRepo = (MongoVoucherRepository)repo;
+        List<Voucher> vouchers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Voucher voucher = testData.newVoucher("NUL" + i);
+            voucher.setInvoiceNote(i % 2 == 0 ? null : "Note " + i);
+            vouchers.add(voucher);
+        }
+        mongoRepo.createAll(vouchers, false);
+
+        assertEquals("Null values are ordered first", Arrays.asList("NUL0", "NUL2", "NUL4", "NUL1", "NUL3"),
+            findAllPagesAfter(mongoRepo, new Order(mapper.invoice_note, false)));
+        assertEquals("Null values are ordered last", Arrays.asList("NUL3", "NUL1", "NUL0", "NUL2", "NUL4"),
+            findAllPagesAfter(mongoRepo, new Order(mapper.invoice_note, true)));
+    }
+
+    private List<String> findAllPagesAfter(MongoVoucherRepository mongoRepo, Order order) {
+        Overview<Object> overview = Overview.fromOrdering(order).withPagination(new Pagination(0, 2));
+        List<String> codes = new ArrayList<>();
+        List<Voucher> page = mongoRepo.findPageAfter(overview, null);
+        while (!page.isEmpty()) {
+            page.forEach(v -> codes.add(v.getCode()));
+            page = mongoRepo.findPageAfter(overview, page.get(page.size() - 1));
+        }
+        return codes;
+    }
+
+    @Test
+    public void findByOverviewWithProjection() {
+        VoucherMapper mapper = VoucherMapper.getInstance();
+        repo.create(testData.newVoucher("PROJ1"), false);
+
+        Overview<Object> overview = Overview.empty().withPagination(new Pagination(0, 10)).withProjection(mapper.discount_price);
+        List<Voucher> vouchers = repo.findByOverview(overview);
+        assertEquals(1, vouchers.size());
+        assertEquals("Primary key is always loaded", "PROJ1", vouchers.get(0).getCode());
+        assertEquals(BigDecimal.valueOf(100000, 2), vouchers.get(0).getDiscountPrice());
+        assertNull("Attribute outside of projection is not loaded", vouchers.get(0).getInvoiceNote());
+    }
+
+    @Test
+    public void collectsMetrics() {
+        HistogramRepositoryMetrics metrics = new HistogramRepositoryMetrics();
+        MongoVoucherRepository measuredRepo = new MongoVoucherRepository(db) {
+            @Override
+            protected RepositoryMetrics getMetrics() {
+                return metrics;
+            }
+        };
+        measuredRepo.create(testData.newVoucher("MET1"), false);
+        measuredRepo.findById("MET1");
+        measuredRepo.findById("MET2");
+
+        OperationStats findStats = metrics.getStats(OperationType.QUERY, "voucher", "find { \"_id\" : ? }");
+        assertEquals(2, findStats.getCount());
+        assertEquals(1, findStats.getRows());
+        assertEquals(1, metrics.getStats(OperationType.CREATE, "voucher", "insertOne").getCount());
+    }
+
+    @Test
+    public void createIndexes() {
+        List<String> indexNames = ((MongoVoucherRepository)repo).createIndexes();
+        assertEquals(Arrays.asList("reserved_by_1", "voucher_validity"), indexNames);
+
+        List<String> existingIndexNames = db.getCollection("voucher").listIndexes().into(new ArrayList<>())
+            .stream().map(index -> index.getString("name")).collect(Collectors.toList());
+        assertTrue(existingIndexNames.containsAll(indexNames));
+    }
 }
@@ -17,6 +17,7 @@
 package org.xbery.overview;
 
 import org.xbery.overview.common.funs.CollectionFuns;
+import org.xbery.overview.mapper.Attribute;
 
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -39,6 +40,9 @@ public class Overview<F> implements Serializable {
 
     /** Grouping specification. */
     private final List<Group> grouping;
+
+    /** Attributes to load, or null for all attributes. */
+    private final Projection projection;
     
     public static <F> Overview<F> empty() {
     	return new Overview<>(null, null, null, null);
@@ -52,11 +56,16 @@ public class Overview<F> implements Serializable {
         return Overview.<F>empty().withOrdering(ordering);
     }
 
-    public Overview(F filter, List<Order> ordering, Pagination pagination, List<Group> grouping) {
+    public Overview(F filter, List<Order> ordering, Pagination pagination, List<Group> grouping, Projection projection) {
         this.filter = filter;
         this.ordering = ordering;
         this.pagination = pagination;
         this.grouping = grouping;
+        this.projection = projection;
+    }
+
+    public Overview(F filter, List<Order> ordering, Pagination pagination, List<Group> grouping) {
+        this(filter, ordering, pagination, grouping, null);
     }
 
     public Overview(F filter, List<Order> ordering, Pagination pagination) {
@@ -77,7 +86,7 @@ public class Overview<F> implements Serializable {
      * @return
      */
     public Overview<F> withFilter(F f) {
-    	return new Overview<>(f, this.ordering, this.pagination, this.grouping);
+    	return new Overview<>(f, this.ordering, this.pagination, this.grouping, this.projection);
     }
     
     /**
@@ -86,7 +95,7 @@ public class Overview<F> implements Serializable {
      * @return
      */
     public Overview<F> withOrdering(List<Order> ordering) {
-    	return new Overview<>(this.filter, ordering, this.pagination, this.grouping);
+    	return new Overview<>(this.filter, ordering, this.pagination, this.grouping, this.projection);
     }
 
     /**
@@ -104,7 +113,7 @@ public class Overview<F> implements Serializable {
      * @return
      */
     public Overview<F> withGrouping(List<Group> grouping) {
-        return new Overview<>(this.filter, this.ordering, this.pagination, grouping);
+        return new Overview<>(this.filter, this.ordering, this.pagination, grouping, this.projection);
     }
 
     /**
@@ -121,7 +130,7 @@ public class Overview<F> implements Serializable {
      * @return
      */
     public Overview<F> withEmptyPagination() {
-    	return new Overview<>(this.filter, this.ordering, null, this.grouping);
+    	return new Overview<>(this.filter, this.ordering, null, this.grouping, this.projection);
     }
     
     /**
@@ -130,7 +139,7 @@ public class Overview<F> implements Serializable {
      * @return
      */
     public Overview<F> withPagination(Pagination pag) {
-    	return new Overview<>(this.filter, this.ordering, pag, this.grouping);
+    	return new Overview<>(this.filter, this.ordering, pag, this.grouping, this.projection);
     }
     
     /**
@@ -138,7 +147,7 @@ public class Overview<F> implements Serializable {
      * @return
      */
     public Overview<F> withEmptyOrdering() {
-    	return new Overview<>(this.filter, new ArrayList<>(), this.pagination, this.grouping);
+    	return new Overview<>(this.filter, new ArrayList<>(), this.pagination, this.grouping, this.projection);
     }
 
     /**
@@ -146,7 +155,33 @@ public class Overview<F> implements Serializable {
      * @return
      */
     public Overview<F> withEmptyGrouping() {
-        return new Overview<>(this.filter, this.ordering, this.pagination, new ArrayList<>());
+        return new Overview<>(this.filter, this.ordering, this.pagination, new ArrayList<>(), this.projection);
+    }
+
+    /**
+     * Returns new instance/copy of overview with given projection set.
+     * @param projection
+     * @return
+     */
+    public Overview<F> withProjection(Projection projection) {
+        return new Overview<>(this.filter, this.ordering, this.pagination, this.grouping, projection);
+    }
+
+    /**
+     * Returns new instance/copy of overview with projection to given attributes.
+     * @param attributes
+     * @return
+     */
+    public Overview<F> withProjection(Attribute<?, ?>... attributes) {
+        return withProjection(Projection.of(attributes));
+    }
+
+    /**
+     * Returns new instance/copy of overview without projection (all attributes are loaded).
+     * @return
+     */
+    public Overview<F> withEmptyProjection() {
+        return new Overview<>(this.filter, this.ordering, this.pagination, this.grouping, null);
     }
 
     /**
@@ -181,9 +216,17 @@ public class Overview<F> implements Serializable {
         return grouping;
     }
 
+    /**
+     * Projection settings, null if all attributes should be loaded.
+     * @return
+     */
+    public Projection getProjection() {
+        return projection;
+    }
+
     @Override
 	public String toString() {
-		return "Overview [filter=" + filter + ", ordering=[" + CollectionFuns.mkString(ordering, item -> item.toString(), ", ") + "], pagination=" + pagination + ", grouping=[" + CollectionFuns.mkString(grouping, item -> item.toString(), ", ") + "]]";
+		return "Overview [filter=" + filter + ", ordering=[" + CollectionFuns.mkString(ordering, item -> item.toString(), ", ") + "], pagination=" + pagination + ", grouping=[" + CollectionFuns.mkString(grouping, item -> item.toString(), ", ") + "], projection=" + projection + "]";
 	}    
     
 }
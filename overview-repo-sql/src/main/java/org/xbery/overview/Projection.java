@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview;
+
+import org.xbery.overview.mapper.Attribute;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Subset of entity attributes that should be loaded. Attributes that are not part of projection are left empty
+ * in loaded entities, primary attributes are always loaded. Projection can be named, so the mapper can define
+ * reusable projection sets (e.g. for listings). Immutable class.
+ * @author Radek Beran
+ */
+public final class Projection implements Serializable {
+    private static final long serialVersionUID = 4218507783716937216L;
+
+    private final String name;
+
+    // Attribute names are stored instead of attributes, Projection is handy as Serializable and attributes are not serializable.
+    private final List<String> attributes;
+
+    public Projection(String name, List<? extends Attribute<?, ?>> attributes) {
+        this.name = name;
+        this.attributes = Collections.unmodifiableList(attributes.stream().map(a -> a.getName()).collect(Collectors.toList()));
+    }
+
+    public Projection(List<? extends Attribute<?, ?>> attributes) {
+        this(null, attributes);
+    }
+
+    public static Projection of(Attribute<?, ?>... attributes) {
+        return new Projection(Arrays.asList(attributes));
+    }
+
+    public static Projection named(String name, Attribute<?, ?>... attributes) {
+        return new Projection(name, Arrays.asList(attributes));
+    }
+
+    /**
+     * Name of projection set, or null for unnamed projection.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Names of projected attributes.
+     */
+    public List<String> getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * True if attribute with given name is part of projection.
+     */
+    public boolean contains(String attributeName) {
+        return attributes.contains(attributeName);
+    }
+
+    @Override
+    public String toString() {
+        return "Projection [name=" + name + ", attributes=" + attributes + "]";
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((name == null) ? 0 : name.hashCode());
+        result = prime * result + attributes.hashCode();
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null) return false;
+        if (getClass() != obj.getClass()) return false;
+        Projection other = (Projection)obj;
+        if (name == null) {
+            if (other.name != null) return false;
+        } else if (!name.equals(other.name)) return false;
+        return attributes.equals(other.attributes);
+    }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.common;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Unmodifiable list view of an array of primitive int values. Values can be passed as a list (e.g. to IN condition)
+ * without creating a boxed copy, consumers aware of this class read the primitive values directly.
+ * @author Radek Beran
+ */
+public final class IntValues extends AbstractList<Integer> implements RandomAccess, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final int[] values;
+
+    private IntValues(int[] values) {
+        this.values = values;
+    }
+
+    /**
+     * Returns list view of given values, the array is not copied.
+     */
+    public static IntValues of(int... values) {
+        return new IntValues(values);
+    }
+
+    @Override
+    public Integer get(int index) {
+        return values[index];
+    }
+
+    /**
+     * Returns primitive value at given index, without boxing.
+     */
+    public int getInt(int index) {
+        return values[index];
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        if (o instanceof Integer) {
+            int value = (Integer)o;
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] == value) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Returns copy of the values.
+     */
+    public int[] toIntArray() {
+        return Arrays.copyOf(values, values.length);
+    }
+}
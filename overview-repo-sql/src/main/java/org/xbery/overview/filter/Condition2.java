@@ -41,4 +41,18 @@ public abstract class Condition2 implements Condition {
     public Condition getSecondCondition() {
         return secondCondition;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Condition2 that = (Condition2) o;
+        return firstCondition.equals(that.firstCondition) &&
+            secondCondition.equals(that.secondCondition);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getClass(), firstCondition, secondCondition);
+    }
 }
@@ -0,0 +1,556 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.filter;
+
+import org.xbery.overview.mapper.Attribute;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.function.BinaryOperator;
+
+/**
+ * Normalizes conjunction of filter conditions before it is rendered to a database query:
+ * <ul>
+ *     <li>nested AND and OR conditions are flattened,</li>
+ *     <li>OR of equality conditions on one attribute is merged to one IN condition,</li>
+ *     <li>duplicate conditions are removed,</li>
+ *     <li>equality, IN and range conditions on one attribute are intersected; contradictions (two different values,
+ *     empty IN, value out of range) make the whole filter {@link FalseCondition false}.</li>
+ * </ul>
+ * Values of one attribute are intersected only if they are of the same class whose comparison does not depend on
+ * collation of the database (numbers, temporals, booleans, UUIDs and enums); ranges are intersected only for numbers
+ * and temporals. Conditions on strings and other values are left to the database. Thread-safe.
+ * @author Radek Beran
+ */
+public class ConditionOptimizer {
+
+    private static final List<Condition> ALWAYS_FALSE = Collections.singletonList(FalseCondition.INSTANCE);
+    /** Classes of values with the same ordering in Java and in databases. */
+    private static final Set<Class<?>> RANGE_VALUE_CLASSES = new HashSet<>(Arrays.asList(
+        Byte.class, Short.class, Integer.class, Long.class, BigInteger.class, BigDecimal.class, Float.class, Double.class,
+        Date.class, Instant.class, LocalDate.class, LocalDateTime.class, LocalTime.class));
+
+    /**
+     * Returns optimized conjunction of given conditions. If the conditions cannot be satisfied, result is a list with
+     * only {@link FalseCondition}.
+     * @param conditions conjunction of conditions, can be null
+     * @return optimized conditions
+     */
+    public List<Condition> optimize(List<Condition> conditions) {
+        if (conditions == null || conditions.isEmpty()) {
+            return conditions;
+        }
+        return optimizeConjunction(conditions);
+    }
+
+    /**
+     * True if given (optimized) conditions cannot match any record.
+     */
+    public boolean isAlwaysFalse(List<Condition> conditions) {
+        return conditions != null && conditions.size() == 1 && conditions.get(0) instanceof FalseCondition;
+    }
+
+    protected List<Condition> optimizeConjunction(List<Condition> conditions) {
+        List<Condition> conjuncts = new ArrayList<>();
+        for (Condition condition : conditions) {
+            collectOperands(condition, AndCondition.class, conjuncts);
+        }
+        List<Condition> atoms = new ArrayList<>(conjuncts.size());
+        for (Condition conjunct : conjuncts) {
+            if (conjunct instanceof FalseCondition) {
+                return ALWAYS_FALSE;
+            } else if (conjunct instanceof OrCondition) {
+                // Disjunction reduced to one branch is already optimized conjunction
+                List<Condition> disjunction = optimizeDisjunction((OrCondition)conjunct);
+                if (isAlwaysFalse(disjunction)) {
+                    return ALWAYS_FALSE;
+                }
+                atoms.addAll(disjunction);
+            } else {
+                atoms.add(conjunct);
+            }
+        }
+
+        // Conditions on values of one attribute are replaced by their intersection at the position of the first one
+        List<Object> items = new ArrayList<>(atoms.size());
+        Map<String, AttributeConditions> conditionsByAttribute = new HashMap<>();
+        Set<Condition> distinctConditions = new HashSet<>();
+        for (Condition atom : atoms) {
+            Attribute<?, ?> attribute = getIntersectableAttribute(atom);
+            if (attribute != null) {
+                AttributeConditions attributeConditions = conditionsByAttribute.get(attribute.getNameFull());
+                if (attributeConditions == null) {
+                    attributeConditions = new AttributeConditions(attribute);
+                    conditionsByAttribute.put(attribute.getNameFull(), attributeConditions);
+                    items.add(attributeConditions);
+                }
+                attributeConditions.add(atom);
+            } else if (distinctConditions.add(atom)) {
+                items.add(atom);
+            }
+        }
+
+        List<Condition> result = new ArrayList<>(items.size());
+        for (Object item : items) {
+            if (item instanceof AttributeConditions) {
+                List<Condition> intersection = ((AttributeConditions)item).intersect();
+                if (intersection == null) {
+                    return ALWAYS_FALSE;
+                }
+                result.addAll(intersection);
+            } else {
+                result.add((Condition)item);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns optimized disjunction as a conjunction of conditions: one OR condition, conditions of the only satisfiable
+     * branch, {@link FalseCondition} if no branch can be satisfied or empty list if some branch is always satisfied.
+     */
+    protected List<Condition> optimizeDisjunction(OrCondition condition) {
+        List<Condition> disjuncts = new ArrayList<>();
+        collectOperands(condition, OrCondition.class, disjuncts);
+
+        List<Object> items = new ArrayList<>(disjuncts.size());
+        Map<String, AttributeValues> valuesByAttribute = new HashMap<>();
+        Set<Branch> distinctBranches = new HashSet<>();
+        for (Condition disjunct : disjuncts) {
+            List<Condition> branch = optimizeConjunction(Collections.singletonList(disjunct));
+            if (isAlwaysFalse(branch)) {
+                continue;
+            }
+            if (branch.isEmpty()) {
+                return branch;
+            }
+            Attribute<?, ?> attribute = branch.size() == 1 ? getMergeableAttribute(branch.get(0)) : null;
+            if (attribute != null && isOfAttributeClass(attribute, getValues(branch.get(0)))) {
+                // Equal values of one attribute are collected to one IN condition
+                AttributeValues attributeValues = valuesByAttribute.get(attribute.getNameFull());
+                if (attributeValues == null) {
+                    attributeValues = new AttributeValues(attribute);
+                    valuesByAttribute.put(attribute.getNameFull(), attributeValues);
+                    items.add(attributeValues);
+                }
+                attributeValues.addAll(getValues(branch.get(0)));
+            } else if (distinctBranches.add(new Branch(branch))) {
+                items.add(new Branch(branch));
+            }
+        }
+
+        if (items.isEmpty()) {
+            return ALWAYS_FALSE;
+        }
+        List<Condition> branchConditions = new ArrayList<>(items.size());
+        for (Object item : items) {
+            if (item instanceof AttributeValues) {
+                branchConditions.add(((AttributeValues)item).toCondition());
+            } else {
+                List<Condition> branch = ((Branch)item).conditions;
+                if (items.size() == 1) {
+                    return branch;
+                }
+                branchConditions.add(composeTree(branch, AndCondition::new));
+            }
+        }
+        List<Condition> result = new ArrayList<>();
+        result.add(composeTree(branchConditions, OrCondition::new));
+        return result;
+    }
+
+    /**
+     * Attribute of equality, IN or range condition that can be intersected with other conditions on the same attribute,
+     * or null.
+     */
+    protected Attribute<?, ?> getIntersectableAttribute(Condition condition) {
+        Attribute<?, ?> attribute = null;
+        if (condition instanceof EqCondition || condition instanceof InCondition) {
+            attribute = getMergeableAttribute(condition);
+        } else if (condition instanceof GtCondition && ((GtCondition)condition).getValue() != null) {
+            attribute = ((GtCondition)condition).getAttribute();
+        } else if (condition instanceof GteCondition && ((GteCondition)condition).getValue() != null) {
+            attribute = ((GteCondition)condition).getAttribute();
+        } else if (condition instanceof LtCondition && ((LtCondition)condition).getValue() != null) {
+            attribute = ((LtCondition)condition).getAttribute();
+        } else if (condition instanceof LteCondition && ((LteCondition)condition).getValue() != null) {
+            attribute = ((LteCondition)condition).getAttribute();
+        }
+        return attribute != null && isSingleValued(attribute) ? attribute : null;
+    }
+
+    /**
+     * Attribute of equality condition on non-null value or IN condition without null values, or null.
+     */
+    protected Attribute<?, ?> getMergeableAttribute(Condition condition) {
+        Attribute<?, ?> attribute = null;
+        if (condition instanceof EqCondition) {
+            EqCondition<?, ?> c = (EqCondition<?, ?>)condition;
+            attribute = c.getValue() != null ? c.getAttribute() : null;
+        } else if (condition instanceof InCondition) {
+            InCondition<?, ?> c = (InCondition<?, ?>)condition;
+            attribute = c.getValues() == null || !c.getValues().contains(null) ? c.getAttribute() : null;
+        }
+        return attribute != null && isSingleValued(attribute) ? attribute : null;
+    }
+
+    /**
+     * False for collection, array or {@link Attribute#isMultiValued() multi-valued} attributes, equality conditions
+     * on them can be satisfied by different values at once.
+     */
+    protected boolean isSingleValued(Attribute<?, ?> attribute) {
+        Class<?> cls = attribute.getAttributeClass();
+        return cls != null && !cls.isArray() && !Collection.class.isAssignableFrom(cls) && !attribute.isMultiValued();
+    }
+
+    /**
+     * True if equality of values of given class is decided in the same way by Java and by the database,
+     * so conditions with such values can be intersected.
+     */
+    protected boolean isIntersectableValueClass(Class<?> valueClass) {
+        return isRangeValueClass(valueClass) || valueClass == Boolean.class || valueClass == UUID.class || valueClass.isEnum();
+    }
+
+    /**
+     * True if values of given class are ordered in the same way by Java and by the database,
+     * so range conditions with such values can be intersected.
+     */
+    protected boolean isRangeValueClass(Class<?> valueClass) {
+        return RANGE_VALUE_CLASSES.contains(valueClass);
+    }
+
+    /**
+     * Returns value used to compare values for equality, numeric values that differ only in scale are equal.
+     */
+    protected Object normalizeValue(Object value) {
+        return value instanceof BigDecimal ? ((BigDecimal)value).stripTrailingZeros() : value;
+    }
+
+    private static void collectOperands(Condition condition, Class<? extends Condition2> operatorClass, List<Condition> operands) {
+        if (condition == null) {
+            return;
+        }
+        if (operatorClass.isInstance(condition)) {
+            Condition2 c = (Condition2)condition;
+            collectOperands(c.getFirstCondition(), operatorClass, operands);
+            collectOperands(c.getSecondCondition(), operatorClass, operands);
+        } else {
+            operands.add(condition);
+        }
+    }
+
+    private static Condition composeTree(List<Condition> conditions, BinaryOperator<Condition> operator) {
+        Condition result = conditions.get(0);
+        for (int i = 1; i < conditions.size(); i++) {
+            result = operator.apply(result, conditions.get(i));
+        }
+        return result;
+    }
+
+    private static List<?> getValues(Condition condition) {
+        if (condition instanceof EqCondition) {
+            return Collections.singletonList(((EqCondition<?, ?>)condition).getValue());
+        }
+        List<?> values = ((InCondition<?, ?>)condition).getValues();
+        return values != null ? values : Collections.emptyList();
+    }
+
+    private static List<?> getValuesOrRange(Condition condition) {
+        if (condition instanceof EqCondition || condition instanceof InCondition) {
+            return getValues(condition);
+        }
+        return Collections.singletonList(new Bound(condition).value);
+    }
+
+    /**
+     * Compares two values of the same class, see {@link #RANGE_VALUE_CLASSES}.
+     */
+    private static int compare(Object a, Object b) {
+        if (a instanceof BigDecimal) {
+            return ((BigDecimal)a).compareTo((BigDecimal)b);
+        } else if (a instanceof BigInteger) {
+            return ((BigInteger)a).compareTo((BigInteger)b);
+        } else if (a instanceof Double || a instanceof Float) {
+            return Double.compare(((Number)a).doubleValue(), ((Number)b).doubleValue());
+        } else if (a instanceof Number) {
+            return Long.compare(((Number)a).longValue(), ((Number)b).longValue());
+        } else if (a instanceof Date) {
+            return ((Date)a).compareTo((Date)b);
+        } else if (a instanceof Instant) {
+            return ((Instant)a).compareTo((Instant)b);
+        } else if (a instanceof LocalDate) {
+            return ((LocalDate)a).compareTo((LocalDate)b);
+        } else if (a instanceof LocalDateTime) {
+            return ((LocalDateTime)a).compareTo((LocalDateTime)b);
+        } else if (a instanceof LocalTime) {
+            return ((LocalTime)a).compareTo((LocalTime)b);
+        }
+        throw new IllegalArgumentException("Values of " + a.getClass() + " cannot be compared");
+    }
+
+    private static boolean isOfAttributeClass(Attribute<?, ?> attribute, Collection<?> values) {
+        Class<?> attributeClass = attribute.getAttributeClass();
+        for (Object value : values) {
+            if (!attributeClass.isInstance(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static <T, A> Condition createEqCondition(Attribute<T, A> attribute, Object value) {
+        return new EqCondition<>(attribute, attribute.getAttributeClass().cast(value));
+    }
+
+    private static <T, A> Condition createInCondition(Attribute<T, A> attribute, Collection<?> values) {
+        List<A> typedValues = new ArrayList<>(values.size());
+        for (Object value : values) {
+            typedValues.add(attribute.getAttributeClass().cast(value));
+        }
+        return new InCondition<>(attribute, typedValues);
+    }
+
+    /**
+     * Optimized branch of disjunction.
+     */
+    private static class Branch {
+        private final List<Condition> conditions;
+
+        Branch(List<Condition> conditions) {
+            this.conditions = conditions;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Branch && conditions.equals(((Branch)o).conditions);
+        }
+
+        @Override
+        public int hashCode() {
+            return conditions.hashCode();
+        }
+    }
+
+    /**
+     * Distinct values of one attribute, in order of addition.
+     */
+    private class AttributeValues {
+        private final Attribute<?, ?> attribute;
+        private final Map<Object, Object> values = new LinkedHashMap<>();
+
+        AttributeValues(Attribute<?, ?> attribute) {
+            this.attribute = attribute;
+        }
+
+        void addAll(Collection<?> newValues) {
+            for (Object value : newValues) {
+                values.putIfAbsent(normalizeValue(value), value);
+            }
+        }
+
+        void retainAll(Collection<?> retainedValues) {
+            Set<Object> normalized = new HashSet<>();
+            for (Object value : retainedValues) {
+                normalized.add(normalizeValue(value));
+            }
+            values.keySet().retainAll(normalized);
+        }
+
+        boolean isEmpty() {
+            return values.isEmpty();
+        }
+
+        Collection<Object> getValues() {
+            return values.values();
+        }
+
+        Condition toCondition() {
+            if (values.size() == 1) {
+                return createEqCondition(attribute, values.values().iterator().next());
+            }
+            return createInCondition(attribute, values.values());
+        }
+    }
+
+    /**
+     * Conjunction of equality, IN and range conditions on one attribute.
+     */
+    private class AttributeConditions {
+        private final Attribute<?, ?> attribute;
+        private final List<Condition> conditions = new ArrayList<>();
+
+        AttributeConditions(Attribute<?, ?> attribute) {
+            this.attribute = attribute;
+        }
+
+        void add(Condition condition) {
+            if (!conditions.contains(condition)) {
+                conditions.add(condition);
+            }
+        }
+
+        /**
+         * Returns conditions equivalent to the conjunction, or null if it cannot be satisfied.
+         */
+        List<Condition> intersect() {
+            if (conditions.size() == 1 && !getValuesOrRange(conditions.get(0)).isEmpty()) {
+                // Single condition is kept as it is, values of large IN condition are not copied
+                return conditions;
+            }
+            Class<?> valueClass = getCommonValueClass();
+            if (valueClass == null || (valueClass != Object.class && !isIntersectableValueClass(valueClass))) {
+                // Values of different classes and values whose comparison can depend on collation are compared by the database
+                return conditions;
+            }
+            boolean comparable = isRangeValueClass(valueClass);
+            AttributeValues allowedValues = null;
+            Bound lower = null;
+            Bound upper = null;
+            List<Condition> ranges = new ArrayList<>();
+            for (Condition condition : conditions) {
+                if (condition instanceof EqCondition || condition instanceof InCondition) {
+                    List<?> values = getValues(condition);
+                    if (allowedValues == null) {
+                        allowedValues = new AttributeValues(attribute);
+                        allowedValues.addAll(values);
+                    } else {
+                        allowedValues.retainAll(values);
+                    }
+                    if (allowedValues.isEmpty()) {
+                        return null;
+                    }
+                } else if (!comparable) {
+                    ranges.add(condition);
+                } else if (condition instanceof GtCondition || condition instanceof GteCondition) {
+                    Bound bound = new Bound(condition);
+                    lower = lower == null || bound.isTighterLowerThan(lower) ? bound : lower;
+                } else {
+                    Bound bound = new Bound(condition);
+                    upper = upper == null || bound.isTighterUpperThan(upper) ? bound : upper;
+                }
+            }
+
+            List<Condition> result = new ArrayList<>();
+            if (allowedValues != null) {
+                if (lower != null || upper != null) {
+                    // Range conditions are implied by the allowed values
+                    List<Object> valuesInRange = new ArrayList<>();
+                    for (Object value : allowedValues.getValues()) {
+                        if ((lower == null || lower.isBelow(value)) && (upper == null || upper.isAbove(value))) {
+                            valuesInRange.add(value);
+                        }
+                    }
+                    allowedValues.retainAll(valuesInRange);
+                    if (allowedValues.isEmpty()) {
+                        return null;
+                    }
+                }
+                result.add(allowedValues.toCondition());
+            } else if (lower != null && upper != null) {
+                int cmp = compare(lower.value, upper.value);
+                if (cmp > 0 || (cmp == 0 && !(lower.inclusive && upper.inclusive))) {
+                    return null;
+                }
+                if (cmp == 0) {
+                    result.add(createEqCondition(attribute, lower.value));
+                } else {
+                    result.add(lower.condition);
+                    result.add(upper.condition);
+                }
+            } else if (lower != null) {
+                result.add(lower.condition);
+            } else if (upper != null) {
+                result.add(upper.condition);
+            }
+            result.addAll(ranges);
+            return result;
+        }
+
+        /**
+         * Returns class of all values of the conditions, or null if the values are of different classes
+         * or are not instances of class of the attribute.
+         */
+        private Class<?> getCommonValueClass() {
+            Class<?> valueClass = null;
+            for (Condition condition : conditions) {
+                for (Object value : getValuesOrRange(condition)) {
+                    if (valueClass == null) {
+                        valueClass = value.getClass();
+                        if (!attribute.getAttributeClass().isAssignableFrom(valueClass)) {
+                            return null;
+                        }
+                    } else if (!valueClass.equals(value.getClass())) {
+                        return null;
+                    }
+                }
+            }
+            // Only empty IN conditions
+            return valueClass != null ? valueClass : Object.class;
+        }
+    }
+
+    /**
+     * Lower or upper bound given by range condition.
+     */
+    private static class Bound {
+        private final Condition condition;
+        private final Object value;
+        private final boolean inclusive;
+
+        Bound(Condition condition) {
+            this.condition = condition;
+            if (condition instanceof GtCondition) {
+                this.value = ((GtCondition<?, ?>)condition).getValue();
+                this.inclusive = false;
+            } else if (condition instanceof GteCondition) {
+                this.value = ((GteCondition<?, ?>)condition).getValue();
+                this.inclusive = true;
+            } else if (condition instanceof LtCondition) {
+                this.value = ((LtCondition<?, ?>)condition).getValue();
+                this.inclusive = false;
+            } else {
+                this.value = ((LteCondition<?, ?>)condition).getValue();
+                this.inclusive = true;
+            }
+        }
+
+        boolean isTighterLowerThan(Bound other) {
+            int cmp = compare(value, other.value);
+            return cmp > 0 || (cmp == 0 && !inclusive);
+        }
+
+        boolean isTighterUpperThan(Bound other) {
+            int cmp = compare(value, other.value);
+            return cmp < 0 || (cmp == 0 && !inclusive);
+        }
+
+        boolean isBelow(Object v) {
+            int cmp = compare(value, v);
+            return cmp < 0 || (cmp == 0 && inclusive);
+        }
+
+        boolean isAbove(Object v) {
+            int cmp = compare(value, v);
+            return cmp > 0 || (cmp == 0 && inclusive);
+        }
+    }
+}
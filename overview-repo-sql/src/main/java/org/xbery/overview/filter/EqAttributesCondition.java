@@ -18,6 +18,8 @@ package org.xbery.overview.filter;
 
 import org.xbery.overview.mapper.Attribute;
 
+import java.util.Objects;
+
 /**
  * Attribute equals to another attribute.
  * @author Radek Beran
@@ -40,4 +42,18 @@ public final class EqAttributesCondition<T, U, A, B> implements Condition {
     public Attribute<U, B> getSecondAttribute() {
         return secondAttribute;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        EqAttributesCondition<?, ?, ?, ?> that = (EqAttributesCondition<?, ?, ?, ?>) o;
+        return Objects.equals(firstAttribute.getNameFull(), that.firstAttribute.getNameFull()) &&
+            Objects.equals(secondAttribute.getNameFull(), that.secondAttribute.getNameFull());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(firstAttribute.getNameFull(), secondAttribute.getNameFull());
+    }
 }
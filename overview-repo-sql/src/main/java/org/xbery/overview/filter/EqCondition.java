@@ -18,6 +18,8 @@ package org.xbery.overview.filter;
 
 import org.xbery.overview.mapper.Attribute;
 
+import java.util.Objects;
+
 /**
  * Attribute equals to value. Value can be {@code null} to create condition on null value.
  * @author Radek Beran
@@ -40,4 +42,18 @@ public final class EqCondition<T, A> implements Condition {
     public A getValue() {
         return value;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        EqCondition<?, ?> that = (EqCondition<?, ?>) o;
+        return Objects.equals(attribute.getNameFull(), that.attribute.getNameFull()) &&
+            Objects.equals(value, that.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(attribute.getNameFull(), value);
+    }
 }
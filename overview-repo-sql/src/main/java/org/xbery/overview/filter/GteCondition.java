@@ -18,6 +18,8 @@ package org.xbery.overview.filter;
 
 import org.xbery.overview.mapper.Attribute;
 
+import java.util.Objects;
+
 /**
  * Attribute is greater than or equal to value.
  * @author Radek Beran
@@ -40,4 +42,18 @@ public final class GteCondition<T, A> implements Condition {
     public A getValue() {
         return value;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        GteCondition<?, ?> that = (GteCondition<?, ?>) o;
+        return Objects.equals(attribute.getNameFull(), that.attribute.getNameFull()) &&
+            Objects.equals(value, that.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(attribute.getNameFull(), value);
+    }
 }
@@ -19,6 +19,7 @@ package org.xbery.overview.filter;
 import org.xbery.overview.mapper.Attribute;
 
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Attribute has one of the specified values.
@@ -42,4 +43,18 @@ public final class InCondition<T, A> implements Condition {
     public List<A> getValues() {
         return values;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        InCondition<?, ?> that = (InCondition<?, ?>) o;
+        return Objects.equals(attribute.getNameFull(), that.attribute.getNameFull()) &&
+            Objects.equals(values, that.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(attribute.getNameFull(), values);
+    }
 }
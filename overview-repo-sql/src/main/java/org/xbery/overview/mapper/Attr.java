@@ -38,6 +38,9 @@ public class Attr<E, A> implements Attribute<E, A> {
     private final Class<A> attributeClass;
     private final String name;
     private final boolean primary;
+    private final boolean indexed;
+    private final boolean unique;
+    private final boolean multiValued;
     private final Function<E, A> fromEntity;
     private final String namePrefix;
     private final Optional<Integer> maxLength;
@@ -103,6 +106,9 @@ public class Attr<E, A> implements Attribute<E, A> {
         this.attributeClass = source.attributeClass;
         this.name = source.name;
         this.primary = source.primary;
+        this.indexed = source.indexed;
+        this.unique = source.unique;
+        this.multiValued = source.multiValued;
         this.fromEntity = source.fromEntity;
         this.namePrefix = namePrefix;
         this.maxLength = source.maxLength;
@@ -118,6 +124,9 @@ public class Attr<E, A> implements Attribute<E, A> {
 
         // Optional parameters - initialized to default values (these are only here in a single location)
         private boolean primary = false;
+        private boolean indexed = false;
+        private boolean unique = false;
+        private boolean multiValued = false;
         private Optional<Integer> maxLength = Optional.empty();
 
         public Builder(Class<E> entityClass, Class<A> attributeClass, String name) {
@@ -135,6 +144,33 @@ public class Attr<E, A> implements Attribute<E, A> {
             return this;
         }
 
+        public Builder<E, A> indexed() {
+            return indexed(true);
+        }
+
+        public Builder<E, A> indexed(boolean indexedAttribute) {
+            indexed = indexedAttribute;
+            return this;
+        }
+
+        public Builder<E, A> unique() {
+            return unique(true);
+        }
+
+        public Builder<E, A> unique(boolean uniqueAttribute) {
+            unique = uniqueAttribute;
+            return this;
+        }
+
+        public Builder<E, A> multiValued() {
+            return multiValued(true);
+        }
+
+        public Builder<E, A> multiValued(boolean multiValuedAttribute) {
+            multiValued = multiValuedAttribute;
+            return this;
+        }
+
         public Builder<E, A> maxLength(Integer length) {
             maxLength = Optional.ofNullable(length);
             return this;
@@ -179,6 +215,18 @@ public class Attr<E, A> implements Attribute<E, A> {
             return primary;
         }
 
+        public boolean isIndexed() {
+            return indexed;
+        }
+
+        public boolean isUnique() {
+            return unique;
+        }
+
+        public boolean isMultiValued() {
+            return multiValued;
+        }
+
         public Optional<Integer> getMaxLength() {
             return maxLength;
         }
@@ -198,6 +246,9 @@ public class Attr<E, A> implements Attribute<E, A> {
         attributeClass = builder.attributeClass;
         name = builder.name;
         primary = builder.primary;
+        indexed = builder.indexed;
+        unique = builder.unique;
+        multiValued = builder.multiValued;
         fromEntity = builder.fromEntity;
         namePrefix = builder.namePrefix;
         maxLength = builder.maxLength;
@@ -228,6 +279,21 @@ public class Attr<E, A> implements Attribute<E, A> {
         return primary;
     }
 
+    @Override
+    public boolean isIndexed() {
+        return indexed;
+    }
+
+    @Override
+    public boolean isUnique() {
+        return unique;
+    }
+
+    @Override
+    public boolean isMultiValued() {
+        return multiValued;
+    }
+
     @Override
     public Optional<Integer> getMaxLength() {
         return maxLength;
@@ -252,6 +318,9 @@ public class Attr<E, A> implements Attribute<E, A> {
         return Attr.of(entityClass, attrClass, name)
             .get(e -> { A v = fromEntity.apply(e); return v != null ? toNewType.apply(v) : null; })
             .primary(primary)
+            .indexed(indexed)
+            .unique(unique)
+            .multiValued(multiValued)
             .namePrefix(namePrefix)
             .maxLength(maxLength)
             .build();
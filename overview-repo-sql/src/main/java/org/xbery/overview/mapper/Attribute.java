@@ -118,6 +118,31 @@ public interface Attribute<E, A> {
 		return false;
 	}
 
+	/**
+	 * Whether database attribute should be indexed (standalone index on this attribute).
+	 * @return
+	 */
+	default boolean isIndexed() {
+		return false;
+	}
+
+	/**
+	 * Whether values of database attribute must be unique (standalone unique index on this attribute).
+	 * @return
+	 */
+	default boolean isUnique() {
+		return false;
+	}
+
+	/**
+	 * Whether attribute can have more values at once in the database, for e.g. path into an array of documents.
+	 * Condition on such attribute matches if some of the values matches.
+	 * @return
+	 */
+	default boolean isMultiValued() {
+		return false;
+	}
+
 	/**
 	 * Length constraint on attribute value (if any is defined).
 	 * @return
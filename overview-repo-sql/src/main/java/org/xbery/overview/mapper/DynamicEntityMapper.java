@@ -28,9 +28,11 @@ import java.util.Map;
 public abstract class DynamicEntityMapper<T, F> implements EntityMapper<T, F> {
 
     private final Map<String, Attribute<T, ?>> attributesByFullNames;
+    private final List<Index> indexes;
 
     public DynamicEntityMapper() {
         attributesByFullNames = new LinkedHashMap<>();
+        indexes = new ArrayList<>();
     }
 
     /**
@@ -56,11 +58,36 @@ public abstract class DynamicEntityMapper<T, F> implements EntityMapper<T, F> {
         return addUnchanged(attribute);
     }
 
+    /**
+     * Registers new (composite) index.
+     * @param index new index, all its attributes must be already registered
+     */
+    public synchronized Index addIndex(Index index) {
+        List<String> attributeNames = getAttributeNames();
+        for (String attributeName : index.getAttributeNames()) {
+            if (!attributeNames.contains(attributeName)) {
+                throw new IllegalStateException("Indexed attribute " + attributeName + " is not registered");
+            }
+        }
+        indexes.add(index);
+        return index;
+    }
+
     @Override
     public List<Attribute<T, ?>> getAttributes() {
         return new ArrayList<>(attributesByFullNames.values());
     }
 
+    /**
+     * Returns standalone indexes of attributes followed by registered indexes.
+     */
+    @Override
+    public synchronized List<Index> getIndexes() {
+        List<Index> allIndexes = EntityMapper.super.getIndexes();
+        allIndexes.addAll(indexes);
+        return allIndexes;
+    }
+
     protected synchronized <A> Attribute<T, A> addUnchanged(Attribute<T, A> attribute) {
         if (attributesByFullNames.containsKey(attribute.getNameFull())) {
             throw new IllegalStateException("Attribute " + attribute.getNameFull() + " is already registered");
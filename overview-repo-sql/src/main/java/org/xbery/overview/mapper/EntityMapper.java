@@ -18,6 +18,7 @@ package org.xbery.overview.mapper;
 
 import org.xbery.overview.Group;
 import org.xbery.overview.Order;
+import org.xbery.overview.Projection;
 import org.xbery.overview.common.Pair;
 import org.xbery.overview.filter.Condition;
 import org.xbery.overview.repo.Conditions;
@@ -225,6 +226,28 @@ public interface EntityMapper<T, F> {
 		return getPrimaryAttributes().stream().map(attr -> attr.getValue(entity)).collect(Collectors.toList());
 	}
 	
+	/**
+	 * Returns indexes of entity that should be part of DB schema (primary key is not included).
+	 * Default implementation returns standalone indexes of attributes marked as indexed or unique.
+	 * @return
+	 */
+	default List<Index> getIndexes() {
+		return Index.ofAttributes(getAttributes());
+	}
+
+	/**
+	 * Returns attributes that should be loaded for given projection: attributes of projection and primary attributes,
+	 * in order of {@link #getAttributes()}.
+	 * @param projection projection, or null for all attributes
+	 * @return
+	 */
+	default List<Attribute<T, ?>> getAttributesOfProjection(Projection projection) {
+		if (projection == null) {
+			return getAttributes();
+		}
+		return getAttributes().stream().filter(a -> a.isPrimary() || projection.contains(a.getName())).collect(Collectors.toList());
+	}
+
 	/**
 	 * Returns names of database attributes.
 	 * @return
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.mapper;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Index on one or more attributes of entity (in order of index key), used for generation of DB schema.
+ * Immutable class.
+ * @author Radek Beran
+ */
+public final class Index implements Serializable {
+    private static final long serialVersionUID = -3412861349218734761L;
+
+    private final String name;
+
+    // Attribute names are stored instead of attributes, attributes are not serializable.
+    private final List<String> attributeNames;
+
+    private final boolean unique;
+
+    public Index(String name, List<String> attributeNames, boolean unique) {
+        if (attributeNames == null || attributeNames.isEmpty()) {
+            throw new IllegalArgumentException("Index must contain at least one attribute");
+        }
+        this.name = name;
+        this.attributeNames = Collections.unmodifiableList(new ArrayList<>(attributeNames));
+        this.unique = unique;
+    }
+
+    public static Index of(Attribute<?, ?>... attributes) {
+        return new Index(null, namesOf(attributes), false);
+    }
+
+    public static Index named(String name, Attribute<?, ?>... attributes) {
+        return new Index(name, namesOf(attributes), false);
+    }
+
+    public static Index unique(Attribute<?, ?>... attributes) {
+        return new Index(null, namesOf(attributes), true);
+    }
+
+    public static Index uniqueNamed(String name, Attribute<?, ?>... attributes) {
+        return new Index(name, namesOf(attributes), true);
+    }
+
+    /**
+     * Returns standalone indexes of given attributes that are marked as indexed or unique (primary attributes are skipped).
+     */
+    public static List<Index> ofAttributes(List<? extends Attribute<?, ?>> attributes) {
+        List<Index> indexes = new ArrayList<>();
+        for (Attribute<?, ?> attr : attributes) {
+            if (!attr.isPrimary() && (attr.isIndexed() || attr.isUnique())) {
+                indexes.add(new Index(null, Collections.singletonList(attr.getName()), attr.isUnique()));
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     * Name of index, or null if the name should be generated.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Names of indexed attributes, in order of index key.
+     */
+    public List<String> getAttributeNames() {
+        return attributeNames;
+    }
+
+    public boolean isUnique() {
+        return unique;
+    }
+
+    @Override
+    public String toString() {
+        return "Index [name=" + name + ", attributeNames=" + attributeNames + ", unique=" + unique + "]";
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((name == null) ? 0 : name.hashCode());
+        result = prime * result + attributeNames.hashCode();
+        result = prime * result + (unique ? 1231 : 1237);
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null) return false;
+        if (getClass() != obj.getClass()) return false;
+        Index other = (Index)obj;
+        if (name == null) {
+            if (other.name != null) return false;
+        } else if (!name.equals(other.name)) return false;
+        return attributeNames.equals(other.attributeNames) && unique == other.unique;
+    }
+
+    private static List<String> namesOf(Attribute<?, ?>... attributes) {
+        return Arrays.stream(attributes).map(a -> a.getName()).collect(Collectors.toList());
+    }
+}
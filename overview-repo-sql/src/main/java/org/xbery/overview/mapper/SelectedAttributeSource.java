@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.mapper;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Attribute source that provides values only for selected (loaded) attributes, other attributes are returned as null.
+ * Entity mappers can so create partially loaded entities the same way as fully loaded ones.
+ * @author Radek Beran
+ */
+public class SelectedAttributeSource implements AttributeSource {
+
+    private final AttributeSource attributeSource;
+
+    private final Set<String> selectedAttributeNames;
+
+    public SelectedAttributeSource(AttributeSource attributeSource, Collection<String> selectedAttributeNames) {
+        this.attributeSource = attributeSource;
+        this.selectedAttributeNames = new HashSet<>(selectedAttributeNames);
+    }
+
+    @Override
+    public <A> A get(Class<A> cls, String attributeName) {
+        return selectedAttributeNames.contains(attributeName) ? attributeSource.get(cls, attributeName) : null;
+    }
+}
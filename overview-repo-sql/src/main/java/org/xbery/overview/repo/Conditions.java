@@ -16,6 +16,8 @@
  */
 package org.xbery.overview.repo;
 
+import org.xbery.overview.common.IntValues;
+import org.xbery.overview.common.LongValues;
 import org.xbery.overview.filter.*;
 import org.xbery.overview.mapper.Attribute;
 
@@ -67,6 +69,26 @@ public class Conditions {
 		return new InCondition(attribute, values);
 	}
 
+	/**
+	 * Attribute value is contained in given primitive values, the values are not boxed to a copy of the array.
+	 * @param attribute
+	 * @param values
+	 * @return
+	 */
+	public static <T> InCondition<T, Integer> in(Attribute<T, Integer> attribute, int... values) {
+		return new InCondition<>(attribute, IntValues.of(values));
+	}
+
+	/**
+	 * Attribute value is contained in given primitive values, the values are not boxed to a copy of the array.
+	 * @param attribute
+	 * @param values
+	 * @return
+	 */
+	public static <T> InCondition<T, Long> in(Attribute<T, Long> attribute, long... values) {
+		return new InCondition<>(attribute, LongValues.of(values));
+	}
+
 	/**
 	 * Less than condition.
 	 * @param attribute
@@ -127,6 +149,14 @@ public class Conditions {
 		return new AndCondition(first, second);
 	}
 
+	/**
+	 * Condition that is never satisfied.
+	 * @return
+	 */
+	public static FalseCondition alwaysFalse() {
+		return FalseCondition.INSTANCE;
+	}
+
 	// TODO RBe: Conditions for ne/negation
 
 }
@@ -24,10 +24,7 @@ import org.xbery.overview.common.Pair;
 import org.xbery.overview.mapper.Attribute;
 import org.xbery.overview.mapper.EntityMapper;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
-import java.util.Optional;
+import java.util.*;
 import java.util.function.Function;
 
 /**
@@ -65,6 +62,25 @@ public interface Repository<T, K, F> {
 		return list;
 	}
 	
+	/**
+	 * Creates given entities or updates them if entities with the same keys already exist.
+	 * Keys of all entities must be assigned.
+	 * @param entities entities to create or update
+	 * @return count of created or updated entities
+	 */
+	default int upsertAll(List<T> entities) {
+		int count = 0;
+		if (entities != null) {
+			for (T e : entities) {
+				if (!update(e).isPresent()) {
+					create(e, false);
+				}
+				count++;
+			}
+		}
+		return count;
+	}
+
 	/**
 	 * Updates entity with given data. Returns updated entity if entity was successfully updated, or empty result if entity was not found.
 	 * @param entity entity to update
@@ -125,6 +141,30 @@ public interface Repository<T, K, F> {
 	default Optional<T> findById(K id) {
 		return findById(id, getEntityMapper());
 	}
+
+	/**
+	 * Finds entities by given ids. Duplicate ids are loaded only once.
+	 * @param ids
+	 * @return found entities in order of given ids, entities that were not found are omitted
+	 */
+	default List<T> findByIds(Collection<K> ids) {
+		return new ArrayList<>(findMapByIds(ids).values());
+	}
+
+	/**
+	 * Finds entities by given ids. Duplicate ids are loaded only once.
+	 * @param ids
+	 * @return found entities mapped by their ids, in order of given ids; ids that were not found are missing in the key set
+	 * (absence from the map is the only signal of an id that was not found)
+	 */
+	default Map<K, T> findMapByIds(Collection<K> ids) {
+		Objects.requireNonNull(ids, "ids should be specified");
+		Map<K, T> entitiesById = new LinkedHashMap<>();
+		for (K id : new LinkedHashSet<>(ids)) {
+			findById(id).ifPresent(e -> entitiesById.put(id, e));
+		}
+		return entitiesById;
+	}
 	
 	/**
 	 * Returns results for given filtering, sorting, grouping and pagination settings.
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.repo.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * In-process metrics with latency histograms for each operation type, data set and statement fingerprint.
+ * @author Radek Beran
+ */
+public class HistogramRepositoryMetrics implements RepositoryMetrics {
+
+    private final ConcurrentMap<StatsKey, OperationStats> stats = new ConcurrentHashMap<>();
+
+    @Override
+    public void onOperation(OperationEvent event) {
+        getOrCreateStats(event.getType(), event.getDataSetName(), event.getFingerprint()).record(event);
+    }
+
+    /**
+     * Returns statistics of all recorded operations.
+     */
+    public List<OperationStats> getStats() {
+        return new ArrayList<>(stats.values());
+    }
+
+    /**
+     * Returns statistics of operations with given type, data set and fingerprint, or null if no such operation was recorded.
+     */
+    public OperationStats getStats(OperationType type, String dataSetName, String fingerprint) {
+        return stats.get(new StatsKey(type, dataSetName, fingerprint));
+    }
+
+    public void reset() {
+        stats.clear();
+    }
+
+    protected OperationStats getOrCreateStats(OperationType type, String dataSetName, String fingerprint) {
+        StatsKey key = new StatsKey(type, dataSetName, fingerprint);
+        OperationStats operationStats = stats.get(key);
+        if (operationStats == null) {
+            operationStats = stats.computeIfAbsent(key, k -> createStats(type, dataSetName, fingerprint));
+        }
+        return operationStats;
+    }
+
+    /**
+     * Creates statistics for newly recorded operation, subclasses can override this to observe new statistics.
+     */
+    protected OperationStats createStats(OperationType type, String dataSetName, String fingerprint) {
+        return new OperationStats(type, dataSetName, fingerprint);
+    }
+
+    private static final class StatsKey {
+        private final OperationType type;
+        private final String dataSetName;
+        private final String fingerprint;
+
+        StatsKey(OperationType type, String dataSetName, String fingerprint) {
+            this.type = type;
+            this.dataSetName = dataSetName;
+            this.fingerprint = fingerprint;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof StatsKey)) return false;
+            StatsKey other = (StatsKey)obj;
+            return type == other.type && Objects.equals(dataSetName, other.dataSetName) && Objects.equals(fingerprint, other.fingerprint);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, dataSetName, fingerprint);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.repo.metrics;
+
+import org.xbery.overview.repo.RepositoryException;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Histogram metrics that export statistics of each operation as an MXBean
+ * named {@code <domain>:type=RepositoryOperation,dataSet=...,operation=...,statement=...}.
+ * @author Radek Beran
+ */
+public class JmxRepositoryMetricsExporter extends HistogramRepositoryMetrics {
+
+    public static final String DEFAULT_DOMAIN = "org.xbery.overview";
+
+    private final MBeanServer mBeanServer;
+    private final String domain;
+    private final List<ObjectName> registeredNames = new CopyOnWriteArrayList<>();
+
+    public JmxRepositoryMetricsExporter(MBeanServer mBeanServer, String domain) {
+        this.mBeanServer = mBeanServer;
+        this.domain = domain;
+    }
+
+    public JmxRepositoryMetricsExporter() {
+        this(ManagementFactory.getPlatformMBeanServer(), DEFAULT_DOMAIN);
+    }
+
+    /**
+     * Unregisters all exported MXBeans.
+     */
+    public void unregisterAll() {
+        for (ObjectName name : registeredNames) {
+            try {
+                if (mBeanServer.isRegistered(name)) {
+                    mBeanServer.unregisterMBean(name);
+                }
+            } catch (Exception ex) {
+                throw new RepositoryException(ex.getMessage(), ex);
+            }
+        }
+        registeredNames.clear();
+    }
+
+    @Override
+    public void reset() {
+        unregisterAll();
+        super.reset();
+    }
+
+    @Override
+    protected OperationStats createStats(OperationType type, String dataSetName, String fingerprint) {
+        OperationStats stats = super.createStats(type, dataSetName, fingerprint);
+        try {
+            ObjectName name = createObjectName(stats);
+            if (!mBeanServer.isRegistered(name)) {
+                mBeanServer.registerMBean(stats, name);
+                registeredNames.add(name);
+            }
+        } catch (Exception ex) {
+            throw new RepositoryException(ex.getMessage(), ex);
+        }
+        return stats;
+    }
+
+    protected ObjectName createObjectName(OperationStats stats) throws Exception {
+        return new ObjectName(domain + ":type=RepositoryOperation" +
+            ",dataSet=" + ObjectName.quote(String.valueOf(stats.getDataSetName())) +
+            ",operation=" + stats.getOperationType() +
+            ",statement=" + ObjectName.quote(String.valueOf(stats.getFingerprint())));
+    }
+}
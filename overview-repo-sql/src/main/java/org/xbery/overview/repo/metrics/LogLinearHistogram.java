@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.repo.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative long values (e.g. durations in nanoseconds) with log-linear buckets
+ * in the manner of HdrHistogram: each power-of-two range is divided into 2^subBucketBits linear sub-buckets,
+ * so the relative error of reported values is at most 1 / 2^subBucketBits regardless of magnitude.
+ * Memory is fixed and recording of a value does not allocate.
+ * @author Radek Beran
+ */
+public class LogLinearHistogram {
+
+    private final int subBucketBits;
+    private final int subBucketCount;
+    private final AtomicLongArray counts;
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(0);
+
+    /**
+     * @param subBucketBits count of bits of linear sub-buckets within one power-of-two range, between 1 and 10
+     */
+    public LogLinearHistogram(int subBucketBits) {
+        if (subBucketBits < 1 || subBucketBits > 10) {
+            throw new IllegalArgumentException("Count of sub-bucket bits should be between 1 and 10, but was " + subBucketBits);
+        }
+        this.subBucketBits = subBucketBits;
+        this.subBucketCount = 1 << subBucketBits;
+        this.counts = new AtomicLongArray(subBucketCount + (64 - subBucketBits) * subBucketCount);
+    }
+
+    /**
+     * Creates histogram with relative precision of about 3 %.
+     */
+    public LogLinearHistogram() {
+        this(5);
+    }
+
+    public void record(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Value should not be negative: " + value);
+        }
+        counts.incrementAndGet(bucketIndex(value));
+        totalCount.increment();
+        sum.add(value);
+        long currentMin;
+        while (value < (currentMin = min.get()) && !min.compareAndSet(currentMin, value)) {
+            // retry
+        }
+        long currentMax;
+        while (value > (currentMax = max.get()) && !max.compareAndSet(currentMax, value)) {
+            // retry
+        }
+    }
+
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    public long getMin() {
+        return getCount() > 0 ? min.get() : 0;
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long count = getCount();
+        return count > 0 ? (double)sum.sum() / count : 0;
+    }
+
+    /**
+     * Returns value below or equal to which given percentile of recorded values lies.
+     * @param percentile percentile between 0 and 100
+     * @return highest value equivalent (within precision of the histogram) to the value at given percentile
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        long requiredCount = Math.max(1, (long)Math.ceil(Math.min(100.0, Math.max(0.0, percentile)) / 100.0 * count));
+        long cumulativeCount = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            cumulativeCount += counts.get(i);
+            if (cumulativeCount >= requiredCount) {
+                return Math.min(highestEquivalentValue(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        totalCount.reset();
+        sum.reset();
+        min.set(Long.MAX_VALUE);
+        max.set(0);
+    }
+
+    protected int bucketIndex(long value) {
+        if (value < subBucketCount) {
+            // Linear range of small values
+            return (int)value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int shift = magnitude - subBucketBits;
+        int subBucket = (int)(value >>> shift) - subBucketCount;
+        return subBucketCount + shift * subBucketCount + subBucket;
+    }
+
+    protected long highestEquivalentValue(int index) {
+        if (index < subBucketCount) {
+            return index;
+        }
+        int shift = (index - subBucketCount) / subBucketCount;
+        int subBucket = (index - subBucketCount) % subBucketCount;
+        long lowest = ((long)(subBucketCount + subBucket)) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
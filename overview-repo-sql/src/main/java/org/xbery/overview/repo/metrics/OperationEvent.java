@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.repo.metrics;
+
+/**
+ * Finished repository operation with its durations. Immutable class.
+ * @author Radek Beran
+ */
+public final class OperationEvent {
+    private final OperationType type;
+    private final String dataSetName;
+    private final String fingerprint;
+    private final int parameterCount;
+    private final long rows;
+    private final long acquireNanos;
+    private final long executionNanos;
+    private final long mappingNanos;
+    private final Throwable error;
+
+    public OperationEvent(OperationType type, String dataSetName, String fingerprint, int parameterCount, long rows, long acquireNanos, long executionNanos, long mappingNanos, Throwable error) {
+        this.type = type;
+        this.dataSetName = dataSetName;
+        this.fingerprint = fingerprint;
+        this.parameterCount = parameterCount;
+        this.rows = rows;
+        this.acquireNanos = acquireNanos;
+        this.executionNanos = executionNanos;
+        this.mappingNanos = mappingNanos;
+        this.error = error;
+    }
+
+    public OperationType getType() {
+        return type;
+    }
+
+    /**
+     * Name of table or collection.
+     */
+    public String getDataSetName() {
+        return dataSetName;
+    }
+
+    /**
+     * Normalized statement, statements differing only in values of parameters have the same fingerprint.
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Count of parameters bound to the statement.
+     */
+    public int getParameterCount() {
+        return parameterCount;
+    }
+
+    /**
+     * Count of returned or affected rows (documents).
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Time spent by waiting for a database connection.
+     */
+    public long getAcquireNanos() {
+        return acquireNanos;
+    }
+
+    /**
+     * Time spent by execution of the statement in the database.
+     */
+    public long getExecutionNanos() {
+        return executionNanos;
+    }
+
+    /**
+     * Time spent by reading of results and mapping them to entities.
+     */
+    public long getMappingNanos() {
+        return mappingNanos;
+    }
+
+    public long getTotalNanos() {
+        return acquireNanos + executionNanos + mappingNanos;
+    }
+
+    /**
+     * Error that caused the operation to fail, or null for successful operation.
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    public boolean isFailed() {
+        return error != null;
+    }
+
+    @Override
+    public String toString() {
+        return "OperationEvent [type=" + type + ", dataSetName=" + dataSetName + ", fingerprint=" + fingerprint + ", parameterCount=" + parameterCount + ", rows=" + rows +
+            ", acquireNanos=" + acquireNanos + ", executionNanos=" + executionNanos + ", mappingNanos=" + mappingNanos + ", error=" + error + "]";
+    }
+}
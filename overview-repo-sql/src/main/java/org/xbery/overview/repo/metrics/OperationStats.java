@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.repo.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of operations of the same type, data set and statement fingerprint.
+ * @author Radek Beran
+ */
+public class OperationStats implements OperationStatsMXBean {
+
+    private final OperationType type;
+    private final String dataSetName;
+    private final String fingerprint;
+    private final LogLinearHistogram totalNanos = new LogLinearHistogram();
+    private final LogLinearHistogram acquireNanos = new LogLinearHistogram();
+    private final LogLinearHistogram executionNanos = new LogLinearHistogram();
+    private final LogLinearHistogram mappingNanos = new LogLinearHistogram();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+
+    public OperationStats(OperationType type, String dataSetName, String fingerprint) {
+        this.type = type;
+        this.dataSetName = dataSetName;
+        this.fingerprint = fingerprint;
+    }
+
+    public void record(OperationEvent event) {
+        totalNanos.record(event.getTotalNanos());
+        acquireNanos.record(event.getAcquireNanos());
+        executionNanos.record(event.getExecutionNanos());
+        mappingNanos.record(event.getMappingNanos());
+        rows.add(event.getRows());
+        if (event.isFailed()) {
+            errorCount.increment();
+        }
+    }
+
+    public OperationType getType() {
+        return type;
+    }
+
+    @Override
+    public String getOperationType() {
+        return type != null ? type.name() : null;
+    }
+
+    @Override
+    public String getDataSetName() {
+        return dataSetName;
+    }
+
+    @Override
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    @Override
+    public long getCount() {
+        return totalNanos.getCount();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    @Override
+    public long getRows() {
+        return rows.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return totalNanos.getMean() / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public double getP50Millis() {
+        return toMillis(totalNanos.getValueAtPercentile(50));
+    }
+
+    @Override
+    public double getP99Millis() {
+        return toMillis(totalNanos.getValueAtPercentile(99));
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return toMillis(totalNanos.getMax());
+    }
+
+    @Override
+    public double getMeanAcquireMillis() {
+        return acquireNanos.getMean() / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public double getMeanExecutionMillis() {
+        return executionNanos.getMean() / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public double getMeanMappingMillis() {
+        return mappingNanos.getMean() / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Histogram of total durations of operations in nanoseconds.
+     */
+    public LogLinearHistogram getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * Histogram of waiting for database connection in nanoseconds.
+     */
+    public LogLinearHistogram getAcquireNanos() {
+        return acquireNanos;
+    }
+
+    /**
+     * Histogram of execution of statements in nanoseconds.
+     */
+    public LogLinearHistogram getExecutionNanos() {
+        return executionNanos;
+    }
+
+    /**
+     * Histogram of mapping of results in nanoseconds.
+     */
+    public LogLinearHistogram getMappingNanos() {
+        return mappingNanos;
+    }
+
+    @Override
+    public void reset() {
+        totalNanos.reset();
+        acquireNanos.reset();
+        executionNanos.reset();
+        mappingNanos.reset();
+        rows.reset();
+        errorCount.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "OperationStats [type=" + type + ", dataSetName=" + dataSetName + ", fingerprint=" + fingerprint + ", count=" + getCount() +
+            ", errorCount=" + getErrorCount() + ", meanMillis=" + getMeanMillis() + ", p99Millis=" + getP99Millis() + "]";
+    }
+
+    private double toMillis(long nanos) {
+        return nanos / (double)TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.repo.metrics;
+
+/**
+ * Emitting of Java Flight Recorder events about repository operations. This implementation for Java 8 does nothing,
+ * the library jar is a multi-release jar that contains implementation using jdk.jfr for Java 11 and newer
+ * (see src/main/java11). Methods must keep the same signatures in both implementations.
+ * @author Radek Beran
+ */
+public final class RepositoryEvents {
+
+    private RepositoryEvents() {
+    }
+
+    /**
+     * True if some of repository events is recorded.
+     */
+    public static boolean isEnabled() {
+        return false;
+    }
+
+    /**
+     * Begins events for an operation of given type.
+     * @param type
+     * @return handle of begun events passed to the other methods, null if no event is recorded
+     */
+    public static Object begin(OperationType type) {
+        return null;
+    }
+
+    /**
+     * Ends waiting for a database connection.
+     * @param events handle returned by {@link #begin(OperationType)}
+     * @param dataSetName
+     */
+    public static void connectionAcquired(Object events, String dataSetName) {
+    }
+
+    /**
+     * Ends and commits events of finished operation.
+     * @param events handle returned by {@link #begin(OperationType)}
+     * @param dataSetName name of table or collection
+     * @param fingerprint statement fingerprint
+     * @param parameterCount count of parameters bound to the statement
+     * @param rows count of returned or affected rows
+     * @param error error of failed operation, or null
+     */
+    public static void finished(Object events, String dataSetName, String fingerprint, int parameterCount, long rows, Throwable error) {
+    }
+}
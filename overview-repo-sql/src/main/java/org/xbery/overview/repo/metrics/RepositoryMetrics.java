@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.repo.metrics;
+
+/**
+ * Listener notified about each finished repository operation. Implementations must be thread-safe.
+ * Repositories use {@link #NONE} by default, which costs no allocations or time measurements
+ * unless the operations are recorded by Java Flight Recorder (see {@link RepositoryEvents}).
+ * @author Radek Beran
+ */
+public interface RepositoryMetrics {
+
+    /**
+     * Metrics that are not collected.
+     */
+    RepositoryMetrics NONE = new RepositoryMetrics() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+
+        @Override
+        public void onOperation(OperationEvent event) {
+        }
+    };
+
+    /**
+     * True if operations should be measured and reported.
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * Called when an operation finishes, successfully or with an error.
+     * @param event
+     */
+    void onOperation(OperationEvent event);
+
+    /**
+     * Starts measurement of an operation.
+     * @param type type of operation
+     * @param dataSetName name of table or collection
+     * @param statement executed statement, it is normalized to a fingerprint only if the operation is measured
+     * @param parameterCount count of parameters bound to the statement
+     * @return running operation, {@link RepositoryOperation#NOOP} if metrics are disabled and flight recording is off
+     */
+    default RepositoryOperation start(OperationType type, String dataSetName, String statement, int parameterCount) {
+        if (!isEnabled() && !RepositoryEvents.isEnabled()) {
+            return RepositoryOperation.NOOP;
+        }
+        return new RepositoryOperation(this, type, dataSetName, StatementFingerprints.sql(statement), parameterCount);
+    }
+}
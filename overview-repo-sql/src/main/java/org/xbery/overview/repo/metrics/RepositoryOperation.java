@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.repo.metrics;
+
+/**
+ * Running repository operation measured in phases: waiting for connection, execution of statement and mapping of results.
+ * Event is reported to {@link RepositoryMetrics} (if enabled) and to Java Flight Recorder (if recording, see {@link RepositoryEvents})
+ * when the operation is finished or failed, only once.
+ * Not thread-safe, operation is measured by the thread that executes it.
+ * @author Radek Beran
+ */
+public class RepositoryOperation {
+
+    /**
+     * Operation that is not measured.
+     */
+    public static final RepositoryOperation NOOP = new RepositoryOperation(RepositoryMetrics.NONE, null, null, null, 0) {
+        @Override
+        public void connectionAcquired() {
+        }
+
+        @Override
+        public void executed() {
+        }
+
+        @Override
+        public void finished(long rows) {
+        }
+
+        @Override
+        public void failed(Throwable error) {
+        }
+    };
+
+    private final RepositoryMetrics metrics;
+    private final OperationType type;
+    private final String dataSetName;
+    private final String fingerprint;
+    private final int parameterCount;
+    private final Object flightRecorderEvents;
+    private final long startNanos;
+    private long acquiredNanos;
+    private long executedNanos;
+    private boolean reported;
+
+    public RepositoryOperation(RepositoryMetrics metrics, OperationType type, String dataSetName, String fingerprint, int parameterCount) {
+        this.metrics = metrics;
+        this.type = type;
+        this.dataSetName = dataSetName;
+        this.fingerprint = fingerprint;
+        this.parameterCount = parameterCount;
+        this.flightRecorderEvents = type != null ? RepositoryEvents.begin(type) : null;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Marks the end of waiting for a database connection.
+     */
+    public void connectionAcquired() {
+        acquiredNanos = System.nanoTime();
+        RepositoryEvents.connectionAcquired(flightRecorderEvents, dataSetName);
+    }
+
+    /**
+     * Marks the end of execution of the statement, the following time is spent by mapping of results.
+     */
+    public void executed() {
+        executedNanos = System.nanoTime();
+    }
+
+    /**
+     * Finishes successful operation.
+     * @param rows count of returned or affected rows
+     */
+    public void finished(long rows) {
+        report(rows, null);
+    }
+
+    /**
+     * Finishes failed operation.
+     * @param error
+     */
+    public void failed(Throwable error) {
+        report(0, error);
+    }
+
+    protected void report(long rows, Throwable error) {
+        if (reported) {
+            return;
+        }
+        reported = true;
+        long endNanos = System.nanoTime();
+        // Phases that were not reached take no time
+        long acquired = acquiredNanos != 0 ? acquiredNanos : startNanos;
+        long executed = executedNanos != 0 ? executedNanos : endNanos;
+        RepositoryEvents.finished(flightRecorderEvents, dataSetName, fingerprint, parameterCount, rows, error);
+        if (metrics.isEnabled()) {
+            metrics.onOperation(new OperationEvent(type, dataSetName, fingerprint, parameterCount, rows,
+                acquired - startNanos, executed - acquired, endNanos - executed, error));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.repo.metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Normalization of statements to fingerprints that group statements of the same shape: literal values are replaced
+ * by placeholders and lists of placeholders (IN lists, multi-row VALUES) are collapsed, so the fingerprint
+ * does not depend on count of values.
+ * @author Radek Beran
+ */
+public final class StatementFingerprints {
+
+    private static final Pattern SQL_STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern SQL_NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern PLACEHOLDER_LIST = Pattern.compile("\\?(?:\\s*,\\s*\\?)+");
+    private static final Pattern PLACEHOLDER_ROW_LIST = Pattern.compile("\\(\\?\\+?\\)(?:\\s*,\\s*\\(\\?\\+?\\))+");
+    private static final Pattern JSON_STRING = Pattern.compile("\"(?:[^\"\\\\]|\\\\.)*\"(\\s*:)?");
+    private static final Pattern JSON_NUMBER_VALUE = Pattern.compile("(?<![\\w$\"])-?\\d+(?:\\.\\d+)?(?:[eE][+-]?\\d+)?");
+    private static final Pattern JSON_PLACEHOLDER_ARRAY = Pattern.compile("\\[\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\]");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int MAX_CACHED_FINGERPRINTS = 1024;
+
+    // Statements composed by repositories repeat, their fingerprints are cached
+    private static final ConcurrentMap<String, String> sqlFingerprints = new ConcurrentHashMap<>();
+
+    private StatementFingerprints() {
+    }
+
+    /**
+     * Returns fingerprint of SQL statement.
+     * @param sql
+     * @return
+     */
+    public static String sql(String sql) {
+        if (sql == null) {
+            return null;
+        }
+        String fingerprint = sqlFingerprints.get(sql);
+        if (fingerprint == null) {
+            fingerprint = normalizeSql(sql);
+            if (sqlFingerprints.size() < MAX_CACHED_FINGERPRINTS) {
+                sqlFingerprints.put(sql, fingerprint);
+            }
+        }
+        return fingerprint;
+    }
+
+    private static String normalizeSql(String sql) {
+        String fingerprint = SQL_STRING_LITERAL.matcher(sql).replaceAll("?");
+        fingerprint = SQL_NUMBER_LITERAL.matcher(fingerprint).replaceAll("?");
+        fingerprint = PLACEHOLDER_LIST.matcher(fingerprint).replaceAll("?+");
+        fingerprint = PLACEHOLDER_ROW_LIST.matcher(fingerprint).replaceAll("(?+)+");
+        return WHITESPACE.matcher(fingerprint).replaceAll(" ").trim();
+    }
+
+    /**
+     * Returns fingerprint of JSON query (e.g. a Mongo filter).
+     * @param json
+     * @return
+     */
+    public static String json(String json) {
+        if (json == null) {
+            return null;
+        }
+        // Strings are matched one after another, so the end of one string is not taken as start of another
+        Matcher stringMatcher = JSON_STRING.matcher(json);
+        StringBuffer sb = new StringBuffer();
+        while (stringMatcher.find()) {
+            // Keys (followed by colon) are preserved, string values are replaced
+            stringMatcher.appendReplacement(sb, stringMatcher.group(1) != null ? Matcher.quoteReplacement(stringMatcher.group()) : "?");
+        }
+        stringMatcher.appendTail(sb);
+        String fingerprint = sb.toString();
+        fingerprint = JSON_NUMBER_VALUE.matcher(fingerprint).replaceAll("?");
+        fingerprint = JSON_PLACEHOLDER_ARRAY.matcher(fingerprint).replaceAll("[?+]");
+        return WHITESPACE.matcher(fingerprint).replaceAll(" ").trim();
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.sql.advisor;
+
+import org.xbery.overview.sql.mapper.MySqlSchemaBuilder;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Aggregates shapes of executed queries and suggests indexes for the attribute combinations that are used by them.
+ * Thread-safe.
+ * @author Radek Beran
+ */
+public class IndexAdvisor {
+
+    private final MySqlSchemaBuilder schemaBuilder;
+    private final ConcurrentMap<IndexKey, Usage> usages = new ConcurrentHashMap<>();
+
+    public IndexAdvisor(MySqlSchemaBuilder schemaBuilder) {
+        this.schemaBuilder = schemaBuilder;
+    }
+
+    public IndexAdvisor() {
+        this(new MySqlSchemaBuilder());
+    }
+
+    /**
+     * Records executed query.
+     * @param shape shape of query
+     * @param durationNanos duration of query
+     * @param primaryAttributeNames primary key of the table, queries served by the primary key need no other index
+     */
+    public void record(QueryShape shape, long durationNanos, List<String> primaryAttributeNames) {
+        List<String> candidate = shape.getIndexCandidate();
+        if (candidate.isEmpty() || isServedByPrimaryKey(candidate, primaryAttributeNames)) {
+            return;
+        }
+        Usage usage = usages.computeIfAbsent(new IndexKey(shape.getTableName(), candidate), k -> new Usage());
+        usage.occurrences.increment();
+        usage.totalNanos.add(durationNanos);
+    }
+
+    /**
+     * Returns suggested indexes used by at least given count of queries, the most time consuming first.
+     * Index that is a prefix of another suggested index of the same table is not suggested, the longer index serves its queries.
+     * @param minOccurrences
+     * @return
+     */
+    public List<IndexSuggestion> getSuggestions(int minOccurrences) {
+        Map<IndexKey, Usage> frequent = usages.entrySet().stream()
+            .filter(e -> e.getValue().occurrences.sum() >= minOccurrences)
+            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        Map<IndexKey, long[]> merged = new HashMap<>();
+        for (Map.Entry<IndexKey, Usage> entry : frequent.entrySet()) {
+            // Usage is accounted to the longest index that has this index as a prefix
+            IndexKey target = entry.getKey();
+            for (IndexKey other : frequent.keySet()) {
+                if (other.isLongerWithPrefix(entry.getKey()) && other.attributeNames.size() > target.attributeNames.size()) {
+                    target = other;
+                }
+            }
+            long[] totals = merged.computeIfAbsent(target, k -> new long[2]);
+            totals[0] += entry.getValue().occurrences.sum();
+            totals[1] += entry.getValue().totalNanos.sum();
+        }
+        return merged.entrySet().stream()
+            .map(e -> new IndexSuggestion(e.getKey().tableName, e.getKey().attributeNames, e.getValue()[0], e.getValue()[1],
+                schemaBuilder.composeCreateIndexSQL(e.getKey().tableName, composeIndexName(e.getKey()), e.getKey().attributeNames, false)))
+            .sorted(Comparator.comparingLong(IndexSuggestion::getTotalNanos).reversed())
+            .collect(Collectors.toList());
+    }
+
+    public void reset() {
+        usages.clear();
+    }
+
+    protected boolean isServedByPrimaryKey(List<String> candidate, List<String> primaryAttributeNames) {
+        if (primaryAttributeNames == null || primaryAttributeNames.isEmpty()) {
+            return false;
+        }
+        if (candidate.size() <= primaryAttributeNames.size()) {
+            // Candidate is a prefix of primary key
+            return candidate.equals(primaryAttributeNames.subList(0, candidate.size()));
+        }
+        // Primary key attributes compared for equality identify at most one record
+        return new HashSet<>(candidate.subList(0, primaryAttributeNames.size())).equals(new HashSet<>(primaryAttributeNames));
+    }
+
+    protected String composeIndexName(IndexKey key) {
+        return schemaBuilder.composeIndexName(key.tableName, key.attributeNames, false);
+    }
+
+    private static final class Usage {
+        private final LongAdder occurrences = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+    }
+
+    private static final class IndexKey {
+        private final String tableName;
+        private final List<String> attributeNames;
+
+        IndexKey(String tableName, List<String> attributeNames) {
+            this.tableName = tableName;
+            this.attributeNames = Collections.unmodifiableList(new ArrayList<>(attributeNames));
+        }
+
+        boolean isLongerWithPrefix(IndexKey prefix) {
+            return tableName.equals(prefix.tableName) && attributeNames.size() > prefix.attributeNames.size() &&
+                attributeNames.subList(0, prefix.attributeNames.size()).equals(prefix.attributeNames);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof IndexKey)) return false;
+            IndexKey other = (IndexKey)obj;
+            return tableName.equals(other.tableName) && attributeNames.equals(other.attributeNames);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(tableName, attributeNames);
+        }
+    }
+}
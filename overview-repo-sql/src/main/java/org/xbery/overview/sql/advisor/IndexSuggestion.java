@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.sql.advisor;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Index suggested by {@link IndexAdvisor}. Immutable class.
+ * @author Radek Beran
+ */
+public final class IndexSuggestion {
+    private final String tableName;
+    private final List<String> attributeNames;
+    private final long occurrences;
+    private final long totalNanos;
+    private final String createIndexSql;
+
+    public IndexSuggestion(String tableName, List<String> attributeNames, long occurrences, long totalNanos, String createIndexSql) {
+        this.tableName = tableName;
+        this.attributeNames = Collections.unmodifiableList(attributeNames);
+        this.occurrences = occurrences;
+        this.totalNanos = totalNanos;
+        this.createIndexSql = createIndexSql;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Attributes of the index in order of index columns.
+     */
+    public List<String> getAttributeNames() {
+        return attributeNames;
+    }
+
+    /**
+     * Count of recorded queries that would use the index.
+     */
+    public long getOccurrences() {
+        return occurrences;
+    }
+
+    /**
+     * Total duration of recorded queries that would use the index.
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * DDL statement creating the index.
+     */
+    public String getCreateIndexSql() {
+        return createIndexSql;
+    }
+
+    @Override
+    public String toString() {
+        return "IndexSuggestion [tableName=" + tableName + ", attributeNames=" + attributeNames + ", occurrences=" + occurrences +
+            ", totalNanos=" + totalNanos + "]";
+    }
+}
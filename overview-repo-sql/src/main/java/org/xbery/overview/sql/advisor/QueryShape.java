@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.sql.advisor;
+
+import org.xbery.overview.Group;
+import org.xbery.overview.Order;
+import org.xbery.overview.filter.*;
+
+import java.util.*;
+
+/**
+ * Attributes of one table used by a query: in equality conditions, range conditions, ordering and grouping.
+ * Values of conditions are not part of the shape. Immutable class.
+ * @author Radek Beran
+ */
+public final class QueryShape {
+    private final String tableName;
+    private final Set<String> equalityAttributes;
+    private final Set<String> rangeAttributes;
+    private final List<String> orderAttributes;
+    private final List<String> groupAttributes;
+
+    public QueryShape(String tableName, Set<String> equalityAttributes, Set<String> rangeAttributes, List<String> orderAttributes, List<String> groupAttributes) {
+        this.tableName = tableName;
+        this.equalityAttributes = Collections.unmodifiableSet(new TreeSet<>(equalityAttributes));
+        this.rangeAttributes = Collections.unmodifiableSet(new TreeSet<>(rangeAttributes));
+        this.orderAttributes = Collections.unmodifiableList(new ArrayList<>(orderAttributes));
+        this.groupAttributes = Collections.unmodifiableList(new ArrayList<>(groupAttributes));
+    }
+
+    /**
+     * Creates shape of query with given filter conditions, ordering and grouping. Attributes of conditions
+     * that cannot use an index (e.g. contains condition, comparison of two attributes) are ignored.
+     * @param tableName
+     * @param conditions
+     * @param ordering
+     * @param grouping
+     * @return
+     */
+    public static QueryShape of(String tableName, List<Condition> conditions, List<Order> ordering, List<Group> grouping) {
+        Set<String> equalityAttributes = new LinkedHashSet<>();
+        Set<String> rangeAttributes = new LinkedHashSet<>();
+        if (conditions != null) {
+            for (Condition condition : conditions) {
+                collectAttributes(condition, equalityAttributes, rangeAttributes);
+            }
+        }
+        rangeAttributes.removeAll(equalityAttributes);
+        List<String> orderAttributes = new ArrayList<>();
+        if (ordering != null) {
+            for (Order order : ordering) {
+                orderAttributes.add(withoutPrefix(order.getAttribute()));
+            }
+        }
+        List<String> groupAttributes = new ArrayList<>();
+        if (grouping != null) {
+            for (Group group : grouping) {
+                groupAttributes.add(withoutPrefix(group.getAttribute()));
+            }
+        }
+        return new QueryShape(tableName, equalityAttributes, rangeAttributes, orderAttributes, groupAttributes);
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Attributes compared for equality (including IN conditions), sorted by name.
+     */
+    public Set<String> getEqualityAttributes() {
+        return equalityAttributes;
+    }
+
+    /**
+     * Attributes compared by less than/greater than conditions, sorted by name.
+     */
+    public Set<String> getRangeAttributes() {
+        return rangeAttributes;
+    }
+
+    public List<String> getOrderAttributes() {
+        return orderAttributes;
+    }
+
+    public List<String> getGroupAttributes() {
+        return groupAttributes;
+    }
+
+    /**
+     * Returns attributes of an index that would serve the query best: attributes compared for equality first,
+     * then one attribute compared by range, or the ordering (grouping) attributes if there is no range condition.
+     * @return
+     */
+    public List<String> getIndexCandidate() {
+        List<String> attributes = new ArrayList<>(equalityAttributes);
+        if (!rangeAttributes.isEmpty()) {
+            attributes.add(rangeAttributes.iterator().next());
+        } else {
+            List<String> sortAttributes = !orderAttributes.isEmpty() ? orderAttributes : groupAttributes;
+            for (String attribute : sortAttributes) {
+                if (!attributes.contains(attribute)) {
+                    attributes.add(attribute);
+                }
+            }
+        }
+        return attributes;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryShape [tableName=" + tableName + ", equalityAttributes=" + equalityAttributes + ", rangeAttributes=" + rangeAttributes +
+            ", orderAttributes=" + orderAttributes + ", groupAttributes=" + groupAttributes + "]";
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(tableName, equalityAttributes, rangeAttributes, orderAttributes, groupAttributes);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null) return false;
+        if (getClass() != obj.getClass()) return false;
+        QueryShape other = (QueryShape)obj;
+        return Objects.equals(tableName, other.tableName) && equalityAttributes.equals(other.equalityAttributes) &&
+            rangeAttributes.equals(other.rangeAttributes) && orderAttributes.equals(other.orderAttributes) && groupAttributes.equals(other.groupAttributes);
+    }
+
+    private static void collectAttributes(Condition condition, Set<String> equalityAttributes, Set<String> rangeAttributes) {
+        if (condition instanceof EqCondition) {
+            equalityAttributes.add(((EqCondition<?, ?>)condition).getAttribute().getName());
+        } else if (condition instanceof InCondition) {
+            equalityAttributes.add(((InCondition<?, ?>)condition).getAttribute().getName());
+        } else if (condition instanceof LtCondition) {
+            rangeAttributes.add(((LtCondition<?, ?>)condition).getAttribute().getName());
+        } else if (condition instanceof LteCondition) {
+            rangeAttributes.add(((LteCondition<?, ?>)condition).getAttribute().getName());
+        } else if (condition instanceof GtCondition) {
+            rangeAttributes.add(((GtCondition<?, ?>)condition).getAttribute().getName());
+        } else if (condition instanceof GteCondition) {
+            rangeAttributes.add(((GteCondition<?, ?>)condition).getAttribute().getName());
+        } else if (condition instanceof AndCondition) {
+            collectAttributes(((AndCondition)condition).getFirstCondition(), equalityAttributes, rangeAttributes);
+            collectAttributes(((AndCondition)condition).getSecondCondition(), equalityAttributes, rangeAttributes);
+        }
+        // Disjunctions can use an index only if all their parts are indexed, they are not taken into account
+    }
+
+    private static String withoutPrefix(String attributeName) {
+        int dotIndex = attributeName.lastIndexOf('.');
+        return dotIndex >= 0 ? attributeName.substring(dotIndex + 1) : attributeName;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.sql.advisor;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Query that exceeded the latency threshold of {@link SlowQueryAnalyzer}, with its execution plan captured asynchronously.
+ * @author Radek Beran
+ */
+public final class SlowQuery {
+    private final String sql;
+    private final List<Object> parameters;
+    private final QueryShape shape;
+    private final long durationNanos;
+    private final Instant time;
+    private final CompletableFuture<String> explain;
+
+    public SlowQuery(String sql, List<Object> parameters, QueryShape shape, long durationNanos, Instant time, CompletableFuture<String> explain) {
+        this.sql = sql;
+        this.parameters = parameters != null ? Collections.unmodifiableList(parameters) : Collections.emptyList();
+        this.shape = shape;
+        this.durationNanos = durationNanos;
+        this.time = time;
+        this.explain = explain;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public List<Object> getParameters() {
+        return parameters;
+    }
+
+    public QueryShape getShape() {
+        return shape;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * Time when the query finished.
+     */
+    public Instant getTime() {
+        return time;
+    }
+
+    /**
+     * Output of EXPLAIN for the query, completed when the plan is loaded (completed exceptionally if it cannot be loaded).
+     */
+    public CompletableFuture<String> getExplain() {
+        return explain;
+    }
+
+    @Override
+    public String toString() {
+        return "SlowQuery [sql=" + sql + ", durationNanos=" + durationNanos + ", time=" + time + "]";
+    }
+}
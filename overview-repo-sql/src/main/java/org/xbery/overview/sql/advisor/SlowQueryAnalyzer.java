@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.sql.advisor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xbery.overview.repo.RepositoryException;
+import org.xbery.overview.sql.bind.ParameterBinders;
+import org.xbery.overview.sql.dialect.SqlDialect;
+import org.xbery.overview.sql.filter.SqlArrayParameter;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Analyzer of queries executed by a repository. Shapes of all queries are recorded to {@link IndexAdvisor},
+ * for queries slower than given threshold the execution plan (EXPLAIN output) is loaded asynchronously
+ * using a separate connection. Thread-safe.
+ * @author Radek Beran
+ */
+public class SlowQueryAnalyzer {
+
+    private static final Logger log = LoggerFactory.getLogger(SlowQueryAnalyzer.class);
+
+    private final long thresholdNanos;
+    private final IndexAdvisor indexAdvisor;
+    private final Executor executor;
+    private final int maxSlowQueries;
+    private final Consumer<SlowQuery> slowQueryListener;
+    private final Deque<SlowQuery> slowQueries = new ConcurrentLinkedDeque<>();
+
+    /**
+     * @param threshold queries with this or longer duration are considered slow
+     * @param indexAdvisor advisor aggregating shapes of queries
+     * @param executor executor loading execution plans
+     * @param maxSlowQueries count of the most recent slow queries that are kept
+     * @param slowQueryListener listener notified about slow queries, can be null
+     */
+    public SlowQueryAnalyzer(Duration threshold, IndexAdvisor indexAdvisor, Executor executor, int maxSlowQueries, Consumer<SlowQuery> slowQueryListener) {
+        this.thresholdNanos = threshold.toNanos();
+        this.indexAdvisor = indexAdvisor;
+        this.executor = executor;
+        this.maxSlowQueries = maxSlowQueries;
+        this.slowQueryListener = slowQueryListener;
+    }
+
+    public SlowQueryAnalyzer(Duration threshold) {
+        this(threshold, new IndexAdvisor(), Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "slow-query-analyzer");
+            thread.setDaemon(true);
+            return thread;
+        }), 100, null);
+    }
+
+    /**
+     * Analyzes executed query.
+     * @param dataSource data source used to load execution plan of slow query
+     * @param dialect dialect used to compose EXPLAIN statement
+     * @param parameterBinders binders of parameters of the EXPLAIN statement, the same as binders of the query
+     * @param sql executed query
+     * @param parameters parameters of the query
+     * @param shape shape of the query
+     * @param durationNanos duration of the query
+     * @param primaryAttributeNames primary key of queried table
+     * @return slow query if the query exceeded the threshold, otherwise null
+     */
+    public SlowQuery analyze(DataSource dataSource, SqlDialect dialect, ParameterBinders parameterBinders, String sql, List<Object> parameters, QueryShape shape, long durationNanos, List<String> primaryAttributeNames) {
+        indexAdvisor.record(shape, durationNanos, primaryAttributeNames);
+        if (durationNanos < thresholdNanos) {
+            return null;
+        }
+        List<Object> parametersCopy = parameters != null ? new ArrayList<>(parameters) : new ArrayList<>();
+        CompletableFuture<String> explain = CompletableFuture.supplyAsync(() -> explain(dataSource, dialect, parameterBinders, sql, parametersCopy), executor);
+        SlowQuery slowQuery = new SlowQuery(sql, parametersCopy, shape, durationNanos, Instant.now(), explain);
+        slowQueries.addFirst(slowQuery);
+        while (slowQueries.size() > maxSlowQueries) {
+            slowQueries.pollLast();
+        }
+        log.warn("Slow query ({} ms): {}", TimeUnit.NANOSECONDS.toMillis(durationNanos), sql);
+        if (slowQueryListener != null) {
+            slowQueryListener.accept(slowQuery);
+        }
+        return slowQuery;
+    }
+
+    /**
+     * Returns the most recent slow queries, the newest first.
+     */
+    public List<SlowQuery> getSlowQueries() {
+        return new ArrayList<>(slowQueries);
+    }
+
+    public IndexAdvisor getIndexAdvisor() {
+        return indexAdvisor;
+    }
+
+    public Duration getThreshold() {
+        return Duration.ofNanos(thresholdNanos);
+    }
+
+    protected String explain(DataSource dataSource, SqlDialect dialect, ParameterBinders parameterBinders, String sql, List<Object> parameters) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement statement = conn.prepareStatement(dialect.composeExplain(sql))) {
+            for (int i = 0; i < parameters.size(); i++) {
+                Object value = parameters.get(i);
+                if (value instanceof SqlArrayParameter) {
+                    statement.setArray(i + 1, dialect.createArrayParameter(conn, ((SqlArrayParameter)value).getValues()));
+                } else {
+                    parameterBinders.getBinderForValue(value).bind(statement, i + 1, value);
+                }
+            }
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet rs = statement.executeQuery()) {
+                ResultSetMetaData metaData = rs.getMetaData();
+                while (rs.next()) {
+                    if (plan.length() > 0) {
+                        plan.append(System.lineSeparator());
+                    }
+                    for (int c = 1; c <= metaData.getColumnCount(); c++) {
+                        if (c > 1) {
+                            plan.append('\t');
+                        }
+                        plan.append(rs.getString(c));
+                    }
+                }
+            }
+            return plan.toString();
+        } catch (Exception ex) {
+            log.debug("Execution plan of slow query cannot be loaded: {}", ex.getMessage());
+            throw new RepositoryException(ex.getMessage(), ex);
+        }
+    }
+}
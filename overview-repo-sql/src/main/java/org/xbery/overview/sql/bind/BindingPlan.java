@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.sql.bind;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Binders of parameters of one statement template selected in advance according to classes of attributes
+ * the parameters are bound to. Parameters beyond the planned ones (e.g. values of filter conditions) and values
+ * of unexpected class are bound by binder selected according to class of the value. Immutable, thread-safe.
+ * @author Radek Beran
+ */
+public final class BindingPlan {
+    private final Class<?>[] parameterClasses;
+    private final ParameterBinder[] binders;
+    private final ParameterBinders registry;
+
+    BindingPlan(Class<?>[] parameterClasses, ParameterBinder[] binders, ParameterBinders registry) {
+        this.parameterClasses = parameterClasses;
+        this.binders = binders;
+        this.registry = registry;
+    }
+
+    /**
+     * Binds given values to parameters of the statement, starting with the first parameter.
+     * @param statement
+     * @param values values of parameters, not converted to DB supported values
+     * @throws SQLException
+     */
+    public void bind(PreparedStatement statement, List<?> values) throws SQLException {
+        for (int i = 0; i < values.size(); i++) {
+            Object value = values.get(i);
+            getBinder(i, value).bind(statement, i + 1, value);
+        }
+    }
+
+    /**
+     * Returns binder of given value of parameter at given position.
+     * @param position zero-based position of the parameter
+     * @param value value of the parameter
+     * @return planned binder or binder selected according to class of the value if the value is not of the planned class
+     */
+    public ParameterBinder getBinder(int position, Object value) {
+        if (position < binders.length && (value == null || parameterClasses[position].isInstance(value))) {
+            return binders[position];
+        }
+        return registry.getBinderForValue(value);
+    }
+
+    /**
+     * Count of planned parameters.
+     */
+    public int size() {
+        return binders.length;
+    }
+}
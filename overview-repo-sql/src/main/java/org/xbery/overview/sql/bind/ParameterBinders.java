@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.sql.bind;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.*;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of {@link ParameterBinder}s by class of bound values. Binders use typed setters of {@link PreparedStatement}
+ * and convert java.time types and enums to types supported by JDBC, null values are bound with SQL type of the class.
+ * Binder is looked up also by superclasses and interfaces of the class (so one binder is used for all enums)
+ * and the result is cached; values of classes without binder are bound using {@link PreparedStatement#setObject}.
+ * Custom binders can be registered. Thread-safe.
+ * @author Radek Beran
+ */
+public class ParameterBinders {
+
+    /**
+     * Binds values using {@link PreparedStatement#setObject}, leaves conversion of value on the JDBC driver.
+     */
+    public static final ParameterBinder OBJECT_BINDER = (statement, index, value) -> statement.setObject(index, value);
+
+    private final ConcurrentMap<Class<?>, ParameterBinder> binders = new ConcurrentHashMap<>();
+    /** Classes with explicitly registered binders, other classes in the binders are cached inherited lookups. */
+    private final Set<Class<?>> registeredClasses = ConcurrentHashMap.newKeySet();
+
+    public ParameterBinders() {
+        register(String.class, Types.VARCHAR, (s, i, v) -> s.setString(i, v));
+        register(Integer.class, Types.INTEGER, (s, i, v) -> s.setInt(i, v));
+        register(Long.class, Types.BIGINT, (s, i, v) -> s.setLong(i, v));
+        register(Short.class, Types.SMALLINT, (s, i, v) -> s.setShort(i, v));
+        register(Byte.class, Types.TINYINT, (s, i, v) -> s.setByte(i, v));
+        register(Boolean.class, Types.BOOLEAN, (s, i, v) -> s.setBoolean(i, v));
+        register(Double.class, Types.DOUBLE, (s, i, v) -> s.setDouble(i, v));
+        register(Float.class, Types.REAL, (s, i, v) -> s.setFloat(i, v));
+        register(BigDecimal.class, Types.NUMERIC, (s, i, v) -> s.setBigDecimal(i, v));
+        register(byte[].class, Types.VARBINARY, (s, i, v) -> s.setBytes(i, v));
+        register(Timestamp.class, Types.TIMESTAMP, (s, i, v) -> s.setTimestamp(i, v));
+        register(Date.class, Types.DATE, (s, i, v) -> s.setDate(i, v));
+        register(Time.class, Types.TIME, (s, i, v) -> s.setTime(i, v));
+        register(java.util.Date.class, Types.TIMESTAMP, (s, i, v) -> s.setTimestamp(i, new Timestamp(v.getTime())));
+        // The same precision as in DbTypeConvertor
+        register(Instant.class, Types.TIMESTAMP, (s, i, v) -> s.setTimestamp(i, new Timestamp(v.toEpochMilli())));
+        register(LocalDateTime.class, Types.TIMESTAMP, (s, i, v) -> s.setTimestamp(i, Timestamp.valueOf(v)));
+        register(OffsetDateTime.class, Types.TIMESTAMP, (s, i, v) -> s.setTimestamp(i, Timestamp.from(v.toInstant())));
+        register(ZonedDateTime.class, Types.TIMESTAMP, (s, i, v) -> s.setTimestamp(i, Timestamp.from(v.toInstant())));
+        register(LocalDate.class, Types.DATE, (s, i, v) -> s.setDate(i, Date.valueOf(v)));
+        register(LocalTime.class, Types.TIME, (s, i, v) -> s.setTime(i, Time.valueOf(v)));
+        register(UUID.class, Types.OTHER, (s, i, v) -> s.setObject(i, v));
+        register(Enum.class, Types.VARCHAR, (s, i, v) -> s.setString(i, v.name()));
+    }
+
+    /**
+     * Registers binder of values of given class (and its subclasses without own registered binder), replaces the binder registered so far.
+     * @param valueClass
+     * @param binder binder that must handle also null value
+     * @return
+     */
+    public ParameterBinders register(Class<?> valueClass, ParameterBinder binder) {
+        registeredClasses.add(valueClass);
+        binders.put(valueClass, binder);
+        // Cached inherited binders of subclasses could be replaced by this one, registered binders are kept
+        binders.keySet().removeIf(cls -> !registeredClasses.contains(cls) && valueClass.isAssignableFrom(cls));
+        return this;
+    }
+
+    /**
+     * Registers binder of non-null values of given class, null values are bound using {@link PreparedStatement#setNull} with given SQL type.
+     * @param valueClass
+     * @param sqlType SQL type from {@link Types}
+     * @param setter setter of non-null value
+     * @param <A>
+     * @return
+     */
+    public <A> ParameterBinders register(Class<A> valueClass, int sqlType, TypedSetter<A> setter) {
+        return register(valueClass, (statement, index, value) -> {
+            if (value == null) {
+                statement.setNull(index, sqlType);
+            } else {
+                setter.set(statement, index, valueClass.cast(value));
+            }
+        });
+    }
+
+    /**
+     * Returns binder of values of given class.
+     * @param valueClass
+     * @return
+     */
+    public ParameterBinder getBinder(Class<?> valueClass) {
+        ParameterBinder binder = binders.get(valueClass);
+        if (binder == null) {
+            binder = findInheritedBinder(valueClass);
+            binders.putIfAbsent(valueClass, binder);
+        }
+        return binder;
+    }
+
+    /**
+     * Returns binder for given value of a statement parameter, according to its class.
+     * @param value
+     * @return
+     */
+    public ParameterBinder getBinderForValue(Object value) {
+        return value != null ? getBinder(value.getClass()) : OBJECT_BINDER;
+    }
+
+    /**
+     * Creates plan of binding of parameters with values of given classes.
+     * @param parameterClasses classes of values of parameters in order of the placeholders
+     * @return
+     */
+    public BindingPlan createPlan(List<Class<?>> parameterClasses) {
+        Class<?>[] classes = new Class<?>[parameterClasses.size()];
+        ParameterBinder[] planned = new ParameterBinder[classes.length];
+        for (int i = 0; i < classes.length; i++) {
+            classes[i] = parameterClasses.get(i) != null ? parameterClasses.get(i) : Object.class;
+            planned[i] = getBinder(classes[i]);
+        }
+        return new BindingPlan(classes, planned, this);
+    }
+
+    private ParameterBinder findInheritedBinder(Class<?> valueClass) {
+        for (Class<?> cls = valueClass; cls != null; cls = cls.getSuperclass()) {
+            ParameterBinder binder = binders.get(cls);
+            if (binder != null) {
+                return binder;
+            }
+            for (Class<?> iface : cls.getInterfaces()) {
+                binder = binders.get(iface);
+                if (binder != null) {
+                    return binder;
+                }
+            }
+        }
+        return OBJECT_BINDER;
+    }
+
+    /**
+     * Setter of non-null value of a statement parameter.
+     * @param <A>
+     */
+    @FunctionalInterface
+    public interface TypedSetter<A> {
+        void set(PreparedStatement statement, int index, A value) throws SQLException;
+    }
+}
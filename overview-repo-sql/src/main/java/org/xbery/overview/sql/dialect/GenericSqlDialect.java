@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.sql.dialect;
+
+import org.xbery.overview.Pagination;
+
+import java.util.List;
+
+/**
+ * Conservative dialect for databases that are not recognized: LIMIT/OFFSET pagination, total count computed
+ * by a separate query and upsert emulated by update or insert of each entity.
+ * @author Radek Beran
+ */
+public class GenericSqlDialect extends StandardSqlDialect {
+
+    public GenericSqlDialect() {
+        super(false);
+    }
+
+    @Override
+    public String getName() {
+        return "Generic SQL";
+    }
+
+    @Override
+    public void appendPagination(StringBuilder sqlBuilder, Pagination pagination) {
+        if (pagination != null) {
+            sqlBuilder.append(" LIMIT ").append(pagination.getLimit()).append(" OFFSET ").append(pagination.getOffset());
+        }
+    }
+
+    @Override
+    public boolean supportsUpsert() {
+        return false;
+    }
+
+    @Override
+    public String composeUpsertSql(String tableName, List<String> attributeNames, List<String> primaryAttributeNames) {
+        throw new UnsupportedOperationException("Upsert statement is not supported by " + getName() + " dialect");
+    }
+}
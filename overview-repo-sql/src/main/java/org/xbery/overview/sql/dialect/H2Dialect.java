@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.sql.dialect;
+
+import org.xbery.overview.common.funs.CollectionFuns;
+import org.xbery.overview.transfer.DataFormat;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Dialect of H2 database: MERGE ... KEY upsert, inserted records returned using FINAL TABLE data change delta table
+ * array parameters, local temporary tables and bulk load of CSV files using CSVREAD.
+ * @author Radek Beran
+ */
+public class H2Dialect extends StandardSqlDialect {
+
+    private final boolean deltaTablesSupported;
+
+    /**
+     * @param modernFeaturesSupported true for H2 1.4.198 or newer that supports window functions and data change delta tables
+     */
+    public H2Dialect(boolean modernFeaturesSupported) {
+        super(modernFeaturesSupported);
+        this.deltaTablesSupported = modernFeaturesSupported;
+    }
+
+    public H2Dialect() {
+        this(true);
+    }
+
+    @Override
+    public String getName() {
+        return "H2";
+    }
+
+    @Override
+    public String composeUpsertSql(String tableName, List<String> attributeNames, List<String> primaryAttributeNames) {
+        getUpdatedAttributeNames(attributeNames, primaryAttributeNames);
+        return "MERGE INTO " + tableName + " (" + CollectionFuns.join(attributeNames, ",") + ") KEY (" + CollectionFuns.join(primaryAttributeNames, ",") + ") VALUES (" + getPlaceholders(attributeNames.size()) + ")";
+    }
+
+    @Override
+    public boolean supportsInsertReturning() {
+        return deltaTablesSupported;
+    }
+
+    @Override
+    public String composeInsertReturning(String insertSql, List<String> returnedAttributeNames) {
+        return "SELECT " + CollectionFuns.join(returnedAttributeNames, ", ") + " FROM FINAL TABLE (" + insertSql + ")";
+    }
+
+    @Override
+    public boolean supportsBulkLoad(DataFormat format) {
+        return format == DataFormat.CSV;
+    }
+
+    @Override
+    public boolean supportsBulkLoadOf(Class<?> valueClass) {
+        // CSVREAD values are converted by H2 that accepts ISO-8601 temporals and true/false booleans
+        return true;
+    }
+
+    @Override
+    public String composeBulkLoad(String tableName, List<String> attributeNames, String fileName, DataFormat format, String lineSeparator) {
+        // Columns of CSVREAD are named by the header, empty values are read as NULL, both CRLF and LF line ends are accepted
+        String attributes = CollectionFuns.join(attributeNames, ",");
+        return "INSERT INTO " + tableName + " (" + attributes + ") SELECT " + attributes + " FROM CSVREAD('" + fileName.replace("'", "''") + "', NULL, 'charset=UTF-8')";
+    }
+
+    @Override
+    public int getMaxParameterCount() {
+        return 65535;
+    }
+
+    @Override
+    public boolean supportsArrayParameters() {
+        return true;
+    }
+
+    @Override
+    public Array createArrayParameter(Connection connection, Object[] values) throws SQLException {
+        // H2 does not use the element type name
+        return connection.createArrayOf("VARCHAR", values);
+    }
+
+    @Override
+    public boolean supportsTempTables() {
+        return true;
+    }
+}
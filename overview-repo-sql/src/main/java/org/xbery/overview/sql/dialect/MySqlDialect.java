@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.sql.dialect;
+
+import org.xbery.overview.Pagination;
+import org.xbery.overview.common.funs.CollectionFuns;
+import org.xbery.overview.transfer.DataFormat;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Dialect of MySQL and MariaDB databases: LIMIT/OFFSET pagination, INSERT ... ON DUPLICATE KEY UPDATE upsert
+ * temporary tables and bulk load of CSV files using LOAD DATA LOCAL INFILE.
+ * @author Radek Beran
+ */
+public class MySqlDialect extends StandardSqlDialect {
+
+    /**
+     * @param windowCountSupported true for MySQL 8 / MariaDB 10.2 or newer that support window functions
+     */
+    public MySqlDialect(boolean windowCountSupported) {
+        super(windowCountSupported);
+    }
+
+    public MySqlDialect() {
+        this(true);
+    }
+
+    @Override
+    public String getName() {
+        return "MySQL";
+    }
+
+    @Override
+    public void appendPagination(StringBuilder sqlBuilder, Pagination pagination) {
+        if (pagination != null) {
+            sqlBuilder.append(" LIMIT ").append(pagination.getLimit()).append(" OFFSET ").append(pagination.getOffset());
+        }
+    }
+
+    @Override
+    public String composeUpsertSql(String tableName, List<String> attributeNames, List<String> primaryAttributeNames) {
+        List<String> updatedNames = getUpdatedAttributeNames(attributeNames, primaryAttributeNames);
+        // Updating primary key to itself makes the statement valid also for entities with primary attributes only
+        List<String> assignments = updatedNames.isEmpty() ?
+            Collections.singletonList(primaryAttributeNames.get(0) + "=" + primaryAttributeNames.get(0)) :
+            updatedNames.stream().map(n -> n + "=VALUES(" + n + ")").collect(Collectors.toList());
+        return "INSERT INTO " + tableName + " (" + CollectionFuns.join(attributeNames, ",") + ") VALUES (" + getPlaceholders(attributeNames.size()) + ") ON DUPLICATE KEY UPDATE " + CollectionFuns.join(assignments, ",");
+    }
+
+    @Override
+    public int getMaxParameterCount() {
+        return 65535;
+    }
+
+    @Override
+    public Comparator<String> getStringComparator() {
+        // Default collations of MySQL and MariaDB are case-insensitive
+        return String.CASE_INSENSITIVE_ORDER;
+    }
+
+    @Override
+    public int getStreamingFetchSize() {
+        // MySQL Connector/J streams rows one by one only with this fetch size
+        return Integer.MIN_VALUE;
+    }
+
+    @Override
+    public boolean supportsBulkLoad(DataFormat format) {
+        return format == DataFormat.CSV;
+    }
+
+    /**
+     * Composes LOAD DATA LOCAL INFILE statement, loading of local files must be allowed
+     * (allowLoadLocalInfile property of the connection and local_infile variable of the server).
+     */
+    @Override
+    public String composeBulkLoad(String tableName, List<String> attributeNames, String fileName, DataFormat format, String lineSeparator) {
+        // Values are loaded to user variables so the empty values can be converted to NULL
+        List<String> variables = attributeNames.stream().map(n -> "@" + n).collect(Collectors.toList());
+        List<String> assignments = attributeNames.stream().map(n -> n + "=NULLIF(@" + n + ",'')").collect(Collectors.toList());
+        return "LOAD DATA LOCAL INFILE '" + fileName.replace("\\", "\\\\").replace("'", "''") + "' INTO TABLE " + tableName +
+            " CHARACTER SET utf8mb4 FIELDS TERMINATED BY ',' OPTIONALLY ENCLOSED BY '\"' ESCAPED BY '' LINES TERMINATED BY '" + ("\r\n".equals(lineSeparator) ? "\\r\\n" : "\\n") + "' IGNORE 1 LINES (" +
+            CollectionFuns.join(variables, ",") + ") SET " + CollectionFuns.join(assignments, ",");
+    }
+
+    @Override
+    public boolean supportsTempTables() {
+        return true;
+    }
+
+    @Override
+    public String composeCreateTempTable(String tableName, String columnName, String columnType) {
+        return "CREATE TEMPORARY TABLE " + tableName + " (" + columnName + " " + columnType + ")";
+    }
+
+    @Override
+    public String composeDropTempTable(String tableName) {
+        return "DROP TEMPORARY TABLE " + tableName;
+    }
+}
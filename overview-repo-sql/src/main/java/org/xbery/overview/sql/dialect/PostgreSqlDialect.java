@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.sql.dialect;
+
+import org.xbery.overview.common.funs.CollectionFuns;
+
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Dialect of PostgreSQL database: INSERT ... ON CONFLICT upsert, INSERT ... RETURNING and array parameters.
+ * @author Radek Beran
+ */
+public class PostgreSqlDialect extends StandardSqlDialect {
+
+    @Override
+    public String getName() {
+        return "PostgreSQL";
+    }
+
+    @Override
+    public String composeUpsertSql(String tableName, List<String> attributeNames, List<String> primaryAttributeNames) {
+        List<String> updatedNames = getUpdatedAttributeNames(attributeNames, primaryAttributeNames);
+        String conflictAction = updatedNames.isEmpty() ?
+            "DO NOTHING" :
+            "DO UPDATE SET " + CollectionFuns.join(updatedNames.stream().map(n -> n + "=EXCLUDED." + n).collect(Collectors.toList()), ",");
+        return "INSERT INTO " + tableName + " (" + CollectionFuns.join(attributeNames, ",") + ") VALUES (" + getPlaceholders(attributeNames.size()) + ") ON CONFLICT (" + CollectionFuns.join(primaryAttributeNames, ",") + ") " + conflictAction;
+    }
+
+    @Override
+    public boolean sortsNullsFirst() {
+        // NULLS LAST is the default for ascending order
+        return false;
+    }
+
+    @Override
+    public boolean streamingRequiresTransaction() {
+        // Otherwise the driver loads all rows regardless of fetch size
+        return true;
+    }
+
+    @Override
+    public boolean supportsInsertReturning() {
+        return true;
+    }
+
+    @Override
+    public String composeInsertReturning(String insertSql, List<String> returnedAttributeNames) {
+        return insertSql + " RETURNING " + CollectionFuns.join(returnedAttributeNames, ", ");
+    }
+
+    @Override
+    public int getMaxParameterCount() {
+        return 32767;
+    }
+
+    @Override
+    public boolean supportsArrayParameters() {
+        return true;
+    }
+
+    @Override
+    public boolean supportsTempTables() {
+        return true;
+    }
+
+    @Override
+    public String composeCreateTempTable(String tableName, String columnName, String columnType) {
+        return "CREATE TEMPORARY TABLE " + tableName + " (" + columnName + " " + columnType + ")";
+    }
+
+    @Override
+    public Array createArrayParameter(Connection connection, Object[] values) throws SQLException {
+        return connection.createArrayOf(getArrayElementType(values), values);
+    }
+
+    protected String getArrayElementType(Object[] values) {
+        Object value = values.length > 0 ? values[0] : null;
+        String type;
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            type = "integer";
+        } else if (value instanceof Long) {
+            type = "bigint";
+        } else if (value instanceof BigDecimal) {
+            type = "numeric";
+        } else if (value instanceof Double || value instanceof Float) {
+            type = "float8";
+        } else if (value instanceof Boolean) {
+            type = "boolean";
+        } else if (value instanceof Timestamp) {
+            type = "timestamp";
+        } else if (value instanceof UUID) {
+            type = "uuid";
+        } else {
+            type = "varchar";
+        }
+        return type;
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.sql.dialect;
+
+import org.xbery.overview.Pagination;
+import org.xbery.overview.transfer.DataFormat;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * SQL syntax and capabilities specific for a database engine. Repository uses the dialect
+ * to generate the most effective statements supported by the database.
+ * @author Radek Beran
+ */
+public interface SqlDialect {
+
+    /**
+     * Name of dialect.
+     */
+    String getName();
+
+    /**
+     * Appends clause restricting returned rows according to given pagination.
+     * @param sqlBuilder
+     * @param pagination pagination, can be null
+     */
+    void appendPagination(StringBuilder sqlBuilder, Pagination pagination);
+
+    /**
+     * Composes statement that inserts a record with given attributes, or updates the existing record with the same primary key.
+     * @param tableName
+     * @param attributeNames names of all inserted attributes
+     * @param primaryAttributeNames names of primary key attributes
+     * @return statement with one placeholder for each attribute name
+     */
+    String composeUpsertSql(String tableName, List<String> attributeNames, List<String> primaryAttributeNames);
+
+    /**
+     * True if {@link #composeUpsertSql(String, List, List)} is supported, otherwise entities are updated or inserted one by one.
+     */
+    default boolean supportsUpsert() {
+        return true;
+    }
+
+    /**
+     * True if inserted records can be returned directly by the insert statement.
+     */
+    default boolean supportsInsertReturning() {
+        return false;
+    }
+
+    /**
+     * Composes query that executes given insert statement and returns given attributes of inserted records.
+     * @param insertSql INSERT statement
+     * @param returnedAttributeNames
+     * @return
+     */
+    default String composeInsertReturning(String insertSql, List<String> returnedAttributeNames) {
+        throw new UnsupportedOperationException("Returning of inserted records is not supported by " + getName() + " dialect");
+    }
+
+    /**
+     * Maximum count of parameters bound to one statement. Limits number of rows inserted using one multi-row VALUES statement.
+     */
+    int getMaxParameterCount();
+
+    /**
+     * True if total count of records can be returned along with a page of records using COUNT(*) OVER() window function.
+     */
+    default boolean supportsWindowCount() {
+        return false;
+    }
+
+    /**
+     * True if list of values can be bound as one array parameter.
+     */
+    default boolean supportsArrayParameters() {
+        return false;
+    }
+
+    /**
+     * Composes condition that tests whether value of attribute is contained in array bound to one placeholder.
+     * @param attributeName
+     * @return
+     */
+    default String composeArrayInCondition(String attributeName) {
+        return attributeName + " = ANY(?)";
+    }
+
+    /**
+     * Creates array parameter for given values.
+     * @param connection
+     * @param values
+     * @return
+     * @throws SQLException
+     */
+    default Array createArrayParameter(Connection connection, Object[] values) throws SQLException {
+        throw new UnsupportedOperationException("Array parameters are not supported by " + getName() + " dialect");
+    }
+
+    /**
+     * True if values can be passed to a statement in a temporary table of the session,
+     * see {@link org.xbery.overview.sql.filter.InListStrategy#TEMP_TABLE}.
+     */
+    default boolean supportsTempTables() {
+        return false;
+    }
+
+    /**
+     * Composes statement creating temporary table with one column that is visible only to the current session (connection).
+     * @param tableName
+     * @param columnName
+     * @param columnType SQL type of the column
+     * @return
+     */
+    default String composeCreateTempTable(String tableName, String columnName, String columnType) {
+        return "CREATE LOCAL TEMPORARY TABLE " + tableName + " (" + columnName + " " + columnType + ")";
+    }
+
+    /**
+     * Composes statement dropping temporary table.
+     * @param tableName
+     * @return
+     */
+    default String composeDropTempTable(String tableName) {
+        return "DROP TABLE " + tableName;
+    }
+
+    /**
+     * Returns SQL type of temporary table column for values of given class, or null if such values are not passed in temporary tables.
+     * @param valueClass class of values
+     * @param maxLength maximum length of string values
+     * @return
+     */
+    default String getTempTableColumnType(Class<?> valueClass, int maxLength) {
+        String type;
+        if (Integer.class.equals(valueClass) || Short.class.equals(valueClass) || Byte.class.equals(valueClass)) {
+            type = "INT";
+        } else if (Long.class.equals(valueClass)) {
+            type = "BIGINT";
+        } else if (String.class.equals(valueClass)) {
+            type = "VARCHAR(" + Math.max(1, maxLength) + ")";
+        } else {
+            type = null;
+        }
+        return type;
+    }
+
+    /**
+     * Fetch size of statements whose results are streamed, so the driver does not load all rows to memory at once.
+     * @return
+     */
+    default int getStreamingFetchSize() {
+        return 1000;
+    }
+
+    /**
+     * Whether the driver fetches rows by {@link #getStreamingFetchSize() fetch size} only within a transaction
+     * (with auto-commit disabled).
+     * @return
+     */
+    default boolean streamingRequiresTransaction() {
+        return false;
+    }
+
+    /**
+     * True if NULL values are sorted before other values in ascending order (and after them in descending order).
+     */
+    default boolean sortsNullsFirst() {
+        return true;
+    }
+
+    /**
+     * Comparator of strings consistent with ordering of the database, used when sorted results of more queries
+     * are merged in memory.
+     * @return
+     */
+    default Comparator<String> getStringComparator() {
+        return Comparator.naturalOrder();
+    }
+
+    /**
+     * Whether the database can load files in given format natively, see {@link #composeBulkLoad}.
+     * @param format
+     * @return
+     */
+    default boolean supportsBulkLoad(DataFormat format) {
+        return false;
+    }
+
+    /**
+     * Whether values of given attribute class written as text by {@link org.xbery.overview.transfer.AbstractRecordWriter}
+     * are loaded by {@link #composeBulkLoad bulk load} as the same values. By default strings, numbers, dates, UUIDs
+     * and enums are supported.
+     * @param valueClass class of attribute
+     * @return
+     */
+    default boolean supportsBulkLoadOf(Class<?> valueClass) {
+        return String.class.equals(valueClass) || Number.class.isAssignableFrom(valueClass) || LocalDate.class.equals(valueClass) ||
+            UUID.class.equals(valueClass) || valueClass.isEnum();
+    }
+
+    /**
+     * Composes statement loading records from given file to the table natively by the database.
+     * @param tableName name of table
+     * @param attributeNames names of attributes in order of values in the file
+     * @param fileName path to the file
+     * @param format format of the file, it is supported by the dialect
+     * @param lineSeparator separator of lines in the file ("\r\n" or "\n")
+     * @return
+     */
+    default String composeBulkLoad(String tableName, List<String> attributeNames, String fileName, DataFormat format, String lineSeparator) {
+        throw new UnsupportedOperationException("Bulk load is not supported by " + getName() + " dialect");
+    }
+
+    /**
+     * Composes statement returning execution plan of given query.
+     * @param sql
+     * @return
+     */
+    default String composeExplain(String sql) {
+        return "EXPLAIN " + sql;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.sql.dialect;
+
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Detection of {@link SqlDialect} for a database.
+ * @author Radek Beran
+ */
+public final class SqlDialects {
+
+    private static final Pattern VERSION_PATTERN = Pattern.compile("(\\d+)\\.(\\d+)\\.(\\d+)");
+
+    private SqlDialects() {
+    }
+
+    /**
+     * Returns dialect for database described by given metadata, or conservative {@link GenericSqlDialect} for unknown databases.
+     * @param metaData
+     * @return
+     * @throws SQLException
+     */
+    public static SqlDialect fromMetaData(DatabaseMetaData metaData) throws SQLException {
+        String product = metaData.getDatabaseProductName() != null ? metaData.getDatabaseProductName().toLowerCase() : "";
+        String version = metaData.getDatabaseProductVersion();
+        SqlDialect dialect;
+        if (product.contains("h2")) {
+            dialect = new H2Dialect(isVersionAtLeast(version, 1, 4, 198));
+        } else if (product.contains("mariadb") || (version != null && version.toLowerCase().contains("mariadb"))) {
+            // MariaDB version can be reported with 5.5.5- prefix for compatibility
+            String mariaDbVersion = version != null && version.startsWith("5.5.5-") ? version.substring(6) : version;
+            dialect = new MySqlDialect(isVersionAtLeast(mariaDbVersion, 10, 2, 0));
+        } else if (product.contains("mysql")) {
+            dialect = new MySqlDialect(isVersionAtLeast(version, 8, 0, 0));
+        } else if (product.contains("postgresql")) {
+            dialect = new PostgreSqlDialect();
+        } else {
+            dialect = new GenericSqlDialect();
+        }
+        return dialect;
+    }
+
+    static boolean isVersionAtLeast(String version, int major, int minor, int patch) {
+        if (version == null) {
+            return false;
+        }
+        Matcher m = VERSION_PATTERN.matcher(version);
+        if (!m.find()) {
+            return false;
+        }
+        int[] actual = { Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)), Integer.parseInt(m.group(3)) };
+        int[] required = { major, minor, patch };
+        for (int i = 0; i < actual.length; i++) {
+            if (actual[i] != required[i]) {
+                return actual[i] > required[i];
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.sql.dialect;
+
+import org.xbery.overview.Pagination;
+import org.xbery.overview.common.funs.CollectionFuns;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Dialect using standard SQL syntax (SQL:2008 pagination, MERGE statement), base class for database-specific dialects.
+ * @author Radek Beran
+ */
+public class StandardSqlDialect implements SqlDialect {
+
+    private final boolean windowCountSupported;
+
+    public StandardSqlDialect(boolean windowCountSupported) {
+        this.windowCountSupported = windowCountSupported;
+    }
+
+    public StandardSqlDialect() {
+        this(true);
+    }
+
+    @Override
+    public String getName() {
+        return "Standard SQL";
+    }
+
+    @Override
+    public void appendPagination(StringBuilder sqlBuilder, Pagination pagination) {
+        if (pagination != null) {
+            sqlBuilder.append(" OFFSET ").append(pagination.getOffset()).append(" ROWS FETCH FIRST ").append(pagination.getLimit()).append(" ROWS ONLY");
+        }
+    }
+
+    @Override
+    public String composeUpsertSql(String tableName, List<String> attributeNames, List<String> primaryAttributeNames) {
+        List<String> updatedNames = getUpdatedAttributeNames(attributeNames, primaryAttributeNames);
+        String columns = CollectionFuns.join(attributeNames, ",");
+        String on = CollectionFuns.join(primaryAttributeNames.stream().map(n -> "t." + n + "=s." + n).collect(Collectors.toList()), " AND ");
+        String sourceColumns = CollectionFuns.join(attributeNames.stream().map(n -> "s." + n).collect(Collectors.toList()), ",");
+        return "MERGE INTO " + tableName + " t USING (VALUES (" + getPlaceholders(attributeNames.size()) + ")) s (" + columns + ") ON (" + on + ")" +
+            (updatedNames.isEmpty() ? "" : " WHEN MATCHED THEN UPDATE SET " + CollectionFuns.join(updatedNames.stream().map(n -> n + "=s." + n).collect(Collectors.toList()), ",")) +
+            " WHEN NOT MATCHED THEN INSERT (" + columns + ") VALUES (" + sourceColumns + ")";
+    }
+
+    @Override
+    public int getMaxParameterCount() {
+        // Conservative limit accepted by most of the databases and drivers
+        return 2000;
+    }
+
+    @Override
+    public boolean supportsWindowCount() {
+        return windowCountSupported;
+    }
+
+    @Override
+    public String toString() {
+        return getName() + " dialect";
+    }
+
+    /**
+     * Returns names of attributes that are not part of primary key.
+     */
+    protected List<String> getUpdatedAttributeNames(List<String> attributeNames, List<String> primaryAttributeNames) {
+        if (primaryAttributeNames.isEmpty()) {
+            throw new IllegalStateException("Primary attributes are required for upsert");
+        }
+        return attributeNames.stream().filter(n -> !primaryAttributeNames.contains(n)).collect(Collectors.toList());
+    }
+
+    protected String getPlaceholders(int count) {
+        return CollectionFuns.join(Collections.nCopies(count, "?"), ",");
+    }
+}
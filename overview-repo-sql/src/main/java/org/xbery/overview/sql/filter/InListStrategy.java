@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.sql.filter;
+
+/**
+ * Way of rendering IN condition with list of values, chosen by {@link SqlConditionRenderer} according to the count of values
+ * and capabilities of the dialect.
+ * @author Radek Beran
+ */
+public enum InListStrategy {
+    /**
+     * One placeholder for each value.
+     */
+    PLACEHOLDERS,
+
+    /**
+     * Count of placeholders is padded to the nearest power of two by repeating the last value, so lists of different sizes
+     * share a few statement shapes that can be cached by the database and by the driver.
+     */
+    PADDED_PLACEHOLDERS,
+
+    /**
+     * Values are bound as one array parameter, the statement is the same for all counts of values.
+     */
+    ARRAY_PARAMETER,
+
+    /**
+     * Values are inserted to a temporary table of the session (connection) that is used in a subquery
+     * and dropped after the statement is executed.
+     */
+    TEMP_TABLE
+}
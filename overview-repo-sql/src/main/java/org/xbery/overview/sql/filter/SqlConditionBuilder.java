@@ -16,85 +16,42 @@
  */
 package org.xbery.overview.sql.filter;
 
-import org.xbery.overview.common.funs.CollectionFuns;
-import org.xbery.overview.filter.*;
+import org.xbery.overview.filter.Condition;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.function.Function;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
- * Builds SQL conditions from various condition types.
+ * Builds SQL conditions from various condition types. Conditions are rendered by {@link SqlConditionRenderer},
+ * which can also render them directly to a statement without creating {@link SqlCondition}.
  * @author Radek Beran
  */
 public class SqlConditionBuilder {
 
     public static String LIKE_WITH_PLACEHOLDER = "LIKE CONCAT('%', ?, '%')";
 
+    private final SqlConditionRenderer renderer;
+
+    public SqlConditionBuilder(SqlConditionRenderer renderer) {
+        this.renderer = renderer;
+    }
+
+    public SqlConditionBuilder() {
+        this(new SqlConditionRenderer());
+    }
+
     public SqlCondition build(Condition condition, Function<Object, Object> valueToDbSupportedValue) {
-        SqlCondition sqlCondition = null;
         if (condition instanceof SqlCondition) {
-            sqlCondition = (SqlCondition)condition;
-        } else if (condition instanceof EqCondition) {
-            EqCondition c = (EqCondition)condition;
-            if (c.getValue() == null) {
-                sqlCondition = new SqlCondition(c.getAttribute().getNameFull() + " IS NULL", CollectionFuns.EMPTY_OBJECT_LIST);
-            } else {
-                sqlCondition = new SqlCondition(c.getAttribute().getNameFull() + " = ?", CollectionFuns.singleValueList(valueToDbSupportedValue.apply(c.getValue())));
-            }
-        } else if (condition instanceof LtCondition) {
-            LtCondition c = (LtCondition)condition;
-            sqlCondition = new SqlCondition(c.getAttribute().getNameFull() + " < ?", CollectionFuns.singleValueList(valueToDbSupportedValue.apply(c.getValue())));
-        } else if (condition instanceof LteCondition) {
-            LteCondition c = (LteCondition)condition;
-            sqlCondition = new SqlCondition(c.getAttribute().getNameFull() + " <= ?", CollectionFuns.singleValueList(valueToDbSupportedValue.apply(c.getValue())));
-        } else if (condition instanceof GtCondition) {
-            GtCondition c = (GtCondition)condition;
-            sqlCondition = new SqlCondition(c.getAttribute().getNameFull() + " > ?", CollectionFuns.singleValueList(valueToDbSupportedValue.apply(c.getValue())));
-        } else if (condition instanceof GteCondition) {
-            GteCondition c = (GteCondition)condition;
-            sqlCondition = new SqlCondition(c.getAttribute().getNameFull() + " >= ?", CollectionFuns.singleValueList(valueToDbSupportedValue.apply(c.getValue())));
-        } else if (condition instanceof EqAttributesCondition) {
-            EqAttributesCondition c = (EqAttributesCondition)condition;
-            sqlCondition = new SqlCondition(c.getFirstAttribute().getNameFull() + " = " + c.getSecondAttribute().getNameFull(), CollectionFuns.EMPTY_OBJECT_LIST);
-        } else if (condition instanceof ContainsCondition) {
-            ContainsCondition c = (ContainsCondition)condition;
-            List<Object> values = new ArrayList<>();
-            values.add(valueToDbSupportedValue.apply(c.getValue()));
-            sqlCondition = new SqlCondition(c.getAttribute().getNameFull() + " " + LIKE_WITH_PLACEHOLDER, values);
-        } else if (condition instanceof InCondition) {
-            InCondition c = (InCondition)condition;
-            if (c.getValues() != null && !c.getValues().isEmpty()) {
-                String[] placeholders = new String[c.getValues().size()];
-                Arrays.fill(placeholders, "?");
-                String commaSeparatedPlaceholders = CollectionFuns.join(Arrays.asList(placeholders), ", ");
-                Stream<Object> valuesStream = c.getValues().stream().map(v -> valueToDbSupportedValue.apply(v));
-                List<Object> valuesForPlaceholders = valuesStream.collect(Collectors.toList());
-                sqlCondition = new SqlCondition(c.getAttribute().getNameFull() + " IN (" + commaSeparatedPlaceholders + ")", valuesForPlaceholders);
-            } else {
-                // empty values for IN, value of attribute is certainly not among empty values
-                sqlCondition = new SqlCondition("1 = 0", CollectionFuns.EMPTY_OBJECT_LIST);
-            }
-
-        } else if (condition instanceof OrCondition) {
-            sqlCondition = createSqlCondition2((OrCondition)condition, "OR", valueToDbSupportedValue);
-        } else if (condition instanceof AndCondition) {
-            sqlCondition = createSqlCondition2((AndCondition)condition, "AND", valueToDbSupportedValue);
-        } else {
-            throw new IllegalStateException("Condition " + condition + " is not supported");
+            return (SqlCondition)condition;
         }
-        return sqlCondition;
+        StringBuilder sql = new StringBuilder();
+        List<Object> values = new ArrayList<>();
+        renderer.render(condition, new SqlRenderContext(renderer, sql, values, valueToDbSupportedValue));
+        return new SqlCondition(sql.toString(), values);
     }
 
-    private SqlCondition createSqlCondition2(Condition2 condition, String operator, Function<Object, Object> valueToDbSupportedValue) {
-        SqlCondition first = build(condition.getFirstCondition(), valueToDbSupportedValue);
-        SqlCondition second = build(condition.getSecondCondition(), valueToDbSupportedValue);
-        List<Object> values = new ArrayList<>();
-        values.addAll(first.getValues());
-        values.addAll(second.getValues());
-        return new SqlCondition("(" + first.getConditionWithPlaceholders() + " " + operator + " " + second.getConditionWithPlaceholders() + ")", values);
+    public SqlConditionRenderer getRenderer() {
+        return renderer;
     }
 }
@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.sql.filter;
+
+import org.xbery.overview.filter.*;
+import org.xbery.overview.mapper.Attribute;
+import org.xbery.overview.sql.dialect.SqlDialect;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Renders conditions to SQL in a single pass: SQL is appended directly to the target builder and values of placeholders
+ * to one list of parameters, without intermediate {@link SqlCondition} objects. Rendering is looked up by class
+ * of condition, so custom condition types can be supported by registering their {@link SqlConditionRendering}.
+ * IN conditions are rendered using {@link InListStrategy} selected according to the count of values and the dialect.
+ * Thread-safe.
+ * @author Radek Beran
+ */
+public class SqlConditionRenderer {
+
+    /**
+     * Default minimum count of values of IN condition that are bound as one array parameter.
+     */
+    public static final int DEFAULT_ARRAY_MIN_SIZE = 32;
+
+    /**
+     * Default minimum count of values of IN condition that are passed in temporary table (if array parameters are not supported).
+     */
+    public static final int DEFAULT_TEMP_TABLE_MIN_SIZE = 1000;
+
+    private final ConcurrentMap<Class<?>, SqlConditionRendering<?>> renderings = new ConcurrentHashMap<>();
+    private final int arrayMinSize;
+    private final int tempTableMinSize;
+
+    /**
+     * @param arrayMinSize minimum count of values of IN condition that are bound as one array parameter
+     * @param tempTableMinSize minimum count of values of IN condition that are passed in temporary table
+     */
+    public SqlConditionRenderer(int arrayMinSize, int tempTableMinSize) {
+        this.arrayMinSize = arrayMinSize;
+        this.tempTableMinSize = tempTableMinSize;
+        register(SqlCondition.class, (c, ctx) -> ctx.append(c.getConditionWithPlaceholders()).addRawParameters(c.getValues()));
+        register(EqCondition.class, (c, ctx) -> {
+            if (c.getValue() == null) {
+                ctx.appendAttribute(c.getAttribute()).append(" IS NULL");
+            } else {
+                renderComparison(c.getAttribute(), " = ?", c.getValue(), ctx);
+            }
+        });
+        register(LtCondition.class, (c, ctx) -> renderComparison(c.getAttribute(), " < ?", c.getValue(), ctx));
+        register(LteCondition.class, (c, ctx) -> renderComparison(c.getAttribute(), " <= ?", c.getValue(), ctx));
+        register(GtCondition.class, (c, ctx) -> renderComparison(c.getAttribute(), " > ?", c.getValue(), ctx));
+        register(GteCondition.class, (c, ctx) -> renderComparison(c.getAttribute(), " >= ?", c.getValue(), ctx));
+        register(EqAttributesCondition.class, (c, ctx) -> ctx.appendAttribute(c.getFirstAttribute()).append(" = ").appendAttribute(c.getSecondAttribute()));
+        register(ContainsCondition.class, (c, ctx) -> ctx.appendAttribute(c.getAttribute()).append(' ').append(SqlConditionBuilder.LIKE_WITH_PLACEHOLDER).addParameter(c.getValue()));
+        register(InCondition.class, this::renderIn);
+        register(OrCondition.class, (c, ctx) -> renderCondition2(c, " OR ", ctx));
+        register(AndCondition.class, (c, ctx) -> renderCondition2(c, " AND ", ctx));
+        register(FalseCondition.class, (c, ctx) -> ctx.append("1 = 0"));
+    }
+
+    public SqlConditionRenderer() {
+        this(DEFAULT_ARRAY_MIN_SIZE, DEFAULT_TEMP_TABLE_MIN_SIZE);
+    }
+
+    /**
+     * Registers rendering of given condition type (replaces the rendering registered so far).
+     * The rendering is used also for subclasses of condition type that have no own rendering.
+     */
+    public <C extends Condition> SqlConditionRenderer register(Class<C> conditionClass, SqlConditionRendering<? super C> rendering) {
+        renderings.put(conditionClass, rendering);
+        return this;
+    }
+
+    /**
+     * Renders given condition.
+     */
+    @SuppressWarnings("unchecked")
+    public void render(Condition condition, SqlRenderContext context) {
+        SqlConditionRendering<Condition> rendering = (SqlConditionRendering<Condition>)findRendering(condition.getClass());
+        if (rendering == null) {
+            throw new IllegalStateException("Condition " + condition + " is not supported");
+        }
+        rendering.render(condition, context);
+    }
+
+    /**
+     * Renders conjunction of given conditions (without parentheses around).
+     */
+    public void renderConjunction(List<Condition> conditions, SqlRenderContext context) {
+        for (int i = 0; i < conditions.size(); i++) {
+            if (i > 0) {
+                context.append(" AND ");
+            }
+            render(conditions.get(i), context);
+        }
+    }
+
+    protected SqlConditionRendering<?> findRendering(Class<?> conditionClass) {
+        SqlConditionRendering<?> rendering = renderings.get(conditionClass);
+        if (rendering == null) {
+            // Rendering registered for superclass or interface is cached for this class
+            rendering = findInheritedRendering(conditionClass);
+            if (rendering != null) {
+                renderings.putIfAbsent(conditionClass, rendering);
+            }
+        }
+        return rendering;
+    }
+
+    protected void renderComparison(Attribute<?, ?> attribute, String operatorWithPlaceholder, Object value, SqlRenderContext context) {
+        context.appendAttribute(attribute).append(operatorWithPlaceholder).addParameter(value);
+    }
+
+    protected void renderIn(InCondition<?, ?> condition, SqlRenderContext context) {
+        List<?> values = condition.getValues();
+        if (values == null || values.isEmpty()) {
+            // empty values for IN, value of attribute is certainly not among empty values
+            context.append("1 = 0");
+            return;
+        }
+        switch (selectInListStrategy(values, context)) {
+            case ARRAY_PARAMETER:
+                context.append(context.getDialect().composeArrayInCondition(condition.getAttribute().getNameFull())).addArrayParameter(values);
+                break;
+            case TEMP_TABLE:
+                String tableName = context.addTempTable(getTempTableColumnType(values, context.getDialect()), values);
+                context.appendAttribute(condition.getAttribute()).append(" IN (SELECT ").append(SqlTempTable.VALUE_COLUMN).append(" FROM ").append(tableName).append(')');
+                break;
+            case PADDED_PLACEHOLDERS:
+                renderInPlaceholders(condition.getAttribute(), values, paddedSize(values.size()), context);
+                break;
+            default:
+                renderInPlaceholders(condition.getAttribute(), values, values.size(), context);
+        }
+    }
+
+    /**
+     * Selects strategy of rendering of IN condition with given (non-empty) values: values are bound as one array parameter
+     * or passed in temporary table if there are many of them, otherwise count of placeholders is padded to a power of two
+     * unless the padded count would exceed maximum count of parameters.
+     */
+    protected InListStrategy selectInListStrategy(List<?> values, SqlRenderContext context) {
+        SqlDialect dialect = context.getDialect();
+        if (dialect == null) {
+            return InListStrategy.PLACEHOLDERS;
+        }
+        int size = values.size();
+        if (size >= arrayMinSize && dialect.supportsArrayParameters()) {
+            return InListStrategy.ARRAY_PARAMETER;
+        }
+        if (size >= tempTableMinSize && context.isTempTableAvailable() && getTempTableColumnType(values, dialect) != null) {
+            return InListStrategy.TEMP_TABLE;
+        }
+        if (context.getParameters().size() + paddedSize(size) <= dialect.getMaxParameterCount()) {
+            return InListStrategy.PADDED_PLACEHOLDERS;
+        }
+        return InListStrategy.PLACEHOLDERS;
+    }
+
+    /**
+     * Returns SQL type of temporary table column for given values, or null if they cannot be passed in temporary table.
+     */
+    protected String getTempTableColumnType(List<?> values, SqlDialect dialect) {
+        Class<?> valueClass = null;
+        int maxLength = 0;
+        for (Object value : values) {
+            if (value != null) {
+                if (valueClass == null) {
+                    valueClass = value.getClass();
+                } else if (!valueClass.equals(value.getClass())) {
+                    return null;
+                }
+                if (value instanceof String) {
+                    maxLength = Math.max(maxLength, ((String)value).length());
+                }
+            }
+        }
+        return valueClass != null ? dialect.getTempTableColumnType(valueClass, maxLength) : null;
+    }
+
+    protected void renderInPlaceholders(Attribute<?, ?> attribute, List<?> values, int placeholderCount, SqlRenderContext context) {
+        context.appendAttribute(attribute).append(" IN (");
+        for (int i = 0; i < placeholderCount; i++) {
+            if (i > 0) {
+                context.append(", ");
+            }
+            // Padding placeholders repeat the last value, that does not change the result
+            context.append('?').addParameter(values.get(Math.min(i, values.size() - 1)));
+        }
+        context.append(')');
+    }
+
+    protected void renderCondition2(Condition2 condition, String operator, SqlRenderContext context) {
+        context.append('(').render(condition.getFirstCondition()).append(operator).render(condition.getSecondCondition()).append(')');
+    }
+
+    private static int paddedSize(int size) {
+        int padded = Integer.highestOneBit(size);
+        return padded == size ? size : padded << 1;
+    }
+
+    private SqlConditionRendering<?> findInheritedRendering(Class<?> conditionClass) {
+        for (Class<?> cls = conditionClass; cls != null; cls = cls.getSuperclass()) {
+            SqlConditionRendering<?> rendering = renderings.get(cls);
+            if (rendering != null) {
+                return rendering;
+            }
+            for (Class<?> iface : cls.getInterfaces()) {
+                rendering = renderings.get(iface);
+                if (rendering != null) {
+                    return rendering;
+                }
+            }
+        }
+        return null;
+    }
+}
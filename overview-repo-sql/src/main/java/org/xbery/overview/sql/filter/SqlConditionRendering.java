@@ -0,0 +1,35 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.sql.filter;
+
+import org.xbery.overview.filter.Condition;
+
+/**
+ * Rendering of one type of condition to SQL, registered in {@link SqlConditionRenderer}.
+ * @param <C> type of condition
+ * @author Radek Beran
+ */
+@FunctionalInterface
+public interface SqlConditionRendering<C extends Condition> {
+
+    /**
+     * Appends SQL of given condition and values of its placeholders to the context.
+     * @param condition rendered condition
+     * @param context target of rendering, nested conditions can be rendered using {@link SqlRenderContext#render(Condition)}
+     */
+    void render(C condition, SqlRenderContext context);
+}
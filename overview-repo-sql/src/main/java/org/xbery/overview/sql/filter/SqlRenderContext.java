@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.sql.filter;
+
+import org.xbery.overview.filter.Condition;
+import org.xbery.overview.mapper.Attribute;
+import org.xbery.overview.sql.dialect.SqlDialect;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Target of rendering of conditions: SQL is appended to a string builder, values of placeholders to a list of parameters.
+ * @author Radek Beran
+ */
+public final class SqlRenderContext {
+    /**
+     * Prefix of names of temporary tables with values of IN conditions.
+     */
+    public static final String TEMP_TABLE_PREFIX = "overview_in_";
+
+    private final SqlConditionRenderer renderer;
+    private final StringBuilder sql;
+    private final List<Object> parameters;
+    private final Function<Object, Object> valueToDbSupportedValue;
+    private final SqlDialect dialect;
+    private final List<SqlTempTable> tempTables;
+
+    /**
+     * @param renderer
+     * @param sql
+     * @param parameters
+     * @param valueToDbSupportedValue
+     * @param dialect dialect of the database, or null if it is not known (lists of values are rendered as placeholders)
+     * @param tempTables target list of temporary tables that must be created before the statement is executed,
+     * or null if the statement cannot use temporary tables
+     */
+    public SqlRenderContext(SqlConditionRenderer renderer, StringBuilder sql, List<Object> parameters, Function<Object, Object> valueToDbSupportedValue,
+        SqlDialect dialect, List<SqlTempTable> tempTables) {
+        this.renderer = renderer;
+        this.sql = sql;
+        this.parameters = parameters;
+        this.valueToDbSupportedValue = valueToDbSupportedValue;
+        this.dialect = dialect;
+        this.tempTables = tempTables;
+    }
+
+    public SqlRenderContext(SqlConditionRenderer renderer, StringBuilder sql, List<Object> parameters, Function<Object, Object> valueToDbSupportedValue) {
+        this(renderer, sql, parameters, valueToDbSupportedValue, null, null);
+    }
+
+    public SqlRenderContext append(String sqlPart) {
+        sql.append(sqlPart);
+        return this;
+    }
+
+    public SqlRenderContext append(char c) {
+        sql.append(c);
+        return this;
+    }
+
+    /**
+     * Appends full name of attribute (including name prefix).
+     */
+    public SqlRenderContext appendAttribute(Attribute<?, ?> attribute) {
+        String prefix = attribute.getNamePrefix();
+        if (prefix != null) {
+            sql.append(prefix).append('.');
+        }
+        sql.append(attribute.getName());
+        return this;
+    }
+
+    /**
+     * Adds value of placeholder, converted to DB supported value.
+     */
+    public SqlRenderContext addParameter(Object value) {
+        parameters.add(valueToDbSupportedValue.apply(value));
+        return this;
+    }
+
+    /**
+     * Adds one array parameter with given values converted to DB supported values.
+     */
+    public SqlRenderContext addArrayParameter(List<?> values) {
+        Object[] dbValues = new Object[values.size()];
+        for (int i = 0; i < dbValues.length; i++) {
+            dbValues[i] = valueToDbSupportedValue.apply(values.get(i));
+        }
+        parameters.add(new SqlArrayParameter(dbValues));
+        return this;
+    }
+
+    /**
+     * Registers temporary table filled with given values, returns its name.
+     * @param columnType SQL type of the value column
+     * @param values
+     * @return
+     */
+    public String addTempTable(String columnType, List<?> values) {
+        if (!isTempTableAvailable()) {
+            throw new IllegalStateException("Temporary tables cannot be used in this statement");
+        }
+        String name = TEMP_TABLE_PREFIX + tempTables.size();
+        tempTables.add(new SqlTempTable(name, columnType, values));
+        return name;
+    }
+
+    /**
+     * True if values can be passed to the statement in temporary tables.
+     */
+    public boolean isTempTableAvailable() {
+        return tempTables != null && dialect != null && dialect.supportsTempTables();
+    }
+
+    /**
+     * Adds values of placeholders that are already DB supported.
+     */
+    public SqlRenderContext addRawParameters(List<Object> values) {
+        parameters.addAll(values);
+        return this;
+    }
+
+    /**
+     * Renders nested condition.
+     */
+    public SqlRenderContext render(Condition condition) {
+        renderer.render(condition, this);
+        return this;
+    }
+
+    public StringBuilder getSql() {
+        return sql;
+    }
+
+    public List<Object> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Dialect of the database, or null if it is not known.
+     */
+    public SqlDialect getDialect() {
+        return dialect;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.sql.filter;
+
+import java.util.List;
+
+/**
+ * Temporary table with one column of values that must be created and filled on the connection before the statement
+ * that refers to it is executed, see {@link InListStrategy#TEMP_TABLE}.
+ * @author Radek Beran
+ */
+public final class SqlTempTable {
+    /**
+     * Name of column with values.
+     */
+    public static final String VALUE_COLUMN = "v";
+
+    private final String name;
+    private final String columnType;
+    private final List<?> values;
+
+    public SqlTempTable(String name, String columnType, List<?> values) {
+        this.name = name;
+        this.columnType = columnType;
+        this.values = values;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * SQL type of the value column.
+     */
+    public String getColumnType() {
+        return columnType;
+    }
+
+    /**
+     * Values to insert (not converted to DB supported values yet).
+     */
+    public List<?> getValues() {
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return "SqlTempTable [name=" + name + ", columnType=" + columnType + ", values=" + values.size() + "]";
+    }
+}
@@ -23,6 +23,7 @@ import java.util.List;
 
 /**
  * Converts type of value to a type supported by database/JDBC driver.
+ * All parameters of statements (written values, filter values, array parameters) are converted by this convertor.
  * @author Radek Beran
  */
 public class DbTypeConvertor {
@@ -44,9 +45,26 @@ public class DbTypeConvertor {
             // Note that for e.g. PostgreSQL does not support java.util.Date directly,
             // we need to convert to SQL Timestamp
             valueForDb = new Timestamp(((Instant)v).toEpochMilli());
+        } else if (v instanceof Enum) {
+            valueForDb = ((Enum<?>)v).name();
         } else {
             valueForDb = v;
         }
         return valueForDb;
     }
+
+    /**
+     * Returns class of values converted by {@link #toDbValue(Object)} from values of given class.
+     * Subclasses overriding {@link #toDbValue(Object)} should override also this method.
+     * @param valueClass class of value
+     * @return class of converted value
+     */
+    public Class<?> toDbValueClass(Class<?> valueClass) {
+        if (valueClass != null && Instant.class.isAssignableFrom(valueClass)) {
+            return Timestamp.class;
+        } else if (valueClass != null && Enum.class.isAssignableFrom(valueClass)) {
+            return String.class;
+        }
+        return valueClass;
+    }
 }
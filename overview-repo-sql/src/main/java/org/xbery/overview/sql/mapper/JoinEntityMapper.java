@@ -23,8 +23,9 @@ import org.xbery.overview.common.funs.CollectionFuns;
 import org.xbery.overview.filter.Condition;
 import org.xbery.overview.filter.EqAttributesCondition;
 import org.xbery.overview.mapper.*;
-import org.xbery.overview.sql.filter.SqlCondition;
 import org.xbery.overview.sql.filter.SqlConditionBuilder;
+import org.xbery.overview.sql.filter.SqlConditionRenderer;
+import org.xbery.overview.sql.filter.SqlRenderContext;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -124,16 +125,16 @@ public class JoinEntityMapper<T, F, U, G, V, H, O> implements EntityMapper<V, H>
     @Override
     public String getTableName() {
         StringBuilder sqlBuilder = new StringBuilder(firstMapper.getTableNameWithDb() + " " + joinType.name() + " JOIN " + secondMapper.getTableName());
-        // TODO RBe: Do not duplicate this condition transformation logic with repository
         List<Condition> onConditions = getOnConditions();
         if (onConditions != null && !onConditions.isEmpty()) {
-            List<SqlCondition> sqlConditions = onConditions.stream().map(c -> getConditionBuilder().build(c, getDbTypeConvertor()::toDbValue)).collect(Collectors.toList());
-            List<String> onClause = sqlConditions.stream().map(c -> c.getConditionWithPlaceholders()).collect(Collectors.toList());
-            List<Object> parameters = sqlConditions.stream().flatMap(c -> c.getValues().stream()).collect(Collectors.toList());
-            if (parameters != null && !parameters.isEmpty()) {
+            List<Object> parameters = new ArrayList<>();
+            SqlConditionRenderer renderer = getConditionBuilder().getRenderer();
+            sqlBuilder.append(" ON (");
+            renderer.renderConjunction(onConditions, new SqlRenderContext(renderer, sqlBuilder, parameters, getDbTypeConvertor()::toDbValue));
+            if (!parameters.isEmpty()) {
                 throw new IllegalArgumentException("Placeholders in JOIN ON CLAUSE are not supported, please use attributes only or concrete values that do not come from user input");
             }
-            sqlBuilder.append(" ON (").append(CollectionFuns.join(onClause, " AND ")).append(")");
+            sqlBuilder.append(")");
         }
         return sqlBuilder.toString();
     }
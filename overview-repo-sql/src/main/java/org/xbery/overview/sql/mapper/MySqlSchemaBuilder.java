@@ -18,12 +18,17 @@ package org.xbery.overview.sql.mapper;
 
 import org.xbery.overview.mapper.Attr;
 import org.xbery.overview.mapper.Attribute;
+import org.xbery.overview.mapper.EntityMapper;
+import org.xbery.overview.mapper.Index;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
-import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
 
 /**
  * Constructs base of SQL DDL commands based on entity attributes.
@@ -33,11 +38,26 @@ public class MySqlSchemaBuilder {
 
     private static final String NEW_LINE = System.getProperty("line.separator");
     private static final String UNKNOWN = "UNKNOWN";
+    private static final int MAX_INDEX_NAME_LENGTH = 64;
 
+    /**
+     * Composes CREATE TABLE statement for table of given entity mapper, including its indexes.
+     */
+    public <E, F> String composeCreateTableSQL(EntityMapper<E, F> entityMapper) {
+        return composeCreateTableSQL(entityMapper.getTableName(), entityMapper.getAttributes(), entityMapper.getIndexes());
+    }
+
+    /**
+     * Composes CREATE TABLE statement for given attributes, including standalone indexes of attributes marked as indexed or unique.
+     */
     public <E> String composeCreateTableSQL(String tableName, List<Attribute<E, ?>> attributes) {
+        return composeCreateTableSQL(tableName, attributes, attributes != null ? Index.ofAttributes(attributes) : null);
+    }
+
+    public <E> String composeCreateTableSQL(String tableName, List<Attribute<E, ?>> attributes, List<Index> indexes) {
         StringBuilder sb = new StringBuilder();
         if (attributes != null && attributes.size() > 0) {
-            Optional<String> primaryAttrNameOpt = getPrimaryAttributeName(attributes);
+            List<String> primaryAttrNames = getPrimaryAttributeNames(attributes);
             sb.append("CREATE TABLE IF NOT EXISTS `" + tableName + "` (" + NEW_LINE);
             boolean first = true;
             for (Attribute<E, ?> attr : attributes) {
@@ -50,32 +70,70 @@ public class MySqlSchemaBuilder {
                 sb.append("\t`" + attr.getName() + "` " + sqlTypeName);
                 if (attr.isPrimary()) {
                     sb.append(" NOT NULL");
-                    if (isNumber(attr)) {
+                    // Only single integer primary key can be generated
+                    if (primaryAttrNames.size() == 1 && isIntegerNumber(attr)) {
                         sb.append(" AUTO_INCREMENT");
                     }
                 }
             }
-            primaryAttrNameOpt.map (primaryAttrName -> {
+            if (!primaryAttrNames.isEmpty()) {
                 sb.append("," + NEW_LINE);
-                sb.append("\tPRIMARY KEY (`" + primaryAttrName + "`)");
-                return null;
-            });
+                sb.append("\tPRIMARY KEY (" + composeColumnList(primaryAttrNames) + ")");
+            }
+            if (indexes != null) {
+                for (Index index : indexes) {
+                    sb.append("," + NEW_LINE);
+                    sb.append("\t" + (index.isUnique() ? "UNIQUE KEY" : "KEY") + " `" + getIndexName(tableName, index) + "` (" + composeColumnList(index.getAttributeNames()) + ")");
+                }
+            }
             sb.append(NEW_LINE + ");" + NEW_LINE);
         }
         return sb.toString();
     }
 
-    protected <E> Optional<String> getPrimaryAttributeName(List<Attribute<E, ?>> attributes) {
-        Optional<String> name = Optional.empty();
+    /**
+     * Composes CREATE INDEX statement for given table and attributes (in order of the index key).
+     */
+    public String composeCreateIndexSQL(String tableName, String indexName, List<String> attributeNames, boolean unique) {
+        StringBuilder sb = new StringBuilder("CREATE ");
+        if (unique) {
+            sb.append("UNIQUE ");
+        }
+        sb.append("INDEX `" + indexName + "` ON `" + tableName + "` (");
+        sb.append(composeColumnList(attributeNames));
+        sb.append(");");
+        return sb.toString();
+    }
+
+    /**
+     * Composes name of index for given table and attributes, shortened to the maximal length of MySQL identifier.
+     * Shortened name ends with a hash of the whole name, so names of different indexes with a common prefix do not collide.
+     */
+    public String composeIndexName(String tableName, List<String> attributeNames, boolean unique) {
+        String name = (unique ? "uq_" : "idx_") + tableName + "_" + String.join("_", attributeNames);
+        if (name.length() <= MAX_INDEX_NAME_LENGTH) {
+            return name;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(name.getBytes(StandardCharsets.UTF_8));
+        String hash = String.format("%08x", crc.getValue());
+        return name.substring(0, MAX_INDEX_NAME_LENGTH - hash.length() - 1) + "_" + hash;
+    }
+
+    protected String getIndexName(String tableName, Index index) {
+        return index.getName() != null ? index.getName() : composeIndexName(tableName, index.getAttributeNames(), index.isUnique());
+    }
+
+    protected <E> List<String> getPrimaryAttributeNames(List<Attribute<E, ?>> attributes) {
+        List<String> names = new ArrayList<>();
         if (attributes != null) {
             for (Attribute<?, ?> attr : attributes) {
                 if (attr.isPrimary()) {
-                    name = Optional.ofNullable(attr.getName());
-                    break;
+                    names.add(attr.getName());
                 }
             }
         }
-        return name;
+        return names;
     }
 
     protected <E, A> String getSqlTypeName(Attribute<E, A> attribute) {
@@ -86,8 +144,14 @@ public class MySqlSchemaBuilder {
             Class<A> attrClass = attr.getAttributeClass();
             if (String.class.isAssignableFrom(attrClass)) {
                 typeName = "VARCHAR(" + maxLength + ")";
-            } else if (Byte.class.isAssignableFrom(attrClass) || Integer.class.isAssignableFrom(attrClass) || Long.class.isAssignableFrom(attrClass)) {
-                typeName = "INT(" + maxLength + ")";
+            } else if (Byte.class.isAssignableFrom(attrClass)) {
+                typeName = "TINYINT";
+            } else if (Short.class.isAssignableFrom(attrClass)) {
+                typeName = "SMALLINT";
+            } else if (Integer.class.isAssignableFrom(attrClass)) {
+                typeName = "INT";
+            } else if (Long.class.isAssignableFrom(attrClass)) {
+                typeName = "BIGINT";
             } else if (Instant.class.isAssignableFrom(attrClass) || Date.class.isAssignableFrom(attrClass)) {
                 typeName = "DATETIME";
             } else if (BigDecimal.class.isAssignableFrom(attrClass)) {
@@ -97,13 +161,17 @@ public class MySqlSchemaBuilder {
         return typeName;
     }
 
-    protected <E, A> boolean isNumber(Attribute<E, A> attribute) {
-        boolean number = false;
+    protected <E, A> boolean isIntegerNumber(Attribute<E, A> attribute) {
+        boolean integer = false;
         if (attribute instanceof Attr) {
             Attr attr = (Attr)attribute;
             Class<A> attrClass = attr.getAttributeClass();
-            number = Byte.class.isAssignableFrom(attrClass) || Integer.class.isAssignableFrom(attrClass) || Long.class.isAssignableFrom(attrClass) || BigDecimal.class.isAssignableFrom(attrClass);
+            integer = Byte.class.isAssignableFrom(attrClass) || Short.class.isAssignableFrom(attrClass) || Integer.class.isAssignableFrom(attrClass) || Long.class.isAssignableFrom(attrClass);
         }
-        return number;
+        return integer;
+    }
+
+    private String composeColumnList(List<String> attributeNames) {
+        return attributeNames.stream().map(name -> "`" + name + "`").collect(Collectors.joining(", "));
     }
 }
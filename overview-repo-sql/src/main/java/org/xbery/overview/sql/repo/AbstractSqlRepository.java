@@ -19,26 +19,64 @@ package org.xbery.overview.sql.repo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xbery.overview.*;
+import org.xbery.overview.common.IntValues;
+import org.xbery.overview.common.LongValues;
 import org.xbery.overview.common.Pair;
+import org.xbery.overview.common.funs.CheckedConsumer;
 import org.xbery.overview.common.funs.CheckedFunction;
 import org.xbery.overview.common.funs.CollectionFuns;
 import org.xbery.overview.filter.Condition;
+import org.xbery.overview.filter.ConditionOptimizer;
 import org.xbery.overview.filter.EqAttributesCondition;
 import org.xbery.overview.mapper.*;
 import org.xbery.overview.repo.AggType;
 import org.xbery.overview.repo.Conditions;
 import org.xbery.overview.repo.Repository;
 import org.xbery.overview.repo.RepositoryException;
+import org.xbery.overview.repo.metrics.OperationType;
+import org.xbery.overview.repo.metrics.RepositoryMetrics;
+import org.xbery.overview.repo.metrics.RepositoryOperation;
+import org.xbery.overview.sql.advisor.QueryShape;
+import org.xbery.overview.sql.advisor.SlowQueryAnalyzer;
+import org.xbery.overview.sql.bind.BindingPlan;
+import org.xbery.overview.sql.bind.ParameterBinders;
+import org.xbery.overview.sql.dialect.SqlDialect;
+import org.xbery.overview.sql.dialect.SqlDialects;
+import org.xbery.overview.sql.filter.SqlArrayParameter;
 import org.xbery.overview.sql.filter.SqlCondition;
 import org.xbery.overview.sql.filter.SqlConditionBuilder;
+import org.xbery.overview.sql.filter.SqlConditionRenderer;
+import org.xbery.overview.sql.filter.SqlRenderContext;
+import org.xbery.overview.sql.filter.SqlTempTable;
 import org.xbery.overview.sql.mapper.DbTypeConvertor;
 import org.xbery.overview.sql.mapper.JoinEntityMapper;
 import org.xbery.overview.sql.mapper.ResultSetAttributeSource;
+import org.xbery.overview.transfer.CsvRecordReader;
+import org.xbery.overview.transfer.DataFormat;
+import org.xbery.overview.transfer.RecordWriter;
 
 import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
 import java.util.stream.Collectors;
 
 /**
@@ -52,30 +90,119 @@ public abstract class AbstractSqlRepository<T, K, F> implements Repository<T, K,
 
 	protected static final Logger log = LoggerFactory.getLogger(AbstractSqlRepository.class);
 	protected static final DbTypeConvertor dbTypeConvertor = new DbTypeConvertor();
-	protected static final SqlConditionBuilder sqlConditionBuilder = new SqlConditionBuilder();
-	
+	protected static final SqlConditionBuilder sqlConditionBuilder = new SqlConditionBuilder(new SqlConditionRenderer());
+	protected static final ConditionOptimizer conditionOptimizer = new ConditionOptimizer();
+	protected static final ParameterBinders parameterBinders = new ParameterBinders();
+	protected static final String TOTAL_COUNT_ALIAS = "overview_total_count";
+	/** Maximum count of cached binding plans of statements. */
+	protected static final int MAX_BINDING_PLANS = 256;
+	protected static final int DEFAULT_EXPORT_BUFFER_SIZE = 64 * 1024;
+
+	private volatile SqlDialect dialect;
+	private final Map<String, BindingPlan> bindingPlans = new ConcurrentHashMap<>();
+
 	@Override
 	public T create(T entity, boolean autogenerateKey) {
 		Objects.requireNonNull(entity, "Entity should be specified");
+		if (autogenerateKey && getDialect().supportsInsertReturning()) {
+			// Created record is returned directly by the insert statement, no additional query is needed
+			return CollectionFuns.headOpt(createAllReturning(Collections.singletonList(entity))).get();
+		}
 		String tableName = getEntityMapper().getTableNameWithDb();
 		String attributeNamesCommaSeparated = CollectionFuns.join(getEntityMapper().getAttributeNames(), ",");
 		String questionMarks = getPlaceholdersCommaSeparated(getEntityMapper().getAttributeNames().size());
-		List<Object> attributeValues = getEntityMapper().getAttributeValues(entity);
+		List<Object> attributeValues = getDbTypeConvertor().toDbValues(getEntityMapper().getAttributeValues(entity));
 
 		String sql = "INSERT INTO " + tableName + " (" + attributeNamesCommaSeparated + ") VALUES (" + questionMarks + ")";
 
 		K generatedKey = create(sql, attributeValues, autogenerateKey);
 		return autogenerateKey ? findById(generatedKey).get() : entity;
 	}
-	
+
+	/**
+	 * Creates given entities using multi-row INSERT statements. Count of rows in one statement is limited
+	 * by {@link #getBatchSize()} and by maximum count of parameters supported by the {@link #getDialect() dialect}.
+	 * Entities with generated keys are created using INSERT ... RETURNING if it is supported by the dialect,
+	 * otherwise one by one.
+	 * @param entities entities to create
+	 * @param autogenerateKey true if entity key should be generated
+	 * @return created entities that include also possible generated keys
+	 */
+	@Override
+	public List<T> createAll(List<T> entities, boolean autogenerateKey) {
+		if (entities == null || entities.isEmpty()) {
+			return new ArrayList<>();
+		}
+		if (autogenerateKey) {
+			return getDialect().supportsInsertReturning() ? createAllReturning(entities) : Repository.super.createAll(entities, true);
+		}
+		List<String> attributeNames = getEntityMapper().getAttributeNames();
+		for (List<T> chunk : getInsertChunks(entities, attributeNames.size())) {
+			List<Object> attributeValues = new ArrayList<>();
+			for (T entity : chunk) {
+				attributeValues.addAll(getDbTypeConvertor().toDbValues(getEntityMapper().getAttributeValues(entity)));
+			}
+			create(composeMultiRowInsertSql(attributeNames, chunk.size()), attributeValues, false);
+		}
+		return new ArrayList<>(entities);
+	}
+
+	/**
+	 * Creates or updates given entities using one upsert statement executed in JDBC batches
+	 * of {@link #getBatchSize()} entities. Syntax of the statement is given by the {@link #getDialect() dialect},
+	 * entities are updated or inserted one by one when the dialect does not support upsert.
+	 * @param entities entities to create or update
+	 * @return count of created or updated entities
+	 */
+	@Override
+	public int upsertAll(List<T> entities) {
+		if (entities == null || entities.isEmpty()) {
+			return 0;
+		}
+		if (!getDialect().supportsUpsert()) {
+			return Repository.super.upsertAll(entities);
+		}
+		String sql = composeUpsertSql();
+		RepositoryOperation operation = getMetrics().start(OperationType.UPSERT, getEntityMapper().getTableName(), sql, getEntityMapper().getAttributeNames().size());
+		BindingPlan bindingPlan = getBindingPlan(sql, getAttributeClasses(getEntityMapper().getAttributes()), 1);
+		return withNewConnection(operation, conn -> {
+			int batchSize = getBatchSize();
+			try (PreparedStatement statement = conn.prepareStatement(sql)) {
+				int batchCount = 0;
+				for (T entity : entities) {
+					setParameters(statement, getDbTypeConvertor().toDbValues(getEntityMapper().getAttributeValues(entity)), bindingPlan);
+					statement.addBatch();
+					batchCount++;
+					if (batchCount == batchSize) {
+						statement.executeBatch();
+						batchCount = 0;
+					}
+				}
+				if (batchCount > 0) {
+					statement.executeBatch();
+				}
+				operation.executed();
+				if (log.isTraceEnabled()) {
+					log.trace("{} (batch of {} entities)", sql, entities.size());
+				}
+				operation.finished(entities.size());
+				return entities.size();
+			} catch (Exception ex) {
+				throw new RepositoryException(ex.getMessage(), ex);
+			}
+		});
+	}
+
 	@Override
 	public Optional<T> update(T entity) {
 		Objects.requireNonNull(entity, "Entity should be specified");
 		String attributeNamesEqToPlaceholders = getAttributeNamesEqToPlaceholdersCommaSeparated(getEntityMapper().getAttributeNames());
+		String cmd = "UPDATE " + getEntityMapper().getTableNameWithDb() + " SET " + attributeNamesEqToPlaceholders;
 		int updatedCount = updateByFilterConditions(
-			"UPDATE " + getEntityMapper().getTableNameWithDb() + " SET " + attributeNamesEqToPlaceholders,
+			cmd,
 			getEntityMapper().composeFilterConditionsForPrimaryKeyOfEntity(entity),
-			getEntityMapper().getAttributeValues(entity));
+			getEntityMapper().getAttributeValues(entity),
+			getBindingPlan(cmd, getAttributeClasses(getEntityMapper().getAttributes()), 1));
 		if (updatedCount == 1) {
 			return Optional.<T>of(entity);
 		}
@@ -88,10 +215,13 @@ public abstract class AbstractSqlRepository<T, K, F> implements Repository<T, K,
 		List<String> attributeNames = attributesWithValues.stream().map(p -> p.getFirst().getName()).collect(Collectors.toList());
 		String attributeNamesEqToPlaceholders = getAttributeNamesEqToPlaceholdersCommaSeparated(attributeNames);
 		List<Object> attributeValues = attributesWithValues.stream().map(p -> p.getSecond()).collect(Collectors.toList());
+		String cmd = "UPDATE " + getEntityMapper().getTableNameWithDb() + " SET " + attributeNamesEqToPlaceholders;
+		List<Attribute<T, ?>> attributes = attributesWithValues.stream().map(p -> p.getFirst()).collect(Collectors.toList());
 		return updateByFilterConditions(
-			"UPDATE " + getEntityMapper().getTableNameWithDb() + " SET " + attributeNamesEqToPlaceholders,
+			cmd,
 			getEntityMapper().composeFilterConditionsForPrimaryKey(id),
-			attributeValues);
+			attributeValues,
+			getBindingPlan(cmd, getAttributeClasses(attributes), 1));
 	}
 
 	@Override
@@ -127,17 +257,50 @@ public abstract class AbstractSqlRepository<T, K, F> implements Repository<T, K,
 		Objects.requireNonNull(resultClass, "result class should be specified");
 		Objects.requireNonNull(attrName, "attribute name should be specified");
 
-		String aggAttributeAlias = attrName == "*" ? (aggType.name().toLowerCase() + "_agg") : (attrName + "_agg");
-		List<R> results = queryWithOverview(
-			aggFunction(aggType, attrName) + " AS " + aggAttributeAlias,
+		List<Object> results = aggsByFilter(Collections.singletonList(aggType), Collections.singletonList(resultClass), attrName, filter, grouping, entityMapper);
+		return resultClass.cast(results.get(0));
+	}
+
+	/**
+	 * Returns values of more (distinct) aggregation types of given attribute for given filter, computed by one query.
+	 * @param aggTypes aggregation types
+	 * @param resultClasses classes of results of the aggregation types
+	 * @param attrName
+	 * @param filter
+	 * @param grouping
+	 * @param entityMapper
+	 * @return aggregated values in order of aggregation types
+	 */
+	protected <T, F> List<Object> aggsByFilter(List<AggType> aggTypes, List<Class<?>> resultClasses, String attrName, F filter, List<Group> grouping, EntityMapper<T, F> entityMapper) {
+		List<Condition> filterConditions = optimizeConditions(filter != null ? entityMapper.composeFilterConditions(filter) : new ArrayList<Condition>());
+		List<Object> emptyResults = new ArrayList<>(aggTypes.size());
+		for (int i = 0; i < aggTypes.size(); i++) {
+			emptyResults.add(emptyAggregation(aggTypes.get(i), resultClasses.get(i)));
+		}
+		if (isAlwaysFalse(filterConditions)) {
+			return emptyResults;
+		}
+		List<String> aliases = aggTypes.stream().map(aggType -> aggType.name().toLowerCase() + "_agg").collect(Collectors.toList());
+		List<String> columns = new ArrayList<>(aggTypes.size());
+		for (int i = 0; i < aggTypes.size(); i++) {
+			columns.add(aggFunction(aggTypes.get(i), attrName) + " AS " + aliases.get(i));
+		}
+		List<List<Object>> results = queryWithOverview(
+			CollectionFuns.join(columns, ", "),
 			entityMapper.getTableNameWithDb(),
-			filter != null ? entityMapper.composeFilterConditions(filter) : new ArrayList<Condition>(),
+			filterConditions,
 			null,
 			null,
 			grouping,
 			entityMapper,
-			as -> as.get(resultClass, aggAttributeAlias));
-		return results != null && !results.isEmpty() ? results.get(0) : null;
+			as -> {
+				List<Object> values = new ArrayList<>(aliases.size());
+				for (int i = 0; i < aliases.size(); i++) {
+					values.add(as.get(resultClasses.get(i), aliases.get(i)));
+				}
+				return values;
+			});
+		return results != null && !results.isEmpty() ? results.get(0) : Collections.nCopies(aggTypes.size(), null);
 	}
 
     /**
@@ -160,6 +323,68 @@ public abstract class AbstractSqlRepository<T, K, F> implements Repository<T, K,
 		return CollectionFuns.headOpt(findByFilterConditions(entityMapper.composeFilterConditionsForPrimaryKey(id), null, null, entityMapper));
 	}
 
+	/**
+	 * Finds entities by given ids using queries with IN condition, each query loads at most {@link #getFindByIdsChunkSize()} ids.
+	 * Chunks are loaded one by one on the calling thread, or in parallel when {@link #getQueryExecutor()} is provided.
+	 * Composite keys are compared as row values.
+	 * @param ids
+	 * @return found entities mapped by their ids, in order of given ids; ids that were not found are missing in the key set
+	 * (absence from the map is the only signal of an id that was not found)
+	 */
+	@Override
+	public Map<K, T> findMapByIds(Collection<K> ids) {
+		Objects.requireNonNull(ids, "ids should be specified");
+		EntityMapper<T, F> entityMapper = getEntityMapper();
+		List<K> uniqueIds = new ArrayList<>(new LinkedHashSet<>(ids));
+		// Values of primary key attributes to the key they were decomposed from
+		Map<List<Object>, K> idsByKeyValues = new HashMap<>();
+		for (K id : uniqueIds) {
+			idsByKeyValues.put(entityMapper.decomposePrimaryKey(id).stream().map(Pair::getSecond).collect(Collectors.toList()), id);
+		}
+
+		List<List<K>> chunks = new ArrayList<>();
+		int chunkSize = getFindByIdsChunkSize();
+		for (int i = 0; i < uniqueIds.size(); i += chunkSize) {
+			chunks.add(uniqueIds.subList(i, Math.min(i + chunkSize, uniqueIds.size())));
+		}
+		List<T> entities = new ArrayList<>();
+		Executor queryExecutor = getQueryExecutor();
+		if (chunks.size() > 1 && queryExecutor != null) {
+			List<CompletableFuture<List<T>>> futures = chunks.stream()
+				.map(chunk -> CompletableFuture.supplyAsync(() -> findByIdsChunk(chunk, entityMapper), queryExecutor))
+				.collect(Collectors.toList());
+			try {
+				futures.forEach(f -> entities.addAll(f.join()));
+			} catch (CompletionException ex) {
+				if (ex.getCause() instanceof RuntimeException) {
+					throw (RuntimeException)ex.getCause();
+				}
+				throw new RepositoryException(ex.getMessage(), ex);
+			}
+		} else {
+			chunks.forEach(chunk -> entities.addAll(findByIdsChunk(chunk, entityMapper)));
+		}
+
+		Map<K, T> foundEntities = new HashMap<>();
+		for (T entity : entities) {
+			K id = idsByKeyValues.get(entityMapper.getPrimaryAttributeValues(entity));
+			if (id != null) {
+				foundEntities.put(id, entity);
+			}
+		}
+		Map<K, T> entitiesById = new LinkedHashMap<>();
+		for (K id : uniqueIds) {
+			T entity = foundEntities.get(id);
+			if (entity != null) {
+				entitiesById.put(id, entity);
+			}
+		}
+		if (log.isDebugEnabled() && entitiesById.size() < uniqueIds.size()) {
+			log.debug("{} of {} ids were not found in {}", uniqueIds.size() - entitiesById.size(), uniqueIds.size(), entityMapper.getTableName());
+		}
+		return entitiesById;
+	}
+
 	@Override
 	public <T, F> List<T> findByOverview(final Overview<F> overview, EntityMapper<T, F> entityMapper) {
 		Objects.requireNonNull(overview, "overview should be specified");
@@ -168,6 +393,10 @@ public abstract class AbstractSqlRepository<T, K, F> implements Repository<T, K,
     	// TODO RBe: Perform JOIN for JoinWithManyEntityMapper on database level if pagination is not set
 		if (isJoinWithManyMapper(entityMapper)) {
 			objects = findJoinedWithMany(overview, (JoinEntityMapper)entityMapper);
+		} else if (overview.getProjection() != null && !(entityMapper instanceof JoinEntityMapper)) {
+			// Only columns of projection (and primary key) are selected
+			List<String> selectedAttributes = entityMapper.getAttributesOfProjection(overview.getProjection()).stream().map(a -> a.getName()).collect(Collectors.toList());
+			objects = findByOverview(overview, selectedAttributes, entityMapper.getTableNameWithDb(), entityMapper);
 		} else {
 			List<String> attributeNames = entityMapper.getAttributeNames();
 			String from = entityMapper.getTableNameWithDb();
@@ -228,18 +457,35 @@ public abstract class AbstractSqlRepository<T, K, F> implements Repository<T, K,
 		return firstEntitiesWithJoinedSecondEntities;
 	}
 
-	protected int updateByFilterConditions(String cmdWithoutConditions, List<Condition> conditions, List<Object> updatedAttributeValues) {
+	protected int updateByFilterConditions(String cmdWithoutConditions, List<Condition> filterConditions, List<Object> updatedAttributeValues) {
+		return updateByFilterConditions(cmdWithoutConditions, filterConditions, updatedAttributeValues, null);
+	}
+
+	/**
+	 * Updates or deletes records matching given conditions.
+	 * @param cmdWithoutConditions UPDATE or DELETE command without WHERE clause
+	 * @param filterConditions
+	 * @param updatedAttributeValues values of parameters of the command, converted by the {@link #getDbTypeConvertor() convertor}
+	 * @param bindingPlan plan of binding of updated values, can be null
+	 * @return count of updated or deleted records
+	 */
+	protected int updateByFilterConditions(String cmdWithoutConditions, List<Condition> filterConditions, List<Object> updatedAttributeValues, BindingPlan bindingPlan) {
+		List<Condition> conditions = optimizeConditions(filterConditions);
+		if (isAlwaysFalse(conditions)) {
+			return 0;
+		}
 		StringBuilder sqlBuilder = new StringBuilder(cmdWithoutConditions);
 
 		final List<Object> parameterValues = new ArrayList<>();
 		if (updatedAttributeValues != null) {
 			parameterValues.addAll(getDbTypeConvertor().toDbValues(updatedAttributeValues));
 		}
-		List<Object> pValues = appendFilter(sqlBuilder, conditions);
+		List<SqlTempTable> tempTables = new ArrayList<>(0);
+		List<Object> pValues = appendFilter(sqlBuilder, conditions, tempTables);
 		if (pValues != null) {
 			parameterValues.addAll(pValues);
 		}
-		return updateAttributeValues(sqlBuilder.toString(), parameterValues);
+		return updateAttributeValues(sqlBuilder.toString(), parameterValues, tempTables, bindingPlan);
 	}
 
 	protected <T, F> List<T> findByOverview(Overview<F> overview, List<String> selectedAttributes, String from, EntityMapper<T, F> entityMapper) {
@@ -251,10 +497,41 @@ public abstract class AbstractSqlRepository<T, K, F> implements Repository<T, K,
 			overview.getPagination(),
 			overview.getGrouping(),
 			entityMapper,
-			as -> entityMapper.buildEntityWithAttributeNames(as, selectedAttributes, null)
+			// Attributes that were not selected are not available in result set
+			as -> entityMapper.buildEntityWithAttributeNames(new SelectedAttributeSource(as, selectedAttributes), selectedAttributes, null)
 		);
 	}
 
+	protected List<T> findByIdsChunk(List<K> ids, EntityMapper<T, F> entityMapper) {
+		List<Attribute<T, ?>> pkAttributes = entityMapper.getPrimaryAttributes();
+		Condition condition;
+		if (pkAttributes.size() == 1 && getDialect().supportsArrayParameters()) {
+			// One array parameter instead of list of placeholders, the statement is the same for all counts of ids
+			Object[] values = ids.stream().map(id -> getDbTypeConvertor().toDbValue(id)).toArray();
+			condition = new SqlCondition(getDialect().composeArrayInCondition(pkAttributes.get(0).getNameFull()), CollectionFuns.list(new SqlArrayParameter(values)));
+		} else if (pkAttributes.size() == 1) {
+			@SuppressWarnings("unchecked") // single primary attribute is compared to the keys
+			Attribute<T, Object> pkAttribute = (Attribute<T, Object>)pkAttributes.get(0);
+			condition = Conditions.in(pkAttribute, new ArrayList<>(ids));
+		} else {
+			// Row value IN for composite keys: (a, b) IN ((?, ?), (?, ?), ...)
+			String rowPlaceholders = "(" + CollectionFuns.join(Collections.nCopies(pkAttributes.size(), "?"), ", ") + ")";
+			List<Object> values = new ArrayList<>();
+			for (K id : ids) {
+				for (Pair<Attribute<T, ?>, Object> attrWithValue : entityMapper.decomposePrimaryKey(id)) {
+					values.add(getDbTypeConvertor().toDbValue(attrWithValue.getSecond()));
+				}
+			}
+			condition = new SqlCondition(
+				"(" + CollectionFuns.join(pkAttributes.stream().map(a -> a.getNameFull()).collect(Collectors.toList()), ", ") + ") IN (" +
+				CollectionFuns.join(Collections.nCopies(ids.size(), rowPlaceholders), ", ") + ")",
+				values);
+		}
+		List<Condition> conditions = new ArrayList<>();
+		conditions.add(condition);
+		return findByFilterConditions(conditions, null, null, entityMapper);
+	}
+
 	protected <T, F> List<T> findByFilterConditions(List<Condition> filterConditions, List<Order> ordering, List<Group> grouping, EntityMapper<T, F> entityMapper) {
 		return queryWithOverview(
 			entityMapper.getAttributeNames(),
@@ -294,19 +571,26 @@ public abstract class AbstractSqlRepository<T, K, F> implements Repository<T, K,
 	}
 	
 	protected K create(String sql, List<Object> attributeValues, boolean autogenerateKey) {
-		return withNewConnection(conn -> {
+		List<Class<?>> attributeClasses = getAttributeClasses(getEntityMapper().getAttributes());
+		BindingPlan bindingPlan = getBindingPlan(sql, attributeClasses, attributeValues.size() / Math.max(1, attributeClasses.size()));
+		RepositoryOperation operation = getMetrics().start(OperationType.CREATE, getEntityMapper().getTableName(), sql, attributeValues.size());
+		return withNewConnection(operation, conn -> {
 			K generatedKey = null;
 			try (PreparedStatement statement = conn.prepareStatement(sql, autogenerateKey ? Statement.RETURN_GENERATED_KEYS : Statement.NO_GENERATED_KEYS)) {
-				setParameters(statement, getDbTypeConvertor().toDbValues(attributeValues));
+				setParameters(statement, attributeValues, bindingPlan);
+				int createdCount;
 				if (autogenerateKey) {
-					statement.executeUpdate();
+					createdCount = statement.executeUpdate();
+					operation.executed();
 					ResultSet rs = statement.getGeneratedKeys();
 					rs.next();
 					generatedKey = getAutogeneratedKey(rs);
 				} else {
-					statement.executeUpdate();
+					createdCount = statement.executeUpdate();
+					operation.executed();
 				}
 				logSqlWithParameters(statement.toString(), attributeValues);
+				operation.finished(createdCount);
 				return generatedKey;
 			} catch (Exception ex) {
 				throw new RepositoryException(ex.getMessage(), ex);
@@ -321,10 +605,12 @@ public abstract class AbstractSqlRepository<T, K, F> implements Repository<T, K,
 			Class<?> firstPKClass = !pkAttributes.isEmpty() ? pkAttributes.get(0).getAttributeClass() : null;
 			Object pkValue = null;
 			if (firstPKClass != null && Integer.class.isAssignableFrom(firstPKClass)) {
-				// TODO: Use ResultSetAttributeSource for this?
 				pkValue = rs.getInt(1);
-			} else {
+			} else if (firstPKClass == null || Long.class.isAssignableFrom(firstPKClass)) {
 				pkValue = rs.getLong(1);
+			} else {
+				// Generated key of other type (e.g. UUID or string generated by a sequence or trigger)
+				pkValue = rs.getObject(1, firstPKClass);
 			}
 
 			return convertGeneratedKey(pkValue);
@@ -334,14 +620,30 @@ public abstract class AbstractSqlRepository<T, K, F> implements Repository<T, K,
 	}
 
 	protected int updateAttributeValues(String sql, List<Object> attributeValues) {
-		return withNewConnection(conn -> {
-			try (PreparedStatement statement = conn.prepareStatement(sql)) {
-				setParameters(statement, attributeValues);
-				int updatedCount = statement.executeUpdate();
-				logSqlWithParameters(statement.toString(), attributeValues);
-				return updatedCount;
+		return updateAttributeValues(sql, attributeValues, Collections.emptyList());
+	}
+
+	protected int updateAttributeValues(String sql, List<Object> attributeValues, List<SqlTempTable> tempTables) {
+		return updateAttributeValues(sql, attributeValues, tempTables, null);
+	}
+
+	protected int updateAttributeValues(String sql, List<Object> attributeValues, List<SqlTempTable> tempTables, BindingPlan bindingPlan) {
+		RepositoryOperation operation = getMetrics().start(sql.startsWith("DELETE") ? OperationType.DELETE : OperationType.UPDATE, getEntityMapper().getTableName(), sql, attributeValues.size());
+		return withNewConnection(operation, conn -> {
+			try {
+				createTempTables(conn, tempTables);
+				try (PreparedStatement statement = conn.prepareStatement(sql)) {
+					setParameters(statement, attributeValues, bindingPlan);
+					int updatedCount = statement.executeUpdate();
+					operation.executed();
+					logSqlWithParameters(statement.toString(), attributeValues);
+					operation.finished(updatedCount);
+					return updatedCount;
+				}
 			} catch (Exception ex) {
 				throw new RepositoryException(ex.getMessage(), ex);
+			} finally {
+				dropTempTables(conn, tempTables);
 			}
 		});
 	}
@@ -380,33 +682,94 @@ public abstract class AbstractSqlRepository<T, K, F> implements Repository<T, K,
 		EntityMapper<T, F> entityMappper,
 		Function<AttributeSource, R> entityBuilder) {
 
-		return withNewConnection(conn -> {
-			List<R> results = new ArrayList<>();
-			try {
-				StringBuilder sqlBuilder = new StringBuilder("SELECT " + selection + " FROM " + from);
-				List<Object> parameters = appendFilter(sqlBuilder, filterConditions);
-				appendGrouping(sqlBuilder, (grouping == null || grouping.isEmpty()) ? entityMappper.defaultGrouping() : grouping);
-				appendOrdering(sqlBuilder, (ordering == null || ordering.isEmpty()) ? entityMappper.defaultOrdering() : ordering);
-				appendPagination(sqlBuilder, pagination);
+		List<R> results = new ArrayList<>();
+		queryWithOverview(selection, from, filterConditions, ordering, pagination, grouping, entityMappper, 0,
+			rs -> results.add(entityBuilder.apply(new ResultSetAttributeSource(rs))));
+		return results;
+	}
+
+	/**
+	 * Executes query with given overview settings and passes each row of the result set to given consumer.
+	 * @param fetchSize fetch size of the statement, values greater than zero are used for streaming of large results
+	 * (slow queries are not analyzed then, because the time includes processing of the rows), zero for the default fetch size
+	 * @param rowConsumer consumer of the result set positioned at the current row
+	 * @return count of processed rows
+	 */
+	protected <T, F> int queryWithOverview(
+		String selection,
+		String from,
+		List<Condition> filterConditions,
+		List<Order> ordering,
+		Pagination pagination,
+		List<Group> grouping,
+		EntityMapper<T, F> entityMappper,
+		int fetchSize,
+		CheckedConsumer<ResultSet> rowConsumer) {
+
+		List<Condition> conditions = optimizeConditions(filterConditions);
+		if (isAlwaysFalse(conditions)) {
+			// Filter cannot match any record, database is not queried
+			return 0;
+		}
+		List<Group> appliedGrouping = (grouping == null || grouping.isEmpty()) ? entityMappper.defaultGrouping() : grouping;
+		List<Order> appliedOrdering = (ordering == null || ordering.isEmpty()) ? entityMappper.defaultOrdering() : ordering;
+		StringBuilder sqlBuilder = new StringBuilder("SELECT " + selection + " FROM " + from);
+		List<SqlTempTable> tempTables = new ArrayList<>(0);
+		List<Object> parameters = appendFilter(sqlBuilder, conditions, tempTables);
+		appendGrouping(sqlBuilder, appliedGrouping);
+		appendOrdering(sqlBuilder, appliedOrdering);
+		appendPagination(sqlBuilder, pagination);
 
-				String sql = sqlBuilder.toString();
+		String sql = sqlBuilder.toString();
+		boolean streaming = fetchSize != 0;
+		RepositoryOperation operation = getMetrics().start(OperationType.QUERY, entityMappper.getTableName(), sql, parameters != null ? parameters.size() : 0);
+		// Plans of statements using temporary tables cannot be explained using another connection
+		SlowQueryAnalyzer slowQueryAnalyzer = entityMappper instanceof JoinEntityMapper || !tempTables.isEmpty() || streaming ? null : getSlowQueryAnalyzer();
+		// Duration of the query is measured from acquisition of the connection, waiting for the connection pool is not counted
+		long[] durationNanos = new long[1];
 
-				try (PreparedStatement statement = conn.prepareStatement(sql)) {
+		int rowCount = withNewConnection(operation, conn -> {
+			long acquiredNanos = System.nanoTime();
+			int count = 0;
+			boolean autoCommit = conn.getAutoCommit();
+			try {
+				if (streaming && autoCommit && getDialect().streamingRequiresTransaction()) {
+					conn.setAutoCommit(false);
+				}
+				createTempTables(conn, tempTables);
+				try (PreparedStatement statement = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+					if (streaming) {
+						statement.setFetchSize(fetchSize);
+					}
 					setParameters(statement, parameters);
 
 					try (ResultSet rs = statement.executeQuery()) {
+						operation.executed();
 						while (rs.next()) {
-							results.add(entityBuilder.apply(new ResultSetAttributeSource(rs)));
+							rowConsumer.accept(rs);
+							count++;
 						}
 					}
 				}
+				durationNanos[0] = System.nanoTime() - acquiredNanos;
 
 				logSqlWithParameters(sql, parameters);
+				operation.finished(count);
 			} catch (Exception ex) {
 				throw new RepositoryException(ex.getMessage(), ex);
+			} finally {
+				dropTempTables(conn, tempTables);
+				if (autoCommit != conn.getAutoCommit()) {
+					conn.setAutoCommit(autoCommit);
+				}
 			}
-			return results;
+			return count;
 		});
+		if (slowQueryAnalyzer != null) {
+			QueryShape shape = QueryShape.of(entityMappper.getTableName(), conditions, appliedOrdering, appliedGrouping);
+			slowQueryAnalyzer.analyze(getDataSource(), getDialect(), getParameterBinders(), sql, parameters, shape, durationNanos[0], entityMappper.getPrimaryAttributeNames());
+		}
+		return rowCount;
 	}
 
 	/**
@@ -421,7 +784,10 @@ public abstract class AbstractSqlRepository<T, K, F> implements Repository<T, K,
 	 */
 	protected <T, F> ResultsWithOverview<T, F> findResultsWithOverviewAndProjection(String projection, Overview<F> overview, EntityMapper<T, F> entityMapper) {
 		String from = entityMapper.getTableNameWithDb();
-		List<Condition> filterConditions = overview.getFilter() != null ? entityMapper.composeFilterConditions(overview.getFilter()) : new ArrayList<>();
+		List<Condition> filterConditions = optimizeConditions(overview.getFilter() != null ? entityMapper.composeFilterConditions(overview.getFilter()) : new ArrayList<>());
+		if (isAlwaysFalse(filterConditions)) {
+			return new ResultsWithOverview<>(new ArrayList<>(), overview.withPagination(overview.getPagination().withTotalCount(0)));
+		}
 		List<T> entities = queryWithOverview(projection, from, filterConditions, overview.getOrdering(), overview.getPagination(), overview.getGrouping(), entityMapper, as -> entityMapper.buildEntity(as));
 
 		String aggAlias = "attr_count";
@@ -431,17 +797,257 @@ public abstract class AbstractSqlRepository<T, K, F> implements Repository<T, K,
 		return new ResultsWithOverview<>(entities, overview.withPagination(overview.getPagination().withTotalCount(totalCount)));
 	}
 
+	/**
+	 * Exports records matching given overview settings (filter, ordering, pagination and projection) in given format.
+	 * Values are read by attributes of the entity mapper directly from the result set that is streamed
+	 * with {@link SqlDialect#getStreamingFetchSize() fetch size} of the dialect, and written through a buffer
+	 * of {@link #getExportBufferSize()} characters, so no entities are created and the records are not held in memory.
+	 * @param overview overview settings
+	 * @param entityMapper mapper of exported entity
+	 * @param format format of the export
+	 * @param outputStream target stream, it is not closed
+	 * @param gzip true if the output should be compressed by gzip
+	 * @return count of exported records
+	 */
+	public <T, F> int export(Overview<F> overview, EntityMapper<T, F> entityMapper, DataFormat format, OutputStream outputStream, boolean gzip) {
+		Objects.requireNonNull(overview, "overview should be specified");
+		List<Attribute<T, ?>> attributes = entityMapper.getAttributesOfProjection(overview.getProjection());
+		List<String> attributeNames = attributes.stream().map(a -> a.getName()).collect(Collectors.toList());
+		try {
+			int bufferSize = getExportBufferSize();
+			GZIPOutputStream gzipStream = gzip ? new GZIPOutputStream(outputStream, bufferSize) : null;
+			Writer writer = new BufferedWriter(new OutputStreamWriter(gzip ? gzipStream : outputStream, StandardCharsets.UTF_8), bufferSize);
+			RecordWriter recordWriter = format.createWriter(writer);
+			recordWriter.writeHeader(attributeNames);
+			int count = queryWithOverview(
+				CollectionFuns.join(attributeNames, ", "),
+				entityMapper.getTableNameWithDb(),
+				overview.getFilter() != null ? entityMapper.composeFilterConditions(overview.getFilter()) : null,
+				overview.getOrdering(),
+				overview.getPagination(),
+				overview.getGrouping(),
+				entityMapper,
+				getDialect().getStreamingFetchSize(),
+				rs -> {
+					AttributeSource attributeSource = new ResultSetAttributeSource(rs);
+					recordWriter.startRecord();
+					for (Attribute<T, ?> attribute : attributes) {
+						Object value = attribute.getValueFromSource(attributeSource, null);
+						// Primitive getters of result set return zero for SQL NULL
+						if (value != null && rs.wasNull()) {
+							value = null;
+						}
+						recordWriter.writeValue(attribute.getName(), value);
+					}
+					recordWriter.endRecord();
+				});
+			recordWriter.flush();
+			if (gzipStream != null) {
+				gzipStream.finish();
+			}
+			return count;
+		} catch (IOException ex) {
+			throw new RepositoryException(ex.getMessage(), ex);
+		}
+	}
+
+	/**
+	 * Exports records matching given overview settings to given channel.
+	 * @see #export(Overview, EntityMapper, DataFormat, OutputStream, boolean)
+	 */
+	public <T, F> int export(Overview<F> overview, EntityMapper<T, F> entityMapper, DataFormat format, WritableByteChannel channel, boolean gzip) {
+		return export(overview, entityMapper, format, Channels.newOutputStream(channel), gzip);
+	}
+
+	/**
+	 * Exports entities of this repository matching given overview settings.
+	 * @see #export(Overview, EntityMapper, DataFormat, OutputStream, boolean)
+	 */
+	public int export(Overview<F> overview, DataFormat format, OutputStream outputStream, boolean gzip) {
+		return export(overview, getEntityMapper(), format, outputStream, gzip);
+	}
+
+	/**
+	 * Loads records from given file to the table of this repository natively by the database, if the {@link #getDialect() dialect}
+	 * supports it for given format (e.g. H2 CSVREAD, MySQL LOAD DATA LOCAL INFILE). Order of values is given by the header
+	 * of the file, values must be in formats accepted by the database. Can be used as {@link org.xbery.overview.transfer.BulkLoader}.
+	 * @param file file with records
+	 * @param format format of the file
+	 * @return count of loaded records, or empty if the dialect cannot load the format or values of some attribute
+	 * in the file, see {@link SqlDialect#supportsBulkLoadOf(Class)}
+	 */
+	public OptionalInt bulkLoad(Path file, DataFormat format) {
+		if (!getDialect().supportsBulkLoad(format)) {
+			return OptionalInt.empty();
+		}
+		List<String> attributeNames;
+		String lineSeparator;
+		try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+			Reader separatorReader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			attributeNames = new CsvRecordReader(reader).readHeader();
+			lineSeparator = readLineSeparator(separatorReader);
+		} catch (IOException ex) {
+			throw new RepositoryException(ex.getMessage(), ex);
+		}
+		Map<String, Attribute<T, ?>> attributesByName = new HashMap<>();
+		for (Attribute<T, ?> attribute : getEntityMapper().getAttributes()) {
+			attributesByName.put(attribute.getName(), attribute);
+		}
+		for (String attributeName : attributeNames) {
+			// Only names of attributes can be part of the statement
+			Attribute<T, ?> attribute = attributesByName.get(attributeName);
+			if (attribute == null) {
+				throw new IllegalArgumentException("Unknown attribute " + attributeName + " in header of " + file);
+			}
+			if (!getDialect().supportsBulkLoadOf(attribute.getAttributeClass())) {
+				return OptionalInt.empty();
+			}
+		}
+		String sql = getDialect().composeBulkLoad(getEntityMapper().getTableNameWithDb(), attributeNames, file.toAbsolutePath().toString(), format, lineSeparator);
+		RepositoryOperation operation = getMetrics().start(OperationType.CREATE, getEntityMapper().getTableName(), sql, 0);
+		return OptionalInt.of(withNewConnection(operation, conn -> {
+			try (Statement statement = conn.createStatement()) {
+				int loadedCount = statement.executeUpdate(sql);
+				operation.executed();
+				logSqlWithParameters(sql, null);
+				operation.finished(loadedCount);
+				return loadedCount;
+			}
+		}));
+	}
+
+	/**
+	 * Returns separator of the first line read from given reader, CRLF or LF (also for a file with one line).
+	 */
+	private static String readLineSeparator(Reader reader) throws IOException {
+		int previous = -1;
+		int c;
+		while ((c = reader.read()) >= 0) {
+			if (c == '\n') {
+				return previous == '\r' ? "\r\n" : "\n";
+			}
+			previous = c;
+		}
+		return "\n";
+	}
+
+	/**
+	 * Size of buffer (in characters) of written exports, it is also the size of buffer of gzip compression.
+	 */
+	protected int getExportBufferSize() {
+		return DEFAULT_EXPORT_BUFFER_SIZE;
+	}
+
+	/**
+	 * Returns results along with overview settings. If the {@link #getDialect() dialect} supports window functions,
+	 * total count of records is loaded along with the page of results using COUNT(*) OVER(), without separate count query.
+	 * @param overview
+	 * @param entityMapper
+	 * @param <T>
+	 * @param <F>
+	 * @return
+	 */
+	@Override
+	public <T, F> ResultsWithOverview<T, F> findResultsWithOverview(Overview<F> overview, EntityMapper<T, F> entityMapper) {
+		Objects.requireNonNull(overview, "overview should be specified");
+		Objects.requireNonNull(entityMapper, "entityMapper should be specified");
+		Pagination pagination = overview.getPagination();
+		boolean grouped = (overview.getGrouping() != null && !overview.getGrouping().isEmpty()) ||
+			(entityMapper.defaultGrouping() != null && !entityMapper.defaultGrouping().isEmpty());
+		if (pagination == null || grouped || entityMapper instanceof JoinEntityMapper || !getDialect().supportsWindowCount()) {
+			return Repository.super.findResultsWithOverview(overview, entityMapper);
+		}
+		List<String> selectedAttributes = overview.getProjection() != null ?
+			entityMapper.getAttributesOfProjection(overview.getProjection()).stream().map(a -> a.getName()).collect(Collectors.toList()) :
+			entityMapper.getAttributeNames();
+		// Total count is the same in all rows of the page
+		Integer[] totalCount = new Integer[1];
+		List<T> entities = queryWithOverview(
+			CollectionFuns.join(selectedAttributes, ", ") + ", COUNT(*) OVER() AS " + TOTAL_COUNT_ALIAS,
+			entityMapper.getTableNameWithDb(),
+			overview.getFilter() != null ? entityMapper.composeFilterConditions(overview.getFilter()) : null,
+			overview.getOrdering(),
+			pagination,
+			null,
+			entityMapper,
+			as -> {
+				totalCount[0] = as.get(Integer.class, TOTAL_COUNT_ALIAS);
+				return entityMapper.buildEntity(overview.getProjection() != null ? new SelectedAttributeSource(as, selectedAttributes) : as);
+			});
+		if (entities.isEmpty()) {
+			// No row carries the total count, page can be beyond the last record
+			totalCount[0] = pagination.getOffset() == 0 ? 0 : countByFilter(overview.getFilter(), null, entityMapper);
+		}
+		return new ResultsWithOverview<>(entities, overview.withPagination(pagination.withTotalCount(totalCount[0])));
+	}
+
 	protected List<Object> appendFilter(StringBuilder sqlBuilder, List<Condition> filterConditions) {
+		return appendFilter(sqlBuilder, filterConditions, null);
+	}
+
+	/**
+	 * Appends WHERE clause with given conditions and returns values of its parameters.
+	 * @param sqlBuilder
+	 * @param filterConditions
+	 * @param tempTables target list of temporary tables used by the conditions, or null if temporary tables should not be used
+	 * @return
+	 */
+	protected List<Object> appendFilter(StringBuilder sqlBuilder, List<Condition> filterConditions, List<SqlTempTable> tempTables) {
 		List<Object> parameters = null;
 		if (filterConditions != null && !filterConditions.isEmpty()) {
-			List<SqlCondition> sqlConditions = filterConditions.stream().map(c -> getConditionBuilder().build(c, getDbTypeConvertor()::toDbValue)).collect(Collectors.toList());
-			List<String> whereClause = sqlConditions.stream().map(c -> c.getConditionWithPlaceholders()).collect(Collectors.toList());
-			parameters = sqlConditions.stream().flatMap(c -> c.getValues().stream()).collect(Collectors.toList());
-			sqlBuilder.append(" WHERE ").append(CollectionFuns.join(whereClause, " AND "));
+			// Conditions are rendered directly to the statement, in one pass
+			parameters = new ArrayList<>(Math.max(10, 2 * filterConditions.size()));
+			SqlConditionRenderer renderer = getConditionRenderer();
+			sqlBuilder.append(" WHERE ");
+			renderer.renderConjunction(filterConditions, new SqlRenderContext(renderer, sqlBuilder, parameters, getDbTypeConvertor()::toDbValue, getDialect(), tempTables));
 		}
 		return parameters;
 	}
 
+	/**
+	 * Creates temporary tables and fills them with values using batched inserts.
+	 */
+	protected void createTempTables(Connection conn, List<SqlTempTable> tempTables) throws SQLException {
+		for (SqlTempTable tempTable : tempTables) {
+			try (Statement statement = conn.createStatement()) {
+				statement.execute(getDialect().composeCreateTempTable(tempTable.getName(), SqlTempTable.VALUE_COLUMN, tempTable.getColumnType()));
+			}
+			String insertSql = "INSERT INTO " + tempTable.getName() + " (" + SqlTempTable.VALUE_COLUMN + ") VALUES (?)";
+			try (PreparedStatement statement = conn.prepareStatement(insertSql)) {
+				List<?> values = tempTable.getValues();
+				int batchSize = getBatchSize();
+				for (int i = 0; i < values.size(); i++) {
+					// Primitive values are bound without boxing
+					if (values instanceof IntValues) {
+						statement.setInt(1, ((IntValues)values).getInt(i));
+					} else if (values instanceof LongValues) {
+						statement.setLong(1, ((LongValues)values).getLong(i));
+					} else {
+						Object value = getDbTypeConvertor().toDbValue(values.get(i));
+						getParameterBinders().getBinderForValue(value).bind(statement, 1, value);
+					}
+					statement.addBatch();
+					if ((i + 1) % batchSize == 0 || i == values.size() - 1) {
+						statement.executeBatch();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Drops temporary tables created for a statement, so the connection can be reused (e.g. in a connection pool).
+	 */
+	protected void dropTempTables(Connection conn, List<SqlTempTable> tempTables) {
+		for (SqlTempTable tempTable : tempTables) {
+			try (Statement statement = conn.createStatement()) {
+				statement.execute(getDialect().composeDropTempTable(tempTable.getName()));
+			} catch (SQLException ex) {
+				log.warn("Temporary table {} was not dropped: {}", tempTable.getName(), ex.getMessage());
+			}
+		}
+	}
+
 	protected void appendGrouping(StringBuilder sqlBuilder, List<Group> grouping) {
 		if (grouping != null && !grouping.isEmpty()) {
 			List<String> groupByAttributes = grouping.stream().map(c -> c.getAttribute()).collect(Collectors.toList());
@@ -457,20 +1063,66 @@ public abstract class AbstractSqlRepository<T, K, F> implements Repository<T, K,
 	}
 
 	protected void appendPagination(StringBuilder sqlBuilder, Pagination pagination) {
-		if (pagination != null) {
-			// TODO RBe: Abstraction over different databases?
-			sqlBuilder.append(" LIMIT " + pagination.getLimit() + " OFFSET " + pagination.getOffset());
-		}
+		getDialect().appendPagination(sqlBuilder, pagination);
 	}
 
 	protected void setParameters(PreparedStatement statement, List<Object> parameters) throws SQLException {
+		setParameters(statement, parameters, null);
+	}
+
+	/**
+	 * Binds parameters of the statement using typed setters. Binders of parameters covered by the binding plan
+	 * are already selected, binders of other parameters are selected according to classes of the values.
+	 * @param statement
+	 * @param parameters values of parameters
+	 * @param bindingPlan plan of binding of leading parameters, can be null
+	 * @throws SQLException
+	 */
+	protected void setParameters(PreparedStatement statement, List<Object> parameters, BindingPlan bindingPlan) throws SQLException {
 		if (parameters != null) {
-            int i = 0;
-            for (Object paramValue : parameters) {
-                statement.setObject(i + 1, paramValue);
-                i++;
-            }
-        }
+			ParameterBinders binders = getParameterBinders();
+			int i = 0;
+			for (Object paramValue : parameters) {
+				if (paramValue instanceof SqlArrayParameter) {
+					statement.setArray(i + 1, getDialect().createArrayParameter(statement.getConnection(), ((SqlArrayParameter)paramValue).getValues()));
+				} else if (bindingPlan != null) {
+					bindingPlan.getBinder(i, paramValue).bind(statement, i + 1, paramValue);
+				} else {
+					binders.getBinderForValue(paramValue).bind(statement, i + 1, paramValue);
+				}
+				i++;
+			}
+		}
+	}
+
+	/**
+	 * Returns plan of binding of parameters of given statement, the plan is cached by the statement.
+	 * @param sql statement
+	 * @param rowClasses classes of values of parameters in one row of values
+	 * @param rowCount count of rows of parameters in the statement
+	 * @return
+	 */
+	protected BindingPlan getBindingPlan(String sql, List<Class<?>> rowClasses, int rowCount) {
+		BindingPlan plan = bindingPlans.get(sql);
+		if (plan == null) {
+			List<Class<?>> classes = new ArrayList<>(rowClasses.size() * rowCount);
+			for (int i = 0; i < rowCount; i++) {
+				classes.addAll(rowClasses);
+			}
+			plan = getParameterBinders().createPlan(classes);
+			if (bindingPlans.size() < MAX_BINDING_PLANS) {
+				bindingPlans.put(sql, plan);
+			}
+		}
+		return plan;
+	}
+
+	/**
+	 * Returns classes of values of given attributes converted by the {@link #getDbTypeConvertor() convertor}.
+	 */
+	protected <E> List<Class<?>> getAttributeClasses(List<Attribute<E, ?>> attributes) {
+		DbTypeConvertor convertor = getDbTypeConvertor();
+		return attributes.stream().map(a -> convertor.toDbValueClass(a.getAttributeClass())).collect(Collectors.toList());
 	}
 
 	protected void logSqlWithParameters(String sql, List<Object> parameters) {
@@ -514,14 +1166,24 @@ public abstract class AbstractSqlRepository<T, K, F> implements Repository<T, K,
 	}
 
 	protected <U> U withNewConnection(CheckedFunction<Connection, U> queryData) {
+		return withNewConnection(RepositoryOperation.NOOP, queryData);
+	}
+
+	/**
+	 * Executes given function with a new connection, measured operation is notified about acquired connection
+	 * and about failure.
+	 */
+	protected <U> U withNewConnection(RepositoryOperation operation, CheckedFunction<Connection, U> queryData) {
 		Connection conn = null;
 		boolean success = false;
 		U result = null;
 		try {
 			conn = getDataSource().getConnection();
+			operation.connectionAcquired();
 			result = queryData.apply(conn);
 			success = true;
 		} catch (Exception ex) {
+			operation.failed(ex);
 			throw new RepositoryException(ex.getMessage(), ex);
 		} finally {
 			if (conn != null) {
@@ -547,6 +1209,113 @@ public abstract class AbstractSqlRepository<T, K, F> implements Repository<T, K,
 		return result;
 	}
 
+	/**
+	 * Composes statement that inserts all attributes of entity, or updates existing record with the same primary key,
+	 * using syntax of the {@link #getDialect() dialect}.
+	 * @return
+	 */
+	protected String composeUpsertSql() {
+		EntityMapper<T, F> entityMapper = getEntityMapper();
+		List<String> pkNames = entityMapper.getPrimaryAttributeNames();
+		if (pkNames.isEmpty()) {
+			throw new IllegalStateException("Please define some primary attributes of entity (data set " + entityMapper.getTableName() + ")");
+		}
+		return getDialect().composeUpsertSql(entityMapper.getTableNameWithDb(), entityMapper.getAttributeNames(), pkNames);
+	}
+
+	/**
+	 * Composes INSERT statement with given count of rows in VALUES clause.
+	 * @param attributeNames inserted attributes
+	 * @param rowCount
+	 * @return
+	 */
+	protected String composeMultiRowInsertSql(List<String> attributeNames, int rowCount) {
+		String rowPlaceholders = "(" + getPlaceholdersCommaSeparated(attributeNames.size()) + ")";
+		return "INSERT INTO " + getEntityMapper().getTableNameWithDb() + " (" + CollectionFuns.join(attributeNames, ",") + ") VALUES " +
+			CollectionFuns.join(Collections.nCopies(rowCount, rowPlaceholders), ",");
+	}
+
+	/**
+	 * Creates given entities with generated keys using INSERT ... RETURNING statements (or their equivalent in the dialect),
+	 * created entities are built from returned records.
+	 */
+	protected List<T> createAllReturning(List<T> entities) {
+		EntityMapper<T, F> entityMapper = getEntityMapper();
+		List<String> pkNames = entityMapper.getPrimaryAttributeNames();
+		// Primary key attributes are omitted so they are generated by the database
+		List<String> insertedNames = entityMapper.getAttributeNames().stream().filter(n -> !pkNames.contains(n)).collect(Collectors.toList());
+		List<T> createdEntities = new ArrayList<>();
+		for (List<T> chunk : getInsertChunks(entities, insertedNames.size())) {
+			List<Object> attributeValues = new ArrayList<>();
+			for (T entity : chunk) {
+				List<Object> values = entityMapper.getAttributeValues(entity);
+				for (int i = 0; i < values.size(); i++) {
+					if (!pkNames.contains(entityMapper.getAttributeNames().get(i))) {
+						attributeValues.add(getDbTypeConvertor().toDbValue(values.get(i)));
+					}
+				}
+			}
+			String sql = getDialect().composeInsertReturning(composeMultiRowInsertSql(insertedNames, chunk.size()), entityMapper.getAttributeNames());
+			List<Attribute<T, ?>> insertedAttributes = entityMapper.getAttributes().stream().filter(a -> !pkNames.contains(a.getName())).collect(Collectors.toList());
+			BindingPlan bindingPlan = getBindingPlan(sql, getAttributeClasses(insertedAttributes), chunk.size());
+			RepositoryOperation operation = getMetrics().start(OperationType.CREATE, entityMapper.getTableName(), sql, attributeValues.size());
+			createdEntities.addAll(withNewConnection(operation, conn -> {
+				List<T> created = new ArrayList<>();
+				try (PreparedStatement statement = conn.prepareStatement(sql)) {
+					setParameters(statement, attributeValues, bindingPlan);
+					try (ResultSet rs = statement.executeQuery()) {
+						operation.executed();
+						while (rs.next()) {
+							created.add(entityMapper.buildEntity(new ResultSetAttributeSource(rs)));
+						}
+					}
+					logSqlWithParameters(sql, attributeValues);
+					operation.finished(created.size());
+				} catch (Exception ex) {
+					throw new RepositoryException(ex.getMessage(), ex);
+				}
+				return created;
+			}));
+		}
+		return createdEntities;
+	}
+
+	/**
+	 * Splits entities to chunks that are inserted by one multi-row INSERT statement.
+	 * @param entities
+	 * @param columnCount count of inserted columns in one row
+	 * @return
+	 */
+	protected List<List<T>> getInsertChunks(List<T> entities, int columnCount) {
+		int chunkSize = Math.max(1, Math.min(getBatchSize(), getDialect().getMaxParameterCount() / Math.max(1, columnCount)));
+		List<List<T>> chunks = new ArrayList<>();
+		for (int i = 0; i < entities.size(); i += chunkSize) {
+			chunks.add(entities.subList(i, Math.min(i + chunkSize, entities.size())));
+		}
+		return chunks;
+	}
+
+	/**
+	 * Returns SQL dialect of the database. Dialect is detected from metadata of database connection
+	 * when it is first needed, subclasses can override this to use explicit dialect.
+	 * @return
+	 */
+	protected SqlDialect getDialect() {
+		SqlDialect d = dialect;
+		if (d == null) {
+			d = withNewConnection(conn -> SqlDialects.fromMetaData(conn.getMetaData()));
+			dialect = d;
+		}
+		return d;
+	}
+
+	/**
+	 * Returns maximum count of statements executed in one JDBC batch.
+	 */
+	protected int getBatchSize() {
+		return 1000;
+	}
+
 	/** Returns string with comma-separated question marks, one for each database column name. */
 	protected String getPlaceholdersCommaSeparated(int count) {
 		return CollectionFuns.join(Collections.nCopies(count, "?"), ",");
@@ -557,14 +1326,106 @@ public abstract class AbstractSqlRepository<T, K, F> implements Repository<T, K,
 		return CollectionFuns.join(attributeNames.stream().map(attrName -> attrName + "=?").collect(Collectors.toList()), ",");
 	}
 
+	/**
+	 * Returns maximum count of ids loaded by one query in {@link #findMapByIds(Collection)}.
+	 */
+	protected int getFindByIdsChunkSize() {
+		return 1000;
+	}
+
+	/**
+	 * Returns executor used for queries that can be executed in parallel, null (default) to execute them one by one
+	 * on the calling thread. The queries block threads of the executor, so it should be a bounded executor owned
+	 * by the application (not {@link java.util.concurrent.ForkJoinPool#commonPool()}) with at most as many threads
+	 * as can be served by the connection pool.
+	 */
+	protected Executor getQueryExecutor() {
+		return null;
+	}
+
+	/**
+	 * Returns metrics notified about executed statements, metrics are disabled by default.
+	 */
+	protected RepositoryMetrics getMetrics() {
+		return RepositoryMetrics.NONE;
+	}
+
+	/**
+	 * Returns analyzer of slow queries and their shapes used by index advisor, or null if queries should not be analyzed (default).
+	 * Queries of entities and aggregations ({@link #aggByFilter}) are analyzed, except for queries of joined entities,
+	 * queries using temporary tables (their plans cannot be explained using another connection) and streamed queries
+	 * (their duration includes processing of the rows). Duration is measured from acquisition of the connection.
+	 */
+	protected SlowQueryAnalyzer getSlowQueryAnalyzer() {
+		return null;
+	}
+
+	/**
+	 * Returns optimizer that normalizes filter conditions before they are rendered to SQL,
+	 * or null if conditions should be rendered as they are.
+	 */
+	protected ConditionOptimizer getConditionOptimizer() {
+		return conditionOptimizer;
+	}
+
+	/**
+	 * Returns optimized conjunction of filter conditions, see {@link ConditionOptimizer}.
+	 */
+	protected List<Condition> optimizeConditions(List<Condition> filterConditions) {
+		ConditionOptimizer optimizer = getConditionOptimizer();
+		return optimizer != null ? optimizer.optimize(filterConditions) : filterConditions;
+	}
+
+	/**
+	 * True if given optimized filter conditions cannot match any record, so the database need not be queried.
+	 */
+	protected boolean isAlwaysFalse(List<Condition> filterConditions) {
+		ConditionOptimizer optimizer = getConditionOptimizer();
+		return optimizer != null && optimizer.isAlwaysFalse(filterConditions);
+	}
+
+	/**
+	 * Returns result of aggregation over no records: zero for count, null for other aggregation types.
+	 */
+	protected <R> R emptyAggregation(AggType aggType, Class<R> resultClass) {
+		if (aggType != AggType.COUNT) {
+			return null;
+		}
+		Object zero;
+		if (Long.class.equals(resultClass)) {
+			zero = 0L;
+		} else if (BigDecimal.class.equals(resultClass)) {
+			zero = BigDecimal.ZERO;
+		} else if (BigInteger.class.equals(resultClass)) {
+			zero = BigInteger.ZERO;
+		} else {
+			zero = 0;
+		}
+		return resultClass.isInstance(zero) ? resultClass.cast(zero) : null;
+	}
+
 	protected SqlConditionBuilder getConditionBuilder() {
 		return sqlConditionBuilder;
 	}
 
+	/**
+	 * Returns renderer of conditions to WHERE clause, custom condition types can be registered to it.
+	 */
+	protected SqlConditionRenderer getConditionRenderer() {
+		return getConditionBuilder().getRenderer();
+	}
+
     protected DbTypeConvertor getDbTypeConvertor() {
         return dbTypeConvertor;
     }
 
+	/**
+	 * Returns registry of binders of statement parameters, custom binders can be registered to it.
+	 */
+	protected ParameterBinders getParameterBinders() {
+		return parameterBinders;
+	}
+
 	private <T, F> boolean isJoinWithManyMapper(EntityMapper<T, F> entityMappper) {
 		if (!(entityMappper instanceof JoinEntityMapper)) {
 			return false;
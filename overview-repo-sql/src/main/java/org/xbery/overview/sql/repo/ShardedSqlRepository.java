@@ -0,0 +1,559 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.sql.repo;
+
+import org.xbery.overview.Group;
+import org.xbery.overview.Order;
+import org.xbery.overview.Overview;
+import org.xbery.overview.Pagination;
+import org.xbery.overview.Projection;
+import org.xbery.overview.common.Pair;
+import org.xbery.overview.mapper.Attribute;
+import org.xbery.overview.mapper.EntityMapper;
+import org.xbery.overview.repo.AggType;
+import org.xbery.overview.repo.Repository;
+import org.xbery.overview.repo.RepositoryException;
+import org.xbery.overview.sql.dialect.SqlDialect;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * SQL repository that distributes entities over multiple databases (shards).
+ * Operations with known key are routed to one shard using shard function applied on the key,
+ * queries by filter are executed in parallel on all shards and their results are merged.
+ * Ordering and pagination are applied globally: each shard returns first offset + limit records
+ * in requested ordering and these sorted partial results are merged using k-way merge.
+ * Results can be merged if they are ordered by attributes with numbers, temporals, booleans or strings,
+ * strings and null values are compared as in the {@link SqlDialect dialect} of the first shard,
+ * see {@link #getValueComparator(Class, SqlDialect)}.
+ * <p>
+ * Repository should be closed when it is no longer used, to shut down its default thread pool.
+ * @param <T> type of entity
+ * @param <K> type of entity key (composed keys are supported)
+ * @param <F> type of filter
+ * @author Radek Beran
+ */
+public class ShardedSqlRepository<T, K, F> implements Repository<T, K, F>, AutoCloseable {
+
+    private final List<AbstractSqlRepository<T, K, F>> shards;
+
+    private final EntityMapper<T, F> entityMapper;
+
+    private final ToIntFunction<K> shardFunction;
+
+    private final Executor executor;
+
+    /**
+     * Default thread pool created by this repository, or null if the executor was given.
+     */
+    private final ExecutorService defaultExecutor;
+
+    /**
+     * Creates sharded repository with shards chosen by hash code of entity key.
+     * @param dataSources data sources of shards
+     * @param entityMapper
+     */
+    public ShardedSqlRepository(List<DataSource> dataSources, EntityMapper<T, F> entityMapper) {
+        this(dataSources, entityMapper, null);
+    }
+
+    /**
+     * @param dataSources data sources of shards
+     * @param entityMapper
+     * @param shardFunction function returning index of shard (to list of data sources) for given key,
+     * or null for shards chosen by hash code of entity key
+     */
+    public ShardedSqlRepository(List<DataSource> dataSources, EntityMapper<T, F> entityMapper, ToIntFunction<K> shardFunction) {
+        this(dataSources, entityMapper, shardFunction, null);
+    }
+
+    /**
+     * @param dataSources data sources of shards
+     * @param entityMapper
+     * @param shardFunction function returning index of shard (to list of data sources) for given key,
+     * or null for shards chosen by hash code of entity key
+     * @param executor executor for parallel queries on shards, or null for default fixed thread pool with one thread per shard
+     * (that is shut down by {@link #close()}), given executor is not shut down by this repository
+     */
+    public ShardedSqlRepository(List<DataSource> dataSources, EntityMapper<T, F> entityMapper, ToIntFunction<K> shardFunction, Executor executor) {
+        Objects.requireNonNull(dataSources, "data sources should be specified");
+        Objects.requireNonNull(entityMapper, "entityMapper should be specified");
+        if (dataSources.isEmpty()) {
+            throw new IllegalArgumentException("At least one data source should be specified");
+        }
+        this.entityMapper = entityMapper;
+        this.shards = Collections.unmodifiableList(dataSources.stream().map(ds -> createShardRepository(ds, entityMapper)).collect(Collectors.toList()));
+        int shardCount = dataSources.size();
+        this.shardFunction = shardFunction != null ? shardFunction : (key -> Math.floorMod(key.hashCode(), shardCount));
+        this.defaultExecutor = executor != null ? null : Executors.newFixedThreadPool(shardCount, r -> {
+            Thread thread = new Thread(r, "sharded-repository-" + entityMapper.getTableName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor = executor != null ? executor : defaultExecutor;
+    }
+
+    /**
+     * Shuts down the default thread pool of this repository, executor given to the constructor is left running.
+     */
+    @Override
+    public void close() {
+        if (defaultExecutor != null) {
+            defaultExecutor.shutdown();
+        }
+    }
+
+    @Override
+    public EntityMapper<T, F> getEntityMapper() {
+        return entityMapper;
+    }
+
+    /**
+     * Returns repositories of all shards.
+     * @return
+     */
+    public List<AbstractSqlRepository<T, K, F>> getShards() {
+        return shards;
+    }
+
+    /**
+     * Returns repository of shard for given key.
+     * @param key
+     * @return
+     */
+    public AbstractSqlRepository<T, K, F> getShard(K key) {
+        Objects.requireNonNull(key, "key should be specified");
+        int shardIndex = shardFunction.applyAsInt(key);
+        if (shardIndex < 0 || shardIndex >= shards.size()) {
+            throw new IllegalStateException("Shard function returned index " + shardIndex + " for key " + key + ", there are " + shards.size() + " shards");
+        }
+        return shards.get(shardIndex);
+    }
+
+    @Override
+    public T create(T entity, boolean autogenerateKey) {
+        Objects.requireNonNull(entity, "Entity should be specified");
+        if (autogenerateKey) {
+            // Key generated by one of the databases would not be unique across shards, nor routed to the same shard
+            throw new UnsupportedOperationException("Generated keys are not supported by sharded repository, key must be assigned before the entity is created");
+        }
+        return getShard(getEntityKey(entity)).create(entity, false);
+    }
+
+    @Override
+    public List<T> createAll(List<T> entities, boolean autogenerateKey) {
+        List<T> created = new ArrayList<>();
+        if (entities != null) {
+            if (autogenerateKey) {
+                throw new UnsupportedOperationException("Generated keys are not supported by sharded repository, key must be assigned before the entity is created");
+            }
+            Map<AbstractSqlRepository<T, K, F>, List<T>> entitiesByShard = new LinkedHashMap<>();
+            for (T entity : entities) {
+                entitiesByShard.computeIfAbsent(getShard(getEntityKey(entity)), s -> new ArrayList<>()).add(entity);
+            }
+            for (Map.Entry<AbstractSqlRepository<T, K, F>, List<T>> e : entitiesByShard.entrySet()) {
+                e.getKey().createAll(e.getValue(), false);
+            }
+            // Keys are not generated, stored entities are the given ones
+            created.addAll(entities);
+        }
+        return created;
+    }
+
+    @Override
+    public int upsertAll(List<T> entities) {
+        if (entities == null || entities.isEmpty()) {
+            return 0;
+        }
+        Map<AbstractSqlRepository<T, K, F>, List<T>> entitiesByShard = new LinkedHashMap<>();
+        for (T entity : entities) {
+            entitiesByShard.computeIfAbsent(getShard(getEntityKey(entity)), s -> new ArrayList<>()).add(entity);
+        }
+        return onAllShards(shard -> entitiesByShard.containsKey(shard) ? shard.upsertAll(entitiesByShard.get(shard)) : 0)
+            .stream().mapToInt(Integer::intValue).sum();
+    }
+
+    @Override
+    public Optional<T> update(T entity) {
+        Objects.requireNonNull(entity, "Entity should be specified");
+        return getShard(getEntityKey(entity)).update(entity);
+    }
+
+    @Override
+    public int update(K id, List<Pair<Attribute<T, ?>, Object>> attributesWithValues) {
+        return getShard(id).update(id, attributesWithValues);
+    }
+
+    @Override
+    public boolean delete(K id) {
+        return getShard(id).delete(id);
+    }
+
+    @Override
+    public int deleteByFilter(F filter) {
+        Objects.requireNonNull(filter, "filter should be specified");
+        return onAllShards(shard -> shard.deleteByFilter(filter)).stream().mapToInt(Integer::intValue).sum();
+    }
+
+    @Override
+    public <T, K, F> Optional<T> findById(K id, EntityMapper<T, F> entityMapper) {
+        return getShardForKey(id).findById(id, entityMapper);
+    }
+
+    @Override
+    public Map<K, T> findMapByIds(Collection<K> ids) {
+        Objects.requireNonNull(ids, "ids should be specified");
+        Map<AbstractSqlRepository<T, K, F>, List<K>> idsByShard = new LinkedHashMap<>();
+        for (K id : new LinkedHashSet<>(ids)) {
+            idsByShard.computeIfAbsent(getShard(id), s -> new ArrayList<>()).add(id);
+        }
+        Map<K, T> foundEntities = new HashMap<>();
+        onAllShards(shard -> idsByShard.containsKey(shard) ? shard.findMapByIds(idsByShard.get(shard)) : Collections.<K, T>emptyMap())
+            .forEach(foundEntities::putAll);
+        Map<K, T> entitiesById = new LinkedHashMap<>();
+        for (K id : ids) {
+            T entity = foundEntities.get(id);
+            if (entity != null) {
+                entitiesById.put(id, entity);
+            }
+        }
+        return entitiesById;
+    }
+
+    @Override
+    public List<T> findByOverview(Overview<F> overview) {
+        return findByOverview(overview, getEntityMapper());
+    }
+
+    @Override
+    public <T, F> List<T> findByOverview(Overview<F> overview, EntityMapper<T, F> entityMapper) {
+        Objects.requireNonNull(overview, "overview should be specified");
+        Objects.requireNonNull(entityMapper, "entityMapper should be specified");
+        if (overview.getGrouping() != null && !overview.getGrouping().isEmpty()) {
+            throw new UnsupportedOperationException("Grouping of entities cannot be merged across shards");
+        }
+        List<Order> ordering = overview.getOrdering() != null && !overview.getOrdering().isEmpty() ? overview.getOrdering() : entityMapper.defaultOrdering();
+        Comparator<T> comparator = createComparator(ordering, entityMapper);
+        Pagination pagination = overview.getPagination();
+
+        // Each shard must return all records that can appear on the requested page, in the same ordering as they are merged
+        Overview<F> orderedOverview = overview.withOrdering(ordering);
+        if (overview.getProjection() != null) {
+            // Results are merged by values of ordering attributes, so they must be loaded
+            orderedOverview = orderedOverview.withProjection(createMergeableProjection(overview.getProjection(), ordering, entityMapper));
+        }
+        Overview<F> shardOverview = pagination != null ?
+            orderedOverview.withPagination(new Pagination(0, (int)Math.min((long)pagination.getOffset() + pagination.getLimit(), Integer.MAX_VALUE))) :
+            orderedOverview;
+        List<List<T>> shardResults = onAllShards(shard -> shard.findByOverview(shardOverview, entityMapper));
+
+        List<T> results = new ArrayList<>();
+        int offset = pagination != null ? pagination.getOffset() : 0;
+        int limit = pagination != null ? pagination.getLimit() : Integer.MAX_VALUE;
+        int index = 0;
+        Iterator<T> merged = mergeSorted(shardResults, comparator);
+        while (merged.hasNext() && results.size() < limit) {
+            T entity = merged.next();
+            if (index >= offset) {
+                results.add(entity);
+            }
+            index++;
+        }
+        return results;
+    }
+
+    @Override
+    public <R, T, F> R aggByFilter(AggType aggType, Class<R> resultClass, String attrName, F filter, List<Group> grouping, EntityMapper<T, F> entityMapper) {
+        Objects.requireNonNull(aggType, "aggregation type should be specified");
+        Objects.requireNonNull(resultClass, "result class should be specified");
+        Objects.requireNonNull(attrName, "attribute name should be specified");
+        if (grouping != null && !grouping.isEmpty()) {
+            throw new UnsupportedOperationException("Grouped aggregation cannot be merged across shards");
+        }
+        R result;
+        switch (aggType) {
+            case COUNT:
+                long count = onAllShards(shard -> shard.aggByFilter(AggType.COUNT, Long.class, attrName, filter, null, entityMapper))
+                    .stream().mapToLong(c -> c != null ? c : 0L).sum();
+                result = convertNumber(BigDecimal.valueOf(count), resultClass);
+                break;
+            case SUM:
+                result = convertNumber(sum(onAllShards(shard -> shard.aggByFilter(AggType.SUM, BigDecimal.class, attrName, filter, null, entityMapper))), resultClass);
+                break;
+            case MIN:
+            case MAX:
+                result = minOrMax(aggType, resultClass, attrName, filter, entityMapper);
+                break;
+            case AVG:
+                result = avg(resultClass, attrName, filter, entityMapper);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported aggregation type: " + aggType);
+        }
+        return result;
+    }
+
+    /**
+     * Creates repository for one shard.
+     * @param dataSource
+     * @param entityMapper
+     * @return
+     */
+    protected AbstractSqlRepository<T, K, F> createShardRepository(DataSource dataSource, EntityMapper<T, F> entityMapper) {
+        return new SqlRepository<>(dataSource, entityMapper);
+    }
+
+    /**
+     * Returns key of given entity which is used to choose the shard.
+     * Subclasses should override this for entities with composite keys.
+     * @param entity
+     * @return
+     */
+    @SuppressWarnings("unchecked") // single primary attribute is the key
+    protected K getEntityKey(T entity) {
+        List<Object> pkValues = getEntityMapper().getPrimaryAttributeValues(entity);
+        if (pkValues.size() != 1) {
+            throw new UnsupportedOperationException("Key of entity with composite or no primary key cannot be determined, please override getEntityKey. Data set: " + getEntityMapper().getTableName());
+        }
+        return (K)pkValues.get(0);
+    }
+
+    /**
+     * Executes given function on all shards in parallel and returns results in order of shards.
+     * @param fn
+     * @param <R>
+     * @return
+     */
+    protected <R> List<R> onAllShards(Function<AbstractSqlRepository<T, K, F>, R> fn) {
+        if (shards.size() == 1) {
+            return Collections.singletonList(fn.apply(shards.get(0)));
+        }
+        List<CompletableFuture<R>> futures = shards.stream()
+            .map(shard -> CompletableFuture.supplyAsync(() -> fn.apply(shard), executor))
+            .collect(Collectors.toList());
+        try {
+            return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)ex.getCause();
+            }
+            throw new RepositoryException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Returns shard for key of generic method of {@link Repository} that shadows the type of key of this repository.
+     */
+    @SuppressWarnings("unchecked")
+    private AbstractSqlRepository<T, K, F> getShardForKey(Object key) {
+        return getShard((K)key);
+    }
+
+    private <R, T, F> R minOrMax(AggType aggType, Class<R> resultClass, String attrName, F filter, EntityMapper<T, F> entityMapper) {
+        // Numbers are loaded as BigDecimal so missing values are not confused with zero
+        boolean numeric = Number.class.isAssignableFrom(resultClass);
+        Class<?> loadedClass = numeric ? BigDecimal.class : resultClass;
+        List<?> values = onAllShards(shard -> shard.aggByFilter(aggType, loadedClass, attrName, filter, null, entityMapper));
+        Comparator<Object> comparator = getValueComparator(loadedClass, shards.get(0).getDialect());
+        Object best = null;
+        for (Object value : values) {
+            if (value != null) {
+                if (best == null || (aggType == AggType.MIN ? comparator.compare(value, best) < 0 : comparator.compare(value, best) > 0)) {
+                    best = value;
+                }
+            }
+        }
+        return numeric ? convertNumber((BigDecimal)best, resultClass) : resultClass.cast(best);
+    }
+
+    private <R, T, F> R avg(Class<R> resultClass, String attrName, F filter, EntityMapper<T, F> entityMapper) {
+        // Average of averages is not the average of all values, partial sums and counts must be combined
+        List<List<Object>> partials = onAllShards(shard -> shard.aggsByFilter(
+            Arrays.asList(AggType.SUM, AggType.COUNT), Arrays.asList(BigDecimal.class, Long.class), attrName, filter, null, entityMapper));
+        BigDecimal sum = sum(partials.stream().map(p -> (BigDecimal)p.get(0)).collect(Collectors.toList()));
+        long count = partials.stream().mapToLong(p -> p.get(1) != null ? (Long)p.get(1) : 0L).sum();
+        return count > 0 ? convertNumber(sum.divide(BigDecimal.valueOf(count), MathContext.DECIMAL128), resultClass) : null;
+    }
+
+    private static BigDecimal sum(List<BigDecimal> values) {
+        BigDecimal sum = null;
+        for (BigDecimal value : values) {
+            if (value != null) {
+                sum = sum != null ? sum.add(value) : value;
+            }
+        }
+        return sum;
+    }
+
+    private static <R> R convertNumber(BigDecimal value, Class<R> resultClass) {
+        Object result;
+        if (value == null) {
+            result = null;
+        } else if (resultClass.isAssignableFrom(BigDecimal.class)) {
+            result = value;
+        } else if (resultClass.isAssignableFrom(Integer.class)) {
+            result = value.intValue();
+        } else if (resultClass.isAssignableFrom(Long.class)) {
+            result = value.longValue();
+        } else if (resultClass.isAssignableFrom(Double.class)) {
+            result = value.doubleValue();
+        } else if (resultClass.isAssignableFrom(Float.class)) {
+            result = value.floatValue();
+        } else if (resultClass.isAssignableFrom(Short.class)) {
+            result = value.shortValue();
+        } else if (resultClass.isAssignableFrom(Byte.class)) {
+            result = value.byteValue();
+        } else if (resultClass.isAssignableFrom(BigInteger.class)) {
+            result = value.toBigInteger();
+        } else {
+            throw new IllegalArgumentException("Unsupported result class of aggregation: " + resultClass);
+        }
+        return resultClass.cast(result);
+    }
+
+    /**
+     * Returns comparator of attribute values of given class consistent with their ordering in the database.
+     * Numbers, temporals, booleans and strings (ordered by {@link SqlDialect#getStringComparator()}) are supported,
+     * subclasses can override this to merge results ordered by other values.
+     * @param valueClass class of attribute values
+     * @param dialect dialect of the shards
+     * @return
+     * @throws UnsupportedOperationException if values of given class cannot be compared
+     */
+    protected Comparator<Object> getValueComparator(Class<?> valueClass, SqlDialect dialect) {
+        Comparator<Object> comparator;
+        if (String.class.equals(valueClass)) {
+            Comparator<String> stringComparator = dialect.getStringComparator();
+            comparator = (a, b) -> stringComparator.compare((String)a, (String)b);
+        } else if (Integer.class.equals(valueClass) || Long.class.equals(valueClass) || Short.class.equals(valueClass) || Byte.class.equals(valueClass)) {
+            comparator = Comparator.comparingLong(v -> ((Number)v).longValue());
+        } else if (Double.class.equals(valueClass) || Float.class.equals(valueClass)) {
+            comparator = Comparator.comparingDouble(v -> ((Number)v).doubleValue());
+        } else if (BigDecimal.class.equals(valueClass)) {
+            comparator = Comparator.comparing(v -> (BigDecimal)v);
+        } else if (BigInteger.class.equals(valueClass)) {
+            comparator = Comparator.comparing(v -> (BigInteger)v);
+        } else if (Boolean.class.equals(valueClass)) {
+            comparator = Comparator.comparing(v -> (Boolean)v);
+        } else if (Date.class.isAssignableFrom(valueClass)) {
+            comparator = Comparator.comparing(v -> (Date)v);
+        } else if (Instant.class.equals(valueClass)) {
+            comparator = Comparator.comparing(v -> (Instant)v);
+        } else if (LocalDate.class.equals(valueClass)) {
+            comparator = Comparator.comparing(v -> (LocalDate)v);
+        } else if (LocalDateTime.class.equals(valueClass)) {
+            comparator = Comparator.comparing(v -> (LocalDateTime)v);
+        } else if (LocalTime.class.equals(valueClass)) {
+            comparator = Comparator.comparing(v -> (LocalTime)v);
+        } else {
+            throw new UnsupportedOperationException("Values of " + valueClass + " cannot be compared as in the database, results ordered by them cannot be merged across shards");
+        }
+        return comparator;
+    }
+
+    private <E, G> Comparator<E> createComparator(List<Order> ordering, EntityMapper<E, G> entityMapper) {
+        SqlDialect dialect = shards.get(0).getDialect();
+        Comparator<E> comparator = null;
+        if (ordering != null) {
+            for (Order order : ordering) {
+                Attribute<E, ?> attribute = getOrderingAttribute(order, entityMapper);
+                Comparator<Object> valueComparator = getValueComparator(attribute.getAttributeClass(), dialect);
+                Comparator<E> attrComparator = Comparator.comparing(attribute::getValue,
+                    dialect.sortsNullsFirst() ? Comparator.nullsFirst(valueComparator) : Comparator.nullsLast(valueComparator));
+                if (order.isDesc()) {
+                    attrComparator = attrComparator.reversed();
+                }
+                comparator = comparator == null ? attrComparator : comparator.thenComparing(attrComparator);
+            }
+        }
+        return comparator;
+    }
+
+    /**
+     * Returns given projection completed with attributes of given ordering.
+     */
+    private <E, G> Projection createMergeableProjection(Projection projection, List<Order> ordering, EntityMapper<E, G> entityMapper) {
+        List<Attribute<E, ?>> attributes = new ArrayList<>(entityMapper.getAttributesOfProjection(projection));
+        if (ordering != null) {
+            for (Order order : ordering) {
+                Attribute<E, ?> attribute = getOrderingAttribute(order, entityMapper);
+                if (!attributes.contains(attribute)) {
+                    attributes.add(attribute);
+                }
+            }
+        }
+        return new Projection(projection.getName(), attributes);
+    }
+
+    private <E, G> Attribute<E, ?> getOrderingAttribute(Order order, EntityMapper<E, G> entityMapper) {
+        return entityMapper.getAttributes().stream()
+            .filter(a -> order.getAttribute().equals(a.getNameFull()) || order.getAttribute().equals(a.getName()))
+            .findFirst()
+            .orElseThrow(() -> new UnsupportedOperationException("Results ordered by " + order.getAttribute() + " cannot be merged across shards, it is not an attribute of " + entityMapper.getTableName()));
+    }
+
+    /**
+     * Merges lists sorted by given comparator, or concatenates them if there is no comparator.
+     */
+    private static <T> Iterator<T> mergeSorted(List<List<T>> sortedLists, Comparator<T> comparator) {
+        if (comparator == null) {
+            return sortedLists.stream().flatMap(List::stream).iterator();
+        }
+        PriorityQueue<Pair<T, Iterator<T>>> heads = new PriorityQueue<>(Math.max(1, sortedLists.size()), (a, b) -> comparator.compare(a.getFirst(), b.getFirst()));
+        for (List<T> list : sortedLists) {
+            Iterator<T> it = list.iterator();
+            if (it.hasNext()) {
+                heads.add(new Pair<>(it.next(), it));
+            }
+        }
+        return new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                Pair<T, Iterator<T>> head = heads.poll();
+                if (head == null) {
+                    throw new NoSuchElementException();
+                }
+                Iterator<T> it = head.getSecond();
+                if (it.hasNext()) {
+                    heads.add(new Pair<>(it.next(), it));
+                }
+                return head.getFirst();
+            }
+        };
+    }
+}
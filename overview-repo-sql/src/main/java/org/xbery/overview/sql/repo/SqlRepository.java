@@ -17,6 +17,8 @@
 package org.xbery.overview.sql.repo;
 
 import org.xbery.overview.mapper.EntityMapper;
+import org.xbery.overview.repo.metrics.RepositoryMetrics;
+import org.xbery.overview.sql.dialect.SqlDialect;
 
 import javax.sql.DataSource;
 
@@ -33,9 +35,34 @@ public class SqlRepository<T, K, F> extends AbstractSqlRepository<T, K, F> {
 
     private final EntityMapper<T, F> entityMapper;
 
-    public SqlRepository(DataSource dataSource, EntityMapper<T, F> entityMapper) {
+    private final SqlDialect dialect;
+
+    private final RepositoryMetrics metrics;
+
+    /**
+     * @param dataSource
+     * @param entityMapper
+     * @param dialect SQL dialect of the database, or null if it should be detected from database metadata
+     * @param metrics metrics notified about executed statements
+     */
+    public SqlRepository(DataSource dataSource, EntityMapper<T, F> entityMapper, SqlDialect dialect, RepositoryMetrics metrics) {
         this.dataSource = dataSource;
         this.entityMapper = entityMapper;
+        this.dialect = dialect;
+        this.metrics = metrics != null ? metrics : RepositoryMetrics.NONE;
+    }
+
+    /**
+     * @param dataSource
+     * @param entityMapper
+     * @param dialect SQL dialect of the database, or null if it should be detected from database metadata
+     */
+    public SqlRepository(DataSource dataSource, EntityMapper<T, F> entityMapper, SqlDialect dialect) {
+        this(dataSource, entityMapper, dialect, RepositoryMetrics.NONE);
+    }
+
+    public SqlRepository(DataSource dataSource, EntityMapper<T, F> entityMapper) {
+        this(dataSource, entityMapper, null);
     }
 
     @Override
@@ -43,6 +70,16 @@ public class SqlRepository<T, K, F> extends AbstractSqlRepository<T, K, F> {
         return dataSource;
     }
 
+    @Override
+    protected SqlDialect getDialect() {
+        return dialect != null ? dialect : super.getDialect();
+    }
+
+    @Override
+    protected RepositoryMetrics getMetrics() {
+        return metrics;
+    }
+
     @Override
     public EntityMapper<T, F> getEntityMapper() {
         return entityMapper;
@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.transfer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * Base implementation of {@link RecordWriter} writing text to a {@link Writer}.
+ * @author Radek Beran
+ */
+public abstract class AbstractRecordWriter implements RecordWriter {
+
+    protected final Writer writer;
+
+    protected AbstractRecordWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    /**
+     * Converts non-null value to its text representation: numbers without exponent, dates in ISO-8601 format
+     * and other values using their toString.
+     * @param value
+     * @return
+     */
+    protected String formatValue(Object value) {
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal)value).toPlainString();
+        }
+        if (value instanceof Date) {
+            return ((Date)value).toInstant().toString();
+        }
+        if (value instanceof Enum) {
+            return ((Enum<?>)value).name();
+        }
+        return value.toString();
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.transfer;
+
+import java.nio.file.Path;
+import java.util.OptionalInt;
+
+/**
+ * Loads whole file of records natively by the database, e.g. by {@link org.xbery.overview.sql.repo.AbstractSqlRepository#bulkLoad}.
+ * @author Radek Beran
+ */
+@FunctionalInterface
+public interface BulkLoader {
+
+    /**
+     * Loads records from given file.
+     * @param file file with records
+     * @param format format of the file
+     * @return count of loaded records, or empty if the format is not supported by the loader
+     */
+    OptionalInt load(Path file, DataFormat format);
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.transfer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reader of records in CSV format (RFC 4180) with header line of attribute names. All values are returned as strings.
+ * @author Radek Beran
+ */
+public class CsvRecordReader implements RecordReader {
+
+    private final Reader reader;
+    private final char delimiter;
+    private List<String> header;
+
+    public CsvRecordReader(Reader reader, char delimiter) {
+        this.reader = reader instanceof BufferedReader ? reader : new BufferedReader(reader);
+        this.delimiter = delimiter;
+    }
+
+    public CsvRecordReader(Reader reader) {
+        this(reader, CsvRecordWriter.DEFAULT_DELIMITER);
+    }
+
+    /**
+     * Returns attribute names from the header line, the header is read if it was not read yet.
+     * @return attribute names, empty list for empty input
+     * @throws IOException
+     */
+    public List<String> readHeader() throws IOException {
+        if (header == null) {
+            List<String> row = readRow();
+            header = row != null ? row : new ArrayList<>();
+        }
+        return header;
+    }
+
+    @Override
+    public Map<String, Object> readRecord() throws IOException {
+        List<String> attributeNames = readHeader();
+        List<String> row = readRow();
+        // Empty lines are skipped
+        while (row != null && row.size() == 1 && row.get(0).isEmpty()) {
+            row = readRow();
+        }
+        if (row == null) {
+            return null;
+        }
+        if (row.size() != attributeNames.size()) {
+            throw new IllegalArgumentException("Count of values " + row.size() + " does not match count of attributes " + attributeNames.size());
+        }
+        Map<String, Object> record = new LinkedHashMap<>();
+        for (int i = 0; i < row.size(); i++) {
+            record.put(attributeNames.get(i), row.get(i));
+        }
+        return record;
+    }
+
+    protected List<String> readRow() throws IOException {
+        int c = reader.read();
+        if (c < 0) {
+            return null;
+        }
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c < 0) {
+                    throw new IllegalArgumentException("Unterminated quoted value: " + value);
+                }
+                if (c == '"') {
+                    int next = reader.read();
+                    if (next != '"') {
+                        quoted = false;
+                        c = next;
+                        continue;
+                    }
+                }
+                value.append((char)c);
+            } else if (c < 0 || c == '\n') {
+                values.add(value.toString());
+                return values;
+            } else if (c == delimiter) {
+                values.add(value.toString());
+                value.setLength(0);
+            } else if (c == '"' && value.length() == 0) {
+                quoted = true;
+            } else if (c != '\r') {
+                value.append((char)c);
+            }
+            c = reader.read();
+        }
+    }
+}
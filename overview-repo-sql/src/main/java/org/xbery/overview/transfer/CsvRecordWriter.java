@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.transfer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writer of records in CSV format (RFC 4180): values containing delimiter, quotes or line breaks are quoted,
+ * null values are written as empty values.
+ * @author Radek Beran
+ */
+public class CsvRecordWriter extends AbstractRecordWriter {
+
+    public static final char DEFAULT_DELIMITER = ',';
+
+    private final char delimiter;
+    private boolean firstValue;
+
+    public CsvRecordWriter(Writer writer, char delimiter) {
+        super(writer);
+        this.delimiter = delimiter;
+    }
+
+    public CsvRecordWriter(Writer writer) {
+        this(writer, DEFAULT_DELIMITER);
+    }
+
+    @Override
+    public void writeHeader(List<String> attributeNames) throws IOException {
+        startRecord();
+        for (String attributeName : attributeNames) {
+            writeValue(attributeName, attributeName);
+        }
+        endRecord();
+    }
+
+    @Override
+    public void startRecord() {
+        firstValue = true;
+    }
+
+    @Override
+    public void writeValue(String attributeName, Object value) throws IOException {
+        if (!firstValue) {
+            writer.write(delimiter);
+        }
+        firstValue = false;
+        if (value != null) {
+            writeText(formatValue(value));
+        }
+    }
+
+    @Override
+    public void endRecord() throws IOException {
+        writer.write("\r\n");
+    }
+
+    protected void writeText(String text) throws IOException {
+        boolean quoted = false;
+        for (int i = 0; i < text.length() && !quoted; i++) {
+            char c = text.charAt(i);
+            quoted = c == delimiter || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quoted) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+}
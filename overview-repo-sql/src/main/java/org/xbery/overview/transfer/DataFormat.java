@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.transfer;
+
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * Text format of exported or imported records.
+ * @author Radek Beran
+ */
+public enum DataFormat {
+    /** Comma separated values with header line of attribute names. */
+    CSV("csv") {
+        @Override
+        public RecordWriter createWriter(Writer writer) {
+            return new CsvRecordWriter(writer);
+        }
+
+        @Override
+        public RecordReader createReader(Reader reader) {
+            return new CsvRecordReader(reader);
+        }
+    },
+    /** One JSON object per line, attribute names are keys of the object. */
+    JSON_LINES("jsonl") {
+        @Override
+        public RecordWriter createWriter(Writer writer) {
+            return new JsonLinesRecordWriter(writer);
+        }
+
+        @Override
+        public RecordReader createReader(Reader reader) {
+            return new JsonLinesRecordReader(reader);
+        }
+    };
+
+    private final String fileExtension;
+
+    DataFormat(String fileExtension) {
+        this.fileExtension = fileExtension;
+    }
+
+    public String getFileExtension() {
+        return fileExtension;
+    }
+
+    /**
+     * Creates writer of records in this format.
+     * @param writer target writer, it is not closed by the record writer
+     * @return
+     */
+    public abstract RecordWriter createWriter(Writer writer);
+
+    /**
+     * Creates reader of records in this format.
+     * @param reader source reader, it is not closed by the record reader
+     * @return
+     */
+    public abstract RecordReader createReader(Reader reader);
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.transfer;
+
+/**
+ * Error of import of one record (parsing or validation error) or of one batch of records (write error).
+ * @author Radek Beran
+ */
+public class ImportError {
+
+    private final int firstRecordNumber;
+    private final int lastRecordNumber;
+    private final String message;
+    private final Exception cause;
+
+    /**
+     * @param firstRecordNumber number of the first record of the batch (records are numbered from 1, header is not counted)
+     * @param lastRecordNumber number of the last record of the batch
+     * @param message error message
+     * @param cause cause of the error, can be null
+     */
+    public ImportError(int firstRecordNumber, int lastRecordNumber, String message, Exception cause) {
+        this.firstRecordNumber = firstRecordNumber;
+        this.lastRecordNumber = lastRecordNumber;
+        this.message = message;
+        this.cause = cause;
+    }
+
+    public int getFirstRecordNumber() {
+        return firstRecordNumber;
+    }
+
+    public int getLastRecordNumber() {
+        return lastRecordNumber;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public Exception getCause() {
+        return cause;
+    }
+
+    @Override
+    public String toString() {
+        String records = firstRecordNumber == lastRecordNumber ? "Record " + firstRecordNumber : "Records " + firstRecordNumber + "-" + lastRecordNumber;
+        return records + ": " + message;
+    }
+}
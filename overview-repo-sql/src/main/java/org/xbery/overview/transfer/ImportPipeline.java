@@ -0,0 +1,352 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.transfer;
+
+import org.xbery.overview.mapper.Attribute;
+import org.xbery.overview.mapper.EntityMapper;
+import org.xbery.overview.mapper.MapAttributeSource;
+import org.xbery.overview.repo.Repository;
+import org.xbery.overview.repo.RepositoryException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * <p>Streaming import of records in a {@link DataFormat}. Records are read and converted to entities by attributes
+ * of the entity mapper (using {@link MapAttributeSource}) and validated in the calling thread; valid entities
+ * are grouped to batches that are passed through a bounded queue to parallel batch writers. Reading is blocked
+ * when the writers do not keep up, so only a limited count of records is held in memory.
+ * <p>Records that cannot be parsed or are not valid and batches that cannot be written are reported as {@link ImportError}s,
+ * the other records are imported. Files can be loaded natively by the database using the {@link BulkLoader} if it is set,
+ * no validator is used and the file is not compressed; such a load is all or nothing. The loader refuses files
+ * with values that the database would not convert as {@link TextValueConvertor} does (e.g. instants and booleans
+ * for MySQL), they are imported by the batch writers. Thread-safe.
+ * @param <T> type of entity
+ * @author Radek Beran
+ */
+public class ImportPipeline<T> {
+
+    private final EntityMapper<T, ?> entityMapper;
+    private final List<Attribute<T, ?>> attributes;
+    private final BatchWriter<T> batchWriter;
+    private final int batchSize;
+    private final int parallelism;
+    private final int queueCapacity;
+    private final Function<T, String> validator;
+    private final BulkLoader bulkLoader;
+    private final Executor executor;
+    private final TextValueConvertor valueConvertor;
+    /** Marks end of batches for the writers. */
+    private final Batch<T> end = new Batch<>(Collections.emptyList(), 0, 0);
+
+    private ImportPipeline(Builder<T> builder) {
+        this.entityMapper = builder.entityMapper;
+        this.attributes = builder.entityMapper.getAttributes();
+        this.batchWriter = builder.batchWriter;
+        this.batchSize = builder.batchSize;
+        this.parallelism = builder.parallelism;
+        this.queueCapacity = builder.queueCapacity;
+        this.validator = builder.validator;
+        this.bulkLoader = builder.bulkLoader;
+        this.executor = builder.executor;
+        this.valueConvertor = builder.valueConvertor;
+    }
+
+    /**
+     * Creates builder of pipeline that writes batches of entities using given writer.
+     */
+    public static <T> Builder<T> builder(EntityMapper<T, ?> entityMapper, BatchWriter<T> batchWriter) {
+        return new Builder<>(entityMapper, batchWriter);
+    }
+
+    /**
+     * Creates builder of pipeline that writes batches of entities using {@link Repository#createAll(List, boolean)}
+     * of given repository (without generated keys).
+     */
+    public static <T> Builder<T> builder(EntityMapper<T, ?> entityMapper, Repository<T, ?, ?> repository) {
+        return new Builder<>(entityMapper, entities -> repository.createAll(entities, false));
+    }
+
+    /**
+     * Imports records from given file. The file is loaded using the {@link BulkLoader} if possible.
+     * @param file file with records
+     * @param format format of the file
+     * @param gzip true if the file is compressed by gzip
+     * @return
+     */
+    public ImportResult run(Path file, DataFormat format, boolean gzip) {
+        if (bulkLoader != null && validator == null && !gzip) {
+            OptionalInt loadedCount = bulkLoader.load(file, format);
+            if (loadedCount.isPresent()) {
+                return new ImportResult(loadedCount.getAsInt(), loadedCount.getAsInt(), new ArrayList<>());
+            }
+        }
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            return run(inputStream, format, gzip);
+        } catch (IOException ex) {
+            throw new RepositoryException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Imports records from given stream in UTF-8 encoding.
+     * @param inputStream source stream, it is not closed
+     * @param format format of records
+     * @param gzip true if the stream is compressed by gzip
+     * @return
+     */
+    public ImportResult run(InputStream inputStream, DataFormat format, boolean gzip) {
+        try {
+            InputStream source = gzip ? new GZIPInputStream(inputStream) : inputStream;
+            return run(new InputStreamReader(source, StandardCharsets.UTF_8), format);
+        } catch (IOException ex) {
+            throw new RepositoryException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Imports records from given reader.
+     * @param reader source reader, it is not closed
+     * @param format format of records
+     * @return
+     */
+    public ImportResult run(Reader reader, DataFormat format) {
+        BlockingQueue<Batch<T>> queue = new ArrayBlockingQueue<>(queueCapacity);
+        List<ImportError> errors = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger importedCount = new AtomicInteger();
+        ExecutorService ownExecutor = executor == null ? Executors.newFixedThreadPool(parallelism, r -> {
+            Thread thread = new Thread(r, "import-batch-writer");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+        List<CompletableFuture<Void>> writers = new ArrayList<>();
+        for (int i = 0; i < parallelism; i++) {
+            writers.add(CompletableFuture.runAsync(() -> writeBatches(queue, importedCount, errors), executor != null ? executor : ownExecutor));
+        }
+        int recordCount = 0;
+        try {
+            RecordReader recordReader = format.createReader(reader);
+            List<T> entities = new ArrayList<>(batchSize);
+            int firstRecordNumber = 0;
+            while (true) {
+                Map<String, Object> record;
+                try {
+                    record = recordReader.readRecord();
+                    if (record == null) {
+                        break;
+                    }
+                    recordCount++;
+                } catch (IllegalArgumentException ex) {
+                    recordCount++;
+                    errors.add(new ImportError(recordCount, recordCount, ex.getMessage(), ex));
+                    continue;
+                }
+                T entity = parseEntity(record, recordCount, errors);
+                if (entity != null) {
+                    if (entities.isEmpty()) {
+                        firstRecordNumber = recordCount;
+                    }
+                    entities.add(entity);
+                    if (entities.size() == batchSize) {
+                        queue.put(new Batch<>(entities, firstRecordNumber, recordCount));
+                        entities = new ArrayList<>(batchSize);
+                    }
+                }
+            }
+            if (!entities.isEmpty()) {
+                queue.put(new Batch<>(entities, firstRecordNumber, recordCount));
+            }
+        } catch (IOException ex) {
+            throw new RepositoryException(ex.getMessage(), ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RepositoryException("Import was interrupted", ex);
+        } finally {
+            endWriters(queue, writers);
+            if (ownExecutor != null) {
+                ownExecutor.shutdown();
+            }
+        }
+        List<ImportError> sortedErrors = new ArrayList<>(errors);
+        sortedErrors.sort(Comparator.comparingInt(ImportError::getFirstRecordNumber));
+        return new ImportResult(recordCount, importedCount.get(), sortedErrors);
+    }
+
+    /**
+     * Converts values of record to entity and validates it.
+     * @return entity, or null if the record is not valid
+     */
+    protected T parseEntity(Map<String, Object> record, int recordNumber, List<ImportError> errors) {
+        try {
+            Map<String, Object> values = new HashMap<>();
+            for (Attribute<T, ?> attribute : attributes) {
+                values.put(attribute.getName(), valueConvertor.fromText(attribute.getAttributeClass(), record.get(attribute.getName())));
+            }
+            // Entity is created also with empty primary key, so it can be validated
+            T entity = entityMapper.createEntity(new MapAttributeSource(values), attributes, null);
+            String validationError = validator != null ? validator.apply(entity) : null;
+            if (validationError != null) {
+                errors.add(new ImportError(recordNumber, recordNumber, validationError, null));
+                return null;
+            }
+            return entity;
+        } catch (RuntimeException ex) {
+            errors.add(new ImportError(recordNumber, recordNumber, ex.getMessage(), ex));
+            return null;
+        }
+    }
+
+    private void writeBatches(BlockingQueue<Batch<T>> queue, AtomicInteger importedCount, List<ImportError> errors) {
+        try {
+            while (true) {
+                Batch<T> batch = queue.take();
+                if (batch == end) {
+                    return;
+                }
+                try {
+                    batchWriter.write(batch.entities);
+                    importedCount.addAndGet(batch.entities.size());
+                } catch (Exception ex) {
+                    errors.add(new ImportError(batch.firstRecordNumber, batch.lastRecordNumber, ex.getMessage(), ex));
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void endWriters(BlockingQueue<Batch<T>> queue, List<CompletableFuture<Void>> writers) {
+        try {
+            for (int i = 0; i < writers.size(); i++) {
+                queue.put(end);
+            }
+            CompletableFuture.allOf(writers.toArray(new CompletableFuture<?>[0])).join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RepositoryException("Import was interrupted", ex);
+        }
+    }
+
+    private static class Batch<T> {
+        final List<T> entities;
+        final int firstRecordNumber;
+        final int lastRecordNumber;
+
+        Batch(List<T> entities, int firstRecordNumber, int lastRecordNumber) {
+            this.entities = entities;
+            this.firstRecordNumber = firstRecordNumber;
+            this.lastRecordNumber = lastRecordNumber;
+        }
+    }
+
+    public static class Builder<T> {
+        // Required parameters
+        private final EntityMapper<T, ?> entityMapper;
+        private final BatchWriter<T> batchWriter;
+
+        // Optional parameters - initialized to default values
+        private int batchSize = 500;
+        private int parallelism = 2;
+        private int queueCapacity = 4;
+        private Function<T, String> validator;
+        private BulkLoader bulkLoader;
+        private Executor executor;
+        private TextValueConvertor valueConvertor = new TextValueConvertor();
+
+        public Builder(EntityMapper<T, ?> entityMapper, BatchWriter<T> batchWriter) {
+            this.entityMapper = Objects.requireNonNull(entityMapper, "entity mapper should be specified");
+            this.batchWriter = Objects.requireNonNull(batchWriter, "batch writer should be specified");
+        }
+
+        /**
+         * Count of entities written in one batch.
+         */
+        public Builder<T> batchSize(int batchSize) {
+            this.batchSize = requirePositive(batchSize, "batch size");
+            return this;
+        }
+
+        /**
+         * Count of concurrent batch writers.
+         */
+        public Builder<T> parallelism(int parallelism) {
+            this.parallelism = requirePositive(parallelism, "parallelism");
+            return this;
+        }
+
+        /**
+         * Maximum count of batches waiting for writers, reading of records is blocked when the queue is full.
+         */
+        public Builder<T> queueCapacity(int queueCapacity) {
+            this.queueCapacity = requirePositive(queueCapacity, "queue capacity");
+            return this;
+        }
+
+        /**
+         * Validator returning error message for an invalid entity, or null for a valid entity.
+         */
+        public Builder<T> validator(Function<T, String> validator) {
+            this.validator = validator;
+            return this;
+        }
+
+        public Builder<T> bulkLoader(BulkLoader bulkLoader) {
+            this.bulkLoader = bulkLoader;
+            return this;
+        }
+
+        /**
+         * Executor running batch writers, it must be able to run {@link #parallelism(int)} tasks concurrently.
+         * By default, a new thread pool is created for each import.
+         */
+        public Builder<T> executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public Builder<T> valueConvertor(TextValueConvertor valueConvertor) {
+            this.valueConvertor = Objects.requireNonNull(valueConvertor, "value convertor should be specified");
+            return this;
+        }
+
+        public ImportPipeline<T> build() {
+            return new ImportPipeline<>(this);
+        }
+
+        private static int requirePositive(int value, String name) {
+            if (value <= 0) {
+                throw new IllegalArgumentException(name + " should be positive, but was " + value);
+            }
+            return value;
+        }
+    }
+}
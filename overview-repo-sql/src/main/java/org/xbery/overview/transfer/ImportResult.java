@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.transfer;
+
+import java.util.List;
+
+/**
+ * Result of import: counts of read and imported records and errors of records and batches that were not imported.
+ * @author Radek Beran
+ */
+public class ImportResult {
+
+    private final int recordCount;
+    private final int importedCount;
+    private final List<ImportError> errors;
+
+    public ImportResult(int recordCount, int importedCount, List<ImportError> errors) {
+        this.recordCount = recordCount;
+        this.importedCount = importedCount;
+        this.errors = errors;
+    }
+
+    /**
+     * Count of read records.
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Count of successfully written records.
+     */
+    public int getImportedCount() {
+        return importedCount;
+    }
+
+    /**
+     * Errors ordered by numbers of records.
+     */
+    public List<ImportError> getErrors() {
+        return errors;
+    }
+
+    public boolean isSuccessful() {
+        return errors.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "ImportResult{recordCount=" + recordCount + ", importedCount=" + importedCount + ", errors=" + errors + "}";
+    }
+}
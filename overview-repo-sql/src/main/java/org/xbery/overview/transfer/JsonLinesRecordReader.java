@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.transfer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reader of records in JSON Lines format: one flat JSON object per line. Strings and numbers are returned as strings
+ * (numbers in their literal form, so no precision is lost), booleans as {@link Boolean}. Nested objects and arrays
+ * are not supported.
+ * @author Radek Beran
+ */
+public class JsonLinesRecordReader implements RecordReader {
+
+    private final BufferedReader reader;
+
+    public JsonLinesRecordReader(Reader reader) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader)reader : new BufferedReader(reader);
+    }
+
+    @Override
+    public Map<String, Object> readRecord() throws IOException {
+        String line = reader.readLine();
+        while (line != null && line.trim().isEmpty()) {
+            line = reader.readLine();
+        }
+        return line != null ? new LineParser(line).parseObject() : null;
+    }
+
+    private static class LineParser {
+        private final String line;
+        private int pos;
+
+        LineParser(String line) {
+            this.line = line;
+        }
+
+        Map<String, Object> parseObject() {
+            Map<String, Object> record = new LinkedHashMap<>();
+            expect('{');
+            if (peek() == '}') {
+                pos++;
+            } else {
+                while (true) {
+                    String name = parseString();
+                    expect(':');
+                    record.put(name, parseValue());
+                    char c = next();
+                    if (c == '}') {
+                        break;
+                    }
+                    if (c != ',') {
+                        throw error("Expected , or }");
+                    }
+                }
+            }
+            if (peek() != 0) {
+                throw error("Unexpected content after object");
+            }
+            return record;
+        }
+
+        private Object parseValue() {
+            char c = peek();
+            if (c == '"') {
+                return parseString();
+            }
+            if (c == '{' || c == '[') {
+                throw error("Nested objects and arrays are not supported");
+            }
+            int start = pos;
+            while (pos < line.length() && ",} \t".indexOf(line.charAt(pos)) < 0) {
+                pos++;
+            }
+            String literal = line.substring(start, pos);
+            switch (literal) {
+                case "null":
+                    return null;
+                case "true":
+                    return Boolean.TRUE;
+                case "false":
+                    return Boolean.FALSE;
+                default:
+                    if (literal.isEmpty() || !(literal.charAt(0) == '-' || Character.isDigit(literal.charAt(0)))) {
+                        throw error("Invalid value " + literal);
+                    }
+                    return literal;
+            }
+        }
+
+        private String parseString() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                if (pos >= line.length()) {
+                    throw error("Unterminated string");
+                }
+                char c = line.charAt(pos++);
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (pos >= line.length()) {
+                    throw error("Unterminated string");
+                }
+                char escaped = line.charAt(pos++);
+                switch (escaped) {
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'u':
+                        if (pos + 4 > line.length()) {
+                            throw error("Invalid unicode escape");
+                        }
+                        sb.append((char)Integer.parseInt(line.substring(pos, pos + 4), 16));
+                        pos += 4;
+                        break;
+                    default:
+                        sb.append(escaped);
+                }
+            }
+        }
+
+        private void expect(char expected) {
+            if (next() != expected) {
+                throw error("Expected " + expected);
+            }
+        }
+
+        private char next() {
+            char c = peek();
+            pos++;
+            return c;
+        }
+
+        /** Returns next non-whitespace character without consuming it, zero at the end of line. */
+        private char peek() {
+            while (pos < line.length() && Character.isWhitespace(line.charAt(pos))) {
+                pos++;
+            }
+            return pos < line.length() ? line.charAt(pos) : 0;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + pos + " of line: " + line);
+        }
+    }
+}
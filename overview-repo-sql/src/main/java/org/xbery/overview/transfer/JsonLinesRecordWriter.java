@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.transfer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writer of records in JSON Lines format: one JSON object per line. Numbers and booleans are written as JSON literals,
+ * other values as strings.
+ * @author Radek Beran
+ */
+public class JsonLinesRecordWriter extends AbstractRecordWriter {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private boolean firstValue;
+
+    public JsonLinesRecordWriter(Writer writer) {
+        super(writer);
+    }
+
+    @Override
+    public void writeHeader(List<String> attributeNames) {
+        // Attribute names are keys in each record
+    }
+
+    @Override
+    public void startRecord() throws IOException {
+        writer.write('{');
+        firstValue = true;
+    }
+
+    @Override
+    public void writeValue(String attributeName, Object value) throws IOException {
+        if (!firstValue) {
+            writer.write(',');
+        }
+        firstValue = false;
+        writeString(attributeName);
+        writer.write(':');
+        if (value == null) {
+            writer.write("null");
+        } else if (value instanceof Boolean || (value instanceof Number && isFinite((Number)value))) {
+            writer.write(formatValue(value));
+        } else {
+            writeString(formatValue(value));
+        }
+    }
+
+    @Override
+    public void endRecord() throws IOException {
+        writer.write("}\n");
+    }
+
+    protected void writeString(String text) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        writer.write("\\u00");
+                        writer.write(HEX_DIGITS[c >> 4]);
+                        writer.write(HEX_DIGITS[c & 0xF]);
+                    } else {
+                        writer.write(c);
+                    }
+            }
+        }
+        writer.write('"');
+    }
+
+    private static boolean isFinite(Number number) {
+        // NaN and infinity have no JSON literal
+        if (number instanceof Double || number instanceof Float) {
+            double d = number.doubleValue();
+            return !Double.isNaN(d) && !Double.isInfinite(d);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.transfer;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Reader of records in a text {@link DataFormat}.
+ * @author Radek Beran
+ */
+public interface RecordReader {
+
+    /**
+     * Reads next record.
+     * @return values of the record by attribute names (text values are not converted to attribute types),
+     * or null if there are no more records
+     * @throws IOException
+     * @throws IllegalArgumentException if the record is malformed; following records can still be read
+     */
+    Map<String, Object> readRecord() throws IOException;
+}
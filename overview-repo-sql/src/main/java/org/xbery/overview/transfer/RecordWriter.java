@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.transfer;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writer of records in a text {@link DataFormat}. Values of one record are written one by one
+ * between {@link #startRecord()} and {@link #endRecord()}, so no intermediate objects are needed.
+ * @author Radek Beran
+ */
+public interface RecordWriter {
+
+    /**
+     * Writes header with names of attributes, before the first record.
+     * @param attributeNames
+     * @throws IOException
+     */
+    void writeHeader(List<String> attributeNames) throws IOException;
+
+    void startRecord() throws IOException;
+
+    /**
+     * Writes value of attribute of the current record.
+     * @param attributeName
+     * @param value value, can be null
+     * @throws IOException
+     */
+    void writeValue(String attributeName, Object value) throws IOException;
+
+    void endRecord() throws IOException;
+
+    /**
+     * Flushes written records to the underlying writer.
+     * @throws IOException
+     */
+    void flush() throws IOException;
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.transfer;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Converts text values of imported records to types of attributes. Text formats correspond to the formats
+ * written by {@link AbstractRecordWriter}, empty text is converted to null.
+ * @author Radek Beran
+ */
+public class TextValueConvertor {
+
+    /**
+     * Converts given value to given attribute class.
+     * @param cls class of attribute
+     * @param value value read from record, usually a string
+     * @param <A>
+     * @return
+     * @throws IllegalArgumentException if the value cannot be converted
+     */
+    public <A> A fromText(Class<A> cls, Object value) {
+        if (value == null || cls.isInstance(value) && !"".equals(value)) {
+            return cls.cast(value);
+        }
+        String text = value.toString();
+        if (text.isEmpty()) {
+            return null;
+        }
+        return cls.cast(convert(cls, text));
+    }
+
+    protected Object convert(Class<?> cls, String text) {
+        if (cls.equals(Integer.class)) {
+            return Integer.valueOf(text);
+        } else if (cls.equals(Long.class)) {
+            return Long.valueOf(text);
+        } else if (cls.equals(Short.class)) {
+            return Short.valueOf(text);
+        } else if (cls.equals(Byte.class)) {
+            return Byte.valueOf(text);
+        } else if (cls.equals(Double.class)) {
+            return Double.valueOf(text);
+        } else if (cls.equals(Float.class)) {
+            return Float.valueOf(text);
+        } else if (cls.equals(BigDecimal.class)) {
+            return new BigDecimal(text);
+        } else if (cls.equals(BigInteger.class)) {
+            return new BigInteger(text);
+        } else if (cls.equals(Boolean.class)) {
+            if ("true".equalsIgnoreCase(text) || "1".equals(text)) {
+                return Boolean.TRUE;
+            } else if ("false".equalsIgnoreCase(text) || "0".equals(text)) {
+                return Boolean.FALSE;
+            }
+            throw new IllegalArgumentException("Invalid boolean value: " + text);
+        } else if (cls.equals(Instant.class)) {
+            return Instant.parse(text);
+        } else if (cls.equals(Date.class)) {
+            return Date.from(Instant.parse(text));
+        } else if (cls.equals(LocalDate.class)) {
+            return LocalDate.parse(text);
+        } else if (cls.equals(LocalDateTime.class)) {
+            return LocalDateTime.parse(text);
+        } else if (cls.equals(UUID.class)) {
+            return UUID.fromString(text);
+        } else if (cls.isEnum()) {
+            for (Object constant : cls.getEnumConstants()) {
+                if (((Enum<?>)constant).name().equals(text)) {
+                    return constant;
+                }
+            }
+            throw new IllegalArgumentException("No enum constant " + cls.getName() + "." + text);
+        }
+        throw new IllegalArgumentException("Unsupported attribute class: " + cls.getName());
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.repo.metrics;
+
+/**
+ * Emitting of Java Flight Recorder events about repository operations: {@link RepositoryQueryEvent},
+ * {@link RepositoryWriteEvent} and {@link ConnectionAcquireEvent}. Implementation for Java 11 and newer
+ * in multi-release jar. Events that are not enabled in the running recording cost only the check of their enablement.
+ * @author Radek Beran
+ */
+public final class RepositoryEvents {
+
+    private static final RepositoryQueryEvent QUERY_EVENT = new RepositoryQueryEvent();
+    private static final RepositoryWriteEvent WRITE_EVENT = new RepositoryWriteEvent();
+    private static final ConnectionAcquireEvent CONNECTION_ACQUIRE_EVENT = new ConnectionAcquireEvent();
+
+    private RepositoryEvents() {
+    }
+
+    /**
+     * True if some of repository events is recorded.
+     */
+    public static boolean isEnabled() {
+        return QUERY_EVENT.isEnabled() || WRITE_EVENT.isEnabled() || CONNECTION_ACQUIRE_EVENT.isEnabled();
+    }
+
+    /**
+     * Begins events for an operation of given type.
+     * @param type
+     * @return handle of begun events passed to the other methods, null if no event is recorded
+     */
+    public static Object begin(OperationType type) {
+        if (!isEnabled()) {
+            return null;
+        }
+        RepositoryOperationEvent operationEvent = type == OperationType.QUERY ? new RepositoryQueryEvent() : new RepositoryWriteEvent();
+        operationEvent.operation = type.name();
+        ConnectionAcquireEvent acquireEvent = new ConnectionAcquireEvent();
+        operationEvent.begin();
+        acquireEvent.begin();
+        return new BegunEvents(operationEvent, acquireEvent);
+    }
+
+    /**
+     * Ends waiting for a database connection.
+     * @param events handle returned by {@link #begin(OperationType)}
+     * @param dataSetName
+     */
+    public static void connectionAcquired(Object events, String dataSetName) {
+        if (events != null) {
+            ConnectionAcquireEvent acquireEvent = ((BegunEvents)events).acquireEvent;
+            acquireEvent.end();
+            if (acquireEvent.shouldCommit()) {
+                acquireEvent.dataSet = dataSetName;
+                acquireEvent.commit();
+            }
+        }
+    }
+
+    /**
+     * Ends and commits events of finished operation.
+     * @param events handle returned by {@link #begin(OperationType)}
+     * @param dataSetName name of table or collection
+     * @param fingerprint statement fingerprint
+     * @param parameterCount count of parameters bound to the statement
+     * @param rows count of returned or affected rows
+     * @param error error of failed operation, or null
+     */
+    public static void finished(Object events, String dataSetName, String fingerprint, int parameterCount, long rows, Throwable error) {
+        if (events != null) {
+            RepositoryOperationEvent operationEvent = ((BegunEvents)events).operationEvent;
+            operationEvent.end();
+            if (operationEvent.shouldCommit()) {
+                operationEvent.dataSet = dataSetName;
+                operationEvent.fingerprint = fingerprint;
+                operationEvent.parameterCount = parameterCount;
+                operationEvent.rows = rows;
+                operationEvent.error = error != null ? error.getClass().getName() + ": " + error.getMessage() : null;
+                operationEvent.commit();
+            }
+        }
+    }
+
+    private static final class BegunEvents {
+        private final RepositoryOperationEvent operationEvent;
+        private final ConnectionAcquireEvent acquireEvent;
+
+        BegunEvents(RepositoryOperationEvent operationEvent, ConnectionAcquireEvent acquireEvent) {
+            this.operationEvent = operationEvent;
+            this.acquireEvent = acquireEvent;
+        }
+    }
+}
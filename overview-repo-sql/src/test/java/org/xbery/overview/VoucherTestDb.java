@@ -31,13 +31,22 @@ public class VoucherTestDb {
 	 * @return
 	 */
 	public DataSource createDataSource() {
+		return createDataSource("test");
+	}
+
+	/**
+	 * Creates data source to in-memory H2 database with given name.
+	 * @param dbName name of database, data sources with different names use independent databases
+	 * @return
+	 */
+	public DataSource createDataSource(String dbName) {
 		JdbcDataSource ds = new JdbcDataSource();
 		// H2, by default, drops your in memory database if there are no connections to it anymore.
 		// You probably don't want this to happen (e.g. you have multiple queries with different connections).
 		// To prevent this add DB_CLOSE_DELAY=-1 to the url (use a semicolon as a separator). 
 		
 		// voucher-create.sql is also intended for production database
-		ds.setURL("jdbc:h2:mem:test;MODE=MYSQL;DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:/" + VoucherTestDb.class.getPackage().getName().replace('.', '/') + "/voucher-create.sql'");
+		ds.setURL("jdbc:h2:mem:" + dbName + ";MODE=MYSQL;DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:/" + VoucherTestDb.class.getPackage().getName().replace('.', '/') + "/voucher-create.sql'");
 		ds.setUser("sa");
 		ds.setPassword("sa");
 		return ds;
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.filter;
+
+import org.junit.Test;
+import org.xbery.overview.Overview;
+import org.xbery.overview.VoucherTestDb;
+import org.xbery.overview.domain.SupplyPoint;
+import org.xbery.overview.domain.SupplyPointFilter;
+import org.xbery.overview.mapper.Attr;
+import org.xbery.overview.mapper.Attribute;
+import org.xbery.overview.repo.Conditions;
+import org.xbery.overview.repo.metrics.OperationEvent;
+import org.xbery.overview.sql.repo.SqlRepository;
+import org.xbery.overview.sql.repo.SupplyPointMapper;
+import org.xbery.overview.sql.repo.VoucherMapper;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link ConditionOptimizer}.
+ * @author Radek Beran
+ */
+public class ConditionOptimizerTest {
+
+	private final VoucherMapper mapper = VoucherMapper.getInstance();
+	private final SupplyPointMapper supplyPointMapper = SupplyPointMapper.getInstance();
+	private final ConditionOptimizer optimizer = new ConditionOptimizer();
+
+	@Test
+	public void flattensAndRemovesDuplicates() {
+		Condition contains = Conditions.contains(mapper.invoice_note, "Jan");
+		List<Condition> optimized = optimizer.optimize(Arrays.asList(
+			Conditions.and(Conditions.and(Conditions.eq(mapper.code, "A"), contains), Conditions.contains(mapper.invoice_note, "Jan")),
+			Conditions.eq(mapper.code, "A"),
+			Conditions.eq(mapper.sold_by, null)));
+		assertEquals(Arrays.asList(Conditions.eq(mapper.code, "A"), contains, Conditions.eq(mapper.sold_by, null)), optimized);
+	}
+
+	@Test
+	public void mergesOrOfEqualsToIn() {
+		List<Condition> optimized = optimizer.optimize(Collections.singletonList(
+			Conditions.or(Conditions.or(Conditions.eq(mapper.code, "A"), Conditions.eq(mapper.code, "B")),
+				Conditions.or(Conditions.in(mapper.code, Arrays.asList("B", "C")), Conditions.eq(mapper.reserved_by, "cust1")))));
+		assertEquals(Collections.singletonList(
+			Conditions.or(Conditions.in(mapper.code, Arrays.asList("A", "B", "C")), Conditions.eq(mapper.reserved_by, "cust1"))), optimized);
+
+		// Disjunction of one attribute only is merged to IN, the same values to equality
+		assertEquals(Collections.singletonList(Conditions.in(mapper.code, Arrays.asList("A", "B"))),
+			optimizer.optimize(Collections.singletonList(Conditions.or(Conditions.eq(mapper.code, "A"), Conditions.eq(mapper.code, "B")))));
+		assertEquals(Collections.singletonList(Conditions.eq(mapper.code, "A")),
+			optimizer.optimize(Collections.singletonList(Conditions.or(Conditions.eq(mapper.code, "A"), Conditions.eq(mapper.code, "A")))));
+	}
+
+	@Test
+	public void keepsConditionsOfDifferentAliases() {
+		Attribute<?, String> firstCode = mapper.code.withNamePrefix("a");
+		Attribute<?, String> secondCode = mapper.code.withNamePrefix("b");
+		Attribute<?, String> firstSoldBy = mapper.sold_by.withNamePrefix("a");
+		Attribute<?, String> secondSoldBy = mapper.sold_by.withNamePrefix("b");
+		Condition or = Conditions.or(
+			Conditions.and(Conditions.eq(firstCode, "A"), Conditions.eq(firstSoldBy, "shop")),
+			Conditions.and(Conditions.eq(secondCode, "A"), Conditions.eq(secondSoldBy, "shop")));
+		assertEquals(Collections.singletonList(or), optimizer.optimize(Collections.singletonList(or)));
+		List<Condition> contains = Arrays.asList(Conditions.contains(firstSoldBy, "shop"), Conditions.contains(secondSoldBy, "shop"));
+		assertEquals(contains, optimizer.optimize(contains));
+		List<Condition> eqAttributes = Arrays.asList(Conditions.eqAttributes(firstCode, firstSoldBy), Conditions.eqAttributes(secondCode, secondSoldBy));
+		assertEquals(eqAttributes, optimizer.optimize(eqAttributes));
+		assertNotEquals(Conditions.eq(firstCode, "A"), Conditions.eq(secondCode, "A"));
+	}
+
+	@Test
+	public void intersectsValuesOfAttribute() {
+		assertEquals(Collections.singletonList(Conditions.eq(supplyPointMapper.customer_id, 2)), optimizer.optimize(Arrays.asList(
+			Conditions.in(supplyPointMapper.customer_id, Arrays.asList(1, 2)),
+			Conditions.or(Conditions.eq(supplyPointMapper.customer_id, 2), Conditions.eq(supplyPointMapper.customer_id, 3)))));
+		// Numbers that differ in scale are equal
+		assertEquals(Collections.singletonList(Conditions.eq(mapper.discount_price, new BigDecimal("1.0"))), optimizer.optimize(Arrays.asList(
+			Conditions.eq(mapper.discount_price, new BigDecimal("1.0")),
+			Conditions.eq(mapper.discount_price, new BigDecimal("1.00")))));
+		// Range is implied by allowed values
+		assertEquals(Collections.singletonList(Conditions.eq(mapper.discount_price, BigDecimal.TEN)), optimizer.optimize(Arrays.asList(
+			Conditions.in(mapper.discount_price, Arrays.asList(BigDecimal.ONE, BigDecimal.TEN)),
+			Conditions.gt(mapper.discount_price, BigDecimal.ONE))));
+		// Tightest bounds are kept
+		Instant now = Instant.now();
+		assertEquals(Arrays.asList(Conditions.gte(mapper.valid_to, now), Conditions.lt(mapper.valid_to, now.plusSeconds(10))), optimizer.optimize(Arrays.asList(
+			Conditions.gt(mapper.valid_to, now.minusSeconds(10)),
+			Conditions.gte(mapper.valid_to, now),
+			Conditions.lt(mapper.valid_to, now.plusSeconds(10)),
+			Conditions.lte(mapper.valid_to, now.plusSeconds(20)))));
+	}
+
+	@Test
+	public void detectsContradictions() {
+		assertAlwaysFalse(Conditions.eq(supplyPointMapper.customer_id, 1), Conditions.eq(supplyPointMapper.customer_id, 2));
+		assertAlwaysFalse(Conditions.eq(supplyPointMapper.customer_id, 1), Conditions.in(supplyPointMapper.customer_id, Arrays.asList(2, 3)));
+		assertAlwaysFalse(Conditions.eq(mapper.reserved_by, "cust1"), Conditions.in(mapper.code, Collections.emptyList()));
+		assertAlwaysFalse(Conditions.gt(mapper.discount_price, BigDecimal.TEN), Conditions.lte(mapper.discount_price, BigDecimal.ONE));
+		assertAlwaysFalse(Conditions.gt(mapper.discount_price, BigDecimal.ONE), Conditions.lt(mapper.discount_price, BigDecimal.ONE));
+		assertAlwaysFalse(Conditions.eq(mapper.discount_price, BigDecimal.ONE), Conditions.gte(mapper.discount_price, BigDecimal.TEN));
+		assertAlwaysFalse(Conditions.or(
+			Conditions.and(Conditions.eq(supplyPointMapper.customer_id, 1), Conditions.eq(supplyPointMapper.customer_id, 2)),
+			Conditions.in(mapper.code, Collections.emptyList())));
+		assertAlwaysFalse(Conditions.contains(mapper.invoice_note, "Jan"), Conditions.alwaysFalse());
+
+		// Unsatisfiable branch of disjunction is removed
+		assertEquals(Collections.singletonList(Conditions.eq(mapper.reserved_by, "cust1")), optimizer.optimize(Collections.singletonList(Conditions.or(
+			Conditions.in(mapper.code, Collections.emptyList()),
+			Conditions.eq(mapper.reserved_by, "cust1")))));
+		// Closed range of one value is equality
+		assertEquals(Collections.singletonList(Conditions.eq(mapper.discount_price, BigDecimal.ONE)), optimizer.optimize(Arrays.asList(
+			Conditions.gte(mapper.discount_price, BigDecimal.ONE),
+			Conditions.lte(mapper.discount_price, BigDecimal.ONE))));
+	}
+
+	@Test
+	public void leavesStringsToDatabase() {
+		// Result of comparison of strings depends on collation of the database
+		List<Condition> equalities = Arrays.asList(Conditions.eq(mapper.code, "a"), Conditions.eq(mapper.code, "A"));
+		assertEquals(equalities, optimizer.optimize(equalities));
+		List<Condition> range = Arrays.asList(Conditions.gte(mapper.invoice_note, "a"), Conditions.lte(mapper.invoice_note, "B"));
+		assertEquals(range, optimizer.optimize(range));
+		assertFalse(optimizer.isAlwaysFalse(optimizer.optimize(range)));
+	}
+
+	@Test
+	public void keepsValuesOfMultiValuedAttribute() {
+		Attribute<SupplyPoint, Integer> bonusPoints = Attr.ofInteger(SupplyPoint.class, "bonus_points").multiValued().get(e -> null).build();
+		List<Condition> equalities = Arrays.asList(Conditions.eq(bonusPoints, 1), Conditions.eq(bonusPoints, 2));
+		assertEquals(equalities, optimizer.optimize(equalities));
+		List<Condition> range = Arrays.asList(Conditions.gt(bonusPoints, 10), Conditions.lt(bonusPoints, 5));
+		assertEquals(range, optimizer.optimize(range));
+	}
+
+	@Test
+	public void keepsValuesOfDifferentClasses() {
+		Attribute<Object, Object> attribute = (Attribute)mapper.code;
+		List<Condition> conditions = Arrays.asList(Conditions.eq(attribute, "1"), Conditions.eq(attribute, 1));
+		assertEquals(conditions, optimizer.optimize(conditions));
+	}
+
+	@Test
+	public void impossibleFilterIsNotQueried() {
+		List<OperationEvent> events = new ArrayList<>();
+		SqlRepository<SupplyPoint, Integer, SupplyPointFilter> repo = new SqlRepository<>(
+			new VoucherTestDb().createDataSource("optimizer"), SupplyPointMapper.getInstance(), null, events::add);
+		SupplyPointFilter filter = new SupplyPointFilter();
+		filter.setCustomerId(1);
+		filter.setCustomerIds(Arrays.asList(2, 3));
+
+		assertTrue(repo.findByOverview(new Overview<>(filter, null, null)).isEmpty());
+		assertEquals(0, repo.countByFilter(filter, null));
+		assertEquals(0, repo.deleteByFilter(filter));
+		assertTrue("Database was not queried", events.isEmpty());
+
+		filter.setCustomerIds(Arrays.asList(1, 2));
+		assertEquals(0, repo.countByFilter(filter, null));
+		assertEquals(1, events.size());
+	}
+
+	private void assertAlwaysFalse(Condition... conditions) {
+		List<Condition> optimized = optimizer.optimize(Arrays.asList(conditions));
+		assertTrue("Conditions " + optimized + " cannot be satisfied", optimizer.isAlwaysFalse(optimized));
+	}
+}
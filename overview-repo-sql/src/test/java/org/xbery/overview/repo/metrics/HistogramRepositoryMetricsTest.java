@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.repo.metrics;
+
+import org.junit.Test;
+import org.xbery.overview.VoucherTestDb;
+import org.xbery.overview.data.VoucherTestData;
+import org.xbery.overview.domain.Voucher;
+import org.xbery.overview.sql.repo.SqlRepository;
+import org.xbery.overview.sql.repo.VoucherMapper;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link HistogramRepositoryMetrics} and related metrics classes.
+ * @author Radek Beran
+ */
+public class HistogramRepositoryMetricsTest {
+
+	@Test
+	public void histogramPercentiles() {
+		LogLinearHistogram histogram = new LogLinearHistogram();
+		for (long v = 1; v <= 1000; v++) {
+			histogram.record(v * 1000);
+		}
+		assertEquals(1000, histogram.getCount());
+		assertEquals(1000, histogram.getMin());
+		assertEquals(1000000, histogram.getMax());
+		assertEquals(500500.0, histogram.getMean(), 0.001);
+		// Relative error is at most 1/32
+		assertEquals(500000, histogram.getValueAtPercentile(50), 500000 / 32);
+		assertEquals(990000, histogram.getValueAtPercentile(99), 990000 / 32);
+		assertEquals(1000000, histogram.getValueAtPercentile(100));
+		histogram.reset();
+		assertEquals(0, histogram.getValueAtPercentile(50));
+	}
+
+	@Test
+	public void fingerprints() {
+		assertEquals("SELECT a FROM t WHERE b IN (?+) AND c = ? LIMIT ? OFFSET ?",
+			StatementFingerprints.sql("SELECT a FROM t WHERE b IN (?, ?,?)  AND c = 'x''y' LIMIT 10 OFFSET 20"));
+		assertEquals(StatementFingerprints.sql("INSERT INTO t (a,b) VALUES (?,?),(?,?),(?,?)"), StatementFingerprints.sql("INSERT INTO t (a,b) VALUES (?,?),(?,?)"));
+		assertEquals("SELECT col1 FROM t2", StatementFingerprints.sql("SELECT col1 FROM t2"));
+		assertEquals("{ \"_id\" : { \"$in\" : [?+] }, \"price\" : { \"$gt\" : ? } }",
+			StatementFingerprints.json("{ \"_id\" : { \"$in\" : [\"a\", \"b\"] }, \"price\" : { \"$gt\" : 10.5 } }"));
+	}
+
+	@Test
+	public void collectsRepositoryOperations() throws Exception {
+		MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+		JmxRepositoryMetricsExporter metrics = new JmxRepositoryMetricsExporter(mBeanServer, "overview.test");
+		VoucherTestData testData = new VoucherTestData();
+		SqlRepository<Voucher, String, Object> repo = new SqlRepository<>(new VoucherTestDb().createDataSource("metrics"), VoucherMapper.getInstance(), null, metrics);
+		try {
+			repo.create(testData.createVoucher("MET1"), false);
+			repo.create(testData.createVoucher("MET2"), false);
+			repo.findByIds(Arrays.asList("MET1", "MET2", "MET3"));
+			repo.findByIds(Arrays.asList("MET1"));
+
+			OperationStats createStats = metrics.getStats().stream().filter(s -> s.getType() == OperationType.CREATE).findFirst().get();
+			assertEquals(2, createStats.getCount());
+			assertEquals(2, createStats.getRows());
+			assertEquals("voucher", createStats.getDataSetName());
+
+			// Queries with different count of ids have the same fingerprint
+			OperationStats queryStats = metrics.getStats().stream().filter(s -> s.getType() == OperationType.QUERY).findFirst().get();
+			assertEquals(2, queryStats.getCount());
+			assertEquals(3, queryStats.getRows());
+			assertEquals(0, queryStats.getErrorCount());
+			assertTrue(queryStats.getMaxMillis() > 0);
+
+			Set<ObjectName> names = mBeanServer.queryNames(new ObjectName("overview.test:type=RepositoryOperation,*"), null);
+			assertEquals(metrics.getStats().size(), names.size());
+			ObjectName createName = names.stream().filter(n -> "CREATE".equals(n.getKeyProperty("operation"))).findFirst().get();
+			assertEquals(2L, mBeanServer.getAttribute(createName, "Count"));
+		} finally {
+			repo.deleteByFilter(new Object());
+			metrics.unregisterAll();
+		}
+		assertTrue(mBeanServer.queryNames(new ObjectName("overview.test:*"), null).isEmpty());
+	}
+}
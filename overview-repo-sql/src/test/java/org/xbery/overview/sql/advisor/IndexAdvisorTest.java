@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.sql.advisor;
+
+import org.junit.Test;
+import org.xbery.overview.Order;
+import org.xbery.overview.VoucherTestDb;
+import org.xbery.overview.data.VoucherTestData;
+import org.xbery.overview.domain.Voucher;
+import org.xbery.overview.filter.Condition;
+import org.xbery.overview.repo.Conditions;
+import org.xbery.overview.sql.repo.SqlRepository;
+import org.xbery.overview.sql.repo.VoucherMapper;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link IndexAdvisor} and {@link SlowQueryAnalyzer}.
+ * @author Radek Beran
+ */
+public class IndexAdvisorTest {
+
+	@Test
+	public void suggestsIndexesForSlowQueries() throws Exception {
+		SlowQueryAnalyzer analyzer = new SlowQueryAnalyzer(Duration.ZERO);
+		VoucherByReservationMapper mapper = new VoucherByReservationMapper();
+		SqlRepository<Voucher, String, Object> repo = new SqlRepository<Voucher, String, Object>(new VoucherTestDb().createDataSource("advisor"), mapper) {
+			@Override
+			protected SlowQueryAnalyzer getSlowQueryAnalyzer() {
+				return analyzer;
+			}
+		};
+		VoucherTestData testData = new VoucherTestData();
+		repo.create(testData.createVoucher("ADV1"), false);
+
+		repo.findByFilter("Adam", Arrays.asList(new Order(mapper.creation_time, false)));
+		// Aggregation is analyzed as well
+		repo.countByFilter("Adam", null);
+		repo.findById("ADV1");
+
+		List<SlowQuery> slowQueries = analyzer.getSlowQueries();
+		assertEquals(3, slowQueries.size());
+		String plan = slowQueries.get(slowQueries.size() - 1).getExplain().get(10, TimeUnit.SECONDS);
+		assertFalse("Execution plan is loaded", plan.isEmpty());
+
+		List<IndexSuggestion> suggestions = analyzer.getIndexAdvisor().getSuggestions(2);
+		assertEquals("Query by primary key needs no index", 1, suggestions.size());
+		assertEquals(Arrays.asList("reserved_by", "valid_to"), suggestions.get(0).getAttributeNames());
+		assertEquals(2, suggestions.get(0).getOccurrences());
+		assertEquals("CREATE INDEX `idx_voucher_reserved_by_valid_to` ON `voucher` (`reserved_by`, `valid_to`);", suggestions.get(0).getCreateIndexSql());
+	}
+
+	@Test
+	public void mergesIndexPrefixes() {
+		IndexAdvisor advisor = new IndexAdvisor();
+		List<String> pk = Collections.singletonList("code");
+		advisor.record(new QueryShape("voucher", Collections.singleton("sold_by"), Collections.emptySet(), Collections.emptyList(), Collections.emptyList()), 10, pk);
+		advisor.record(new QueryShape("voucher", Collections.singleton("sold_by"), Collections.emptySet(), Arrays.asList("valid_from"), Collections.emptyList()), 20, pk);
+		advisor.record(new QueryShape("voucher", Collections.singleton("code"), Collections.emptySet(), Arrays.asList("valid_from"), Collections.emptyList()), 30, pk);
+
+		List<IndexSuggestion> suggestions = advisor.getSuggestions(1);
+		assertEquals(1, suggestions.size());
+		assertEquals(Arrays.asList("sold_by", "valid_from"), suggestions.get(0).getAttributeNames());
+		assertEquals(2, suggestions.get(0).getOccurrences());
+		assertEquals(30, suggestions.get(0).getTotalNanos());
+	}
+
+	/**
+	 * Voucher mapper with filter by reservation.
+	 */
+	private static class VoucherByReservationMapper extends VoucherMapper {
+		@Override
+		public List<Condition> composeFilterConditions(Object filter) {
+			List<Condition> conditions = new ArrayList<>();
+			conditions.add(Conditions.eq(reserved_by, (String)filter));
+			conditions.add(Conditions.gte(valid_to, Instant.EPOCH));
+			return conditions;
+		}
+	}
+}
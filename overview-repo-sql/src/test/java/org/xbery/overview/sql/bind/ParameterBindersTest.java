@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.sql.bind;
+
+import org.junit.Test;
+import org.xbery.overview.VoucherTestDb;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.*;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link ParameterBinders} and {@link BindingPlan}.
+ * @author Radek Beran
+ */
+public class ParameterBindersTest {
+
+	private final ParameterBinders binders = new ParameterBinders();
+
+	@Test
+	public void bindersAreSelectedByClass() {
+		assertSame(binders.getBinder(Integer.class), binders.getBinderForValue(1));
+		// All enums share one binder
+		assertSame(binders.getBinder(Enum.class), binders.getBinder(TimeUnit.class));
+		assertSame(binders.getBinder(Enum.class), binders.getBinderForValue(ChronoUnit.DAYS));
+		assertSame(ParameterBinders.OBJECT_BINDER, binders.getBinder(Object.class));
+		assertSame(ParameterBinders.OBJECT_BINDER, binders.getBinderForValue(null));
+
+		// Registered binder replaces also binders of subclasses resolved so far
+		ParameterBinder ordinalBinder = (statement, index, value) -> statement.setInt(index, ((Enum<?>)value).ordinal());
+		binders.register(Enum.class, ordinalBinder);
+		assertSame(ordinalBinder, binders.getBinder(TimeUnit.class));
+	}
+
+	@Test
+	public void registeredBindersOfSubclassesAreKept() {
+		ParameterBinders defaultBinders = new ParameterBinders();
+		ParameterBinder utilDateBinder = defaultBinders.getBinder(java.util.Date.class);
+		ParameterBinder timestampBinder = defaultBinders.getBinder(Timestamp.class);
+		ParameterBinder sqlDateBinder = defaultBinders.getBinder(java.sql.Date.class);
+		ParameterBinder timeBinder = defaultBinders.getBinder(Time.class);
+		assertNotSame(utilDateBinder, timestampBinder);
+		assertNotSame(utilDateBinder, sqlDateBinder);
+		assertNotSame(utilDateBinder, timeBinder);
+		assertNotSame(sqlDateBinder, timeBinder);
+
+		defaultBinders.register(java.util.Date.class, ParameterBinders.OBJECT_BINDER);
+		assertSame(timestampBinder, defaultBinders.getBinder(Timestamp.class));
+		assertSame(sqlDateBinder, defaultBinders.getBinder(java.sql.Date.class));
+		assertSame(timeBinder, defaultBinders.getBinder(Time.class));
+	}
+
+	@Test
+	public void valuesAreBoundAccordingToPlan() throws Exception {
+		DataSource dataSource = new VoucherTestDb().createDataSource("binders");
+		try (Connection conn = dataSource.getConnection()) {
+			try (Statement statement = conn.createStatement()) {
+				statement.execute("CREATE TABLE bound_values (i INT, l BIGINT, s VARCHAR(20), d DECIMAL(10, 2), ts TIMESTAMP, dt DATE, e VARCHAR(20), n INT)");
+			}
+			BindingPlan plan = binders.createPlan(Arrays.asList(
+				Integer.class, Long.class, String.class, BigDecimal.class, LocalDateTime.class, LocalDate.class, TimeUnit.class, Integer.class));
+			assertEquals(8, plan.size());
+			LocalDateTime time = LocalDateTime.of(2020, 3, 1, 10, 30, 15);
+			try (PreparedStatement statement = conn.prepareStatement("INSERT INTO bound_values VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+				plan.bind(statement, Arrays.asList(1, 2L, "text", new BigDecimal("3.50"), time, time.toLocalDate(), TimeUnit.SECONDS, null));
+				assertEquals(1, statement.executeUpdate());
+				// Value of unexpected class is bound according to its own class
+				plan.bind(statement, Arrays.asList(2, 3L, "text", BigDecimal.ONE, Instant.EPOCH, time.toLocalDate(), "SECONDS", 4));
+				assertEquals(1, statement.executeUpdate());
+			}
+			try (Statement statement = conn.createStatement(); ResultSet rs = statement.executeQuery("SELECT * FROM bound_values ORDER BY i")) {
+				assertTrue(rs.next());
+				assertEquals(2L, rs.getLong("l"));
+				assertEquals(new BigDecimal("3.50"), rs.getBigDecimal("d"));
+				assertEquals(Timestamp.valueOf(time), rs.getTimestamp("ts"));
+				assertEquals(time.toLocalDate(), rs.getDate("dt").toLocalDate());
+				assertEquals("SECONDS", rs.getString("e"));
+				assertNull(rs.getObject("n"));
+				assertTrue(rs.next());
+				assertEquals(Instant.EPOCH, rs.getTimestamp("ts").toInstant());
+				assertEquals(4, rs.getInt("n"));
+			}
+		}
+	}
+}
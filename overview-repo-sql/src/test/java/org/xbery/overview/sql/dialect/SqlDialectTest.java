@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.sql.dialect;
+
+import org.junit.Test;
+import org.xbery.overview.Pagination;
+import org.xbery.overview.sql.repo.VoucherMapper;
+import org.xbery.overview.transfer.DataFormat;
+
+import java.math.BigDecimal;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link SqlDialect} implementations.
+ * @author Radek Beran
+ */
+public class SqlDialectTest {
+
+	private final VoucherMapper mapper = VoucherMapper.getInstance();
+
+	@Test
+	public void appendPagination() {
+		assertEquals(" LIMIT 20 OFFSET 10", pagination(new MySqlDialect()));
+		assertEquals(" OFFSET 10 ROWS FETCH FIRST 20 ROWS ONLY", pagination(new H2Dialect()));
+		assertEquals(" OFFSET 10 ROWS FETCH FIRST 20 ROWS ONLY", pagination(new PostgreSqlDialect()));
+		assertEquals(" LIMIT 20 OFFSET 10", pagination(new GenericSqlDialect()));
+	}
+
+	@Test
+	public void unknownDatabaseUsesConservativeDialect() throws SQLException {
+		DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+		when(metaData.getDatabaseProductName()).thenReturn("SQLite");
+		when(metaData.getDatabaseProductVersion()).thenReturn("3.36.0");
+		SqlDialect dialect = SqlDialects.fromMetaData(metaData);
+		assertTrue(dialect instanceof GenericSqlDialect);
+		assertEquals(" LIMIT 20 OFFSET 10", pagination(dialect));
+		assertFalse(dialect.supportsWindowCount());
+		assertFalse(dialect.supportsUpsert());
+		assertFalse(dialect.supportsInsertReturning());
+	}
+
+	@Test
+	public void composeUpsertSqlForMySql() {
+		String sql = new MySqlDialect().composeUpsertSql(mapper.getTableNameWithDb(), mapper.getAttributeNames(), mapper.getPrimaryAttributeNames());
+		assertTrue(sql, sql.startsWith("INSERT INTO voucher (code,creation_time,"));
+		assertTrue(sql, sql.endsWith("ON DUPLICATE KEY UPDATE creation_time=VALUES(creation_time),discount_price=VALUES(discount_price),valid_from=VALUES(valid_from),valid_to=VALUES(valid_to),redemption_time=VALUES(redemption_time),invalidation_time=VALUES(invalidation_time),invalidation_note=VALUES(invalidation_note),renewal_note=VALUES(renewal_note),reserved_by=VALUES(reserved_by),redeemed_by=VALUES(redeemed_by),sold_by=VALUES(sold_by),invoice_time=VALUES(invoice_time),invoice_note=VALUES(invoice_note)"));
+	}
+
+	@Test
+	public void composeUpsertSqlForPostgreSql() {
+		assertEquals("INSERT INTO item (id,name) VALUES (?,?) ON CONFLICT (id) DO UPDATE SET name=EXCLUDED.name",
+			new PostgreSqlDialect().composeUpsertSql("item", Arrays.asList("id", "name"), Collections.singletonList("id")));
+		assertEquals("INSERT INTO item (id) VALUES (?) ON CONFLICT (id) DO NOTHING",
+			new PostgreSqlDialect().composeUpsertSql("item", Collections.singletonList("id"), Collections.singletonList("id")));
+	}
+
+	@Test
+	public void composeInsertReturning() {
+		assertEquals("INSERT INTO item (name) VALUES (?) RETURNING id, name",
+			new PostgreSqlDialect().composeInsertReturning("INSERT INTO item (name) VALUES (?)", Arrays.asList("id", "name")));
+		assertEquals("SELECT id, name FROM FINAL TABLE (INSERT INTO item (name) VALUES (?))",
+			new H2Dialect().composeInsertReturning("INSERT INTO item (name) VALUES (?)", Arrays.asList("id", "name")));
+		assertFalse(new MySqlDialect().supportsInsertReturning());
+	}
+
+	@Test
+	public void composeBulkLoadForMySql() {
+		MySqlDialect dialect = new MySqlDialect();
+		String crlf = dialect.composeBulkLoad("item", Arrays.asList("id", "name"), "items.csv", DataFormat.CSV, "\r\n");
+		assertTrue(crlf, crlf.contains("LINES TERMINATED BY '\\r\\n' IGNORE 1 LINES (@id,@name) SET id=NULLIF(@id,''),name=NULLIF(@name,'')"));
+		String lf = dialect.composeBulkLoad("item", Arrays.asList("id", "name"), "items.csv", DataFormat.CSV, "\n");
+		assertTrue(lf, lf.contains("LINES TERMINATED BY '\\n' IGNORE 1 LINES"));
+		assertTrue(dialect.supportsBulkLoadOf(BigDecimal.class));
+		assertFalse("Instants are written in ISO-8601 format not accepted by MySQL", dialect.supportsBulkLoadOf(Instant.class));
+		assertFalse("Booleans are written as true/false", dialect.supportsBulkLoadOf(Boolean.class));
+		assertTrue(new H2Dialect().supportsBulkLoadOf(Instant.class));
+	}
+
+	@Test
+	public void versionComparison() {
+		assertTrue(SqlDialects.isVersionAtLeast("1.4.200 (2019-10-14)", 1, 4, 198));
+		assertFalse(SqlDialects.isVersionAtLeast("1.4.197", 1, 4, 198));
+		assertTrue(SqlDialects.isVersionAtLeast("8.0.21", 8, 0, 0));
+		assertFalse(SqlDialects.isVersionAtLeast("5.7.30-log", 8, 0, 0));
+	}
+
+	private String pagination(SqlDialect dialect) {
+		StringBuilder sb = new StringBuilder();
+		dialect.appendPagination(sb, new Pagination(10, 20));
+		dialect.appendPagination(sb, null);
+		return sb.toString();
+	}
+}
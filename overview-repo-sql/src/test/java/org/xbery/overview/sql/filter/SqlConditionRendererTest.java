@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.sql.filter;
+
+import org.junit.Test;
+import org.xbery.overview.Order;
+import org.xbery.overview.Overview;
+import org.xbery.overview.VoucherTestDb;
+import org.xbery.overview.common.IntValues;
+import org.xbery.overview.data.SupplyPointTestData;
+import org.xbery.overview.domain.SupplyPoint;
+import org.xbery.overview.domain.SupplyPointFilter;
+import org.xbery.overview.filter.Condition;
+import org.xbery.overview.mapper.Attribute;
+import org.xbery.overview.repo.Conditions;
+import org.xbery.overview.sql.dialect.H2Dialect;
+import org.xbery.overview.sql.dialect.MySqlDialect;
+import org.xbery.overview.sql.dialect.StandardSqlDialect;
+import org.xbery.overview.sql.repo.SqlRepository;
+import org.xbery.overview.sql.repo.SupplyPointMapper;
+import org.xbery.overview.sql.repo.VoucherMapper;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link SqlConditionRenderer}.
+ * @author Radek Beran
+ */
+public class SqlConditionRendererTest {
+
+	private final VoucherMapper mapper = VoucherMapper.getInstance();
+
+	@Test
+	public void renderConjunction() {
+		SqlConditionRenderer renderer = new SqlConditionRenderer();
+		StringBuilder sql = new StringBuilder("SELECT code FROM voucher WHERE ");
+		List<Object> parameters = new ArrayList<>();
+		List<Condition> conditions = Arrays.asList(
+			Conditions.or(Conditions.eq(mapper.reserved_by, "cust1"), Conditions.contains(mapper.invoice_note, "Jan")),
+			Conditions.in(mapper.code, Arrays.asList("A", "B")),
+			Conditions.eq(mapper.sold_by, null),
+			Conditions.in(mapper.code, Collections.emptyList()),
+			Conditions.gte(mapper.discount_price, BigDecimal.ONE));
+		renderer.renderConjunction(conditions, new SqlRenderContext(renderer, sql, parameters, Function.identity()));
+
+		assertEquals("SELECT code FROM voucher WHERE (voucher.reserved_by = ? OR voucher.invoice_note LIKE CONCAT('%', ?, '%')) AND " +
+			"voucher.code IN (?, ?) AND voucher.sold_by IS NULL AND 1 = 0 AND voucher.discount_price >= ?", sql.toString());
+		assertEquals(Arrays.asList("cust1", "Jan", "A", "B", BigDecimal.ONE), parameters);
+	}
+
+	@Test
+	public void buildIsCompatible() {
+		SqlCondition condition = new SqlConditionBuilder().build(
+			Conditions.and(Conditions.lt(mapper.discount_price, BigDecimal.TEN), Conditions.eqAttributes(mapper.sold_by, mapper.redeemed_by)), v -> "db:" + v);
+		assertEquals("(voucher.discount_price < ? AND voucher.sold_by = voucher.redeemed_by)", condition.getConditionWithPlaceholders());
+		assertEquals(Arrays.asList("db:10"), condition.getValues());
+	}
+
+	@Test
+	public void customCondition() {
+		SqlConditionRenderer renderer = new SqlConditionRenderer()
+			.register(NotNullCondition.class, (c, ctx) -> ctx.appendAttribute(c.attribute).append(" IS NOT NULL"));
+		StringBuilder sql = new StringBuilder();
+		renderer.render(Conditions.and(new NotNullCondition(mapper.sold_by), Conditions.eq(mapper.code, "X")), new SqlRenderContext(renderer, sql, new ArrayList<>(), Function.identity()));
+		assertEquals("(voucher.sold_by IS NOT NULL AND voucher.code = ?)", sql.toString());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void unsupportedCondition() {
+		SqlConditionRenderer renderer = new SqlConditionRenderer();
+		renderer.render(new NotNullCondition(mapper.sold_by), new SqlRenderContext(renderer, new StringBuilder(), new ArrayList<>(), Function.identity()));
+	}
+
+	@Test
+	public void inListStrategies() {
+		List<Condition> conditions = Collections.singletonList(Conditions.in(mapper.code, Arrays.asList("A", "B", "C")));
+
+		// Placeholders are padded to power of two by the last value
+		StringBuilder sql = new StringBuilder();
+		List<Object> parameters = new ArrayList<>();
+		SqlConditionRenderer renderer = new SqlConditionRenderer();
+		renderer.renderConjunction(conditions, new SqlRenderContext(renderer, sql, parameters, Function.identity(), new StandardSqlDialect(), new ArrayList<>()));
+		assertEquals("voucher.code IN (?, ?, ?, ?)", sql.toString());
+		assertEquals(Arrays.asList("A", "B", "C", "C"), parameters);
+
+		// Many values bound as one array parameter
+		sql = new StringBuilder();
+		parameters = new ArrayList<>();
+		renderer = new SqlConditionRenderer(3, 3);
+		renderer.renderConjunction(conditions, new SqlRenderContext(renderer, sql, parameters, v -> "db:" + v, new H2Dialect(), new ArrayList<>()));
+		assertEquals("voucher.code = ANY(?)", sql.toString());
+		assertArrayEquals(new Object[] { "db:A", "db:B", "db:C" }, ((SqlArrayParameter)parameters.get(0)).getValues());
+
+		// Many values passed in temporary table if arrays are not supported
+		sql = new StringBuilder();
+		parameters = new ArrayList<>();
+		List<SqlTempTable> tempTables = new ArrayList<>();
+		renderer.renderConjunction(Collections.singletonList(Conditions.in(SupplyPointMapper.getInstance().customer_id, 1, 2, 3)),
+			new SqlRenderContext(renderer, sql, parameters, Function.identity(), new MySqlDialect(), tempTables));
+		assertEquals("voucher_supply_point.customer_id IN (SELECT v FROM overview_in_0)", sql.toString());
+		assertTrue(parameters.isEmpty());
+		assertEquals("INT", tempTables.get(0).getColumnType());
+		assertTrue("Primitive values are not copied", tempTables.get(0).getValues() instanceof IntValues);
+
+		// Temporary tables cannot be used in the statement
+		sql = new StringBuilder();
+		renderer.renderConjunction(conditions, new SqlRenderContext(renderer, sql, new ArrayList<>(), Function.identity(), new MySqlDialect(), null));
+		assertEquals("voucher.code IN (?, ?, ?, ?)", sql.toString());
+	}
+
+	@Test
+	public void queryWithTempTable() {
+		SqlConditionRenderer tempTableRenderer = new SqlConditionRenderer(Integer.MAX_VALUE, 2);
+		SqlRepository<SupplyPoint, Integer, SupplyPointFilter> repo = new SqlRepository<SupplyPoint, Integer, SupplyPointFilter>(
+			new VoucherTestDb().createDataSource("temptable"), SupplyPointMapper.getInstance(), new H2Dialect()) {
+			@Override
+			protected SqlConditionRenderer getConditionRenderer() {
+				return tempTableRenderer;
+			}
+		};
+		SupplyPointTestData testData = new SupplyPointTestData();
+		List<SupplyPoint> supplyPoints = new ArrayList<>();
+		for (int customerId = 1; customerId <= 3; customerId++) {
+			SupplyPoint supplyPoint = testData.createSupplyPoint("SP" + customerId);
+			supplyPoint.setCustomerId(customerId);
+			supplyPoints.add(supplyPoint);
+		}
+		repo.createAll(supplyPoints, true);
+		SupplyPointFilter filter = new SupplyPointFilter();
+		filter.setCustomerIds(IntValues.of(1, 3, 4));
+
+		List<SupplyPoint> found = repo.findByOverview(new Overview<>(filter, Arrays.asList(new Order(SupplyPointMapper.getInstance().customer_id))));
+		assertEquals(Arrays.asList(1, 3), found.stream().map(SupplyPoint::getCustomerId).collect(Collectors.toList()));
+		assertEquals(2, repo.countByFilter(filter, null));
+		// Temporary tables are dropped after each statement, the same name is used again
+		assertEquals(2, repo.deleteByFilter(filter));
+		assertEquals(1, repo.countByFilter(new SupplyPointFilter(), null));
+	}
+
+	private static class NotNullCondition implements Condition {
+		private final Attribute<?, ?> attribute;
+
+		NotNullCondition(Attribute<?, ?> attribute) {
+			this.attribute = attribute;
+		}
+	}
+}
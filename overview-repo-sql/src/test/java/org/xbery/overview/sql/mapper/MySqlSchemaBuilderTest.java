@@ -1,7 +1,18 @@
 package org.xbery.overview.sql.mapper;
 
+import org.xbery.overview.filter.Condition;
+import org.xbery.overview.mapper.Attr;
+import org.xbery.overview.mapper.Attribute;
+import org.xbery.overview.mapper.AttributeSource;
+import org.xbery.overview.mapper.DynamicEntityMapper;
+import org.xbery.overview.mapper.Index;
 import org.xbery.overview.sql.repo.VoucherMapper;
 import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import static org.junit.Assert.*;
 
 /**
@@ -18,4 +29,63 @@ public class MySqlSchemaBuilderTest {
         assertTrue("Generated CREATE TABLE command does not contain code attribute", sql.contains("`code` VARCHAR(20) NOT NULL"));
     }
 
+    @Test
+    public void composeCreateTableSQLWithIndexes() {
+        String sql = new MySqlSchemaBuilder().composeCreateTableSQL(new OrderItemMapper());
+        assertTrue("Integer attribute has no display width", sql.contains("`order_id` BIGINT NOT NULL,"));
+        assertTrue(sql.contains("`line` INT NOT NULL,"));
+        assertFalse("Composite primary key is not generated", sql.contains("AUTO_INCREMENT"));
+        assertTrue(sql.contains("PRIMARY KEY (`order_id`, `line`)"));
+        assertTrue(sql.contains("UNIQUE KEY `uq_order_item_ean` (`ean`)"));
+        assertTrue(sql.contains("KEY `idx_order_item_product_id` (`product_id`)"));
+        assertTrue(sql.contains("KEY `item_by_product_quantity` (`product_id`, `quantity`)"));
+        assertEquals("CREATE UNIQUE INDEX `uq_item` ON `order_item` (`ean`, `line`);",
+            new MySqlSchemaBuilder().composeCreateIndexSQL("order_item", "uq_item", Arrays.asList("ean", "line"), true));
+    }
+
+    @Test
+    public void shortensLongIndexNamesWithoutCollisions() {
+        MySqlSchemaBuilder builder = new MySqlSchemaBuilder();
+        String prefix = "very_long_attribute_name_of_the_first_indexed_column";
+        String firstName = builder.composeIndexName("order_item", Arrays.asList(prefix, "first_column"), false);
+        String secondName = builder.composeIndexName("order_item", Arrays.asList(prefix, "second_column"), false);
+        assertEquals(64, firstName.length());
+        assertEquals(64, secondName.length());
+        assertNotEquals(firstName, secondName);
+        assertEquals("Short name is not changed", "idx_order_item_product_id", builder.composeIndexName("order_item", Arrays.asList("product_id"), false));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void indexOfUnknownAttribute() {
+        new OrderItemMapper().addIndex(new Index(null, Arrays.asList("unknown"), false));
+    }
+
+    /**
+     * Mapper of order items identified by order and line number.
+     */
+    private static class OrderItemMapper extends DynamicEntityMapper<Object, Object> {
+        OrderItemMapper() {
+            Attribute<Object, Long> orderId = add(Attr.ofLong(Object.class, "order_id").primary().get(e -> null));
+            add(Attr.ofInteger(Object.class, "line").primary().get(e -> null));
+            Attribute<Object, Long> productId = add(Attr.ofLong(Object.class, "product_id").indexed().get(e -> null));
+            Attribute<Object, Integer> quantity = add(Attr.ofInteger(Object.class, "quantity").get(e -> null));
+            add(Attr.ofString(Object.class, "ean").unique().maxLength(13).get(e -> null));
+            addIndex(Index.named("item_by_product_quantity", productId, quantity));
+        }
+
+        @Override
+        public String getTableName() {
+            return "order_item";
+        }
+
+        @Override
+        public Object createEntity(AttributeSource attributeSource, List<Attribute<Object, ?>> attributes, String aliasPrefix) {
+            return new Object();
+        }
+
+        @Override
+        public List<Condition> composeFilterConditions(Object filter) {
+            return new ArrayList<>();
+        }
+    }
 }
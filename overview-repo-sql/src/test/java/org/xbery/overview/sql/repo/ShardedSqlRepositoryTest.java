@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.sql.repo;
+
+import org.junit.After;
+import org.junit.Test;
+import org.xbery.overview.Order;
+import org.xbery.overview.Overview;
+import org.xbery.overview.Pagination;
+import org.xbery.overview.VoucherTestDb;
+import org.xbery.overview.data.VoucherTestData;
+import org.xbery.overview.domain.Voucher;
+import org.xbery.overview.repo.AggType;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link ShardedSqlRepository}.
+ * @author Radek Beran
+ */
+public class ShardedSqlRepositoryTest {
+
+	private final VoucherTestData testData;
+	private final VoucherMapper mapper;
+	private final ShardedSqlRepository<Voucher, String, Object> repo;
+
+	public ShardedSqlRepositoryTest() {
+		VoucherTestDb testDb = new VoucherTestDb();
+		this.testData = new VoucherTestData();
+		this.mapper = VoucherMapper.getInstance();
+		this.repo = new ShardedSqlRepository<>(
+			Arrays.asList(testDb.createDataSource("shard0"), testDb.createDataSource("shard1"), testDb.createDataSource("shard2")),
+			mapper);
+	}
+
+	@After
+	public void runAfter() {
+		repo.deleteByFilter(new Object());
+		repo.close();
+	}
+
+	@Test
+	public void routesByKey() {
+		List<Voucher> vouchers = createVouchers(10);
+		for (Voucher voucher : vouchers) {
+			assertTrue("Voucher is found in its shard", repo.getShard(voucher.getCode()).findById(voucher.getCode()).isPresent());
+			assertTrue("Voucher is found by sharded repository", repo.findById(voucher.getCode()).isPresent());
+		}
+		long nonEmptyShards = repo.getShards().stream().filter(s -> s.countByFilter(null, null) > 0).count();
+		assertTrue("Vouchers are distributed to more shards", nonEmptyShards > 1);
+
+		assertTrue(repo.delete(vouchers.get(0).getCode()));
+		assertFalse(repo.findById(vouchers.get(0).getCode()).isPresent());
+	}
+
+	@Test
+	public void findByOverviewWithGlobalOrderingAndPagination() {
+		List<Voucher> vouchers = createVouchers(10);
+		List<String> expectedCodes = vouchers.stream().map(Voucher::getCode).sorted().collect(Collectors.toList());
+
+		Overview<Object> overview = new Overview<>(null, Arrays.asList(new Order(mapper.code, true)), new Pagination(2, 4));
+		List<String> codes = repo.findByOverview(overview).stream().map(Voucher::getCode).collect(Collectors.toList());
+
+		List<String> expectedDesc = new ArrayList<>(expectedCodes);
+		Collections.reverse(expectedDesc);
+		assertEquals(expectedDesc.subList(2, 6), codes);
+		assertEquals(10, repo.findAll().size());
+		assertEquals("Limit of shard queries does not overflow", expectedDesc.subList(2, 10), repo.findByOverview(
+			overview.withPagination(new Pagination(2, Integer.MAX_VALUE))).stream().map(Voucher::getCode).collect(Collectors.toList()));
+	}
+
+	@Test
+	public void findByOverviewWithProjectionLoadsOrderingAttributes() {
+		List<Voucher> vouchers = createVouchers(10);
+		List<String> expectedCodes = vouchers.stream()
+			.sorted(Comparator.comparing(Voucher::getDiscountPrice).reversed())
+			.map(Voucher::getCode)
+			.collect(Collectors.toList());
+
+		Overview<Object> overview = new Overview<>(null, Arrays.asList(new Order(mapper.discount_price, true)), new Pagination(1, 5))
+			.withProjection(mapper.invoice_note);
+		List<Voucher> found = repo.findByOverview(overview);
+		assertEquals("Results are merged by attribute outside of projection", expectedCodes.subList(1, 6),
+			found.stream().map(Voucher::getCode).collect(Collectors.toList()));
+		assertNull("Attribute outside of projection and ordering is not loaded", found.get(0).getReservedBy());
+	}
+
+	@Test
+	public void aggregatesAcrossShards() {
+		createVouchers(10);
+		// Discount prices are 1.00, 2.00, ... 10.00
+		assertEquals(10, repo.countByFilter(null, null));
+		assertEquals(new BigDecimal("55.00"), repo.aggByFilter(AggType.SUM, BigDecimal.class, mapper.discount_price.getName(), null, null));
+		assertEquals(new BigDecimal("1.00"), repo.aggByFilter(AggType.MIN, BigDecimal.class, mapper.discount_price.getName(), null, null));
+		assertEquals(new BigDecimal("10.00"), repo.aggByFilter(AggType.MAX, BigDecimal.class, mapper.discount_price.getName(), null, null));
+		assertEquals(5.5d, repo.aggByFilter(AggType.AVG, Double.class, mapper.discount_price.getName(), null, null), 0.0001d);
+	}
+
+	private List<Voucher> createVouchers(int count) {
+		List<Voucher> vouchers = new ArrayList<>();
+		for (int i = 1; i <= count; i++) {
+			Voucher voucher = testData.createVoucher("SHRD" + i);
+			voucher.setDiscountPrice(BigDecimal.valueOf(i * 100, 2));
+			vouchers.add(voucher);
+		}
+		return repo.createAll(vouchers, false);
+	}
+}
@@ -17,10 +17,22 @@
 package org.xbery.overview.sql.repo;
 
 
+import org.xbery.overview.Order;
+import org.xbery.overview.Overview;
+import org.xbery.overview.Pagination;
+import org.xbery.overview.ResultsWithOverview;
 import org.xbery.overview.VoucherTestDb;
 import org.xbery.overview.common.Pair;
 import org.xbery.overview.data.VoucherTestData;
 import org.xbery.overview.domain.Voucher;
+import org.xbery.overview.filter.Condition;
+import org.xbery.overview.mapper.Attr;
+import org.xbery.overview.mapper.Attribute;
+import org.xbery.overview.mapper.AttributeSource;
+import org.xbery.overview.mapper.DynamicEntityMapper;
+import org.xbery.overview.sql.dialect.GenericSqlDialect;
+import org.xbery.overview.sql.dialect.SqlDialect;
+import org.xbery.overview.sql.mapper.DbTypeConvertor;
 import org.apache.commons.lang3.SerializationUtils;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.junit.After;
@@ -30,8 +42,12 @@ import javax.sql.DataSource;
 import java.math.BigDecimal;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.Arrays;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.*;
 
@@ -176,4 +192,207 @@ public class VoucherRepositoryImplTest {
 		assertTrue("Found voucher equals voucher to store", EqualsBuilder.reflectionEquals(voucher, foundVoucherOpt.get()));
 	}
 
+	@Test
+	public void findByIds() {
+		// Small chunks so the ids are loaded by more queries
+		VoucherRepository chunkedRepo = new VoucherRepositoryImpl(dataSource) {
+			@Override
+			protected int getFindByIdsChunkSize() {
+				return 2;
+			}
+		};
+		repo.createAll(Arrays.asList(testData.createVoucher("ID1"), testData.createVoucher("ID2"), testData.createVoucher("ID3"), testData.createVoucher("ID4")), false);
+
+		Map<String, Voucher> vouchersById = chunkedRepo.findMapByIds(Arrays.asList("ID4", "MISSING", "ID1", "ID4", "ID2"));
+		assertEquals("Found vouchers are in order of ids, without duplicates and missing ids", Arrays.asList("ID4", "ID1", "ID2"), new ArrayList<>(vouchersById.keySet()));
+		assertEquals("ID1", vouchersById.get("ID1").getCode());
+		assertEquals(Arrays.asList("ID2", "ID3"), repo.findByIds(Arrays.asList("ID2", "ID3")).stream().map(Voucher::getCode).collect(Collectors.toList()));
+		assertTrue(repo.findByIds(Collections.emptyList()).isEmpty());
+
+		// Chunks are loaded in parallel by the provided executor
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		AtomicInteger executedCount = new AtomicInteger();
+		VoucherRepository parallelRepo = new VoucherRepositoryImpl(dataSource) {
+			@Override
+			protected int getFindByIdsChunkSize() {
+				return 2;
+			}
+
+			@Override
+			protected Executor getQueryExecutor() {
+				return task -> {
+					executedCount.incrementAndGet();
+					executor.execute(task);
+				};
+			}
+		};
+		try {
+			assertEquals(Arrays.asList("ID4", "ID1", "ID2"), new ArrayList<>(parallelRepo.findMapByIds(Arrays.asList("ID4", "MISSING", "ID1", "ID2")).keySet()));
+			assertEquals(2, executedCount.get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void findByCompositeIds() {
+		repo.createAll(Arrays.asList(testData.createVoucher("CMP1", "cust1"), testData.createVoucher("CMP2", "cust2")), false);
+		SqlRepository<Voucher, Pair<String, String>, Object> compositeRepo = new SqlRepository<>(dataSource, new VoucherByCodeAndReservationMapper());
+
+		Map<Pair<String, String>, Voucher> vouchersById = compositeRepo.findMapByIds(Arrays.asList(
+			new Pair<>("CMP2", "cust2"), new Pair<>("CMP1", "cust2"), new Pair<>("CMP1", "cust1")));
+		assertEquals(Arrays.asList("CMP2", "CMP1"), vouchersById.values().stream().map(Voucher::getCode).collect(Collectors.toList()));
+	}
+
+	@Test
+	public void upsertAll() {
+		repo.create(testData.createVoucher("UPS1"), false);
+		Voucher changedVoucher = testData.createVoucher("UPS1");
+		changedVoucher.setInvoiceNote("Changed invoice note");
+
+		assertEquals(2, repo.upsertAll(Arrays.asList(changedVoucher, testData.createVoucher("UPS2"))));
+		assertEquals("Changed invoice note", repo.findById("UPS1").get().getInvoiceNote());
+		assertTrue(repo.findById("UPS2").isPresent());
+		// Repeated upsert does not fail on duplicate keys
+		assertEquals(2, repo.upsertAll(Arrays.asList(changedVoucher, testData.createVoucher("UPS2"))));
+		assertEquals(2, repo.findAll().size());
+	}
+
+	@Test
+	public void genericDialectPaginatesAndUpserts() {
+		VoucherRepositoryImpl genericRepo = new VoucherRepositoryImpl(dataSource) {
+			@Override
+			protected SqlDialect getDialect() {
+				return new GenericSqlDialect();
+			}
+		};
+		genericRepo.create(testData.createVoucher("GEN1"), false);
+		Voucher changedVoucher = testData.createVoucher("GEN1");
+		changedVoucher.setInvoiceNote("Changed invoice note");
+		assertEquals(2, genericRepo.upsertAll(Arrays.asList(changedVoucher, testData.createVoucher("GEN2"))));
+		assertEquals("Changed invoice note", genericRepo.findById("GEN1").get().getInvoiceNote());
+		ResultsWithOverview<Voucher, Object> page = genericRepo.findResultsWithOverview(
+			new Overview<>(null, Collections.singletonList(new Order(VoucherMapper.getInstance().code, true)), new Pagination(1, 1)));
+		assertEquals(Arrays.asList("GEN1"), page.getResults().stream().map(Voucher::getCode).collect(Collectors.toList()));
+		assertEquals(Integer.valueOf(2), page.getOverview().getPagination().getTotalCount());
+	}
+
+	@Test
+	public void writtenValuesAreConvertedByDbTypeConvertor() {
+		VoucherRepositoryImpl convertingRepo = new VoucherRepositoryImpl(dataSource) {
+			@Override
+			protected DbTypeConvertor getDbTypeConvertor() {
+				return new DbTypeConvertor() {
+					@Override
+					public Object toDbValue(Object v) {
+						return "Plain note".equals(v) ? "Converted note" : super.toDbValue(v);
+					}
+				};
+			}
+		};
+		Voucher voucher = testData.createVoucher("CONV1");
+		voucher.setInvoiceNote("Plain note");
+		convertingRepo.create(voucher, false);
+		assertEquals("Converted note", convertingRepo.findById("CONV1").get().getInvoiceNote());
+		Voucher secondVoucher = testData.createVoucher("CONV2");
+		secondVoucher.setInvoiceNote("Plain note");
+		convertingRepo.createAll(Arrays.asList(secondVoucher), false);
+		assertEquals("Converted note", convertingRepo.findById("CONV2").get().getInvoiceNote());
+		convertingRepo.update("CONV1", Arrays.asList(new Pair<>(VoucherMapper.getInstance().invoice_note, "Plain note")));
+		assertEquals("Converted note", convertingRepo.findById("CONV1").get().getInvoiceNote());
+		voucher.setInvoiceNote("Other note");
+		convertingRepo.upsertAll(Arrays.asList(voucher));
+		assertEquals("Other note", convertingRepo.findById("CONV1").get().getInvoiceNote());
+		secondVoucher.setInvoiceNote("Plain note");
+		convertingRepo.upsertAll(Arrays.asList(secondVoucher));
+		assertEquals("Converted note", convertingRepo.findById("CONV2").get().getInvoiceNote());
+	}
+
+	@Test
+	public void createAllUsingMultiRowInsert() {
+		// Rows are inserted by two statements
+		VoucherRepositoryImpl chunkedRepo = new VoucherRepositoryImpl(dataSource) {
+			@Override
+			protected int getBatchSize() {
+				return 3;
+			}
+		};
+		List<Voucher> vouchers = new ArrayList<>();
+		for (int i = 1; i <= 5; i++) {
+			vouchers.add(testData.createVoucher("MULTI" + i));
+		}
+		assertEquals(5, chunkedRepo.createAll(vouchers, false).size());
+		assertEquals(5, chunkedRepo.countByFilter(null, null));
+		Voucher found = chunkedRepo.findById("MULTI5").get();
+		assertEquals(vouchers.get(4).getDiscountPrice(), found.getDiscountPrice());
+		assertEquals(vouchers.get(4).getReservedBy(), found.getReservedBy());
+	}
+
+	@Test
+	public void findResultsWithOverviewUsingWindowCount() {
+		VoucherMapper mapper = VoucherMapper.getInstance();
+		for (int i = 1; i <= 5; i++) {
+			repo.create(testData.createVoucher("WIN" + i), false);
+		}
+		Overview<Object> overview = new Overview<>(null, Arrays.asList(new Order(mapper.code, false)), new Pagination(1, 2));
+		ResultsWithOverview<Voucher, Object> results = repo.findResultsWithOverview(overview);
+		assertEquals(Arrays.asList("WIN2", "WIN3"), results.getResults().stream().map(Voucher::getCode).collect(Collectors.toList()));
+		assertEquals(Integer.valueOf(5), results.getOverview().getPagination().getTotalCount());
+
+		// Page beyond the last record
+		results = repo.findResultsWithOverview(overview.withPagination(new Pagination(10, 2)));
+		assertTrue(results.getResults().isEmpty());
+		assertEquals(Integer.valueOf(5), results.getOverview().getPagination().getTotalCount());
+	}
+
+	@Test
+	public void findByOverviewWithProjection() {
+		VoucherMapper mapper = VoucherMapper.getInstance();
+		repo.create(testData.createVoucher("PROJ1"), false);
+
+		Overview<Object> overview = Overview.empty().withProjection(mapper.discount_price);
+		List<Voucher> vouchers = repo.findByOverview(overview);
+		assertEquals(1, vouchers.size());
+		assertEquals("Primary key is always loaded", "PROJ1", vouchers.get(0).getCode());
+		assertEquals(BigDecimal.valueOf(100000, 2), vouchers.get(0).getDiscountPrice());
+		assertNull("Attribute outside of projection is not loaded", vouchers.get(0).getInvoiceNote());
+		assertNull(vouchers.get(0).getCreationTime());
+	}
+
+	/**
+	 * Voucher mapper with composite key consisting of code and reservedBy attributes.
+	 */
+	private static class VoucherByCodeAndReservationMapper extends DynamicEntityMapper<Voucher, Object> {
+		private final Attribute<Voucher, String> code;
+		private final Attribute<Voucher, String> reserved_by;
+
+		VoucherByCodeAndReservationMapper() {
+			code = add(Attr.ofString(Voucher.class, "code").primary().get(e -> e.getCode()));
+			reserved_by = add(Attr.ofString(Voucher.class, "reserved_by").primary().get(e -> e.getReservedBy()));
+		}
+
+		@Override
+		public String getTableName() {
+			return "voucher";
+		}
+
+		@Override
+		public Voucher createEntity(AttributeSource attributeSource, List<Attribute<Voucher, ?>> attributes, String aliasPrefix) {
+			Voucher voucher = new Voucher();
+			voucher.setCode(code.getValueFromSource(attributeSource, aliasPrefix));
+			voucher.setReservedBy(reserved_by.getValueFromSource(attributeSource, aliasPrefix));
+			return voucher;
+		}
+
+		@Override
+		public List<Condition> composeFilterConditions(Object filter) {
+			return new ArrayList<>();
+		}
+
+		@Override
+		public <K> List<Pair<Attribute<Voucher, ?>, Object>> decomposePrimaryKey(K key) {
+			Pair<String, String> pair = (Pair<String, String>)key;
+			return Arrays.asList(new Pair<>(code, pair.getFirst()), new Pair<>(reserved_by, pair.getSecond()));
+		}
+	}
 }
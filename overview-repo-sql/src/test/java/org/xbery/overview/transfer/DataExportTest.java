@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.transfer;
+
+import org.junit.Test;
+import org.xbery.overview.Order;
+import org.xbery.overview.Overview;
+import org.xbery.overview.Projection;
+import org.xbery.overview.VoucherTestDb;
+import org.xbery.overview.data.VoucherTestData;
+import org.xbery.overview.domain.Voucher;
+import org.xbery.overview.sql.repo.VoucherMapper;
+import org.xbery.overview.sql.repo.VoucherRepositoryImpl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for export of records in {@link DataFormat}s.
+ * @author Radek Beran
+ */
+public class DataExportTest {
+
+	private final VoucherMapper mapper = VoucherMapper.getInstance();
+	private final VoucherRepositoryImpl repo;
+
+	public DataExportTest() {
+		this.repo = new VoucherRepositoryImpl(new VoucherTestDb().createDataSource("export"));
+		VoucherTestData testData = new VoucherTestData();
+		Voucher first = testData.createVoucher("A1");
+		first.setInvoiceNote("Note, with \"quotes\"\nand line");
+		Voucher second = testData.createVoucher("B2");
+		second.setDiscountPrice(null);
+		second.setInvoiceNote(null);
+		repo.deleteByFilter(new Object());
+		repo.createAll(Arrays.asList(first, second), false);
+	}
+
+	@Test
+	public void exportsCsv() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int count = repo.export(createOverview(), DataFormat.CSV, out, false);
+		assertEquals(2, count);
+		assertEquals("code,discount_price,invoice_note\r\n" +
+			"A1,1000.00,\"Note, with \"\"quotes\"\"\nand line\"\r\n" +
+			"B2,,\r\n", new String(out.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void exportsGzippedJsonLines() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int count = repo.export(createOverview(), DataFormat.JSON_LINES, out, true);
+		assertEquals(2, count);
+		StringWriter json = new StringWriter();
+		try (Reader reader = new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())), StandardCharsets.UTF_8)) {
+			char[] buffer = new char[1024];
+			int read;
+			while ((read = reader.read(buffer)) >= 0) {
+				json.write(buffer, 0, read);
+			}
+		}
+		assertEquals("{\"code\":\"A1\",\"discount_price\":1000.00,\"invoice_note\":\"Note, with \\\"quotes\\\"\\nand line\"}\n" +
+			"{\"code\":\"B2\",\"discount_price\":null,\"invoice_note\":null}\n", json.toString());
+	}
+
+	private Overview<Object> createOverview() {
+		return new Overview<>(null, Collections.singletonList(new Order(mapper.code)), null, null,
+			Projection.of(mapper.discount_price, mapper.invoice_note));
+	}
+}
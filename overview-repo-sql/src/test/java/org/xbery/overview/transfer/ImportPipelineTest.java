@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xbery.overview.transfer;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.junit.Test;
+import org.xbery.overview.Order;
+import org.xbery.overview.Overview;
+import org.xbery.overview.VoucherTestDb;
+import org.xbery.overview.data.VoucherTestData;
+import org.xbery.overview.domain.Voucher;
+import org.xbery.overview.sql.repo.VoucherMapper;
+import org.xbery.overview.sql.repo.VoucherRepositoryImpl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.OptionalInt;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link ImportPipeline}.
+ * @author Radek Beran
+ */
+public class ImportPipelineTest {
+
+	private final VoucherMapper mapper = VoucherMapper.getInstance();
+	private final VoucherRepositoryImpl repo = new VoucherRepositoryImpl(new VoucherTestDb().createDataSource("import"));
+	private final VoucherTestData testData = new VoucherTestData();
+
+	@Test
+	public void importsExportedRecords() {
+		repo.deleteByFilter(new Object());
+		List<Voucher> vouchers = new ArrayList<>();
+		for (int i = 0; i < 25; i++) {
+			Voucher voucher = testData.createVoucher(String.format("V%03d", i));
+			voucher.setInvoiceNote(i % 2 == 0 ? "Note, \"" + i + "\"" : null);
+			vouchers.add(voucher);
+		}
+		repo.createAll(vouchers, false);
+		Overview<Object> overview = new Overview<>(null, Collections.singletonList(new Order(mapper.code)));
+		List<Voucher> stored = repo.findByOverview(overview);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		repo.export(overview, DataFormat.CSV, out, true);
+		repo.deleteByFilter(new Object());
+
+		ImportPipeline<Voucher> pipeline = ImportPipeline.builder(mapper, repo).batchSize(4).parallelism(3).queueCapacity(1).build();
+		ImportResult result = pipeline.run(new ByteArrayInputStream(out.toByteArray()), DataFormat.CSV, true);
+		assertTrue(result.toString(), result.isSuccessful());
+		assertEquals(25, result.getImportedCount());
+		List<Voucher> imported = repo.findByOverview(overview);
+		assertEquals(stored.size(), imported.size());
+		for (int i = 0; i < stored.size(); i++) {
+			assertTrue("Imported voucher " + imported.get(i) + " equals exported voucher", EqualsBuilder.reflectionEquals(stored.get(i), imported.get(i)));
+		}
+	}
+
+	@Test
+	public void reportsErrorsOfRecordsAndBatches() {
+		repo.deleteByFilter(new Object());
+		repo.create(testData.createVoucher("DUP"), false);
+		String time = "\"creation_time\":\"2021-03-01T10:00:00Z\"";
+		String json = "{\"code\":\"OK1\",\"discount_price\":10.50," + time + "}\n" +
+			"{\"code\":\"BAD\",\"discount_price\":\"ten\"," + time + "}\n" +
+			"{\"code\":\"OK2\"\n" +
+			"\n" +
+			"{\"code\":\"OK3\",\"invoice_note\":\"\\u00e9\", " + time + " }\n" +
+			"{\"code\":\"DUP\"," + time + "}\n" +
+			"{\"code\":\"OK4\"," + time + "}\n" +
+			"{\"code\":\"\"," + time + "}\n";
+		ImportPipeline<Voucher> pipeline = ImportPipeline.builder(mapper, repo)
+			.batchSize(2)
+			.validator(v -> v.getCode() == null ? "Code is missing" : null)
+			.build();
+		ImportResult result = pipeline.run(new StringReader(json), DataFormat.JSON_LINES);
+
+		assertEquals(7, result.getRecordCount());
+		assertEquals(2, result.getImportedCount());
+		List<ImportError> errors = result.getErrors();
+		assertEquals(errors.toString(), 4, errors.size());
+		assertEquals(2, errors.get(0).getFirstRecordNumber());
+		assertEquals(3, errors.get(1).getFirstRecordNumber());
+		// Batches contain valid records only, batch of records 5 and 6 fails on duplicate key
+		assertEquals(5, errors.get(2).getFirstRecordNumber());
+		assertEquals(6, errors.get(2).getLastRecordNumber());
+		assertNotNull(errors.get(2).getCause());
+		assertEquals("Record 7: Code is missing", errors.get(3).toString());
+		assertEquals(new BigDecimal("10.50"), repo.findById("OK1").get().getDiscountPrice());
+		assertEquals("\u00e9", repo.findById("OK3").get().getInvoiceNote());
+		assertFalse(repo.findById("OK4").isPresent());
+	}
+
+	@Test
+	public void loadsFileNatively() throws Exception {
+		repo.deleteByFilter(new Object());
+		Path file = Files.createTempFile("vouchers", ".csv");
+		try {
+			Files.write(file, ("code,creation_time,discount_price,invoice_note\r\n" +
+				"B1,2021-03-01T10:00:00Z,12.50,\"Note, with comma\"\r\n" +
+				"B2,2021-03-01T10:00:00Z,,\r\n").getBytes(StandardCharsets.UTF_8));
+			assertFalse(repo.bulkLoad(file, DataFormat.JSON_LINES).isPresent());
+			ImportPipeline<Voucher> pipeline = ImportPipeline.builder(mapper, entities -> {
+				throw new IllegalStateException("Records should be loaded natively");
+			}).bulkLoader(repo::bulkLoad).build();
+			ImportResult result = pipeline.run(file, DataFormat.CSV, false);
+			assertEquals(2, result.getImportedCount());
+			assertEquals("Note, with comma", repo.findById("B1").get().getInvoiceNote());
+			assertNull(repo.findById("B2").get().getDiscountPrice());
+			assertEquals(OptionalInt.of(0), repo.bulkLoad(writeHeaderOnly(), DataFormat.CSV));
+
+			Files.write(file, "code,creation_time,discount_price\nB3,2021-03-01T10:00:00Z,1.00\nB4,2021-03-01T10:00:00Z,2.00\n".getBytes(StandardCharsets.UTF_8));
+			assertEquals("File with LF line ends is loaded", OptionalInt.of(2), repo.bulkLoad(file, DataFormat.CSV));
+			assertEquals(new BigDecimal("2.00"), repo.findById("B4").get().getDiscountPrice());
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	private Path writeHeaderOnly() throws Exception {
+		Path file = Files.createTempFile("vouchers-empty", ".csv");
+		file.toFile().deleteOnExit();
+		Files.write(file, "code\r\n".getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+}